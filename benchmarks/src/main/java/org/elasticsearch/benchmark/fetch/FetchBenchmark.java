@@ -0,0 +1,152 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.fetch;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.fieldvisitor.FieldsVisitor;
+import org.elasticsearch.index.mapper.internal.SourceFieldMapper;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of loading the stored fields of {@code size=1000} hits like the fetch phase does, either in score
+ * order through the segment reader, or in doc id order through a reader that keeps decompressed blocks around.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class FetchBenchmark {
+
+    private static final int NUM_DOCS = 200_000;
+    private static final int SIZE = 1000;
+
+    /** The number of documents that the hits are picked from, the lower the more hits share compressed blocks. */
+    @Param({"2000", "20000", "200000"})
+    public int hitsSpan;
+
+    /** The approximate length of the {@code _source} of documents in bytes. */
+    @Param({"200", "2000"})
+    public int sourceLength;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private LeafReader leafReader;
+    private int[] scoreOrderDocs;
+    private int[] docIdOrderDocs;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Random random = new Random(0);
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()))) {
+            for (int i = 0; i < NUM_DOCS; ++i) {
+                Document doc = new Document();
+                doc.add(new StoredField(UidFieldMapper.NAME, "type#" + i));
+                doc.add(new StoredField(SourceFieldMapper.NAME, source(random, i)));
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+        }
+        reader = DirectoryReader.open(directory);
+        leafReader = reader.leaves().get(0).reader();
+
+        scoreOrderDocs = new int[SIZE];
+        for (int i = 0; i < SIZE; ++i) {
+            scoreOrderDocs[i] = random.nextInt(hitsSpan);
+        }
+        docIdOrderDocs = scoreOrderDocs.clone();
+        Arrays.sort(docIdOrderDocs);
+    }
+
+    private byte[] source(Random random, int id) {
+        StringBuilder source = new StringBuilder("{\"id\":").append(id);
+        for (int field = 0; source.length() < sourceLength; ++field) {
+            source.append(",\"field").append(field).append("\":\"").append(Long.toString(random.nextLong(), 36)).append('"');
+        }
+        return source.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public void scoreOrder(Blackhole bh) throws IOException {
+        final FieldsVisitor visitor = new FieldsVisitor(true);
+        for (int doc : scoreOrderDocs) {
+            visitor.reset();
+            leafReader.document(doc, visitor);
+            bh.consume(visitor.source());
+        }
+    }
+
+    @Benchmark
+    public void docIdOrder(Blackhole bh) throws IOException {
+        final FieldsVisitor visitor = new FieldsVisitor(true);
+        for (int doc : docIdOrderDocs) {
+            visitor.reset();
+            leafReader.document(doc, visitor);
+            bh.consume(visitor.source());
+        }
+    }
+
+    @Benchmark
+    public void docIdOrderSequentialReader(Blackhole bh) throws IOException {
+        final FieldsVisitor visitor = new FieldsVisitor(true);
+        final StoredFieldsReader fieldsReader = Lucene.sequentialStoredFieldsReader(leafReader);
+        for (int doc : docIdOrderDocs) {
+            visitor.reset();
+            fieldsReader.visitDocument(doc, visitor);
+            bh.consume(visitor.source());
+        }
+    }
+}
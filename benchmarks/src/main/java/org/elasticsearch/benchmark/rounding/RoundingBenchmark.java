@@ -0,0 +1,121 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.rounding;
+
+import org.elasticsearch.common.rounding.DateTimeUnit;
+import org.elasticsearch.common.rounding.PreparedRounding;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.common.rounding.TimeZoneRounding;
+import org.elasticsearch.common.unit.TimeValue;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of rounding dates with the roundings that date histograms are configured with, and with the same
+ * roundings once prepared for the range of values of a segment.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class RoundingBenchmark {
+
+    private static final int NUM_VALUES = 1 << 16;
+
+    @Param({"UTC", "Europe/Paris", "America/New_York"})
+    public String timeZone;
+
+    @Param({"second", "hour", "day", "month", "90m"})
+    public String interval;
+
+    /** The number of days that the values span, like the values of a daily index or of a large merged segment. */
+    @Param({"1", "365"})
+    public int days;
+
+    private Rounding rounding;
+    private PreparedRounding preparedRounding;
+    private long[] values;
+
+    @Setup
+    public void setUp() {
+        final DateTimeZone tz = DateTimeZone.forID(timeZone);
+        final TimeZoneRounding.Builder builder;
+        switch (interval) {
+            case "second":
+                builder = TimeZoneRounding.builder(DateTimeUnit.SECOND_OF_MINUTE);
+                break;
+            case "hour":
+                builder = TimeZoneRounding.builder(DateTimeUnit.HOUR_OF_DAY);
+                break;
+            case "day":
+                builder = TimeZoneRounding.builder(DateTimeUnit.DAY_OF_MONTH);
+                break;
+            case "month":
+                builder = TimeZoneRounding.builder(DateTimeUnit.MONTH_OF_YEAR);
+                break;
+            default:
+                builder = TimeZoneRounding.builder(TimeValue.parseTimeValue(interval, null, "interval"));
+                break;
+        }
+        rounding = builder.timeZone(tz).build();
+
+        // 2015-01-01T00:00:00Z
+        final long minValue = 1420070400000L;
+        final long maxValue = minValue + TimeUnit.DAYS.toMillis(days) - 1;
+        final Random random = new Random(0);
+        values = new long[NUM_VALUES];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = minValue + (long) (random.nextDouble() * (maxValue - minValue));
+        }
+        preparedRounding = rounding.prepare(minValue, maxValue);
+    }
+
+    @Benchmark
+    public void roundKey(Blackhole bh) {
+        final Rounding rounding = this.rounding;
+        for (long value : values) {
+            bh.consume(rounding.roundKey(value));
+        }
+    }
+
+    @Benchmark
+    public void preparedRoundKey(Blackhole bh) {
+        final PreparedRounding rounding = this.preparedRounding;
+        for (long value : values) {
+            bh.consume(rounding.roundKey(value));
+        }
+    }
+}
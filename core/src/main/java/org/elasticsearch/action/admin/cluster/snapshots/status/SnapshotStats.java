@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.cluster.snapshots.status;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -44,6 +45,8 @@ public class SnapshotStats implements Streamable, ToXContent {
 
     private long processedSize;
 
+    private long throughput;
+
     SnapshotStats() {
     }
 
@@ -54,6 +57,7 @@ public class SnapshotStats implements Streamable, ToXContent {
         processedFiles = indexShardStatus.processedFiles();
         totalSize = indexShardStatus.totalSize();
         processedSize = indexShardStatus.processedSize();
+        throughput = indexShardStatus.throughput();
     }
 
     /**
@@ -98,6 +102,13 @@ public class SnapshotStats implements Streamable, ToXContent {
         return processedSize;
     }
 
+    /**
+     * Returns number of bytes processed per second
+     */
+    public long getThroughput() {
+        return throughput;
+    }
+
 
     public static SnapshotStats readSnapshotStats(StreamInput in) throws IOException {
         SnapshotStats stats = new SnapshotStats();
@@ -115,6 +126,10 @@ public class SnapshotStats implements Streamable, ToXContent {
 
         out.writeVLong(totalSize);
         out.writeVLong(processedSize);
+
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            out.writeVLong(throughput);
+        }
     }
 
     @Override
@@ -127,6 +142,10 @@ public class SnapshotStats implements Streamable, ToXContent {
 
         totalSize = in.readVLong();
         processedSize = in.readVLong();
+
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            throughput = in.readVLong();
+        }
     }
 
     static final class Fields {
@@ -137,6 +156,8 @@ public class SnapshotStats implements Streamable, ToXContent {
         static final XContentBuilderString TOTAL_SIZE = new XContentBuilderString("total_size");
         static final XContentBuilderString PROCESSED_SIZE_IN_BYTES = new XContentBuilderString("processed_size_in_bytes");
         static final XContentBuilderString PROCESSED_SIZE = new XContentBuilderString("processed_size");
+        static final XContentBuilderString THROUGHPUT_IN_BYTES_PER_SEC = new XContentBuilderString("throughput_in_bytes_per_sec");
+        static final XContentBuilderString THROUGHPUT_PER_SEC = new XContentBuilderString("throughput_per_sec");
         static final XContentBuilderString START_TIME_IN_MILLIS = new XContentBuilderString("start_time_in_millis");
         static final XContentBuilderString TIME_IN_MILLIS = new XContentBuilderString("time_in_millis");
         static final XContentBuilderString TIME = new XContentBuilderString("time");
@@ -149,6 +170,7 @@ public class SnapshotStats implements Streamable, ToXContent {
         builder.field(Fields.PROCESSED_FILES, getProcessedFiles());
         builder.byteSizeField(Fields.TOTAL_SIZE_IN_BYTES, Fields.TOTAL_SIZE, getTotalSize());
         builder.byteSizeField(Fields.PROCESSED_SIZE_IN_BYTES, Fields.PROCESSED_SIZE, getProcessedSize());
+        builder.byteSizeField(Fields.THROUGHPUT_IN_BYTES_PER_SEC, Fields.THROUGHPUT_PER_SEC, getThroughput());
         builder.field(Fields.START_TIME_IN_MILLIS, getStartTime());
         builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, getTime());
         builder.endObject();
@@ -177,5 +199,12 @@ public class SnapshotStats implements Streamable, ToXContent {
             // Update duration
             time = endTime - startTime;
         }
+
+        if (time > 0) {
+            throughput = processedSize * 1000 / time;
+        } else {
+            // shards that are still running don't have a duration yet
+            throughput += stats.throughput;
+        }
     }
 }
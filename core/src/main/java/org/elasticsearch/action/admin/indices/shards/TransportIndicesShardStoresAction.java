@@ -105,11 +105,7 @@ public class TransportIndicesShardStoresAction extends TransportMasterNodeReadAc
             }
         }
 
-        // async fetch store infos from all the nodes
-        // NOTE: instead of fetching shard store info one by one from every node (nShards * nNodes requests)
-        // we could fetch all shard store info from every node once (nNodes requests)
-        // we have to implement a TransportNodesAction instead of using TransportNodesListGatewayStartedShards
-        // for fetching shard stores info, that operates on a list of shards instead of a single shard
+        // async fetch store infos from all the nodes, the listings of all shards are sent to every node in a single request
         new AsyncShardStoresInfoFetches(state.nodes(), routingNodes, state.metaData(), shardIdsToFetch, listener).start();
     }
 
@@ -145,6 +141,7 @@ public class TransportIndicesShardStoresAction extends TransportMasterNodeReadAc
                     InternalAsyncFetch fetch = new InternalAsyncFetch(logger, "shard_stores", shardId, listShardStoresInfo);
                     fetch.fetchData(nodes, metaData, Collections.<String>emptySet());
                 }
+                listShardStoresInfo.flush();
             }
         }
 
@@ -43,6 +43,7 @@ import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -87,23 +88,34 @@ public class TransportShardMultiPercolateAction extends TransportSingleShardActi
 
     @Override
     protected Response shardOperation(Request request, ShardId shardId) {
-        // TODO: Look into combining the shard req's docs into one in memory index.
+        List<PercolateShardRequest> shardRequests = new ArrayList<>(request.items.size());
+        for (Request.Item item : request.items) {
+            shardRequests.add(item.request);
+        }
+        Throwable[] failures = new Throwable[shardRequests.size()];
+        PercolateShardResponse[] shardResponses;
+        try {
+            shardResponses = percolatorService.percolate(shardRequests, failures);
+        } catch (Throwable t) {
+            if (TransportActions.isShardNotAvailableException(t)) {
+                throw (ElasticsearchException) t;
+            }
+            shardResponses = new PercolateShardResponse[shardRequests.size()];
+            Arrays.fill(failures, t);
+        }
         Response response = new Response();
         response.items = new ArrayList<>(request.items.size());
-        for (Request.Item item : request.items) {
-            Response.Item responseItem;
-            int slot = item.slot;
-            try {
-                responseItem = new Response.Item(slot, percolatorService.percolate(item.request));
-            } catch (Throwable t) {
-                if (TransportActions.isShardNotAvailableException(t)) {
-                    throw (ElasticsearchException) t;
-                } else {
-                    logger.debug("{} failed to multi percolate", t, request.shardId());
-                    responseItem = new Response.Item(slot, t);
-                }
+        for (int i = 0; i < request.items.size(); i++) {
+            int slot = request.items.get(i).slot;
+            Throwable t = failures[i];
+            if (t == null) {
+                response.items.add(new Response.Item(slot, shardResponses[i]));
+            } else if (TransportActions.isShardNotAvailableException(t)) {
+                throw (ElasticsearchException) t;
+            } else {
+                logger.debug("{} failed to multi percolate", t, request.shardId());
+                response.items.add(new Response.Item(slot, t));
             }
-            response.items.add(responseItem);
         }
         return response;
     }
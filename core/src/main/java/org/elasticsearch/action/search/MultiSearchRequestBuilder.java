@@ -61,6 +61,14 @@ public class MultiSearchRequestBuilder extends ActionRequestBuilder<MultiSearchR
         return this;
     }
 
+    /**
+     * Sets how many search requests specified in this multi search requests are allowed to be ran concurrently.
+     */
+    public MultiSearchRequestBuilder setMaxConcurrentSearchRequests(int maxConcurrentSearchRequests) {
+        request().maxConcurrentSearchRequests(maxConcurrentSearchRequests);
+        return this;
+    }
+
     /**
      * Specifies what type of requested indices to ignore and how to deal with wildcard indices expressions.
      * For example indices that don't exist.
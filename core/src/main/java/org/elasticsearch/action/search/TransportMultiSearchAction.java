@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.support.ActionFilters;
 import org.elasticsearch.action.support.HandledTransportAction;
@@ -26,18 +27,29 @@ import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  */
 public class TransportMultiSearchAction extends HandledTransportAction<MultiSearchRequest, MultiSearchResponse> {
 
+    private static final int DEFAULT_MAX_SEARCH_THREADS_PER_NODE = 10;
+
     private final ClusterService clusterService;
     private final TransportSearchAction searchAction;
 
@@ -55,32 +67,113 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
         ClusterState clusterState = clusterService.state();
         clusterState.blocks().globalBlockedRaiseException(ClusterBlockLevel.READ);
 
-        final AtomicArray<MultiSearchResponse.Item> responses = new AtomicArray<>(request.requests().size());
-        final AtomicInteger counter = new AtomicInteger(responses.length());
-        for (int i = 0; i < responses.length(); i++) {
-            final int index = i;
+        int maxConcurrentSearches = request.maxConcurrentSearchRequests();
+        if (maxConcurrentSearches == 0) {
+            maxConcurrentSearches = defaultMaxConcurrentSearches(clusterState);
+        }
+
+        // identical search requests, eg. from dashboards that send the same search several times, are only executed once
+        final Map<BytesReference, SearchRequestSlots> uniqueRequests = new LinkedHashMap<>();
+        final List<SearchRequestSlots> requests = new ArrayList<>();
+        for (int i = 0; i < request.requests().size(); i++) {
             SearchRequest searchRequest = new SearchRequest(request.requests().get(i), request);
-            searchAction.execute(searchRequest, new ActionListener<SearchResponse>() {
-                @Override
-                public void onResponse(SearchResponse searchResponse) {
-                    responses.set(index, new MultiSearchResponse.Item(searchResponse, null));
-                    if (counter.decrementAndGet() == 0) {
-                        finishHim();
-                    }
+            SearchRequestSlots slots = null;
+            BytesReference key = null;
+            if (searchRequest.scroll() == null) {
+                // scroll requests can't share their scroll ids
+                key = requestKey(searchRequest);
+                slots = uniqueRequests.get(key);
+            }
+            if (slots == null) {
+                slots = new SearchRequestSlots(searchRequest);
+                requests.add(slots);
+                if (key != null) {
+                    uniqueRequests.put(key, slots);
                 }
+            }
+            slots.slots.add(i);
+        }
 
-                @Override
-                public void onFailure(Throwable e) {
-                    responses.set(index, new MultiSearchResponse.Item(null, e));
-                    if (counter.decrementAndGet() == 0) {
-                        finishHim();
-                    }
-                }
+        final Queue<SearchRequestSlots> pendingRequests = new ConcurrentLinkedQueue<>(requests);
+        final AtomicArray<MultiSearchResponse.Item> responses = new AtomicArray<>(request.requests().size());
+        final AtomicInteger responseCounter = new AtomicInteger(requests.size());
+        for (int i = 0; i < Math.min(maxConcurrentSearches, requests.size()); i++) {
+            executeSearch(pendingRequests, responses, responseCounter, listener);
+        }
+    }
 
-                private void finishHim() {
-                    listener.onResponse(new MultiSearchResponse(responses.toArray(new MultiSearchResponse.Item[responses.length()])));
+    /**
+     * The default number of concurrent searches of a multi search request, which is enough to keep the search thread
+     * pools of all data nodes busy without letting a single multi search request fill their queues.
+     */
+    private int defaultMaxConcurrentSearches(ClusterState clusterState) {
+        int numDataNodes = clusterState.getNodes().getDataNodes().size();
+        int searchThreadPoolSize = Math.min(threadPool.info(ThreadPool.Names.SEARCH).getMax(), DEFAULT_MAX_SEARCH_THREADS_PER_NODE);
+        return Math.max(1, numDataNodes * searchThreadPoolSize);
+    }
+
+    private static BytesReference requestKey(SearchRequest searchRequest) {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            searchRequest.writeTo(out);
+            return out.bytes().toBytesArray();
+        } catch (IOException e) {
+            throw new ElasticsearchException("failed to serialize search request", e);
+        }
+    }
+
+    /**
+     * Executes the next pending search request, and the next one once it completes, until there are no more pending
+     * search requests.
+     */
+    private void executeSearch(final Queue<SearchRequestSlots> pendingRequests, final AtomicArray<MultiSearchResponse.Item> responses,
+                               final AtomicInteger responseCounter, final ActionListener<MultiSearchResponse> listener) {
+        final SearchRequestSlots request = pendingRequests.poll();
+        if (request == null) {
+            return;
+        }
+        final Thread thread = Thread.currentThread();
+        searchAction.execute(request.request, new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse searchResponse) {
+                handleResponse(new MultiSearchResponse.Item(searchResponse, null));
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                handleResponse(new MultiSearchResponse.Item(null, e));
+            }
+
+            private void handleResponse(MultiSearchResponse.Item item) {
+                for (int slot : request.slots) {
+                    responses.set(slot, item);
+                }
+                if (responseCounter.decrementAndGet() == 0) {
+                    finishHim();
+                } else if (thread == Thread.currentThread()) {
+                    // the search completed on the thread that started it, fork so that many such searches
+                    // can't overflow the stack
+                    threadPool.generic().execute(() -> executeSearch(pendingRequests, responses, responseCounter, listener));
+                } else {
+                    executeSearch(pendingRequests, responses, responseCounter, listener);
                 }
-            });
+            }
+
+            private void finishHim() {
+                listener.onResponse(new MultiSearchResponse(responses.toArray(new MultiSearchResponse.Item[responses.length()])));
+            }
+        });
+    }
+
+    /**
+     * A search request and the slots of the multi search request that it answers.
+     */
+    private static final class SearchRequestSlots {
+
+        private final SearchRequest request;
+        private final List<Integer> slots = new ArrayList<>(1);
+
+        SearchRequestSlots(SearchRequest request) {
+            this.request = request;
         }
     }
 }
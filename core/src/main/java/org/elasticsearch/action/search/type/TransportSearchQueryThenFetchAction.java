@@ -33,10 +33,13 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.action.SearchServiceTransportAction;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.controller.SearchPhaseController;
 import org.elasticsearch.search.fetch.FetchSearchResult;
+import org.elasticsearch.search.fetch.QueryFetchSearchResult;
 import org.elasticsearch.search.fetch.ShardFetchSearchRequest;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.internal.ShardSearchTransportRequest;
@@ -44,6 +47,8 @@ import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -51,11 +56,21 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class TransportSearchQueryThenFetchAction extends TransportSearchTypeAction {
 
+    /**
+     * The maximum number of hits, summed over all shards, that shards may fetch speculatively with their query results
+     * so that the fetch round trip can be skipped. Set to {@code 0} to always fetch in a separate round trip.
+     */
+    public static final String SPECULATIVE_FETCH_MAX_DOCS = "action.search.speculative_fetch.max_docs";
+    public static final int DEFAULT_SPECULATIVE_FETCH_MAX_DOCS = 100;
+
+    private final int speculativeFetchMaxDocs;
+
     @Inject
     public TransportSearchQueryThenFetchAction(Settings settings, ThreadPool threadPool, ClusterService clusterService,
                                                SearchServiceTransportAction searchService, SearchPhaseController searchPhaseController,
                                                ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver) {
         super(settings, threadPool, clusterService, searchService, searchPhaseController, actionFilters, indexNameExpressionResolver);
+        this.speculativeFetchMaxDocs = settings.getAsInt(SPECULATIVE_FETCH_MAX_DOCS, DEFAULT_SPECULATIVE_FETCH_MAX_DOCS);
     }
 
     @Override
@@ -67,11 +82,33 @@ public class TransportSearchQueryThenFetchAction extends TransportSearchTypeActi
 
         final AtomicArray<FetchSearchResult> fetchResults;
         final AtomicArray<IntArrayList> docIdsToLoad;
+        final boolean speculativeFetch;
 
         private AsyncAction(SearchRequest request, ActionListener<SearchResponse> listener) {
             super(request, listener);
             fetchResults = new AtomicArray<>(firstResults.length());
             docIdsToLoad = new AtomicArray<>(firstResults.length());
+            speculativeFetch = canFetchSpeculatively(request, firstResults.length());
+        }
+
+        /**
+         * Whether shards should fetch their top hits together with their query results, which is only worth it if few
+         * hits are fetched in total. Hits of shards are only fetched from the first one, so paging disables it.
+         * Shards still skip the speculative fetch if their top hits are estimated to be larger than
+         * {@link SearchService#SPECULATIVE_FETCH_MAX_BYTES_KEY}, in which case they are fetched in a separate round trip.
+         */
+        private boolean canFetchSpeculatively(SearchRequest request, int numShards) {
+            if (request.scroll() != null || request.template() != null) {
+                return false;
+            }
+            final SearchSourceBuilder source = request.source();
+            int from = 0;
+            int size = SearchService.DEFAULT_SIZE;
+            if (source != null) {
+                from = source.from() == -1 ? 0 : source.from();
+                size = source.size() == -1 ? SearchService.DEFAULT_SIZE : source.size();
+            }
+            return from == 0 && size > 0 && (long) size * numShards <= speculativeFetchMaxDocs;
         }
 
         @Override
@@ -80,17 +117,52 @@ public class TransportSearchQueryThenFetchAction extends TransportSearchTypeActi
         }
 
         @Override
-        protected void sendExecuteFirstPhase(DiscoveryNode node, ShardSearchTransportRequest request, ActionListener<QuerySearchResultProvider> listener) {
-            searchService.sendExecuteQuery(node, request, listener);
+        protected void sendExecuteFirstPhase(DiscoveryNode node, ShardSearchTransportRequest request, final ActionListener<QuerySearchResultProvider> listener) {
+            if (speculativeFetch) {
+                searchService.sendExecuteFetch(node, request, new ActionListener<QueryFetchSearchResult>() {
+                    @Override
+                    public void onResponse(QueryFetchSearchResult result) {
+                        listener.onResponse(result);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        listener.onFailure(e);
+                    }
+                });
+            } else {
+                searchService.sendExecuteQuery(node, request, listener);
+            }
         }
 
         @Override
         protected void moveToSecondPhase() throws Exception {
-            boolean useScroll = request.scroll() != null;
-            sortedShardList = searchPhaseController.sortDocs(useScroll, firstResults);
-            searchPhaseController.fillDocIdsToLoad(docIdsToLoad, sortedShardList);
+            final List<AtomicArray.Entry<IntArrayList>> shardsToFetch;
+            if (speculativeFetch) {
+                sortedShardList = searchPhaseController.sortDocs(false, firstResults, true);
+                searchPhaseController.fillDocIdsToLoad(docIdsToLoad, sortedShardList);
+                for (AtomicArray.Entry<QuerySearchResultProvider> entry : firstResults.asList()) {
+                    final FetchSearchResult fetchResult = ((QueryFetchSearchResult) entry.value).fetchResult();
+                    if (fetchResult != null) {
+                        // the shard already fetched its top hits and freed its search context
+                        fetchResults.set(entry.index, fetchResult);
+                    }
+                }
+                // shards whose top hits were too large to be fetched speculatively still need a fetch phase
+                shardsToFetch = new ArrayList<>();
+                for (AtomicArray.Entry<IntArrayList> entry : docIdsToLoad.asList()) {
+                    if (fetchResults.get(entry.index) == null) {
+                        shardsToFetch.add(entry);
+                    }
+                }
+            } else {
+                boolean useScroll = request.scroll() != null;
+                sortedShardList = searchPhaseController.sortDocs(useScroll, firstResults);
+                searchPhaseController.fillDocIdsToLoad(docIdsToLoad, sortedShardList);
+                shardsToFetch = docIdsToLoad.asList();
+            }
 
-            if (docIdsToLoad.asList().isEmpty()) {
+            if (shardsToFetch.isEmpty()) {
                 finishHim();
                 return;
             }
@@ -98,8 +170,8 @@ public class TransportSearchQueryThenFetchAction extends TransportSearchTypeActi
             final ScoreDoc[] lastEmittedDocPerShard = searchPhaseController.getLastEmittedDocPerShard(
                     request, sortedShardList, firstResults.length()
             );
-            final AtomicInteger counter = new AtomicInteger(docIdsToLoad.asList().size());
-            for (AtomicArray.Entry<IntArrayList> entry : docIdsToLoad.asList()) {
+            final AtomicInteger counter = new AtomicInteger(shardsToFetch.size());
+            for (AtomicArray.Entry<IntArrayList> entry : shardsToFetch) {
                 QuerySearchResultProvider queryResult = firstResults.get(entry.index);
                 DiscoveryNode node = nodes.get(queryResult.shardTarget().nodeId());
                 ShardFetchSearchRequest fetchSearchRequest = createFetchRequest(queryResult.queryResult(), entry, lastEmittedDocPerShard);
@@ -152,7 +224,7 @@ public class TransportSearchQueryThenFetchAction extends TransportSearchTypeActi
                         scrollId = TransportSearchHelper.buildScrollId(request.searchType(), firstResults, null);
                     }
                     listener.onResponse(new SearchResponse(internalResponse, scrollId, expectedSuccessfulOps, successfulOps.get(), buildTookInMillis(), buildShardFailures()));
-                    releaseIrrelevantSearchContexts(firstResults, docIdsToLoad);
+                    releaseIrrelevantSearchContexts();
                 }
 
                 @Override
@@ -164,10 +236,25 @@ public class TransportSearchQueryThenFetchAction extends TransportSearchTypeActi
                         }
                         super.onFailure(failure);
                     } finally {
-                        releaseIrrelevantSearchContexts(firstResults, docIdsToLoad);
+                        releaseIrrelevantSearchContexts();
                     }
                 }
             });
         }
+
+        private void releaseIrrelevantSearchContexts() {
+            if (speculativeFetch == false) {
+                releaseIrrelevantSearchContexts(firstResults, docIdsToLoad);
+                return;
+            }
+            // only the shards that did not fetch their top hits speculatively still hold a search context
+            final AtomicArray<QuerySearchResultProvider> openContexts = new AtomicArray<>(firstResults.length());
+            for (AtomicArray.Entry<QuerySearchResultProvider> entry : firstResults.asList()) {
+                if (((QueryFetchSearchResult) entry.value).fetchResult() == null) {
+                    openContexts.set(entry.index, entry.value);
+                }
+            }
+            releaseIrrelevantSearchContexts(openContexts, docIdsToLoad);
+        }
     }
 }
@@ -77,6 +77,7 @@ import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.index.translog.TranslogConfig;
 import org.elasticsearch.indices.IndicesWarmer;
 import org.elasticsearch.indices.cache.request.IndicesRequestCache;
+import org.elasticsearch.indices.recovery.RecoveryTarget;
 import org.elasticsearch.indices.ttl.IndicesTTLService;
 import org.elasticsearch.search.internal.DefaultSearchContext;
 
@@ -183,8 +184,12 @@ public class ClusterModule extends AbstractModule {
         registerIndexDynamicSetting(MergePolicyConfig.INDEX_COMPOUND_FORMAT, Validator.EMPTY);
         registerIndexDynamicSetting(IndexShard.INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE, Validator.BYTES_SIZE);
         registerIndexDynamicSetting(IndexSettings.INDEX_TRANSLOG_DURABILITY, Validator.EMPTY);
+        registerIndexDynamicSetting(IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE, Validator.BYTES_SIZE);
+        registerIndexDynamicSetting(IndexSettings.INDEX_TRANSLOG_RETENTION_AGE, Validator.TIME);
         registerIndexDynamicSetting(IndicesWarmer.INDEX_WARMER_ENABLED, Validator.EMPTY);
         registerIndexDynamicSetting(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED, Validator.BOOLEAN);
+        registerIndexDynamicSetting(IndicesRequestCache.INDEX_CACHE_REQUEST_SEGMENT_HITS, Validator.BOOLEAN);
+        registerIndexDynamicSetting(RecoveryTarget.INDEX_RECOVERY_SNAPSHOT_REPOSITORY, Validator.EMPTY);
         registerIndexDynamicSetting(UnassignedInfo.INDEX_DELAYED_NODE_LEFT_TIMEOUT_SETTING, Validator.TIME);
         registerIndexDynamicSetting(DefaultSearchContext.MAX_RESULT_WINDOW, Validator.POSITIVE_INTEGER);
     }
@@ -23,9 +23,11 @@ import com.carrotsearch.hppc.ObjectHashSet;
 import com.carrotsearch.hppc.cursors.ObjectCursor;
 import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
 import org.apache.lucene.util.CollectionUtil;
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.Diff;
 import org.elasticsearch.cluster.Diffable;
 import org.elasticsearch.cluster.DiffableUtils;
+import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
 import org.elasticsearch.cluster.InternalClusterInfoService;
 import org.elasticsearch.cluster.block.ClusterBlock;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
@@ -65,6 +67,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -637,6 +640,10 @@ public class MetaData implements Iterable<IndexMetaData>, Diffable<MetaData>, Fr
         private Settings transientSettings;
         private Settings persistentSettings;
         private Diff<ImmutableOpenMap<String, IndexMetaData>> indices;
+        // same as indices but without the new mappings that are equal to a mapping of the previous metadata, which are
+        // sent as references to nodes on or after 3.0.0
+        private Diff<ImmutableOpenMap<String, IndexMetaData>> indicesWithoutSharedMappings;
+        private List<MappingReference> mappingReferences;
         private Diff<ImmutableOpenMap<String, IndexTemplateMetaData>> templates;
         private Diff<ImmutableOpenMap<String, Custom>> customs;
 
@@ -647,6 +654,14 @@ public class MetaData implements Iterable<IndexMetaData>, Diffable<MetaData>, Fr
             transientSettings = after.transientSettings;
             persistentSettings = after.persistentSettings;
             indices = DiffableUtils.diff(before.indices, after.indices, DiffableUtils.getStringKeySerializer());
+            mappingReferences = new ArrayList<>();
+            ImmutableOpenMap<String, IndexMetaData> indicesWithoutSharedMappings = removeSharedMappings(before, after, mappingReferences);
+            if (mappingReferences.isEmpty()) {
+                this.indicesWithoutSharedMappings = indices;
+            } else {
+                this.indicesWithoutSharedMappings = DiffableUtils.diff(before.indices, indicesWithoutSharedMappings,
+                        DiffableUtils.getStringKeySerializer());
+            }
             templates = DiffableUtils.diff(before.templates, after.templates, DiffableUtils.getStringKeySerializer());
             customs = DiffableUtils.diff(before.customs, after.customs, DiffableUtils.getStringKeySerializer());
         }
@@ -657,6 +672,16 @@ public class MetaData implements Iterable<IndexMetaData>, Diffable<MetaData>, Fr
             transientSettings = Settings.readSettingsFromStream(in);
             persistentSettings = Settings.readSettingsFromStream(in);
             indices = DiffableUtils.readImmutableOpenMapDiff(in, DiffableUtils.getStringKeySerializer(), IndexMetaData.PROTO);
+            indicesWithoutSharedMappings = indices;
+            if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+                int size = in.readVInt();
+                mappingReferences = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    mappingReferences.add(new MappingReference(in));
+                }
+            } else {
+                mappingReferences = Collections.emptyList();
+            }
             templates = DiffableUtils.readImmutableOpenMapDiff(in, DiffableUtils.getStringKeySerializer(), IndexTemplateMetaData.PROTO);
             customs = DiffableUtils.readImmutableOpenMapDiff(in, DiffableUtils.getStringKeySerializer(),
                     new DiffableUtils.DiffableValueSerializer<String, Custom>() {
@@ -678,7 +703,15 @@ public class MetaData implements Iterable<IndexMetaData>, Diffable<MetaData>, Fr
             out.writeLong(version);
             Settings.writeSettingsToStream(transientSettings, out);
             Settings.writeSettingsToStream(persistentSettings, out);
-            indices.writeTo(out);
+            if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+                indicesWithoutSharedMappings.writeTo(out);
+                out.writeVInt(mappingReferences.size());
+                for (MappingReference reference : mappingReferences) {
+                    reference.writeTo(out);
+                }
+            } else {
+                indices.writeTo(out);
+            }
             templates.writeTo(out);
             customs.writeTo(out);
         }
@@ -690,11 +723,108 @@ public class MetaData implements Iterable<IndexMetaData>, Diffable<MetaData>, Fr
             builder.version(version);
             builder.transientSettings(transientSettings);
             builder.persistentSettings(persistentSettings);
-            builder.indices(indices.apply(part.indices));
+            builder.indices(resolveSharedMappings(indicesWithoutSharedMappings.apply(part.indices), part));
             builder.templates(templates.apply(part.templates));
             builder.customs(customs.apply(part.customs));
             return builder.build();
         }
+
+        /**
+         * Removes the mappings of new and updated indices that are equal to a mapping of the previous metadata, and
+         * records where they can be found in the previous metadata instead.
+         */
+        private static ImmutableOpenMap<String, IndexMetaData> removeSharedMappings(MetaData before, MetaData after,
+                                                                                   List<MappingReference> references) {
+            Map<MappingMetaData, String> previousMappings = null;
+            ImmutableOpenMap.Builder<String, IndexMetaData> indices = null;
+            for (ObjectCursor<IndexMetaData> cursor : after.indices.values()) {
+                final IndexMetaData indexMetaData = cursor.value;
+                final IndexMetaData previous = before.index(indexMetaData.getIndex());
+                if (previous == indexMetaData) {
+                    continue;
+                }
+                IndexMetaData.Builder indexBuilder = null;
+                for (ObjectCursor<MappingMetaData> mappingCursor : indexMetaData.getMappings().values()) {
+                    final MappingMetaData mapping = mappingCursor.value;
+                    if (previous != null && mapping.equals(previous.mapping(mapping.type()))) {
+                        // unchanged, so not part of the diff
+                        continue;
+                    }
+                    if (previousMappings == null) {
+                        previousMappings = new HashMap<>();
+                        for (ObjectCursor<IndexMetaData> previousCursor : before.indices.values()) {
+                            for (ObjectCursor<MappingMetaData> previousMapping : previousCursor.value.getMappings().values()) {
+                                previousMappings.putIfAbsent(previousMapping.value, previousCursor.value.getIndex());
+                            }
+                        }
+                    }
+                    final String sourceIndex = previousMappings.get(mapping);
+                    if (sourceIndex != null) {
+                        if (indexBuilder == null) {
+                            indexBuilder = IndexMetaData.builder(indexMetaData);
+                        }
+                        indexBuilder.removeMapping(mapping.type());
+                        references.add(new MappingReference(indexMetaData.getIndex(), mapping.type(), sourceIndex));
+                    }
+                }
+                if (indexBuilder != null) {
+                    if (indices == null) {
+                        indices = ImmutableOpenMap.builder(after.indices);
+                    }
+                    indices.put(indexMetaData.getIndex(), indexBuilder.build());
+                }
+            }
+            return indices == null ? after.indices : indices.build();
+        }
+
+        /**
+         * Adds the mappings that were sent as references to the previous metadata back to their indices.
+         */
+        private ImmutableOpenMap<String, IndexMetaData> resolveSharedMappings(ImmutableOpenMap<String, IndexMetaData> indices,
+                                                                             MetaData part) {
+            if (mappingReferences.isEmpty()) {
+                return indices;
+            }
+            final ImmutableOpenMap.Builder<String, IndexMetaData> builder = ImmutableOpenMap.builder(indices);
+            for (MappingReference reference : mappingReferences) {
+                final IndexMetaData source = part.index(reference.sourceIndex);
+                final MappingMetaData mapping = source == null ? null : source.mapping(reference.type);
+                if (mapping == null) {
+                    throw new IncompatibleClusterStateVersionException("missing mapping [" + reference.type + "] of index ["
+                            + reference.sourceIndex + "] to resolve the mapping of index [" + reference.index + "]");
+                }
+                builder.put(reference.index, IndexMetaData.builder(builder.get(reference.index)).putMapping(mapping).build());
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Points to the mapping of another index in the previous metadata that the mapping of an index is equal to
+     */
+    private static class MappingReference {
+
+        private final String index;
+        private final String type;
+        private final String sourceIndex;
+
+        MappingReference(String index, String type, String sourceIndex) {
+            this.index = index;
+            this.type = type;
+            this.sourceIndex = sourceIndex;
+        }
+
+        MappingReference(StreamInput in) throws IOException {
+            index = in.readString();
+            type = in.readString();
+            sourceIndex = in.readString();
+        }
+
+        void writeTo(StreamOutput out) throws IOException {
+            out.writeString(index);
+            out.writeString(type);
+            out.writeString(sourceIndex);
+        }
     }
 
     @Override
@@ -1002,6 +1132,8 @@ public class MetaData implements Iterable<IndexMetaData>, Diffable<MetaData>, Fr
             //    while these datastructures aren't even used.
             // 2) The aliasAndIndexLookup can be updated instead of rebuilding it all the time.
 
+            deduplicateMappings();
+
             // build all concrete indices arrays:
             // TODO: I think we can remove these arrays. it isn't worth the effort, for operations on all indices.
             // When doing an operation across all indices, most of the time is spent on actually going to all shards and
@@ -1052,6 +1184,48 @@ public class MetaData implements Iterable<IndexMetaData>, Diffable<MetaData>, Fr
             return new MetaData(clusterUUID, version, transientSettings, persistentSettings, indices.build(), templates.build(), customs.build(), allIndices, allOpenIndices, allClosedIndices, aliasAndIndexLookup);
         }
 
+        /**
+         * Makes indices with identical mappings, like the indices created from the same template, share a single
+         * {@link MappingMetaData} instance and its compressed source instead of each holding a copy. The instance that
+         * is already shared by most indices is kept, so adding an index only rebuilds the metadata of that index.
+         */
+        private void deduplicateMappings() {
+            final Map<MappingMetaData, Integer> references = new IdentityHashMap<>();
+            for (ObjectCursor<IndexMetaData> cursor : indices.values()) {
+                for (ObjectCursor<MappingMetaData> mappingCursor : cursor.value.getMappings().values()) {
+                    references.merge(mappingCursor.value, 1, Integer::sum);
+                }
+            }
+            final Map<MappingMetaData, MappingMetaData> uniqueMappings = new HashMap<>();
+            for (MappingMetaData mapping : references.keySet()) {
+                uniqueMappings.merge(mapping, mapping, (current, other) -> references.get(other) > references.get(current) ? other : current);
+            }
+            if (uniqueMappings.size() == references.size()) {
+                // no identical mappings that aren't shared yet
+                return;
+            }
+            final List<IndexMetaData> dedupedIndices = new ArrayList<>();
+            for (ObjectCursor<IndexMetaData> cursor : indices.values()) {
+                final IndexMetaData indexMetaData = cursor.value;
+                IndexMetaData.Builder indexBuilder = null;
+                for (ObjectCursor<MappingMetaData> mappingCursor : indexMetaData.getMappings().values()) {
+                    final MappingMetaData uniqueMapping = uniqueMappings.get(mappingCursor.value);
+                    if (uniqueMapping != mappingCursor.value) {
+                        if (indexBuilder == null) {
+                            indexBuilder = IndexMetaData.builder(indexMetaData);
+                        }
+                        indexBuilder.putMapping(uniqueMapping);
+                    }
+                }
+                if (indexBuilder != null) {
+                    dedupedIndices.add(indexBuilder.build());
+                }
+            }
+            for (IndexMetaData indexMetaData : dedupedIndices) {
+                indices.put(indexMetaData.getIndex(), indexMetaData);
+            }
+        }
+
         public static String toXContent(MetaData metaData) throws IOException {
             XContentBuilder builder = XContentFactory.contentBuilder(XContentType.JSON);
             builder.startObject();
@@ -119,11 +119,13 @@ public class MetaDataIndexUpgradeService extends AbstractComponent {
                                     "index.merge.policy.max_merged_segment",
                                     "index.merge.policy.max_merge_size",
                                     "index.merge.policy.min_merge_size",
+                                    "index.percolator.parsed_queries_cache.size",
                                     "index.shard.recovery.file_chunk_size",
                                     "index.shard.recovery.translog_size",
                                     "index.store.throttle.max_bytes_per_sec",
                                     "index.translog.flush_threshold_size",
                                     "index.translog.fs.buffer_size",
+                                    "index.translog.retention.size",
                                     "index.version_map_size"));
 
     /** All known time settings for an index. */
@@ -148,6 +150,7 @@ public class MetaDataIndexUpgradeService extends AbstractComponent {
                                     "index.store.stats_refresh_interval",
                                     "index.translog.flush_threshold_period",
                                     "index.translog.interval",
+                                    "index.translog.retention.age",
                                     "index.translog.sync_interval",
                                     "index.shard.inactive_time",
                                     UnassignedInfo.INDEX_DELAYED_NODE_LEFT_TIMEOUT_SETTING));
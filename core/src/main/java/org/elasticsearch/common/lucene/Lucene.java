@@ -24,6 +24,8 @@ import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.codecs.DocValuesFormat;
 import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.index.CodecReader;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexCommit;
@@ -32,6 +34,7 @@ import org.apache.lucene.index.IndexFormatTooNewException;
 import org.apache.lucene.index.IndexFormatTooOldException;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.SegmentCommitInfo;
@@ -67,6 +70,7 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.SuppressForbidden;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lucene.index.ElasticsearchLeafReader;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.util.iterable.Iterables;
 import org.elasticsearch.index.analysis.AnalyzerScope;
@@ -803,4 +807,24 @@ public class Lucene {
             }
         };
     }
+
+    /**
+     * Returns a stored fields reader that is optimized for reading several documents of the given segment in increasing
+     * doc id order, since it keeps the last decompressed block of documents around, or {@code null} if the stored fields
+     * of the segment are not directly accessible, eg. because the reader is wrapped. The returned reader does not check
+     * deleted documents and must only be used by a single thread.
+     */
+    @Nullable
+    public static StoredFieldsReader sequentialStoredFieldsReader(LeafReader reader) throws IOException {
+        if (reader instanceof ElasticsearchLeafReader) {
+            reader = ((ElasticsearchLeafReader) reader).getDelegate();
+        }
+        if (reader instanceof CodecReader) {
+            final StoredFieldsReader fieldsReader = ((CodecReader) reader).getFieldsReader();
+            if (fieldsReader != null) {
+                return fieldsReader.getMergeInstance();
+            }
+        }
+        return null;
+    }
 }
@@ -127,6 +127,10 @@ public class FiltersFunctionScoreQuery extends Query {
         return filterFunctions;
     }
 
+    public Float getMinScore() {
+        return minScore;
+    }
+
     @Override
     public Query rewrite(IndexReader reader) throws IOException {
         Query rewritten = super.rewrite(reader);
@@ -0,0 +1,189 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.rounding;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.joda.time.DateTimeZone;
+
+import java.util.Arrays;
+
+/**
+ * Computes the same keys as a {@link Rounding}, but has been optimized for a range of values, eg. the values of a
+ * segment. Prepared roundings are per-segment helpers that are created by {@link Rounding#prepare(long, long)} and
+ * are never serialized: the original rounding remains the one that is sent over the wire.
+ */
+public abstract class PreparedRounding {
+
+    /** The maximum number of keys that a lookup table may have. */
+    static final int MAX_TABLE_SIZE = 1 << 12;
+
+    PreparedRounding() {
+    }
+
+    /**
+     * Compute the key of the given value, which is the same key as {@link Rounding#roundKey(long)} of the rounding
+     * that this rounding has been prepared from.
+     */
+    public abstract long roundKey(long value);
+
+    /**
+     * Returns a prepared rounding that is not optimized and delegates to the given rounding.
+     */
+    public static PreparedRounding unprepared(final Rounding rounding) {
+        return new PreparedRounding() {
+            @Override
+            public long roundKey(long value) {
+                return rounding.roundKey(value);
+            }
+        };
+    }
+
+    /**
+     * Returns a rounding that rounds values with integer arithmetic if the time zone has the same offset for all values
+     * between {@code minValue} and {@code maxValue}, as well as for their keys, or {@code null} otherwise.
+     *
+     * @param interval the length of the interval of keys in milliseconds, which must be aligned with the epoch in UTC
+     */
+    static PreparedRounding fixedOffset(Rounding delegate, DateTimeZone timeZone, long interval, long minValue, long maxValue) {
+        if (hasFixedOffset(timeZone, interval, minValue, maxValue) == false) {
+            return null;
+        }
+        return new FixedOffset(delegate, timeZone.getOffset(minValue), interval, minValue, maxValue);
+    }
+
+    /**
+     * Whether the time zone has the same offset for all values between {@code minValue} and {@code maxValue} as well as
+     * for their keys, which may be up to one interval less than the values.
+     */
+    static boolean hasFixedOffset(DateTimeZone timeZone, long interval, long minValue, long maxValue) {
+        if (minValue < Long.MIN_VALUE / 4 || maxValue > Long.MAX_VALUE / 4 || interval > Long.MAX_VALUE / 4) {
+            return false;
+        }
+        if (timeZone.isFixed() == false) {
+            // keys may be up to one interval less than the value, make sure that no transition happens in-between
+            final long from = minValue - 2 * interval;
+            final long nextTransition = timeZone.nextTransition(from);
+            if (nextTransition != from && nextTransition <= maxValue + interval) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a rounding that looks up keys in a table of all keys between {@code minValue} and {@code maxValue}, or
+     * {@code null} if there are too many keys or if keys could not be computed reliably. This only works with roundings
+     * whose keys are the rounded values.
+     */
+    static PreparedRounding lookupTable(Rounding delegate, long minValue, long maxValue) {
+        long[] keys = new long[8];
+        int numKeys = 0;
+        long key = delegate.roundKey(minValue);
+        keys[numKeys++] = key;
+        while (true) {
+            final long next = delegate.nextRoundingValue(key);
+            // rounding is monotonic, so values in [key, next) all round to key if next - 1 rounds to key
+            if (next <= key || delegate.roundKey(next) != next || delegate.roundKey(next - 1) != key) {
+                return null;
+            }
+            if (next > maxValue) {
+                break;
+            }
+            if (numKeys == MAX_TABLE_SIZE) {
+                return null;
+            }
+            keys = ArrayUtil.grow(keys, numKeys + 1);
+            keys[numKeys++] = next;
+            key = next;
+        }
+        return new LookupTable(delegate, Arrays.copyOf(keys, numKeys), minValue, maxValue);
+    }
+
+    /**
+     * A prepared rounding that is optimized for values between {@code minValue} and {@code maxValue}, values out of
+     * this range are rounded by the original rounding.
+     */
+    abstract static class Ranged extends PreparedRounding {
+
+        private final Rounding delegate;
+        private final long minValue;
+        private final long maxValue;
+
+        Ranged(Rounding delegate, long minValue, long maxValue) {
+            this.delegate = delegate;
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+        }
+
+        @Override
+        public final long roundKey(long value) {
+            if (value >= minValue && value <= maxValue) {
+                return doRoundKey(value);
+            }
+            return delegate.roundKey(value);
+        }
+
+        /** Compute the key of a value that is in the range of this rounding. */
+        protected abstract long doRoundKey(long value);
+    }
+
+    /**
+     * Rounds values to intervals that are aligned with the epoch in a time zone that has a fixed offset.
+     */
+    static final class FixedOffset extends Ranged {
+
+        private final long offset;
+        private final long interval;
+
+        FixedOffset(Rounding delegate, long offset, long interval, long minValue, long maxValue) {
+            super(delegate, minValue, maxValue);
+            this.offset = offset;
+            this.interval = interval;
+        }
+
+        @Override
+        protected long doRoundKey(long value) {
+            return Math.floorDiv(value + offset, interval) * interval - offset;
+        }
+    }
+
+    /**
+     * Looks up the key of values with a binary search in the sorted list of keys.
+     */
+    static final class LookupTable extends Ranged {
+
+        private final long[] keys;
+
+        LookupTable(Rounding delegate, long[] keys, long minValue, long maxValue) {
+            super(delegate, minValue, maxValue);
+            this.keys = keys;
+        }
+
+        @Override
+        protected long doRoundKey(long value) {
+            final int index = Arrays.binarySearch(keys, value);
+            if (index >= 0) {
+                return keys[index];
+            }
+            // keys[0] <= minValue <= value, so the insertion point is at least 1
+            return keys[-2 - index];
+        }
+    }
+}
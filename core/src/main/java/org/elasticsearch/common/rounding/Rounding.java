@@ -61,6 +61,23 @@ public abstract class Rounding implements Streamable {
      */
     public abstract long nextRoundingValue(long value);
 
+    /**
+     * Returns a helper that computes the same keys as this rounding but that is optimized for values between
+     * {@code minValue} and {@code maxValue} inclusive, typically the values of a segment. Values out of this range may
+     * be rounded less efficiently.
+     */
+    public PreparedRounding prepare(long minValue, long maxValue) {
+        return PreparedRounding.unprepared(this);
+    }
+
+    /**
+     * Whether values between {@code minValue} and {@code maxValue} inclusive are rounded monotonically, ie. greater
+     * values never have lesser keys. If so, the values that have a given key form a range.
+     */
+    public boolean isMonotonic(long minValue, long maxValue) {
+        return true;
+    }
+
     /**
      * Rounding strategy which is based on an interval
      *
@@ -154,6 +171,27 @@ public abstract class Rounding implements Streamable {
             return rounding.roundKey((long) (factor * utcMillis));
         }
 
+        @Override
+        public PreparedRounding prepare(long minValue, long maxValue) {
+            final long min = (long) (factor * minValue);
+            final long max = (long) (factor * maxValue);
+            final PreparedRounding prepared = rounding.prepare(Math.min(min, max), Math.max(min, max));
+            final float factor = this.factor;
+            return new PreparedRounding() {
+                @Override
+                public long roundKey(long value) {
+                    return prepared.roundKey((long) (factor * value));
+                }
+            };
+        }
+
+        @Override
+        public boolean isMonotonic(long minValue, long maxValue) {
+            final long min = (long) (factor * minValue);
+            final long max = (long) (factor * maxValue);
+            return factor > 0 && rounding.isMonotonic(min, max);
+        }
+
         @Override
         public long valueForKey(long key) {
             return rounding.valueForKey(key);
@@ -203,6 +241,34 @@ public abstract class Rounding implements Streamable {
             return rounding.roundKey(value - offset);
         }
 
+        @Override
+        public PreparedRounding prepare(long minValue, long maxValue) {
+            final long min, max;
+            try {
+                min = Math.subtractExact(minValue, offset);
+                max = Math.subtractExact(maxValue, offset);
+            } catch (ArithmeticException e) {
+                return super.prepare(minValue, maxValue);
+            }
+            final PreparedRounding prepared = rounding.prepare(min, max);
+            final long offset = this.offset;
+            return new PreparedRounding() {
+                @Override
+                public long roundKey(long value) {
+                    return prepared.roundKey(value - offset);
+                }
+            };
+        }
+
+        @Override
+        public boolean isMonotonic(long minValue, long maxValue) {
+            try {
+                return rounding.isMonotonic(Math.subtractExact(minValue, offset), Math.subtractExact(maxValue, offset));
+            } catch (ArithmeticException e) {
+                return false;
+            }
+        }
+
         @Override
         public long valueForKey(long key) {
             return offset + rounding.valueForKey(key);
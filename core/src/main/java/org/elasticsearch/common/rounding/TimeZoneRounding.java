@@ -136,6 +136,26 @@ public abstract class TimeZoneRounding extends Rounding {
             return time;
         }
 
+        @Override
+        public PreparedRounding prepare(long minValue, long maxValue) {
+            PreparedRounding prepared = null;
+            switch (unit) {
+                case DAY_OF_MONTH:
+                case HOUR_OF_DAY:
+                case MINUTES_OF_HOUR:
+                case SECOND_OF_MINUTE:
+                    // these units have a fixed length and are aligned with the epoch
+                    prepared = PreparedRounding.fixedOffset(this, timeZone, durationField.getUnitMillis(), minValue, maxValue);
+                    break;
+                default:
+                    break;
+            }
+            if (prepared == null) {
+                prepared = PreparedRounding.lookupTable(this, minValue, maxValue);
+            }
+            return prepared == null ? super.prepare(minValue, maxValue) : prepared;
+        }
+
         @Override
         public long nextRoundingValue(long time) {
             long timeLocal = time;
@@ -195,6 +215,20 @@ public abstract class TimeZoneRounding extends Rounding {
             return time;
         }
 
+        @Override
+        public PreparedRounding prepare(long minValue, long maxValue) {
+            // intervals that are not aligned with days may round values to keys that are greater than them around
+            // transitions, so only optimize ranges of values that don't contain transitions
+            final PreparedRounding prepared = PreparedRounding.fixedOffset(this, timeZone, interval, minValue, maxValue);
+            return prepared == null ? super.prepare(minValue, maxValue) : prepared;
+        }
+
+        @Override
+        public boolean isMonotonic(long minValue, long maxValue) {
+            // see prepare
+            return PreparedRounding.hasFixedOffset(timeZone, interval, minValue, maxValue);
+        }
+
         @Override
         public long nextRoundingValue(long time) {
             long timeLocal = time;
@@ -388,9 +388,11 @@ public class BigArrays {
     /**
      * Adjust the circuit breaker with the given delta, if the delta is
      * negative, or checkBreaker is false, the breaker will be adjusted
-     * without tripping
+     * without tripping. This can be used to account for memory that is
+     * not allocated through big arrays, callers are responsible for
+     * releasing what they added.
      */
-    void adjustBreaker(long delta) {
+    public void adjustBreaker(long delta) {
         if (this.breakerService != null) {
             CircuitBreaker breaker = this.breakerService.getBreaker(CircuitBreaker.REQUEST);
             if (this.checkBreaker == true) {
@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.ExceptionsHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs batches of tasks on an {@link Executor} while bounding the number of threads that all
+ * batches use at the same time. Permits are shared by all callers, so that concurrent batches
+ * don't oversubscribe the executor. Every batch forks at most one worker per permit, and workers
+ * as well as the calling thread pull tasks from the batch until none is left. This means that a
+ * batch always makes progress, even if no permits are available or if the executor rejects tasks.
+ */
+public final class BoundedTaskExecutor {
+
+    private final Executor executor;
+    private final int maxThreads;
+    private final Semaphore permits;
+
+    /**
+     * @param executor    the executor to fork tasks to
+     * @param maxThreads  the maximum number of threads of the executor that may be used at the same time
+     */
+    public BoundedTaskExecutor(Executor executor, int maxThreads) {
+        if (maxThreads < 0) {
+            throw new IllegalArgumentException("maxThreads must be greater or equal to 0 but was: " + maxThreads);
+        }
+        this.executor = executor;
+        this.maxThreads = maxThreads;
+        this.permits = new Semaphore(maxThreads);
+    }
+
+    /** The maximum number of threads of the executor that may be used at the same time. */
+    public int maxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * Run the given tasks and return their results in the same order. This method only returns
+     * once all tasks are done. If some tasks fail, the first failure is rethrown with the other
+     * ones added as suppressed exceptions.
+     */
+    public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws Exception {
+        final List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(new FutureTask<>(task));
+        }
+        final AtomicInteger nextTask = new AtomicInteger();
+        final Runnable worker = () -> {
+            for (int i = nextTask.getAndIncrement(); i < futures.size(); i = nextTask.getAndIncrement()) {
+                futures.get(i).run();
+            }
+        };
+        // the calling thread works too, so there is no need for more workers than tasks minus one
+        final int maxWorkers = Math.min(maxThreads, futures.size() - 1);
+        for (int i = 0; i < maxWorkers; ++i) {
+            if (permits.tryAcquire() == false) {
+                break;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        worker.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (EsRejectedExecutionException | RejectedExecutionException e) {
+                // elasticsearch thread pools reject with an EsRejectedExecutionException
+                permits.release();
+                break;
+            }
+        }
+        worker.run();
+        // the calling thread is out of tasks, wait for the ones that workers are still running
+        final List<T> results = new ArrayList<>(futures.size());
+        Throwable failure = null;
+        for (FutureTask<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                failure = ExceptionsHelper.useOrSuppress(failure, e.getCause());
+            }
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw (Exception) failure;
+        }
+        return results;
+    }
+}
@@ -26,7 +26,9 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.xcontent.ToXContent.Params;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
@@ -88,6 +90,34 @@ public class XContentHelper {
         }
     }
 
+    /**
+     * Filters the given content with includes and excludes like {@link XContentMapValues#filter(Map, String[], String[])}
+     * does, but copies the matching parts of the content to a builder of the same content type while it is being parsed,
+     * so that large objects don't need to be converted to a map first.
+     */
+    public static BytesReference filter(BytesReference bytes, String[] includes, String[] excludes) throws IOException {
+        XContentType contentType;
+        InputStream input;
+        Compressor compressor = CompressorFactory.compressor(bytes);
+        if (compressor != null) {
+            InputStream compressedStreamInput = compressor.streamInput(bytes.streamInput());
+            if (compressedStreamInput.markSupported() == false) {
+                compressedStreamInput = new BufferedInputStream(compressedStreamInput);
+            }
+            contentType = XContentFactory.xContentType(compressedStreamInput);
+            input = compressedStreamInput;
+        } else {
+            contentType = XContentFactory.xContentType(bytes);
+            input = bytes.streamInput();
+        }
+        try (XContentParser parser = XContentFactory.xContent(contentType).createParser(input)) {
+            BytesStreamOutput out = new BytesStreamOutput(Math.min(1024, bytes.length()));
+            XContentBuilder builder = XContentFactory.contentBuilder(contentType, out);
+            XContentMapValues.filter(parser, builder, includes, excludes);
+            return builder.bytes();
+        }
+    }
+
     public static String convertToJson(BytesReference bytes, boolean reformatJson) throws IOException {
         return convertToJson(bytes, reformatJson, false);
     }
@@ -23,7 +23,10 @@ import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -159,39 +162,9 @@ public class XContentMapValues {
                 continue;
             }
 
-            boolean exactIncludeMatch = false; // true if the current position was specifically mentioned
-            boolean pathIsPrefixOfAnInclude = false; // true if potentially a sub scope can be included
-            if (includes.length == 0) {
-                // implied match anything
-                exactIncludeMatch = true;
-            } else {
-                for (String include : includes) {
-                    // check for prefix matches as well to see if we need to zero in, something like: obj1.arr1.* or *.field
-                    // note, this does not work well with middle matches, like obj1.*.obj3
-                    if (include.charAt(0) == '*') {
-                        if (Regex.simpleMatch(include, path)) {
-                            exactIncludeMatch = true;
-                            break;
-                        }
-                        pathIsPrefixOfAnInclude = true;
-                        continue;
-                    }
-                    if (include.startsWith(path)) {
-                        if (include.length() == path.length()) {
-                            exactIncludeMatch = true;
-                            break;
-                        } else if (include.length() > path.length() && include.charAt(path.length()) == '.') {
-                            // include might may match deeper paths. Dive deeper.
-                            pathIsPrefixOfAnInclude = true;
-                            continue;
-                        }
-                    }
-                    if (Regex.simpleMatch(include, path)) {
-                        exactIncludeMatch = true;
-                        break;
-                    }
-                }
-            }
+            final int includeMatch = includeMatch(includes, path);
+            final boolean exactIncludeMatch = includeMatch == EXACT_MATCH;
+            final boolean pathIsPrefixOfAnInclude = includeMatch == PREFIX_MATCH;
 
             if (!(pathIsPrefixOfAnInclude || exactIncludeMatch)) {
                 // skip subkeys, not interesting.
@@ -245,6 +218,194 @@ public class XContentMapValues {
         }
     }
 
+    /** The path doesn't match any include and no sub path may match one either. */
+    private static final int NO_MATCH = 0;
+    /** The path doesn't match an include, but sub paths may match one. */
+    private static final int PREFIX_MATCH = 1;
+    /** The path was specifically mentioned by an include, or there are no includes. */
+    private static final int EXACT_MATCH = 2;
+
+    private static int includeMatch(String[] includes, String path) {
+        if (includes.length == 0) {
+            // implied match anything
+            return EXACT_MATCH;
+        }
+        boolean pathIsPrefixOfAnInclude = false;
+        for (String include : includes) {
+            // check for prefix matches as well to see if we need to zero in, something like: obj1.arr1.* or *.field
+            // note, this does not work well with middle matches, like obj1.*.obj3
+            if (include.charAt(0) == '*') {
+                if (Regex.simpleMatch(include, path)) {
+                    return EXACT_MATCH;
+                }
+                pathIsPrefixOfAnInclude = true;
+                continue;
+            }
+            if (include.startsWith(path)) {
+                if (include.length() == path.length()) {
+                    return EXACT_MATCH;
+                } else if (include.length() > path.length() && include.charAt(path.length()) == '.') {
+                    // include might may match deeper paths. Dive deeper.
+                    pathIsPrefixOfAnInclude = true;
+                    continue;
+                }
+            }
+            if (Regex.simpleMatch(include, path)) {
+                return EXACT_MATCH;
+            }
+        }
+        return pathIsPrefixOfAnInclude ? PREFIX_MATCH : NO_MATCH;
+    }
+
+    /**
+     * Same as {@link #filter(Map, String[], String[])}, but copies the parts of the object that the parser is positioned
+     * on that match the includes and excludes straight to the builder, without building a map of the whole object first.
+     * Keys keep the order that they have in the parsed object.
+     */
+    public static void filter(XContentParser parser, XContentBuilder builder, String[] includes, String[] excludes) throws IOException {
+        XContentParser.Token token = parser.currentToken();
+        if (token == null) {
+            token = parser.nextToken();
+        }
+        if (token != XContentParser.Token.START_OBJECT) {
+            throw new ElasticsearchParseException("expected an object to filter but got [{}]", token);
+        }
+        builder.startObject();
+        new StreamingFilter(parser, builder).filterObject(includes == null ? Strings.EMPTY_ARRAY : includes,
+                excludes == null ? Strings.EMPTY_ARRAY : excludes, new StringBuilder());
+        builder.endObject();
+    }
+
+    /**
+     * Copies filtered objects from a parser to a builder. Objects and arrays that are only kept if they are not empty
+     * once filtered are started lazily, when their first value is written.
+     */
+    private static final class StreamingFilter {
+
+        private final XContentParser parser;
+        private final XContentBuilder builder;
+        // objects and arrays that have been started but not written yet, field names are null for array elements
+        private final List<String> pendingNames = new ArrayList<>();
+        private final List<Boolean> pendingArrays = new ArrayList<>();
+
+        StreamingFilter(XContentParser parser, XContentBuilder builder) {
+            this.parser = parser;
+            this.builder = builder;
+        }
+
+        private void writePending() throws IOException {
+            for (int i = 0; i < pendingNames.size(); ++i) {
+                if (pendingNames.get(i) != null) {
+                    builder.field(pendingNames.get(i));
+                }
+                if (pendingArrays.get(i)) {
+                    builder.startArray();
+                } else {
+                    builder.startObject();
+                }
+            }
+            pendingNames.clear();
+            pendingArrays.clear();
+        }
+
+        /** Start an object or an array, which is written right away unless it should be omitted when empty. */
+        private int start(String name, boolean array, boolean omitIfEmpty) throws IOException {
+            final int mark = pendingNames.size();
+            if (omitIfEmpty) {
+                pendingNames.add(name);
+                pendingArrays.add(array);
+            } else {
+                writePending();
+                if (name != null) {
+                    builder.field(name);
+                }
+                if (array) {
+                    builder.startArray();
+                } else {
+                    builder.startObject();
+                }
+            }
+            return mark;
+        }
+
+        private void end(int mark, boolean array) throws IOException {
+            if (pendingNames.size() > mark) {
+                // nothing was written, omit it
+                assert pendingNames.size() == mark + 1;
+                pendingNames.remove(mark);
+                pendingArrays.remove(mark);
+            } else if (array) {
+                builder.endArray();
+            } else {
+                builder.endObject();
+            }
+        }
+
+        private void copyCurrentStructure(String name) throws IOException {
+            writePending();
+            if (name != null) {
+                builder.field(name);
+            }
+            builder.copyCurrentStructure(parser);
+        }
+
+        void filterObject(String[] includes, String[] excludes, StringBuilder sb) throws IOException {
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                final String key = parser.currentName();
+                token = parser.nextToken();
+                if (includes.length == 0 && excludes.length == 0) {
+                    copyCurrentStructure(key);
+                    continue;
+                }
+                int mark = sb.length();
+                if (sb.length() > 0) {
+                    sb.append('.');
+                }
+                sb.append(key);
+                String path = sb.toString();
+
+                final int includeMatch = Regex.simpleMatch(excludes, path) ? NO_MATCH : includeMatch(includes, path);
+                if (includeMatch == NO_MATCH) {
+                    parser.skipChildren();
+                } else if (token == XContentParser.Token.START_OBJECT) {
+                    // if we had an exact match, we want give deeper excludes their chance
+                    final String[] innerIncludes = includeMatch == EXACT_MATCH ? Strings.EMPTY_ARRAY : includes;
+                    final int objectMark = start(key, false, includeMatch != EXACT_MATCH);
+                    filterObject(innerIncludes, excludes, sb);
+                    end(objectMark, false);
+                } else if (token == XContentParser.Token.START_ARRAY) {
+                    final String[] innerIncludes = includeMatch == EXACT_MATCH ? Strings.EMPTY_ARRAY : includes;
+                    final int arrayMark = start(key, true, false);
+                    filterArray(innerIncludes, excludes, sb);
+                    end(arrayMark, true);
+                } else if (includeMatch == EXACT_MATCH) {
+                    copyCurrentStructure(key);
+                }
+                sb.setLength(mark);
+            }
+        }
+
+        private void filterArray(String[] includes, String[] excludes, StringBuilder sb) throws IOException {
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                if (includes.length == 0 && excludes.length == 0) {
+                    copyCurrentStructure(null);
+                } else if (token == XContentParser.Token.START_OBJECT) {
+                    final int mark = start(null, false, true);
+                    filterObject(includes, excludes, sb);
+                    end(mark, false);
+                } else if (token == XContentParser.Token.START_ARRAY) {
+                    final int mark = start(null, true, true);
+                    filterArray(includes, excludes, sb);
+                    end(mark, true);
+                } else {
+                    copyCurrentStructure(null);
+                }
+            }
+        }
+    }
+
     public static boolean isObject(Object node) {
         return node instanceof Map;
     }
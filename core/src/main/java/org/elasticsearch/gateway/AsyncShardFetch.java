@@ -61,6 +61,13 @@ public abstract class AsyncShardFetch<T extends BaseNodeResponse> implements Rel
      */
     public interface List<NodesResponse extends BaseNodesResponse<NodeResponse>, NodeResponse extends BaseNodeResponse> {
         void list(ShardId shardId, IndexMetaData indexMetaData, String[] nodesIds, ActionListener<NodesResponse> listener);
+
+        /**
+         * Sends the listings that were started since the last flush, for actions that batch them per node like
+         * {@link TransportNodesBatchedShardAction}. Must be called once all the shards of a round have been fetched.
+         */
+        default void flush() {
+        }
     }
 
     protected final ESLogger logger;
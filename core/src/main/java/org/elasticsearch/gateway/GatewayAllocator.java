@@ -49,6 +49,9 @@ public class GatewayAllocator extends AbstractComponent {
 
     private RoutingService routingService;
 
+    private final TransportNodesListGatewayStartedShards startedAction;
+    private final TransportNodesListShardStoreMetaData storeAction;
+
     private final PrimaryShardAllocator primaryShardAllocator;
     private final ReplicaShardAllocator replicaShardAllocator;
 
@@ -58,6 +61,8 @@ public class GatewayAllocator extends AbstractComponent {
     @Inject
     public GatewayAllocator(Settings settings, final TransportNodesListGatewayStartedShards startedAction, final TransportNodesListShardStoreMetaData storeAction) {
         super(settings);
+        this.startedAction = startedAction;
+        this.storeAction = storeAction;
         this.primaryShardAllocator = new InternalPrimaryShardAllocator(settings, startedAction);
         this.replicaShardAllocator = new InternalReplicaShardAllocator(settings, storeAction);
     }
@@ -117,9 +122,15 @@ public class GatewayAllocator extends AbstractComponent {
         RoutingNodes.UnassignedShards unassigned = allocation.routingNodes().unassigned();
         unassigned.sort(PriorityComparator.getAllocationComparator(allocation)); // sort for priority ordering
 
-        changed |= primaryShardAllocator.allocateUnassigned(allocation);
-        changed |= replicaShardAllocator.processExistingRecoveries(allocation);
-        changed |= replicaShardAllocator.allocateUnassigned(allocation);
+        try {
+            changed |= primaryShardAllocator.allocateUnassigned(allocation);
+            changed |= replicaShardAllocator.processExistingRecoveries(allocation);
+            changed |= replicaShardAllocator.allocateUnassigned(allocation);
+        } finally {
+            // send the listings started by this round, one request per node for all the shards
+            startedAction.flush();
+            storeAction.flush();
+        }
         return changed;
     }
 
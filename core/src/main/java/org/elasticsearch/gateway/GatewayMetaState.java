@@ -19,11 +19,13 @@
 
 package org.elasticsearch.gateway;
 
+import com.carrotsearch.hppc.cursors.ObjectCursor;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.metadata.MetaDataIndexUpgradeService;
 import org.elasticsearch.cluster.node.DiscoveryNode;
@@ -33,6 +35,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.MultiDataPathUpgrader;
 import org.elasticsearch.env.NodeEnvironment;
@@ -86,10 +89,18 @@ public class GatewayMetaState extends AbstractComponent implements ClusterStateL
         if (DiscoveryNode.masterNode(settings) || DiscoveryNode.dataNode(settings)) {
             try {
                 ensureNoPre019State();
-                pre20Upgrade();
                 long startNS = System.nanoTime();
-                metaStateService.loadFullState();
-                logger.debug("took {} to load state", TimeValue.timeValueMillis(TimeValue.nsecToMSec(System.nanoTime() - startNS)));
+                MetaData metaData = loadMetaState();
+                long mappingsSize = 0;
+                for (IndexMetaData indexMetaData : metaData) {
+                    for (ObjectCursor<MappingMetaData> cursor : indexMetaData.getMappings().values()) {
+                        mappingsSize += cursor.value.source().compressed().length;
+                    }
+                }
+                logger.info("took {} to load state of [{}] indices with [{}] of compressed mappings",
+                        TimeValue.timeValueMillis(TimeValue.nsecToMSec(System.nanoTime() - startNS)), metaData.indices().size(),
+                        new ByteSizeValue(mappingsSize));
+                pre20Upgrade(metaData);
             } catch (Exception e) {
                 logger.error("failed to read local state, exiting...", e);
                 throw e;
@@ -223,20 +234,34 @@ public class GatewayMetaState extends AbstractComponent implements ClusterStateL
      * MetaDataIndexUpgradeService might also update obsolete settings if needed. When this happens we rewrite
      * index metadata with new settings.
      */
-    private void pre20Upgrade() throws Exception {
-        MetaData metaData = loadMetaState();
+    private void pre20Upgrade(MetaData metaData) throws Exception {
+        long startNS = System.nanoTime();
+        List<IndexMetaData> updateIndexMetaData = upgradeOpenIndices(metaData, metaDataIndexUpgradeService);
+        logger.info("took {} to check [{}] indices for upgrade, [{}] upgraded",
+                TimeValue.timeValueMillis(TimeValue.nsecToMSec(System.nanoTime() - startNS)), metaData.indices().size(), updateIndexMetaData.size());
+        // We successfully checked all indices for backward compatibility and found no non-upgradable indices, which
+        // means the upgrade can continue. Now it's safe to overwrite index metadata with the new version.
+        for (IndexMetaData indexMetaData : updateIndexMetaData) {
+            metaStateService.writeIndex("upgrade", indexMetaData, null);
+        }
+    }
+
+    /**
+     * Runs the upgrade check on all open indices and returns the metadata of the indices that were upgraded. Closed indices
+     * are skipped so that their mappings are not parsed when a node starts, they are checked and upgraded when they are opened.
+     */
+    static List<IndexMetaData> upgradeOpenIndices(MetaData metaData, MetaDataIndexUpgradeService metaDataIndexUpgradeService) {
         List<IndexMetaData> updateIndexMetaData = new ArrayList<>();
         for (IndexMetaData indexMetaData : metaData) {
+            if (indexMetaData.getState() == IndexMetaData.State.CLOSE) {
+                continue;
+            }
             IndexMetaData newMetaData = metaDataIndexUpgradeService.upgradeIndexMetaData(indexMetaData);
             if (indexMetaData != newMetaData) {
                 updateIndexMetaData.add(newMetaData);
             }
         }
-        // We successfully checked all indices for backward compatibility and found no non-upgradable indices, which
-        // means the upgrade can continue. Now it's safe to overwrite index metadata with the new version.
-        for (IndexMetaData indexMetaData : updateIndexMetaData) {
-            metaStateService.writeIndex("upgrade", indexMetaData, null);
-        }
+        return updateIndexMetaData;
     }
 
     // shard state BWC
@@ -0,0 +1,403 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.NoSuchNodeException;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.BaseNodeRequest;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.action.support.nodes.BaseNodesRequest;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.BaseTransportResponseHandler;
+import org.elasticsearch.transport.NodeShouldNotConnectException;
+import org.elasticsearch.transport.TransportChannel;
+import org.elasticsearch.transport.TransportException;
+import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.TransportRequestHandler;
+import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * A {@link TransportNodesAction} that lists the data of a single shard on a set of nodes for {@link AsyncShardFetch}.
+ * The listings that are started through {@link #executeBatched} are held back until the next {@link #flush()}, which
+ * sends each node a single request covering all the shards it is asked about. The node lists the shards in parallel on
+ * the executor of the action and answers with one response, that is then split up again per shard.
+ */
+public abstract class TransportNodesBatchedShardAction<NodesRequest extends BaseNodesRequest<NodesRequest>, NodesResponse extends BaseNodesResponse<NodeResponse>, NodeRequest extends BaseNodeRequest, NodeResponse extends BaseNodeResponse>
+        extends TransportNodesAction<NodesRequest, NodesResponse, NodeRequest, NodeResponse>
+        implements AsyncShardFetch.List<NodesResponse, NodeResponse> {
+
+    final String transportBatchAction;
+    private final Supplier<NodeRequest> nodeRequest;
+    private final String nodeExecutor;
+
+    private final Object mutex = new Object();
+    private java.util.List<PendingListing> pendingListings = new ArrayList<>();
+
+    protected TransportNodesBatchedShardAction(Settings settings, String actionName, ClusterName clusterName, ThreadPool threadPool,
+                                               ClusterService clusterService, TransportService transportService, ActionFilters actionFilters,
+                                               IndexNameExpressionResolver indexNameExpressionResolver, Supplier<NodesRequest> request,
+                                               Supplier<NodeRequest> nodeRequest, String nodeExecutor) {
+        super(settings, actionName, clusterName, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
+                request, nodeRequest, nodeExecutor);
+        this.nodeRequest = nodeRequest;
+        this.nodeExecutor = nodeExecutor;
+        this.transportBatchAction = actionName + "[n][b]";
+        transportService.registerRequestHandler(transportBatchAction, BatchNodeRequest::new, ThreadPool.Names.SAME, new BatchNodeTransportHandler());
+    }
+
+    /**
+     * Adds the given request to the current batch. The listener is notified once all the nodes of the request answered
+     * their batch, which is only sent on the next {@link #flush()}.
+     */
+    protected void executeBatched(NodesRequest request, ActionListener<NodesResponse> listener) {
+        synchronized (mutex) {
+            pendingListings.add(new PendingListing(request, listener));
+        }
+    }
+
+    /**
+     * Sends all the requests that were batched since the last flush, one request per node.
+     */
+    @Override
+    public void flush() {
+        final java.util.List<PendingListing> listings;
+        synchronized (mutex) {
+            if (pendingListings.isEmpty()) {
+                return;
+            }
+            listings = pendingListings;
+            pendingListings = new ArrayList<>();
+        }
+        final ClusterState clusterState = clusterService.state();
+        final Map<String, java.util.List<NodeSlot>> slotsByNode = new HashMap<>();
+        for (final PendingListing listing : listings) {
+            final String[] nodesIds = filterNodeIds(clusterState.nodes(), resolveNodes(listing.request, clusterState));
+            listing.start(nodesIds.length);
+            if (nodesIds.length == 0) {
+                // nothing to notify
+                threadPool.generic().execute(listing::finish);
+                continue;
+            }
+            for (int i = 0; i < nodesIds.length; i++) {
+                java.util.List<NodeSlot> slots = slotsByNode.get(nodesIds[i]);
+                if (slots == null) {
+                    slots = new ArrayList<>();
+                    slotsByNode.put(nodesIds[i], slots);
+                }
+                slots.add(new NodeSlot(listing, i));
+            }
+        }
+        logger.trace("sending [{}] batched listings to [{}] nodes", listings.size(), slotsByNode.size());
+        for (Map.Entry<String, java.util.List<NodeSlot>> entry : slotsByNode.entrySet()) {
+            sendBatch(clusterState.nodes().get(entry.getKey()), entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void sendBatch(final DiscoveryNode node, final String nodeId, final java.util.List<NodeSlot> slots) {
+        try {
+            if (node == null) {
+                onFailure(nodeId, slots, new NoSuchNodeException(nodeId));
+            } else if (!clusterService.localNode().shouldConnectTo(node) && !clusterService.localNode().equals(node)) {
+                onFailure(nodeId, slots, new NodeShouldNotConnectException(clusterService.localNode(), node));
+            } else if (node.getVersion().before(Version.V_3_0_0)) {
+                // older nodes do not know the batched action, list each shard with its own request
+                for (NodeSlot slot : slots) {
+                    sendNodeRequest(node, nodeId, slot);
+                }
+            } else {
+                final java.util.List<NodeRequest> requests = new ArrayList<>(slots.size());
+                for (NodeSlot slot : slots) {
+                    requests.add(newNodeRequest(nodeId, slot.listing.request));
+                }
+                TransportRequestOptions options = TransportRequestOptions.builder().withCompress(transportCompress()).build();
+                transportService.sendRequest(node, transportBatchAction, new BatchNodeRequest(requests), options,
+                        new BaseTransportResponseHandler<BatchNodeResponse>() {
+                    @Override
+                    public BatchNodeResponse newInstance() {
+                        return new BatchNodeResponse();
+                    }
+
+                    @Override
+                    public void handleResponse(BatchNodeResponse response) {
+                        assert response.responses.length == slots.size() : "expected [" + slots.size() + "] responses but got ["
+                                + response.responses.length + "]";
+                        for (int i = 0; i < slots.size(); i++) {
+                            final Object shardResponse = response.responses[i];
+                            if (shardResponse instanceof Throwable) {
+                                onFailure(nodeId, slots.get(i), (Throwable) shardResponse);
+                            } else {
+                                slots.get(i).onResponse(shardResponse);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void handleException(TransportException exp) {
+                        onFailure(nodeId, slots, exp);
+                    }
+
+                    @Override
+                    public String executor() {
+                        return ThreadPool.Names.SAME;
+                    }
+                });
+            }
+        } catch (Throwable t) {
+            onFailure(nodeId, slots, t);
+        }
+    }
+
+    private void sendNodeRequest(final DiscoveryNode node, final String nodeId, final NodeSlot slot) {
+        TransportRequestOptions options = TransportRequestOptions.builder().withCompress(transportCompress()).build();
+        transportService.sendRequest(node, actionName + "[n]", newNodeRequest(nodeId, slot.listing.request), options,
+                new BaseTransportResponseHandler<NodeResponse>() {
+            @Override
+            public NodeResponse newInstance() {
+                return newNodeResponse();
+            }
+
+            @Override
+            public void handleResponse(NodeResponse response) {
+                slot.onResponse(response);
+            }
+
+            @Override
+            public void handleException(TransportException exp) {
+                onFailure(nodeId, slot, exp);
+            }
+
+            @Override
+            public String executor() {
+                return ThreadPool.Names.SAME;
+            }
+        });
+    }
+
+    private void onFailure(String nodeId, java.util.List<NodeSlot> slots, Throwable t) {
+        if (logger.isDebugEnabled() && !(t instanceof NodeShouldNotConnectException)) {
+            logger.debug("failed to execute [{}] batched listings on node [{}]", t, slots.size(), nodeId);
+        }
+        for (NodeSlot slot : slots) {
+            onFailure(nodeId, slot, t);
+        }
+    }
+
+    private void onFailure(String nodeId, NodeSlot slot, Throwable t) {
+        slot.onResponse(accumulateExceptions() ? new FailedNodeException(nodeId, "Failed node [" + nodeId + "]", t) : null);
+    }
+
+    /**
+     * A request that was added to the batch, collecting the responses of its nodes
+     */
+    private class PendingListing {
+        final NodesRequest request;
+        final ActionListener<NodesResponse> listener;
+        AtomicReferenceArray<Object> responses;
+        final AtomicInteger counter = new AtomicInteger();
+
+        PendingListing(NodesRequest request, ActionListener<NodesResponse> listener) {
+            this.request = request;
+            this.listener = listener;
+        }
+
+        void start(int numberOfNodes) {
+            responses = new AtomicReferenceArray<>(numberOfNodes);
+        }
+
+        void onResponse(int idx, Object response) {
+            responses.set(idx, response);
+            if (counter.incrementAndGet() == responses.length()) {
+                finish();
+            }
+        }
+
+        void finish() {
+            NodesResponse finalResponse;
+            try {
+                finalResponse = newResponse(request, responses);
+            } catch (Throwable t) {
+                logger.debug("failed to combine responses from nodes", t);
+                listener.onFailure(t);
+                return;
+            }
+            listener.onResponse(finalResponse);
+        }
+    }
+
+    /**
+     * The position of a node in the responses of a batched request
+     */
+    private class NodeSlot {
+        final PendingListing listing;
+        final int idx;
+
+        NodeSlot(PendingListing listing, int idx) {
+            this.listing = listing;
+            this.idx = idx;
+        }
+
+        void onResponse(Object response) {
+            listing.onResponse(idx, response);
+        }
+    }
+
+    class BatchNodeTransportHandler implements TransportRequestHandler<BatchNodeRequest> {
+
+        @Override
+        public void messageReceived(final BatchNodeRequest request, final TransportChannel channel) throws Exception {
+            final int size = request.requests.size();
+            final BatchNodeResponse response = new BatchNodeResponse(size);
+            if (size == 0) {
+                channel.sendResponse(response);
+                return;
+            }
+            final CountDown countDown = new CountDown(size);
+            for (int i = 0; i < size; i++) {
+                final int idx = i;
+                final NodeRequest nodeRequest = request.requests.get(i);
+                threadPool.executor(nodeExecutor).execute(new AbstractRunnable() {
+                    @Override
+                    protected void doRun() throws Exception {
+                        response.responses[idx] = nodeOperation(nodeRequest);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        response.responses[idx] = t;
+                    }
+
+                    @Override
+                    public void onAfter() {
+                        if (countDown.countDown()) {
+                            try {
+                                channel.sendResponse(response);
+                            } catch (Throwable t) {
+                                logger.warn("failed to send response for [{}] batched listings", t, size);
+                            }
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    class BatchNodeRequest extends TransportRequest {
+
+        java.util.List<NodeRequest> requests;
+
+        BatchNodeRequest() {
+        }
+
+        BatchNodeRequest(java.util.List<NodeRequest> requests) {
+            this.requests = requests;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            final int size = in.readVInt();
+            requests = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                NodeRequest request = nodeRequest.get();
+                request.readFrom(in);
+                requests.add(request);
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(requests.size());
+            for (NodeRequest request : requests) {
+                request.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Holds either the response or the failure of each shard of a {@link BatchNodeRequest}, in the same order
+     */
+    class BatchNodeResponse extends TransportResponse {
+
+        Object[] responses;
+
+        BatchNodeResponse() {
+        }
+
+        BatchNodeResponse(int size) {
+            this.responses = new Object[size];
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            responses = new Object[in.readVInt()];
+            for (int i = 0; i < responses.length; i++) {
+                if (in.readBoolean()) {
+                    NodeResponse response = newNodeResponse();
+                    response.readFrom(in);
+                    responses[i] = response;
+                } else {
+                    responses[i] = in.readThrowable();
+                }
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(responses.length);
+            for (Object response : responses) {
+                if (response instanceof Throwable) {
+                    out.writeBoolean(false);
+                    out.writeThrowable((Throwable) response);
+                } else {
+                    out.writeBoolean(true);
+                    ((TransportResponse) response).writeTo(out);
+                }
+            }
+        }
+    }
+}
@@ -351,6 +351,11 @@ public final class IndexService extends AbstractIndexComponent implements IndexC
                         // ignore
                     }
                 }
+                try {
+                    indexFieldData.clear(sId);
+                } catch (Throwable e) {
+                    logger.debug("[{}] failed to clear retained field data", e, shardId);
+                }
                 // call this before we close the store, so we can release resources for it
                 listener.afterIndexShardClosed(sId, indexShard, indexSettings);
             }
@@ -25,6 +25,7 @@ import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.mapper.internal.AllFieldMapper;
 import org.elasticsearch.index.translog.Translog;
@@ -54,6 +55,17 @@ public final class IndexSettings {
     public static final String ALLOW_UNMAPPED = "index.query.parse.allow_unmapped_fields";
     public static final String INDEX_TRANSLOG_SYNC_INTERVAL = "index.translog.sync_interval";
     public static final String INDEX_TRANSLOG_DURABILITY = "index.translog.durability";
+    /**
+     * The total size of the translog generations that are kept around after a flush so that copies of the shard that
+     * miss a few operations can recover from the translog instead of copying files. <tt>0</tt> disables retention.
+     */
+    public static final String INDEX_TRANSLOG_RETENTION_SIZE = "index.translog.retention.size";
+    /**
+     * How long translog generations are kept around after a flush at most.
+     */
+    public static final String INDEX_TRANSLOG_RETENTION_AGE = "index.translog.retention.age";
+    public static final ByteSizeValue DEFAULT_TRANSLOG_RETENTION_SIZE = new ByteSizeValue(0);
+    public static final TimeValue DEFAULT_TRANSLOG_RETENTION_AGE = TimeValue.timeValueHours(12);
 
     private final String uuid;
     private final List<Consumer<Settings>> updateListeners;
@@ -76,6 +88,8 @@ public final class IndexSettings {
     private final Predicate<String> indexNameMatcher;
     private volatile Translog.Durability durability;
     private final TimeValue syncInterval;
+    private volatile ByteSizeValue translogRetentionSize;
+    private volatile TimeValue translogRetentionAge;
 
     /**
      * Returns the default search field for this index.
@@ -156,6 +170,8 @@ public final class IndexSettings {
         final String value = settings.get(INDEX_TRANSLOG_DURABILITY, Translog.Durability.REQUEST.name());
         this.durability = getFromSettings(settings, Translog.Durability.REQUEST);
         syncInterval = settings.getAsTime(INDEX_TRANSLOG_SYNC_INTERVAL, TimeValue.timeValueSeconds(5));
+        translogRetentionSize = settings.getAsBytesSize(INDEX_TRANSLOG_RETENTION_SIZE, DEFAULT_TRANSLOG_RETENTION_SIZE);
+        translogRetentionAge = settings.getAsTime(INDEX_TRANSLOG_RETENTION_AGE, DEFAULT_TRANSLOG_RETENTION_AGE);
 
         assert indexNameMatcher.test(indexMetaData.getIndex());
     }
@@ -346,10 +362,34 @@ public final class IndexSettings {
             logger.info("updating durability from [{}] to [{}]", this.durability, durability);
             this.durability = durability;
         }
+        final ByteSizeValue translogRetentionSize = settings.getAsBytesSize(INDEX_TRANSLOG_RETENTION_SIZE, this.translogRetentionSize);
+        if (translogRetentionSize.equals(this.translogRetentionSize) == false) {
+            logger.info("updating translog retention size from [{}] to [{}]", this.translogRetentionSize, translogRetentionSize);
+            this.translogRetentionSize = translogRetentionSize;
+        }
+        final TimeValue translogRetentionAge = settings.getAsTime(INDEX_TRANSLOG_RETENTION_AGE, this.translogRetentionAge);
+        if (translogRetentionAge.equals(this.translogRetentionAge) == false) {
+            logger.info("updating translog retention age from [{}] to [{}]", this.translogRetentionAge, translogRetentionAge);
+            this.translogRetentionAge = translogRetentionAge;
+        }
     }
 
     public TimeValue getTranslogSyncInterval() {
         return syncInterval;
     }
 
+    /**
+     * Returns the total size of the translog generations that are retained after a flush.
+     */
+    public ByteSizeValue getTranslogRetentionSize() {
+        return translogRetentionSize;
+    }
+
+    /**
+     * Returns how long translog generations are retained after a flush at most.
+     */
+    public TimeValue getTranslogRetentionAge() {
+        return translogRetentionAge;
+    }
+
 }
@@ -82,6 +82,12 @@ import java.util.function.Function;
 public abstract class Engine implements Closeable {
 
     public static final String SYNC_COMMIT_ID = "sync_id";
+    /**
+     * The sync id of the last synced flush before a commit. All operations after that synced flush are in the translog
+     * generations starting at {@link #LAST_SYNC_TRANSLOG_GENERATION} of the translog of the commit.
+     */
+    public static final String LAST_SYNC_COMMIT_ID = "last_sync_id";
+    public static final String LAST_SYNC_TRANSLOG_GENERATION = "last_sync_translog_generation";
 
     protected final ShardId shardId;
     protected final ESLogger logger;
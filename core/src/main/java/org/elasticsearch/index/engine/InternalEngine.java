@@ -1147,11 +1147,24 @@ public class InternalEngine extends Engine {
         try {
             Translog.TranslogGeneration translogGeneration = translog.getGeneration();
             logger.trace("committing writer with translog id [{}]  and sync id [{}] ", translogGeneration.translogFileGeneration, syncId);
-            Map<String, String> commitData = new HashMap<>(2);
+            Map<String, String> commitData = new HashMap<>(4);
             commitData.put(Translog.TRANSLOG_GENERATION_KEY, Long.toString(translogGeneration.translogFileGeneration));
             commitData.put(Translog.TRANSLOG_UUID_KEY, translogGeneration.translogUUID);
             if (syncId != null) {
                 commitData.put(Engine.SYNC_COMMIT_ID, syncId);
+            } else if (lastCommittedSegmentInfos != null) {
+                // remember the last synced flush of the same translog so that copies that still have it can recover
+                // by replaying the operations that followed it
+                final Map<String, String> lastCommitData = lastCommittedSegmentInfos.getUserData();
+                if (translogGeneration.translogUUID.equals(lastCommitData.get(Translog.TRANSLOG_UUID_KEY))) {
+                    if (lastCommitData.containsKey(Engine.SYNC_COMMIT_ID)) {
+                        commitData.put(Engine.LAST_SYNC_COMMIT_ID, lastCommitData.get(Engine.SYNC_COMMIT_ID));
+                        commitData.put(Engine.LAST_SYNC_TRANSLOG_GENERATION, lastCommitData.get(Translog.TRANSLOG_GENERATION_KEY));
+                    } else if (lastCommitData.containsKey(Engine.LAST_SYNC_COMMIT_ID)) {
+                        commitData.put(Engine.LAST_SYNC_COMMIT_ID, lastCommitData.get(Engine.LAST_SYNC_COMMIT_ID));
+                        commitData.put(Engine.LAST_SYNC_TRANSLOG_GENERATION, lastCommitData.get(Engine.LAST_SYNC_TRANSLOG_GENERATION));
+                    }
+                }
             }
             indexWriter.setCommitData(commitData);
             writer.commit();
@@ -20,11 +20,13 @@
 package org.elasticsearch.index.fielddata;
 
 import com.carrotsearch.hppc.ObjectLongHashMap;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
@@ -37,6 +39,9 @@ public class FieldDataStats implements Streamable, ToXContent {
 
     long memorySize;
     long evictions;
+    long globalOrdinalsBuilds;
+    long globalOrdinalsIncrementalBuilds;
+    long globalOrdinalsBuildTimeInMillis;
     @Nullable
     ObjectLongHashMap<String> fields;
 
@@ -45,14 +50,25 @@ public class FieldDataStats implements Streamable, ToXContent {
     }
 
     public FieldDataStats(long memorySize, long evictions, @Nullable ObjectLongHashMap<String> fields) {
+        this(memorySize, evictions, 0, 0, 0, fields);
+    }
+
+    public FieldDataStats(long memorySize, long evictions, long globalOrdinalsBuilds, long globalOrdinalsIncrementalBuilds,
+                          long globalOrdinalsBuildTimeInMillis, @Nullable ObjectLongHashMap<String> fields) {
         this.memorySize = memorySize;
         this.evictions = evictions;
+        this.globalOrdinalsBuilds = globalOrdinalsBuilds;
+        this.globalOrdinalsIncrementalBuilds = globalOrdinalsIncrementalBuilds;
+        this.globalOrdinalsBuildTimeInMillis = globalOrdinalsBuildTimeInMillis;
         this.fields = fields;
     }
 
     public void add(FieldDataStats stats) {
         this.memorySize += stats.memorySize;
         this.evictions += stats.evictions;
+        this.globalOrdinalsBuilds += stats.globalOrdinalsBuilds;
+        this.globalOrdinalsIncrementalBuilds += stats.globalOrdinalsIncrementalBuilds;
+        this.globalOrdinalsBuildTimeInMillis += stats.globalOrdinalsBuildTimeInMillis;
         if (stats.fields != null) {
             if (fields == null) { 
                 fields = stats.fields.clone();
@@ -81,6 +97,35 @@ public class FieldDataStats implements Streamable, ToXContent {
         return this.evictions;
     }
 
+    /**
+     * The number of times global ordinals have been built, typically once per field after every refresh.
+     */
+    public long getGlobalOrdinalsBuilds() {
+        return this.globalOrdinalsBuilds;
+    }
+
+    /**
+     * The number of times global ordinals have been built incrementally from the global ordinals of the
+     * previous refresh.
+     */
+    public long getGlobalOrdinalsIncrementalBuilds() {
+        return this.globalOrdinalsIncrementalBuilds;
+    }
+
+    /**
+     * The total time spent building global ordinals (in milliseconds).
+     */
+    public long getGlobalOrdinalsBuildTimeInMillis() {
+        return this.globalOrdinalsBuildTimeInMillis;
+    }
+
+    /**
+     * The total time spent building global ordinals.
+     */
+    public TimeValue getGlobalOrdinalsBuildTime() {
+        return new TimeValue(globalOrdinalsBuildTimeInMillis);
+    }
+
     @Nullable
     public ObjectLongHashMap<String> getFields() {
         return fields;
@@ -96,6 +141,11 @@ public class FieldDataStats implements Streamable, ToXContent {
     public void readFrom(StreamInput in) throws IOException {
         memorySize = in.readVLong();
         evictions = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            globalOrdinalsBuilds = in.readVLong();
+            globalOrdinalsIncrementalBuilds = in.readVLong();
+            globalOrdinalsBuildTimeInMillis = in.readVLong();
+        }
         if (in.readBoolean()) {
             int size = in.readVInt();
             fields = new ObjectLongHashMap<>(size);
@@ -109,6 +159,11 @@ public class FieldDataStats implements Streamable, ToXContent {
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(memorySize);
         out.writeVLong(evictions);
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            out.writeVLong(globalOrdinalsBuilds);
+            out.writeVLong(globalOrdinalsIncrementalBuilds);
+            out.writeVLong(globalOrdinalsBuildTimeInMillis);
+        }
         if (fields == null) {
             out.writeBoolean(false);
         } else {
@@ -131,6 +186,11 @@ public class FieldDataStats implements Streamable, ToXContent {
         builder.startObject(Fields.FIELDDATA);
         builder.byteSizeField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, memorySize);
         builder.field(Fields.EVICTIONS, getEvictions());
+        builder.startObject(Fields.GLOBAL_ORDINALS);
+        builder.field(Fields.BUILDS, globalOrdinalsBuilds);
+        builder.field(Fields.INCREMENTAL_BUILDS, globalOrdinalsIncrementalBuilds);
+        builder.timeValueField(Fields.BUILD_TIME_IN_MILLIS, Fields.BUILD_TIME, globalOrdinalsBuildTimeInMillis);
+        builder.endObject();
         if (fields != null) {
             builder.startObject(Fields.FIELDS);
             assert !fields.containsKey(null);
@@ -155,5 +215,10 @@ public class FieldDataStats implements Streamable, ToXContent {
         static final XContentBuilderString MEMORY_SIZE_IN_BYTES = new XContentBuilderString("memory_size_in_bytes");
         static final XContentBuilderString EVICTIONS = new XContentBuilderString("evictions");
         static final XContentBuilderString FIELDS = new XContentBuilderString("fields");
+        static final XContentBuilderString GLOBAL_ORDINALS = new XContentBuilderString("global_ordinals");
+        static final XContentBuilderString BUILDS = new XContentBuilderString("builds");
+        static final XContentBuilderString INCREMENTAL_BUILDS = new XContentBuilderString("incremental_builds");
+        static final XContentBuilderString BUILD_TIME = new XContentBuilderString("build_time");
+        static final XContentBuilderString BUILD_TIME_IN_MILLIS = new XContentBuilderString("build_time_in_millis");
     }
 }
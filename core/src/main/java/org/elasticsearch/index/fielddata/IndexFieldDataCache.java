@@ -22,6 +22,8 @@ package org.elasticsearch.index.fielddata;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.util.Accountable;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.fielddata.ordinals.IncrementalOrdinalMap;
 import org.elasticsearch.index.shard.ShardId;
 
 /**
@@ -43,6 +45,22 @@ public interface IndexFieldDataCache {
      */
     void clear(String fieldName);
 
+    /**
+     * Releases the data that is retained for the given shard beyond the lifetime of its readers, called when the shard
+     * is closed.
+     */
+    default void clear(ShardId shardId) {
+    }
+
+    /**
+     * Returns the ordinal map of the global ordinals that were last loaded for the shard of the given reader, which
+     * allows to build the global ordinals of the given reader incrementally, or {@code null} if there are none.
+     */
+    @Nullable
+    default IncrementalOrdinalMap lastOrdinalMap(DirectoryReader indexReader) {
+        return null;
+    }
+
     interface Listener {
 
         /**
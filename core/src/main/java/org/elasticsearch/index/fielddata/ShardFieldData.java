@@ -24,6 +24,7 @@ import org.apache.lucene.util.Accountable;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsIndexFieldData;
 import org.elasticsearch.index.shard.ShardId;
 
 import java.util.Map;
@@ -35,6 +36,9 @@ public class ShardFieldData implements IndexFieldDataCache.Listener {
 
     final CounterMetric evictionsMetric = new CounterMetric();
     final CounterMetric totalMetric = new CounterMetric();
+    final CounterMetric globalOrdinalsBuildsMetric = new CounterMetric();
+    final CounterMetric globalOrdinalsIncrementalBuildsMetric = new CounterMetric();
+    final CounterMetric globalOrdinalsBuildTimeMetric = new CounterMetric();
     final ConcurrentMap<String, CounterMetric> perFieldTotals = ConcurrentCollections.newConcurrentMap();
 
     public FieldDataStats stats(String... fields) {
@@ -47,11 +51,20 @@ public class ShardFieldData implements IndexFieldDataCache.Listener {
                 }
             }
         }
-        return new FieldDataStats(totalMetric.count(), evictionsMetric.count(), fieldTotals);
+        return new FieldDataStats(totalMetric.count(), evictionsMetric.count(), globalOrdinalsBuildsMetric.count(),
+                globalOrdinalsIncrementalBuildsMetric.count(), globalOrdinalsBuildTimeMetric.count(), fieldTotals);
     }
 
     @Override
     public void onCache(ShardId shardId, String fieldName, FieldDataType fieldDataType, Accountable ramUsage) {
+        if (ramUsage instanceof GlobalOrdinalsIndexFieldData) {
+            final GlobalOrdinalsIndexFieldData globalOrdinals = (GlobalOrdinalsIndexFieldData) ramUsage;
+            globalOrdinalsBuildsMetric.inc();
+            if (globalOrdinals.getOrdinalMap().isIncremental()) {
+                globalOrdinalsIncrementalBuildsMetric.inc();
+            }
+            globalOrdinalsBuildTimeMetric.inc(globalOrdinals.getBuildTimeInMillis());
+        }
         totalMetric.inc(ramUsage.ramBytesUsed());
         CounterMetric total = perFieldTotals.get(fieldName);
         if (total != null) {
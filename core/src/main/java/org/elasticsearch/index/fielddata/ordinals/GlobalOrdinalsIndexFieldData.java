@@ -42,13 +42,33 @@ public abstract class GlobalOrdinalsIndexFieldData extends AbstractIndexComponen
 
     private final String fieldName;
     private final FieldDataType fieldDataType;
+    private final IncrementalOrdinalMap ordinalMap;
     private final long memorySizeInBytes;
+    private final long buildTimeInMillis;
 
-    protected GlobalOrdinalsIndexFieldData(IndexSettings indexSettings, String fieldName, FieldDataType fieldDataType, long memorySizeInBytes) {
+    protected GlobalOrdinalsIndexFieldData(IndexSettings indexSettings, String fieldName, FieldDataType fieldDataType,
+                                           IncrementalOrdinalMap ordinalMap, long memorySizeInBytes, long buildTimeInMillis) {
         super(indexSettings);
         this.fieldName = fieldName;
         this.fieldDataType = fieldDataType;
+        this.ordinalMap = ordinalMap;
         this.memorySizeInBytes = memorySizeInBytes;
+        this.buildTimeInMillis = buildTimeInMillis;
+    }
+
+    /**
+     * The mapping from segment ordinals to global ordinals, which can be used to build the global ordinals of the
+     * next point-in-time view of the shard incrementally.
+     */
+    public IncrementalOrdinalMap getOrdinalMap() {
+        return ordinalMap;
+    }
+
+    /**
+     * The time it took to build these global ordinals.
+     */
+    public long getBuildTimeInMillis() {
+        return buildTimeInMillis;
     }
 
     @Override
@@ -0,0 +1,367 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.MultiDocValues.OrdinalMap;
+import org.apache.lucene.index.RandomAccessOrds;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.StringHelper;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.common.Nullable;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Maps segment ordinals to global ordinals, like {@link OrdinalMap}, but can be built incrementally from the map
+ * of a previous point-in-time view of the same shard. When a refresh only adds segments, the terms of the new
+ * segments are looked up in the global term space of the previous map instead of merging the terms of all segments
+ * again, and the mappings of the existing segments are reused or shifted.
+ */
+public final class IncrementalOrdinalMap implements Accountable {
+
+    private final String[] segmentIds;
+    private final long valueCount;
+    private final LongValues[] globalOrds;
+    private final LongValues firstSegments;
+    private final LongValues firstSegmentOrds;
+    // the structures that back the above mappings, some of them may be shared with previous maps
+    private final Accountable[] globalOrdsResources;
+    private final Accountable firstSegmentsResource;
+    private final Accountable firstSegmentOrdsResource;
+    private final boolean incremental;
+    private final long ramBytesUsed;
+
+    private IncrementalOrdinalMap(String[] segmentIds, long valueCount, LongValues[] globalOrds, LongValues firstSegments,
+                                  LongValues firstSegmentOrds, Accountable[] globalOrdsResources, Accountable firstSegmentsResource,
+                                  Accountable firstSegmentOrdsResource, boolean incremental) {
+        this.segmentIds = segmentIds;
+        this.valueCount = valueCount;
+        this.globalOrds = globalOrds;
+        this.firstSegments = firstSegments;
+        this.firstSegmentOrds = firstSegmentOrds;
+        this.globalOrdsResources = globalOrdsResources;
+        this.firstSegmentsResource = firstSegmentsResource;
+        this.firstSegmentOrdsResource = firstSegmentOrdsResource;
+        this.incremental = incremental;
+        final Set<Accountable> resources = Collections.newSetFromMap(new IdentityHashMap<>());
+        Collections.addAll(resources, globalOrdsResources);
+        resources.add(firstSegmentsResource);
+        resources.add(firstSegmentOrdsResource);
+        long ramBytesUsed = 0;
+        for (Accountable resource : resources) {
+            ramBytesUsed += resource.ramBytesUsed();
+        }
+        this.ramBytesUsed = ramBytesUsed;
+    }
+
+    /** The number of unique terms across all segments. */
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    /** Returns the mapping from ordinals of the given segment to global ordinals. */
+    public LongValues getGlobalOrds(int segmentIndex) {
+        return globalOrds[segmentIndex];
+    }
+
+    /** Returns the index of a segment that contains the given global ordinal. */
+    public int getFirstSegmentNumber(long globalOrd) {
+        return (int) firstSegments.get(globalOrd);
+    }
+
+    /** Returns the ordinal of the given global ordinal in the segment returned by {@link #getFirstSegmentNumber(long)}. */
+    public long getFirstSegmentOrd(long globalOrd) {
+        return firstSegmentOrds.get(globalOrd);
+    }
+
+    /** Whether this map was built incrementally from a previous map. */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Build a map for the given reader. If a previous map is provided and all of its segments are still part of the
+     * reader, the map is built incrementally, otherwise all terms are merged again.
+     *
+     * @param indexReader the reader to build the map for
+     * @param values      the ordinals of every segment of the reader, in the order of its leaves
+     * @param previous    the map that was built for a previous point-in-time view of the same shard, may be {@code null}
+     */
+    public static IncrementalOrdinalMap build(IndexReader indexReader, RandomAccessOrds[] values,
+                                              @Nullable IncrementalOrdinalMap previous) throws IOException {
+        assert indexReader.leaves().size() == values.length;
+        final String[] segmentIds = new String[values.length];
+        boolean identifiedSegments = true;
+        for (int i = 0; i < values.length; ++i) {
+            segmentIds[i] = segmentId(indexReader.leaves().get(i).reader());
+            identifiedSegments &= segmentIds[i] != null;
+        }
+        if (previous != null && identifiedSegments) {
+            final IncrementalOrdinalMap map = buildIncrementally(segmentIds, values, previous);
+            if (map != null) {
+                return map;
+            }
+        }
+        return buildFully(identifiedSegments ? segmentIds : null, values);
+    }
+
+    private static IncrementalOrdinalMap buildFully(@Nullable String[] segmentIds, RandomAccessOrds[] values) throws IOException {
+        final OrdinalMap ordinalMap = OrdinalMap.build(null, values, PackedInts.DEFAULT);
+        final LongValues[] globalOrds = new LongValues[values.length];
+        final Accountable[] globalOrdsResources = new Accountable[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            globalOrds[i] = ordinalMap.getGlobalOrds(i);
+            globalOrdsResources[i] = ordinalMap;
+        }
+        final LongValues firstSegments = new LongValues() {
+            @Override
+            public long get(long index) {
+                return ordinalMap.getFirstSegmentNumber(index);
+            }
+        };
+        final LongValues firstSegmentOrds = new LongValues() {
+            @Override
+            public long get(long index) {
+                return ordinalMap.getFirstSegmentOrd(index);
+            }
+        };
+        return new IncrementalOrdinalMap(segmentIds, ordinalMap.getValueCount(), globalOrds, firstSegments, firstSegmentOrds,
+                globalOrdsResources, ordinalMap, ordinalMap, false);
+    }
+
+    /**
+     * Build a map by adding the terms of new segments to the global term space of the previous map. Returns
+     * {@code null} if some segments of the previous map are not part of the reader anymore, eg. after a merge.
+     */
+    @Nullable
+    private static IncrementalOrdinalMap buildIncrementally(String[] segmentIds, RandomAccessOrds[] values,
+                                                            IncrementalOrdinalMap previous) throws IOException {
+        if (previous.segmentIds == null) {
+            return null;
+        }
+        // find where the segments of the previous map are in the new reader
+        final int[] previousToNew = new int[previous.segmentIds.length];
+        final boolean[] existing = new boolean[segmentIds.length];
+        boolean sameOrder = previous.segmentIds.length == segmentIds.length;
+        for (int i = 0; i < previous.segmentIds.length; ++i) {
+            previousToNew[i] = -1;
+            for (int j = 0; j < segmentIds.length; ++j) {
+                if (previous.segmentIds[i].equals(segmentIds[j])) {
+                    previousToNew[i] = j;
+                    existing[j] = true;
+                    break;
+                }
+            }
+            if (previousToNew[i] == -1) {
+                return null;
+            }
+            sameOrder &= previousToNew[i] == i;
+        }
+        final int[] newSegments = new int[segmentIds.length - previous.segmentIds.length];
+        for (int j = 0, k = 0; j < segmentIds.length; ++j) {
+            if (existing[j] == false) {
+                newSegments[k++] = j;
+            }
+        }
+
+        // merge the terms of the new segments together, and look them up in the previous global term space
+        final OrdinalMap newTermsMap;
+        final long[] newGlobalOrds;
+        final long[] insertionPoints;
+        final long[] insertedTerms;
+        int numInserted = 0;
+        if (newSegments.length == 0) {
+            newTermsMap = null;
+            newGlobalOrds = insertionPoints = insertedTerms = new long[0];
+        } else {
+            final RandomAccessOrds[] newValues = new RandomAccessOrds[newSegments.length];
+            for (int k = 0; k < newSegments.length; ++k) {
+                newValues[k] = values[newSegments[k]];
+            }
+            newTermsMap = OrdinalMap.build(null, newValues, PackedInts.DEFAULT);
+            if (newTermsMap.getValueCount() > ArrayUtil.MAX_ARRAY_LENGTH) {
+                return null;
+            }
+            final int numNewTerms = (int) newTermsMap.getValueCount();
+            newGlobalOrds = new long[numNewTerms];
+            insertionPoints = new long[numNewTerms];
+            insertedTerms = new long[numNewTerms];
+            final BytesRefBuilder newTerm = new BytesRefBuilder();
+            long low = 0;
+            for (int term = 0; term < numNewTerms; ++term) {
+                final int segment = newTermsMap.getFirstSegmentNumber(term);
+                newTerm.copyBytes(newValues[segment].lookupOrd(newTermsMap.getFirstSegmentOrd(term)));
+                // terms are sorted, so the insertion point can only move forward
+                low = lowerBound(previous, previousToNew, values, low, newTerm.get());
+                newGlobalOrds[term] = low + numInserted;
+                if (low == previous.valueCount || lookupPrevious(previous, previousToNew, values, low).equals(newTerm.get()) == false) {
+                    insertionPoints[numInserted] = low;
+                    insertedTerms[numInserted] = term;
+                    numInserted++;
+                }
+            }
+        }
+
+        final long valueCount = previous.valueCount + numInserted;
+        final LongValues[] globalOrds = new LongValues[segmentIds.length];
+        final Accountable[] globalOrdsResources = new Accountable[segmentIds.length];
+        for (int i = 0; i < previousToNew.length; ++i) {
+            final int segment = previousToNew[i];
+            if (numInserted == 0) {
+                globalOrds[segment] = previous.globalOrds[i];
+                globalOrdsResources[segment] = previous.globalOrdsResources[i];
+            } else {
+                // shift global ordinals by the number of terms that were inserted before them
+                final LongValues previousGlobalOrds = previous.globalOrds[i];
+                final PackedLongValues.Builder builder = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+                int inserted = 0;
+                for (long ord = 0, maxOrd = values[segment].getValueCount(); ord < maxOrd; ++ord) {
+                    final long previousGlobalOrd = previousGlobalOrds.get(ord);
+                    while (inserted < numInserted && insertionPoints[inserted] <= previousGlobalOrd) {
+                        inserted++;
+                    }
+                    builder.add(previousGlobalOrd + inserted);
+                }
+                final PackedLongValues mapping = builder.build();
+                globalOrds[segment] = mapping;
+                globalOrdsResources[segment] = mapping;
+            }
+        }
+        for (int k = 0; k < newSegments.length; ++k) {
+            final LongValues newTermsOrds = newTermsMap.getGlobalOrds(k);
+            final PackedLongValues.Builder builder = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+            for (long ord = 0, maxOrd = values[newSegments[k]].getValueCount(); ord < maxOrd; ++ord) {
+                builder.add(newGlobalOrds[(int) newTermsOrds.get(ord)]);
+            }
+            final PackedLongValues mapping = builder.build();
+            globalOrds[newSegments[k]] = mapping;
+            globalOrdsResources[newSegments[k]] = mapping;
+        }
+
+        final LongValues firstSegments;
+        final LongValues firstSegmentOrds;
+        final Accountable firstSegmentsResource;
+        final Accountable firstSegmentOrdsResource;
+        if (numInserted == 0 && sameOrder) {
+            firstSegments = previous.firstSegments;
+            firstSegmentsResource = previous.firstSegmentsResource;
+            firstSegmentOrds = previous.firstSegmentOrds;
+            firstSegmentOrdsResource = previous.firstSegmentOrdsResource;
+        } else if (numInserted == 0) {
+            final PackedLongValues.Builder segmentsBuilder = PackedLongValues.packedBuilder(PackedInts.COMPACT);
+            for (long ord = 0; ord < valueCount; ++ord) {
+                segmentsBuilder.add(previousToNew[(int) previous.firstSegments.get(ord)]);
+            }
+            final PackedLongValues segments = segmentsBuilder.build();
+            firstSegments = segments;
+            firstSegmentsResource = segments;
+            firstSegmentOrds = previous.firstSegmentOrds;
+            firstSegmentOrdsResource = previous.firstSegmentOrdsResource;
+        } else {
+            // interleave the terms of the previous map and the inserted terms
+            final PackedLongValues.Builder segmentsBuilder = PackedLongValues.packedBuilder(PackedInts.COMPACT);
+            final PackedLongValues.Builder ordsBuilder = PackedLongValues.deltaPackedBuilder(PackedInts.COMPACT);
+            long previousOrd = 0;
+            int inserted = 0;
+            while (previousOrd < previous.valueCount || inserted < numInserted) {
+                if (inserted < numInserted && (previousOrd == previous.valueCount || insertionPoints[inserted] <= previousOrd)) {
+                    final long term = insertedTerms[inserted++];
+                    segmentsBuilder.add(newSegments[newTermsMap.getFirstSegmentNumber(term)]);
+                    ordsBuilder.add(newTermsMap.getFirstSegmentOrd(term));
+                } else {
+                    segmentsBuilder.add(previousToNew[(int) previous.firstSegments.get(previousOrd)]);
+                    ordsBuilder.add(previous.firstSegmentOrds.get(previousOrd));
+                    previousOrd++;
+                }
+            }
+            final PackedLongValues segments = segmentsBuilder.build();
+            final PackedLongValues ords = ordsBuilder.build();
+            firstSegments = segments;
+            firstSegmentsResource = segments;
+            firstSegmentOrds = ords;
+            firstSegmentOrdsResource = ords;
+        }
+        return new IncrementalOrdinalMap(segmentIds, valueCount, globalOrds, firstSegments, firstSegmentOrds,
+                globalOrdsResources, firstSegmentsResource, firstSegmentOrdsResource, true);
+    }
+
+    /** Returns the first global ordinal of the previous map, starting from {@code low}, whose term is greater than or equal to the given term. */
+    private static long lowerBound(IncrementalOrdinalMap previous, int[] previousToNew, RandomAccessOrds[] values, long low, BytesRef term) {
+        long high = previous.valueCount - 1;
+        while (low <= high) {
+            final long mid = (low + high) >>> 1;
+            final int cmp = lookupPrevious(previous, previousToNew, values, mid).compareTo(term);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return low;
+    }
+
+    private static BytesRef lookupPrevious(IncrementalOrdinalMap previous, int[] previousToNew, RandomAccessOrds[] values, long globalOrd) {
+        final int segment = previousToNew[(int) previous.firstSegments.get(globalOrd)];
+        return values[segment].lookupOrd(previous.firstSegmentOrds.get(globalOrd));
+    }
+
+    /**
+     * Returns a unique identifier of the segment that backs the given reader, or {@code null} if the reader is not
+     * backed by a single segment or if the segment has no identifier.
+     */
+    @Nullable
+    static String segmentId(LeafReader reader) {
+        if (reader instanceof FilterLeafReader) {
+            reader = FilterLeafReader.unwrap(reader);
+        }
+        if (reader instanceof SegmentReader) {
+            final byte[] id = ((SegmentReader) reader).getSegmentInfo().info.getId();
+            if (id != null) {
+                return StringHelper.idToString(id);
+            }
+        }
+        return null;
+    }
+}
@@ -22,16 +22,13 @@ package org.elasticsearch.index.get;
 import org.apache.lucene.index.Term;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
-import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.util.set.Sets;
-import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
-import org.elasticsearch.common.xcontent.XContentType;
-import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
@@ -237,7 +234,8 @@ public final class ShardGetService extends AbstractIndexShardComponent {
                     } else {
                         if (searchLookup == null) {
                             searchLookup = new SearchLookup(mapperService, null, new String[]{type});
-                            searchLookup.source().setSource(source.source);
+                            // only the requested fields are extracted from the source, so there is no need to parse the rest of it
+                            searchLookup.source().setSource(filterSource(source.source, gFields, type, id));
                         }
 
                         FieldMapper fieldMapper = docMapper.mappers().smartNameFieldMapper(field);
@@ -283,18 +281,13 @@ public final class ShardGetService extends AbstractIndexShardComponent {
                     boolean sourceFieldFiltering = sourceFieldMapper.includes().length > 0 || sourceFieldMapper.excludes().length > 0;
                     boolean sourceFetchFiltering = fetchSourceContext.includes().length > 0 || fetchSourceContext.excludes().length > 0;
                     if (sourceFieldFiltering || sourceFetchFiltering) {
-                        // TODO: The source might parsed and available in the sourceLookup but that one uses unordered maps so different. Do we care?
-                        Tuple<XContentType, Map<String, Object>> typeMapTuple = XContentHelper.convertToMap(source.source, true);
-                        XContentType sourceContentType = typeMapTuple.v1();
-                        Map<String, Object> sourceAsMap = typeMapTuple.v2();
-                        if (sourceFieldFiltering) {
-                            sourceAsMap = XContentMapValues.filter(sourceAsMap, sourceFieldMapper.includes(), sourceFieldMapper.excludes());
-                        }
-                        if (sourceFetchFiltering) {
-                            sourceAsMap = XContentMapValues.filter(sourceAsMap, fetchSourceContext.includes(), fetchSourceContext.excludes());
-                        }
                         try {
-                            sourceToBeReturned = XContentFactory.contentBuilder(sourceContentType).map(sourceAsMap).bytes();
+                            if (sourceFieldFiltering) {
+                                sourceToBeReturned = XContentHelper.filter(sourceToBeReturned, sourceFieldMapper.includes(), sourceFieldMapper.excludes());
+                            }
+                            if (sourceFetchFiltering) {
+                                sourceToBeReturned = XContentHelper.filter(sourceToBeReturned, fetchSourceContext.includes(), fetchSourceContext.excludes());
+                            }
                         } catch (IOException e) {
                             throw new ElasticsearchException("Failed to get type [" + type + "] and id [" + id + "] with includes/excludes set", e);
                         }
@@ -366,7 +359,8 @@ public final class ShardGetService extends AbstractIndexShardComponent {
                     if (searchLookup == null) {
                         searchLookup = new SearchLookup(mapperService, null, new String[]{type});
                         LeafSearchLookup leafSearchLookup = searchLookup.getLeafSearchLookup(docIdAndVersion.context);
-                        searchLookup.source().setSource(source);
+                        // only the requested fields are extracted from the source, so there is no need to parse the rest of it
+                        searchLookup.source().setSource(source == null ? null : filterSource(source, gFields, type, id));
                         leafSearchLookup.setDocument(docIdAndVersion.docId);
                     }
 
@@ -395,15 +389,8 @@ public final class ShardGetService extends AbstractIndexShardComponent {
         if (!fetchSourceContext.fetchSource()) {
             source = null;
         } else if (fetchSourceContext.includes().length > 0 || fetchSourceContext.excludes().length > 0) {
-            Map<String, Object> sourceAsMap;
-            XContentType sourceContentType = null;
-            // TODO: The source might parsed and available in the sourceLookup but that one uses unordered maps so different. Do we care?
-            Tuple<XContentType, Map<String, Object>> typeMapTuple = XContentHelper.convertToMap(source, true);
-            sourceContentType = typeMapTuple.v1();
-            sourceAsMap = typeMapTuple.v2();
-            sourceAsMap = XContentMapValues.filter(sourceAsMap, fetchSourceContext.includes(), fetchSourceContext.excludes());
             try {
-                source = XContentFactory.contentBuilder(sourceContentType).map(sourceAsMap).bytes();
+                source = XContentHelper.filter(source, fetchSourceContext.includes(), fetchSourceContext.excludes());
             } catch (IOException e) {
                 throw new ElasticsearchException("Failed to get type [" + type + "] and id [" + id + "] with includes/excludes set", e);
             }
@@ -412,6 +399,14 @@ public final class ShardGetService extends AbstractIndexShardComponent {
         return new GetResult(shardId.index().name(), type, id, get.version(), get.exists(), source, fields);
     }
 
+    private static BytesReference filterSource(BytesReference source, String[] includes, String type, String id) {
+        try {
+            return XContentHelper.filter(source, includes, Strings.EMPTY_ARRAY);
+        } catch (IOException e) {
+            throw new ElasticsearchException("Failed to get type [" + type + "] and id [" + id + "]", e);
+        }
+    }
+
     private static FieldsVisitor buildFieldsVisitors(String[] fields, FetchSourceContext fetchSourceContext) {
         if (fields == null || fields.length == 0) {
             return fetchSourceContext.fetchSource() ? new FieldsVisitor(true) : null;
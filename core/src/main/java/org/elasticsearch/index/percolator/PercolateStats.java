@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.index.percolator;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -39,6 +40,8 @@ public class PercolateStats implements Streamable, ToXContent {
     private long current;
     private long memorySizeInBytes = -1;
     private long numQueries;
+    private long candidateQueries;
+    private long verifiedQueries;
 
     /**
      * Noop constructor for serialazation purposes.
@@ -46,12 +49,15 @@ public class PercolateStats implements Streamable, ToXContent {
     public PercolateStats() {
     }
 
-    PercolateStats(long percolateCount, long percolateTimeInMillis, long current, long memorySizeInBytes, long numQueries) {
+    PercolateStats(long percolateCount, long percolateTimeInMillis, long current, long memorySizeInBytes, long numQueries,
+                   long candidateQueries, long verifiedQueries) {
         this.percolateCount = percolateCount;
         this.percolateTimeInMillis = percolateTimeInMillis;
         this.current = current;
         this.memorySizeInBytes = memorySizeInBytes;
         this.numQueries = numQueries;
+        this.candidateQueries = candidateQueries;
+        this.verifiedQueries = verifiedQueries;
     }
 
     /**
@@ -90,9 +96,24 @@ public class PercolateStats implements Streamable, ToXContent {
     }
 
     /**
-     * @return Temporarily returns <code>-1</code>, but this used to return the total size the loaded queries take in
-     * memory, but this is disabled now because the size estimation was too expensive cpu wise. This will be enabled
-     * again when a cheaper size estimation can be found.
+     * @return The total number of queries that were selected as candidates, because the percolated documents
+     * contained the terms that they require.
+     */
+    public long getCandidateQueries() {
+        return candidateQueries;
+    }
+
+    /**
+     * @return The total number of queries that were verified against percolated documents.
+     */
+    public long getVerifiedQueries() {
+        return verifiedQueries;
+    }
+
+    /**
+     * @return The total size that the serialized queries and the cached parsed queries take in memory for shards that
+     * parse queries lazily, or <code>-1</code> if all shards keep their queries parsed, because the size estimation of
+     * all loaded queries would be too expensive cpu wise.
      */
     public long getMemorySizeInBytes() {
         return memorySizeInBytes;
@@ -114,6 +135,8 @@ public class PercolateStats implements Streamable, ToXContent {
         builder.field(Fields.MEMORY_SIZE_IN_BYTES, memorySizeInBytes);
         builder.field(Fields.MEMORY_SIZE, getMemorySize());
         builder.field(Fields.QUERIES, getNumQueries());
+        builder.field(Fields.CANDIDATE_QUERIES, candidateQueries);
+        builder.field(Fields.VERIFIED_QUERIES, verifiedQueries);
         builder.endObject();
         return builder;
     }
@@ -127,6 +150,11 @@ public class PercolateStats implements Streamable, ToXContent {
         percolateTimeInMillis += percolate.getTimeInMillis();
         current += percolate.getCurrent();
         numQueries += percolate.getNumQueries();
+        if (percolate.getMemorySizeInBytes() >= 0) {
+            memorySizeInBytes = Math.max(memorySizeInBytes, 0) + percolate.getMemorySizeInBytes();
+        }
+        candidateQueries += percolate.getCandidateQueries();
+        verifiedQueries += percolate.getVerifiedQueries();
     }
 
     static final class Fields {
@@ -138,6 +166,8 @@ public class PercolateStats implements Streamable, ToXContent {
         static final XContentBuilderString MEMORY_SIZE_IN_BYTES = new XContentBuilderString("memory_size_in_bytes");
         static final XContentBuilderString MEMORY_SIZE = new XContentBuilderString("memory_size");
         static final XContentBuilderString QUERIES = new XContentBuilderString("queries");
+        static final XContentBuilderString CANDIDATE_QUERIES = new XContentBuilderString("candidate_queries");
+        static final XContentBuilderString VERIFIED_QUERIES = new XContentBuilderString("verified_queries");
     }
 
     public static PercolateStats readPercolateStats(StreamInput in) throws IOException {
@@ -151,7 +181,16 @@ public class PercolateStats implements Streamable, ToXContent {
         percolateCount = in.readVLong();
         percolateTimeInMillis = in.readVLong();
         current = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            memorySizeInBytes = in.readLong();
+        } else {
+            memorySizeInBytes = -1;
+        }
         numQueries = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            candidateQueries = in.readVLong();
+            verifiedQueries = in.readVLong();
+        }
     }
 
     @Override
@@ -159,6 +198,13 @@ public class PercolateStats implements Streamable, ToXContent {
         out.writeVLong(percolateCount);
         out.writeVLong(percolateTimeInMillis);
         out.writeVLong(current);
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            out.writeLong(memorySizeInBytes);
+        }
         out.writeVLong(numQueries);
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            out.writeVLong(candidateQueries);
+            out.writeVLong(verifiedQueries);
+        }
     }
 }
@@ -21,15 +21,29 @@ package org.elasticsearch.index.percolator;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
@@ -47,12 +61,20 @@ import org.elasticsearch.index.mapper.internal.TypeFieldMapper;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.percolator.PercolatorService;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -67,6 +89,15 @@ public final class PercolatorQueriesRegistry extends AbstractIndexShardComponent
 
     public final String MAP_UNMAPPED_FIELDS_AS_STRING = "index.percolator.map_unmapped_fields_as_string";
 
+    /**
+     * Whether queries should be kept in serialized form and only parsed when they are needed, through a bounded cache
+     * of parsed queries, instead of keeping all queries parsed in memory.
+     */
+    public static final String INDEX_PERCOLATOR_LAZY_QUERIES = "index.percolator.lazy_queries";
+    /** The maximum amount of memory that parsed queries may use on a shard when queries are parsed lazily. */
+    public static final String INDEX_PERCOLATOR_PARSED_QUERIES_CACHE_SIZE = "index.percolator.parsed_queries_cache.size";
+    public static final ByteSizeValue DEFAULT_PARSED_QUERIES_CACHE_SIZE = new ByteSizeValue(64, ByteSizeUnit.MB);
+
     // This is a shard level service, but these below are index level service:
     private final MapperService mapperService;
     private final IndexFieldDataService indexFieldDataService;
@@ -74,6 +105,7 @@ public final class PercolatorQueriesRegistry extends AbstractIndexShardComponent
     private final ShardIndexingService indexingService;
 
     private final ConcurrentMap<BytesRef, Query> percolateQueries = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+    private final ConcurrentMap<BytesRef, SerializedQuery> serializedQueries = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
     private final RealTimePercolatorOperationListener realTimePercolatorOperationListener = new RealTimePercolatorOperationListener();
     private final PercolateTypeListener percolateTypeListener = new PercolateTypeListener();
     private final AtomicBoolean realTimePercolatorEnabled = new AtomicBoolean(false);
@@ -82,22 +114,77 @@ public final class PercolatorQueriesRegistry extends AbstractIndexShardComponent
     private final MeanMetric percolateMetric = new MeanMetric();
     private final CounterMetric currentMetric = new CounterMetric();
     private final CounterMetric numberOfQueries = new CounterMetric();
+    private final CounterMetric candidateQueriesMetric = new CounterMetric();
+    private final CounterMetric verifiedQueriesMetric = new CounterMetric();
+    private final PercolatorQueryTerms queryTerms = new PercolatorQueryTerms();
+
+    private final boolean lazyQueries;
+    private final CircuitBreaker breaker;
+    private final Cache<SerializedQuery, CachedQuery> parsedQueries;
+    private final CounterMetric serializedQueriesBytes = new CounterMetric();
 
     public PercolatorQueriesRegistry(ShardId shardId, IndexSettings indexSettings,
                                      ShardIndexingService indexingService, MapperService mapperService,
                                      QueryShardContext queryShardContext,
-                                     IndexFieldDataService indexFieldDataService) {
+                                     IndexFieldDataService indexFieldDataService, CircuitBreakerService breakerService) {
         super(shardId, indexSettings);
         this.mapperService = mapperService;
         this.indexingService = indexingService;
         this.queryShardContext = queryShardContext;
         this.indexFieldDataService = indexFieldDataService;
         this.mapUnmappedFieldsAsString = this.indexSettings.getSettings().getAsBoolean(MAP_UNMAPPED_FIELDS_AS_STRING, false);
+        this.lazyQueries = this.indexSettings.getSettings().getAsBoolean(INDEX_PERCOLATOR_LAZY_QUERIES, false);
+        this.breaker = breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+        if (lazyQueries) {
+            ByteSizeValue cacheSize = this.indexSettings.getSettings().getAsBytesSize(INDEX_PERCOLATOR_PARSED_QUERIES_CACHE_SIZE,
+                    DEFAULT_PARSED_QUERIES_CACHE_SIZE);
+            this.parsedQueries = CacheBuilder.<SerializedQuery, CachedQuery>builder()
+                    .setMaximumWeight(cacheSize.bytes())
+                    .weigher((query, parsed) -> parsed.ramBytesUsed)
+                    .removalListener(notification -> breaker.addWithoutBreaking(-notification.getValue().ramBytesUsed))
+                    .build();
+        } else {
+            this.parsedQueries = null;
+        }
         mapperService.addTypeListener(percolateTypeListener);
     }
 
-    public ConcurrentMap<BytesRef, Query> percolateQueries() {
-        return percolateQueries;
+    /**
+     * Returns the registered queries by id. If queries are parsed lazily, this is a view that parses queries when they
+     * are retrieved.
+     */
+    public Map<BytesRef, Query> percolateQueries() {
+        return lazyQueries ? new LazyQueries(serializedQueries) : percolateQueries;
+    }
+
+    /**
+     * Returns the registered queries that may match the documents of the given reader, which is a subset of
+     * {@link #percolateQueries()} that excludes queries that require terms that the documents don't contain.
+     */
+    public Map<BytesRef, Query> candidateQueries(IndexReader reader) throws IOException {
+        if (queryTerms.allUnextracted()) {
+            return percolateQueries();
+        }
+        Set<BytesRef> ids = new HashSet<>();
+        queryTerms.candidates(reader, ids);
+        if (lazyQueries) {
+            Map<BytesRef, SerializedQuery> candidates = new HashMap<>(ids.size());
+            for (BytesRef id : ids) {
+                SerializedQuery query = serializedQueries.get(id);
+                if (query != null) {
+                    candidates.put(id, query);
+                }
+            }
+            return new LazyQueries(candidates);
+        }
+        Map<BytesRef, Query> candidates = new HashMap<>(ids.size());
+        for (BytesRef id : ids) {
+            Query query = percolateQueries.get(id);
+            if (query != null) {
+                candidates.put(id, query);
+            }
+        }
+        return candidates;
     }
 
     @Override
@@ -109,6 +196,14 @@ public final class PercolatorQueriesRegistry extends AbstractIndexShardComponent
 
     public void clear() {
         percolateQueries.clear();
+        for (SerializedQuery query : serializedQueries.values()) {
+            releaseSerializedQuery(query);
+        }
+        serializedQueries.clear();
+        if (parsedQueries != null) {
+            parsedQueries.invalidateAll();
+        }
+        queryTerms.clear();
     }
 
     public void enableRealTimePercolator() {
@@ -119,20 +214,107 @@ public final class PercolatorQueriesRegistry extends AbstractIndexShardComponent
 
     public void addPercolateQuery(String idAsString, BytesReference source) {
         Query newquery = parsePercolatorDocument(idAsString, source);
-        BytesRef id = new BytesRef(idAsString);
-        percolateQueries.put(id, newquery);
-        numberOfQueries.inc();
+        putPercolateQuery(new BytesRef(idAsString), newquery, source);
+    }
 
+    /**
+     * Registers an already parsed query, the source of the percolator document is only used if queries are parsed lazily.
+     */
+    void putPercolateQuery(BytesRef id, Query query, BytesReference source) {
+        final boolean replaced;
+        if (lazyQueries) {
+            final SerializedQuery serializedQuery;
+            try {
+                serializedQuery = new SerializedQuery(id, serialize(source));
+            } catch (IOException e) {
+                throw new PercolatorException(shardId().index(), "failed to serialize query [" + id.utf8ToString() + "]", e);
+            }
+            breaker.addWithoutBreaking(serializedQuery.source.length());
+            serializedQueriesBytes.inc(serializedQuery.source.length());
+            SerializedQuery previous = serializedQueries.put(id, serializedQuery);
+            replaced = previous != null;
+            if (previous != null) {
+                releaseSerializedQuery(previous);
+            }
+        } else {
+            replaced = percolateQueries.put(id, query) != null;
+        }
+        queryTerms.add(id, query);
+        if (replaced == false) {
+            numberOfQueries.inc();
+        }
     }
 
     public void removePercolateQuery(String idAsString) {
         BytesRef id = new BytesRef(idAsString);
-        Query query = percolateQueries.remove(id);
-        if (query != null) {
+        final boolean removed;
+        if (lazyQueries) {
+            SerializedQuery query = serializedQueries.remove(id);
+            removed = query != null;
+            if (query != null) {
+                releaseSerializedQuery(query);
+            }
+        } else {
+            removed = percolateQueries.remove(id) != null;
+        }
+        queryTerms.remove(id);
+        if (removed) {
             numberOfQueries.dec();
         }
     }
 
+    private void releaseSerializedQuery(SerializedQuery query) {
+        breaker.addWithoutBreaking(-query.source.length());
+        serializedQueriesBytes.dec(query.source.length());
+        parsedQueries.invalidate(query);
+    }
+
+    /**
+     * Returns the parsed query of a serialized query, from the cache of parsed queries if possible.
+     */
+    private Query parsedQuery(SerializedQuery query) {
+        try {
+            return parsedQueries.computeIfAbsent(query, key -> {
+                Query parsed = parsePercolatorDocument(key.id.utf8ToString(), key.source);
+                long ramBytesUsed = ramBytesUsed(parsed);
+                breaker.addEstimateBytesAndMaybeBreak(ramBytesUsed, "<percolator_queries>");
+                return new CachedQuery(parsed, ramBytesUsed);
+            }).query;
+        } catch (ExecutionException e) {
+            throw new PercolatorException(shardId().index(), "failed to load query [" + query.id.utf8ToString() + "]", e.getCause());
+        }
+    }
+
+    /**
+     * Re-encodes the type and the query of a percolator document as smile, leaving out any other field of the document.
+     */
+    static BytesReference serialize(BytesReference source) throws IOException {
+        try (XContentParser parser = XContentHelper.createParser(source);
+             XContentBuilder builder = XContentFactory.smileBuilder()) {
+            XContentParser.Token token = parser.nextToken();
+            if (token != XContentParser.Token.START_OBJECT) {
+                throw new ElasticsearchException("failed to serialize query, not starting with OBJECT");
+            }
+            builder.startObject();
+            String currentFieldName = null;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    currentFieldName = parser.currentName();
+                } else if (token == XContentParser.Token.START_OBJECT && "query".equals(currentFieldName)) {
+                    builder.field(currentFieldName);
+                    builder.copyCurrentStructure(parser);
+                } else if (token.isValue() && "type".equals(currentFieldName)) {
+                    builder.field(currentFieldName, parser.text());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            builder.endObject();
+            // copy so that we don't hold on to the pages of the builder
+            return new BytesArray(builder.bytes().toBytes());
+        }
+    }
+
     Query parsePercolatorDocument(String id, BytesReference source) {
         String type = null;
         BytesReference querySource = null;
@@ -226,12 +408,7 @@ public final class PercolatorQueriesRegistry extends AbstractIndexShardComponent
             IndexSearcher indexSearcher = new IndexSearcher(reader);
             indexSearcher.setQueryCache(null);
             indexSearcher.search(query, queryCollector);
-            Map<BytesRef, Query> queries = queryCollector.queries();
-            for (Map.Entry<BytesRef, Query> entry : queries.entrySet()) {
-                percolateQueries.put(entry.getKey(), entry.getValue());
-                numberOfQueries.inc();
-            }
-            loadedQueries = queries.size();
+            loadedQueries = queryCollector.loadedQueries();
         } catch (Exception e) {
             throw new PercolatorException(shardId.index(), "failed to load queries from percolator index", e);
         }
@@ -275,25 +452,156 @@ public final class PercolatorQueriesRegistry extends AbstractIndexShardComponent
         percolateMetric.inc(tookInNanos);
     }
 
+    /**
+     * Records how many queries were selected as candidates for a percolate request and how many of them were verified
+     * against the percolated document.
+     */
+    public void onCandidateQueries(long candidates, long verified) {
+        candidateQueriesMetric.inc(candidates);
+        verifiedQueriesMetric.inc(verified);
+    }
+
     /**
      * @return The current metrics
      */
     public PercolateStats stats() {
-        return new PercolateStats(percolateMetric.count(), TimeUnit.NANOSECONDS.toMillis(percolateMetric.sum()), currentMetric.count(), -1, numberOfQueries.count());
+        // the size of parsed queries is only estimated when queries are parsed lazily, since there are few of them
+        long memorySizeInBytes = lazyQueries ? serializedQueriesBytes.count() + parsedQueries.weight() : -1;
+        return new PercolateStats(percolateMetric.count(), TimeUnit.NANOSECONDS.toMillis(percolateMetric.sum()), currentMetric.count(), memorySizeInBytes, numberOfQueries.count(),
+                candidateQueriesMetric.count(), verifiedQueriesMetric.count());
     }
 
-    // Enable when a more efficient manner is found for estimating the size of a Lucene query.
-    /*private static long computeSizeInMemory(HashedBytesRef id, Query query) {
-        long size = (3 * RamUsageEstimator.NUM_BYTES_INT) + RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + id.bytes.bytes.length;
-        size += RamEstimator.sizeOf(query);
+    /**
+     * Cheaply estimates the memory used by a parsed query by walking the queries that percolator queries are usually
+     * made of, rather than by measuring the whole object graph, which is too expensive cpu wise and may reach objects
+     * that are shared with other queries.
+     */
+    static long ramBytesUsed(Query query) {
+        long size = QUERY_BASE_RAM_BYTES;
+        if (query instanceof Accountable) {
+            size += ((Accountable) query).ramBytesUsed();
+        } else if (query instanceof TermQuery) {
+            size += ramBytesUsed(((TermQuery) query).getTerm());
+        } else if (query instanceof PhraseQuery) {
+            for (Term term : ((PhraseQuery) query).getTerms()) {
+                size += RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.NUM_BYTES_INT + ramBytesUsed(term);
+            }
+        } else if (query instanceof BooleanQuery) {
+            for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+                size += RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + ramBytesUsed(clause.getQuery());
+            }
+        } else if (query instanceof DisjunctionMaxQuery) {
+            for (Query disjunct : ((DisjunctionMaxQuery) query).getDisjuncts()) {
+                size += RamUsageEstimator.NUM_BYTES_OBJECT_REF + ramBytesUsed(disjunct);
+            }
+        } else if (query instanceof ConstantScoreQuery) {
+            size += ramBytesUsed(((ConstantScoreQuery) query).getQuery());
+        } else if (query instanceof BoostQuery) {
+            size += ramBytesUsed(((BoostQuery) query).getQuery());
+        } else {
+            size += UNKNOWN_QUERY_RAM_BYTES;
+        }
         return size;
     }
 
-    private static final class RamEstimator {
-        // we move this into it's own class to exclude it from the forbidden API checks
-        // it's fine to use here!
-        static long sizeOf(Query query) {
-            return RamUsageEstimator.sizeOf(query);
+    private static long ramBytesUsed(Term term) {
+        // the field name is usually interned
+        return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+                + RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+                + 2 * RamUsageEstimator.NUM_BYTES_INT + term.bytes().length;
+    }
+
+    private static final long QUERY_BASE_RAM_BYTES = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+            + RamUsageEstimator.NUM_BYTES_FLOAT;
+    private static final long UNKNOWN_QUERY_RAM_BYTES = 256;
+
+    /**
+     * A query in serialized form. Instances are used as keys of the cache of parsed queries and compare by identity so
+     * that a query that is replaced or removed can never be parsed from its previous source and cached again.
+     */
+    private static final class SerializedQuery {
+        private final BytesRef id;
+        private final BytesReference source;
+
+        SerializedQuery(BytesRef id, BytesReference source) {
+            this.id = id;
+            this.source = source;
+        }
+    }
+
+    private static final class CachedQuery {
+        private final Query query;
+        private final long ramBytesUsed;
+
+        CachedQuery(Query query, long ramBytesUsed) {
+            this.query = query;
+            this.ramBytesUsed = ramBytesUsed;
         }
-    }*/
+    }
+
+    /**
+     * A read-only view of serialized queries, which parses queries when they are retrieved.
+     */
+    private final class LazyQueries extends AbstractMap<BytesRef, Query> {
+
+        private final Map<BytesRef, SerializedQuery> queries;
+
+        LazyQueries(Map<BytesRef, SerializedQuery> queries) {
+            this.queries = queries;
+        }
+
+        @Override
+        public Query get(Object key) {
+            SerializedQuery query = queries.get(key);
+            return query == null ? null : parsedQuery(query);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return queries.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return queries.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return queries.isEmpty();
+        }
+
+        @Override
+        public Set<Entry<BytesRef, Query>> entrySet() {
+            return new AbstractSet<Entry<BytesRef, Query>>() {
+                @Override
+                public Iterator<Entry<BytesRef, Query>> iterator() {
+                    final Iterator<Entry<BytesRef, SerializedQuery>> iterator = queries.entrySet().iterator();
+                    return new Iterator<Entry<BytesRef, Query>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<BytesRef, Query> next() {
+                            final Entry<BytesRef, SerializedQuery> entry = iterator.next();
+                            // the query is parsed when the value of the entry is retrieved
+                            return new AbstractMap.SimpleImmutableEntry<BytesRef, Query>(entry.getKey(), null) {
+                                @Override
+                                public Query getValue() {
+                                    return parsedQuery(entry.getValue());
+                                }
+                            };
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return queries.size();
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,224 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.percolator;
+
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.spans.SpanTermQuery;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Indexes registered percolator queries by the terms that a document must contain for them to match, so that only the
+ * queries that can possibly match a document need to be verified against it. Queries whose terms can't be extracted
+ * are always candidates.
+ */
+final class PercolatorQueryTerms {
+
+    /** query ids, by term, by field */
+    private final ConcurrentMap<String, ConcurrentMap<BytesRef, Set<BytesRef>>> queriesByTerm = ConcurrentCollections.newConcurrentMap();
+    /** the terms of each indexed query, or an empty set if they could not be extracted */
+    private final ConcurrentMap<BytesRef, Set<Term>> termsByQuery = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+    private final Set<BytesRef> unextractedQueries = ConcurrentCollections.newConcurrentSet();
+
+    /**
+     * Index the terms of the given query, replacing the terms of the previous query with the same id if any.
+     */
+    void add(BytesRef id, Query query) {
+        remove(id);
+        final Set<Term> terms = extractTerms(query);
+        if (terms == null) {
+            termsByQuery.put(id, Collections.emptySet());
+            unextractedQueries.add(id);
+            return;
+        }
+        termsByQuery.put(id, terms);
+        for (Term term : terms) {
+            final ConcurrentMap<BytesRef, Set<BytesRef>> fieldTerms =
+                    queriesByTerm.computeIfAbsent(term.field(), f -> ConcurrentCollections.newConcurrentMap());
+            fieldTerms.compute(term.bytes(), (t, ids) -> {
+                if (ids == null) {
+                    ids = ConcurrentCollections.newConcurrentSet();
+                }
+                ids.add(id);
+                return ids;
+            });
+        }
+    }
+
+    void remove(BytesRef id) {
+        final Set<Term> terms = termsByQuery.remove(id);
+        if (terms == null) {
+            return;
+        }
+        unextractedQueries.remove(id);
+        for (Term term : terms) {
+            final ConcurrentMap<BytesRef, Set<BytesRef>> fieldTerms = queriesByTerm.get(term.field());
+            if (fieldTerms != null) {
+                fieldTerms.computeIfPresent(term.bytes(), (t, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+    }
+
+    void clear() {
+        termsByQuery.clear();
+        unextractedQueries.clear();
+        queriesByTerm.clear();
+    }
+
+    /**
+     * @return whether no query could be indexed by its terms, in which case all queries are candidates
+     */
+    boolean allUnextracted() {
+        return unextractedQueries.size() == termsByQuery.size();
+    }
+
+    /**
+     * Adds the ids of the queries that may match a document of the given reader to {@code candidates}.
+     */
+    void candidates(IndexReader reader, Set<BytesRef> candidates) throws IOException {
+        candidates.addAll(unextractedQueries);
+        final Fields fields = MultiFields.getFields(reader);
+        if (fields == null) {
+            return;
+        }
+        for (String field : fields) {
+            final ConcurrentMap<BytesRef, Set<BytesRef>> fieldTerms = queriesByTerm.get(field);
+            if (fieldTerms == null || fieldTerms.isEmpty()) {
+                continue;
+            }
+            final Terms terms = fields.terms(field);
+            if (terms == null) {
+                continue;
+            }
+            final TermsEnum termsEnum = terms.iterator();
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                final Set<BytesRef> ids = fieldTerms.get(term);
+                if (ids != null) {
+                    candidates.addAll(ids);
+                }
+            }
+        }
+    }
+
+    /**
+     * Extracts terms from the given query so that any document that matches the query contains at least one of them.
+     *
+     * @return the extracted terms, or {@code null} if no such set of terms could be found
+     */
+    @Nullable
+    static Set<Term> extractTerms(Query query) {
+        if (query instanceof TermQuery) {
+            return Collections.singleton(((TermQuery) query).getTerm());
+        } else if (query instanceof SpanTermQuery) {
+            return Collections.singleton(((SpanTermQuery) query).getTerm());
+        } else if (query instanceof PhraseQuery) {
+            // all terms are required, the longest one is likely the most selective
+            Term longest = null;
+            for (Term term : ((PhraseQuery) query).getTerms()) {
+                if (longest == null || term.bytes().length > longest.bytes().length) {
+                    longest = term;
+                }
+            }
+            return longest == null ? null : Collections.singleton(longest);
+        } else if (query instanceof ConstantScoreQuery) {
+            return extractTerms(((ConstantScoreQuery) query).getQuery());
+        } else if (query instanceof BoostQuery) {
+            return extractTerms(((BoostQuery) query).getQuery());
+        } else if (query instanceof DisjunctionMaxQuery) {
+            return extractDisjunctionTerms(((DisjunctionMaxQuery) query).getDisjuncts());
+        } else if (query instanceof BooleanQuery) {
+            return extractBooleanTerms((BooleanQuery) query);
+        }
+        return null;
+    }
+
+    private static Set<Term> extractBooleanTerms(BooleanQuery query) {
+        boolean hasRequiredClauses = false;
+        Set<Term> best = null;
+        for (BooleanClause clause : query.clauses()) {
+            if (clause.isRequired() == false) {
+                continue;
+            }
+            hasRequiredClauses = true;
+            // any required clause is enough, prefer the one with the longest shortest term
+            final Set<Term> terms = extractTerms(clause.getQuery());
+            if (terms != null && (best == null || minTermLength(terms) > minTermLength(best))) {
+                best = terms;
+            }
+        }
+        if (hasRequiredClauses) {
+            return best;
+        }
+        final Set<Query> shouldClauses = new HashSet<>();
+        for (BooleanClause clause : query.clauses()) {
+            if (clause.getOccur() == BooleanClause.Occur.SHOULD) {
+                shouldClauses.add(clause.getQuery());
+            }
+        }
+        if (shouldClauses.isEmpty()) {
+            // only prohibited clauses
+            return null;
+        }
+        return extractDisjunctionTerms(shouldClauses);
+    }
+
+    private static Set<Term> extractDisjunctionTerms(Iterable<Query> disjuncts) {
+        final Set<Term> terms = new HashSet<>();
+        for (Query disjunct : disjuncts) {
+            final Set<Term> disjunctTerms = extractTerms(disjunct);
+            if (disjunctTerms == null) {
+                return null;
+            }
+            terms.addAll(disjunctTerms);
+        }
+        return terms;
+    }
+
+    private static int minTermLength(Set<Term> terms) {
+        int min = Integer.MAX_VALUE;
+        for (Term term : terms) {
+            min = Math.min(min, term.bytes().length);
+        }
+        return min;
+    }
+}
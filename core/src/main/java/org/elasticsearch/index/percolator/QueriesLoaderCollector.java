@@ -35,14 +35,12 @@ import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  */
 final class QueriesLoaderCollector extends SimpleCollector {
 
-    private final Map<BytesRef, Query> queries = new HashMap<>();
+    private int loadedQueries;
     private final FieldsVisitor fieldsVisitor = new FieldsVisitor(true);
     private final PercolatorQueriesRegistry percolator;
     private final IndexFieldData<?> uidFieldData;
@@ -58,8 +56,8 @@ final class QueriesLoaderCollector extends SimpleCollector {
         this.uidFieldData = indexFieldDataService.getForField(uidMapper);
     }
 
-    public Map<BytesRef, Query> queries() {
-        return this.queries;
+    public int loadedQueries() {
+        return loadedQueries;
     }
 
     @Override
@@ -78,7 +76,8 @@ final class QueriesLoaderCollector extends SimpleCollector {
                 // id is only used for logging, if we fail we log the id in the catch statement
                 final Query parseQuery = percolator.parsePercolatorDocument(null, fieldsVisitor.source());
                 if (parseQuery != null) {
-                    queries.put(BytesRef.deepCopyOf(id), parseQuery);
+                    percolator.putPercolateQuery(BytesRef.deepCopyOf(id), parseQuery, fieldsVisitor.source());
+                    loadedQueries++;
                 } else {
                     logger.warn("failed to add query [{}] - parser returned null", id);
                 }
@@ -267,7 +267,8 @@ public class IndexShard extends AbstractIndexShardComponent {
         this.indexShardOperationCounter = new IndexShardOperationCounter(logger, shardId);
         this.provider = provider;
         this.searcherWrapper = indexSearcherWrapper;
-        this.percolatorQueriesRegistry = new PercolatorQueriesRegistry(shardId, indexSettings, indexingService, mapperService, newQueryShardContext(), indexFieldDataService);
+        this.percolatorQueriesRegistry = new PercolatorQueriesRegistry(shardId, indexSettings, indexingService, mapperService, newQueryShardContext(), indexFieldDataService,
+                provider.getCircuitBreakerService());
         if (mapperService.hasMapping(PercolatorService.TYPE_NAME)) {
             percolatorQueriesRegistry.enableRealTimePercolator();
         }
@@ -1219,6 +1220,17 @@ public class IndexShard extends AbstractIndexShardComponent {
         return engine.getTranslog().newView();
     }
 
+    /**
+     * Acquires a view of the translog that starts at the given generation, or returns <code>null</code> if that generation
+     * is not retained anymore.
+     */
+    @Nullable
+    public Translog.View acquireTranslogView(long minGeneration) {
+        Engine engine = getEngine();
+        assert engine.getTranslog() != null : "translog must not be null";
+        return engine.getTranslog().newView(minGeneration);
+    }
+
     public List<Segment> segments(boolean verbose) {
         return getEngine().segments(verbose);
     }
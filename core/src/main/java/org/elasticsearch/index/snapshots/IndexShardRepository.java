@@ -23,6 +23,7 @@ import org.apache.lucene.index.IndexCommit;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.metadata.SnapshotId;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.Store;
 import org.elasticsearch.indices.recovery.RecoveryState;
 
 /**
@@ -62,6 +63,18 @@ public interface IndexShardRepository {
      */
     void restore(SnapshotId snapshotId, Version version, ShardId shardId, ShardId snapshotShardId, RecoveryState recoveryState);
 
+    /**
+     * Copies the files of the newest snapshot of the shard that are identical to files of the given store metadata, ie.
+     * that have the same name, length and checksum, into the store of the shard. Other files of the store are left
+     * alone and no commit point is written.
+     *
+     * @param shardId       shard id
+     * @param metadata      metadata of the files that the shard will end up with
+     * @param recoveryState recovery state to report progress
+     * @return the metadata of the copied files
+     */
+    Store.MetadataSnapshot restoreIdenticalFiles(ShardId shardId, Store.MetadataSnapshot metadata, RecoveryState recoveryState);
+
     /**
      * Retrieve shard snapshot status for the stored snapshot
      *
@@ -206,6 +206,20 @@ public class IndexShardSnapshotStatus {
         return processedSize;
     }
 
+    /**
+     * Number of bytes processed per second, measured over the time that the snapshot has been running so far if it
+     * is not done yet
+     *
+     * @return number of bytes processed per second
+     */
+    public long throughput() {
+        if (startTime == 0) {
+            return 0;
+        }
+        final long elapsed = time > 0 ? time : System.currentTimeMillis() - startTime;
+        return elapsed > 0 ? processedSize * 1000 / elapsed : 0;
+    }
+
 
     /**
      * Sets index version
@@ -19,11 +19,13 @@
 
 package org.elasticsearch.index.snapshots.blobstore;
 
+import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexFormatTooNewException;
 import org.apache.lucene.index.IndexFormatTooOldException;
 import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.ChecksumIndexInput;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
@@ -35,12 +37,14 @@ import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.metadata.SnapshotId;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseFieldMatcher;
 import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.BlobMetaData;
 import org.elasticsearch.common.blobstore.BlobPath;
 import org.elasticsearch.common.blobstore.BlobStore;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.hash.MessageDigests;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -48,6 +52,7 @@ import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.iterable.Iterables;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.ShardId;
@@ -68,15 +73,21 @@ import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
 import org.elasticsearch.repositories.blobstore.ChecksumBlobStoreFormat;
 import org.elasticsearch.repositories.blobstore.LegacyBlobStoreFormat;
 
+import java.io.ByteArrayInputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.unmodifiableMap;
@@ -100,6 +111,8 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     private final ClusterService clusterService;
 
+    private final FileTransferExecutor fileTransferExecutor;
+
     private RateLimiter snapshotRateLimiter;
 
     private RateLimiter restoreRateLimiter;
@@ -112,6 +125,8 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     private boolean compress;
 
+    private ContentDefinedChunker chunker;
+
     private final ParseFieldMatcher parseFieldMatcher;
 
     protected static final String LEGACY_SNAPSHOT_PREFIX = "snapshot-";
@@ -132,6 +147,8 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     protected static final String DATA_BLOB_PREFIX = "__";
 
+    protected static final String CHUNK_BLOB_PREFIX = "chunk-";
+
     private ChecksumBlobStoreFormat<BlobStoreIndexShardSnapshot> indexShardSnapshotFormat;
 
     private LegacyBlobStoreFormat<BlobStoreIndexShardSnapshot> indexShardSnapshotLegacyFormat;
@@ -139,12 +156,14 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
     private ChecksumBlobStoreFormat<BlobStoreIndexShardSnapshots> indexShardSnapshotsFormat;
 
     @Inject
-    public BlobStoreIndexShardRepository(Settings settings, RepositoryName repositoryName, IndicesService indicesService, ClusterService clusterService) {
+    public BlobStoreIndexShardRepository(Settings settings, RepositoryName repositoryName, IndicesService indicesService, ClusterService clusterService,
+                                         FileTransferExecutor fileTransferExecutor) {
         super(settings);
         this.parseFieldMatcher = new ParseFieldMatcher(settings);
         this.repositoryName = repositoryName.name();
         this.indicesService = indicesService;
         this.clusterService = clusterService;
+        this.fileTransferExecutor = fileTransferExecutor;
     }
 
     /**
@@ -153,10 +172,11 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
      * @param blobStore blob store
      * @param basePath  base path to blob store
      * @param chunkSize chunk size
+     * @param dedupChunkSize average size of content-defined chunks, or null to store files as parts of {@code chunkSize}
      */
     public void initialize(BlobStore blobStore, BlobPath basePath, ByteSizeValue chunkSize,
                            RateLimiter snapshotRateLimiter, RateLimiter restoreRateLimiter,
-                           final RateLimiterListener rateLimiterListener, boolean compress) {
+                           final RateLimiterListener rateLimiterListener, boolean compress, @Nullable ByteSizeValue dedupChunkSize) {
         this.blobStore = blobStore;
         this.basePath = basePath;
         this.chunkSize = chunkSize;
@@ -166,6 +186,7 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         this.snapshotThrottleListener = nanos -> rateLimiterListener.onSnapshotPause(nanos);
         this.restoreThrottleListener = nanos -> rateLimiterListener.onRestorePause(nanos);
         this.compress = compress;
+        this.chunker = dedupChunkSize == null ? null : new ContentDefinedChunker(dedupChunkSize.bytesAsInt());
         indexShardSnapshotFormat = new ChecksumBlobStoreFormat<>(SNAPSHOT_CODEC, SNAPSHOT_NAME_FORMAT, BlobStoreIndexShardSnapshot.PROTO, parseFieldMatcher, isCompress());
         indexShardSnapshotLegacyFormat = new LegacyBlobStoreFormat<>(LEGACY_SNAPSHOT_NAME_FORMAT, BlobStoreIndexShardSnapshot.PROTO, parseFieldMatcher);
         indexShardSnapshotsFormat = new ChecksumBlobStoreFormat<>(SNAPSHOT_INDEX_CODEC, SNAPSHOT_INDEX_NAME_FORMAT, BlobStoreIndexShardSnapshots.PROTO, parseFieldMatcher, isCompress());
@@ -208,6 +229,32 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Store.MetadataSnapshot restoreIdenticalFiles(ShardId shardId, Store.MetadataSnapshot metadata, RecoveryState recoveryState) {
+        final BlobContainer blobContainer = shardContainer(shardId);
+        final Tuple<BlobStoreIndexShardSnapshots, Integer> tuple;
+        try {
+            tuple = buildBlobStoreIndexShardSnapshots(blobContainer, blobContainer.listBlobsByPrefix(SNAPSHOT_INDEX_PREFIX));
+        } catch (IOException e) {
+            throw new IndexShardRestoreFailedException(shardId, "failed to list snapshots of the shard", e);
+        }
+        // only the index file of the shard lists its snapshots from the newest to the oldest
+        if (tuple.v2() < 0 || tuple.v1().snapshots().isEmpty()) {
+            return Store.MetadataSnapshot.EMPTY;
+        }
+        final SnapshotFiles newest = tuple.v1().snapshots().get(0);
+        final SnapshotId snapshotId = new SnapshotId(repositoryName, newest.snapshot());
+        final RestoreContext restoreContext = new RestoreContext(snapshotId, Version.CURRENT, shardId, shardId, recoveryState);
+        try {
+            return restoreContext.restoreIdenticalFiles(newest, metadata);
+        } catch (Throwable e) {
+            throw new IndexShardRestoreFailedException(shardId, "failed to restore files of snapshot [" + snapshotId.getSnapshot() + "]", e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -270,6 +317,60 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         return compress;
     }
 
+    /**
+     * Loads all available snapshots in the repository
+     *
+     * @param blobContainer container of the shard
+     * @param blobs         list of blobs in repository
+     * @return tuple of BlobStoreIndexShardSnapshots and the last snapshot index generation
+     */
+    private Tuple<BlobStoreIndexShardSnapshots, Integer> buildBlobStoreIndexShardSnapshots(BlobContainer blobContainer,
+                                                                                           Map<String, BlobMetaData> blobs) {
+        int latest = -1;
+        for (String name : blobs.keySet()) {
+            if (name.startsWith(SNAPSHOT_INDEX_PREFIX)) {
+                try {
+                    int gen = Integer.parseInt(name.substring(SNAPSHOT_INDEX_PREFIX.length()));
+                    if (gen > latest) {
+                        latest = gen;
+                    }
+                } catch (NumberFormatException ex) {
+                    logger.warn("failed to parse index file name [{}]", name);
+                }
+            }
+        }
+        if (latest >= 0) {
+            try {
+                return new Tuple<>(indexShardSnapshotsFormat.read(blobContainer, Integer.toString(latest)), latest);
+            } catch (IOException e) {
+                logger.warn("failed to read index file  [{}]", e, SNAPSHOT_INDEX_PREFIX + latest);
+            }
+        }
+
+        // We couldn't load the index file - falling back to loading individual snapshots
+        List<SnapshotFiles> snapshots = new ArrayList<>();
+        for (String name : blobs.keySet()) {
+            try {
+                BlobStoreIndexShardSnapshot snapshot = null;
+                if (name.startsWith(SNAPSHOT_PREFIX)) {
+                    snapshot = indexShardSnapshotFormat.readBlob(blobContainer, name);
+                } else if (name.startsWith(LEGACY_SNAPSHOT_PREFIX)) {
+                    snapshot = indexShardSnapshotLegacyFormat.readBlob(blobContainer, name);
+                }
+                if (snapshot != null) {
+                    snapshots.add(new SnapshotFiles(snapshot.snapshot(), snapshot.indexFiles()));
+                }
+            } catch (IOException e) {
+                logger.warn("failed to read commit point [{}]", e, name);
+            }
+        }
+        return new Tuple<>(new BlobStoreIndexShardSnapshots(snapshots), -1);
+    }
+
+    private BlobContainer shardContainer(ShardId shardId) {
+        return blobStore.blobContainer(basePath.add("indices").add(shardId.getIndex()).add(Integer.toString(shardId.getId())));
+    }
+
     BlobStoreFormat<BlobStoreIndexShardSnapshot> indexShardSnapshotFormat(Version version) {
         if (BlobStoreRepository.legacyMetaData(version)) {
             return indexShardSnapshotLegacyFormat;
@@ -299,7 +400,7 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
             this.snapshotId = snapshotId;
             this.version = version;
             this.shardId = shardId;
-            blobContainer = blobStore.blobContainer(basePath.add("indices").add(snapshotShardId.getIndex()).add(Integer.toString(snapshotShardId.getId())));
+            blobContainer = shardContainer(snapshotShardId);
         }
 
         /**
@@ -375,6 +476,14 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                 throw new IndexShardSnapshotFailedException(shardId, "error deleting index files during cleanup", e);
             }
 
+            final Set<String> referencedChunks = new HashSet<>();
+            for (SnapshotFiles point : snapshots) {
+                for (FileInfo fileInfo : point.indexFiles()) {
+                    if (fileInfo.chunks() != null) {
+                        referencedChunks.addAll(fileInfo.chunks());
+                    }
+                }
+            }
             blobsToDelete = new ArrayList<>();
             // now go over all the blobs, and if they don't exists in a snapshot, delete them
             for (String blobName : blobs.keySet()) {
@@ -383,6 +492,11 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                     if (newSnapshots.findNameFile(FileInfo.canonicalName(blobName)) == null) {
                         blobsToDelete.add(blobName);
                     }
+                } else if (blobName.startsWith(CHUNK_BLOB_PREFIX)) {
+                    // chunks may be shared by several files, they can only be deleted once no file references them
+                    if (referencedChunks.contains(blobName) == false) {
+                        blobsToDelete.add(blobName);
+                    }
                 }
             }
             try {
@@ -418,8 +532,29 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
          * @return next available blob number
          */
         protected long findLatestFileNameGeneration(Map<String, BlobMetaData> blobs) {
+            return findLatestFileNameGeneration(blobs.keySet());
+        }
+
+        /**
+         * Finds the latest blob number used by the files of the given snapshots. Files that are stored as content-defined
+         * chunks have no blob of their own, so their names only appear in the snapshots that reference them.
+         *
+         * @param snapshots snapshots in the repository
+         * @return latest blob number
+         */
+        protected long findLatestFileNameGeneration(BlobStoreIndexShardSnapshots snapshots) {
+            final List<String> names = new ArrayList<>();
+            for (SnapshotFiles point : snapshots) {
+                for (FileInfo fileInfo : point.indexFiles()) {
+                    names.add(fileInfo.name());
+                }
+            }
+            return findLatestFileNameGeneration(names);
+        }
+
+        private long findLatestFileNameGeneration(Collection<String> names) {
             long generation = -1;
-            for (String name : blobs.keySet()) {
+            for (String name : names) {
                 if (!name.startsWith(DATA_BLOB_PREFIX)) {
                     continue;
                 }
@@ -443,45 +578,7 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
          * @return tuple of BlobStoreIndexShardSnapshots and the last snapshot index generation
          */
         protected Tuple<BlobStoreIndexShardSnapshots, Integer> buildBlobStoreIndexShardSnapshots(Map<String, BlobMetaData> blobs) {
-            int latest = -1;
-            for (String name : blobs.keySet()) {
-                if (name.startsWith(SNAPSHOT_INDEX_PREFIX)) {
-                    try {
-                        int gen = Integer.parseInt(name.substring(SNAPSHOT_INDEX_PREFIX.length()));
-                        if (gen > latest) {
-                            latest = gen;
-                        }
-                    } catch (NumberFormatException ex) {
-                        logger.warn("failed to parse index file name [{}]", name);
-                    }
-                }
-            }
-            if (latest >= 0) {
-                try {
-                    return new Tuple<>(indexShardSnapshotsFormat.read(blobContainer, Integer.toString(latest)), latest);
-                } catch (IOException e) {
-                    logger.warn("failed to read index file  [{}]", e, SNAPSHOT_INDEX_PREFIX + latest);
-                }
-            }
-
-            // We couldn't load the index file - falling back to loading individual snapshots
-            List<SnapshotFiles> snapshots = new ArrayList<>();
-            for (String name : blobs.keySet()) {
-                try {
-                    BlobStoreIndexShardSnapshot snapshot = null;
-                    if (name.startsWith(SNAPSHOT_PREFIX)) {
-                        snapshot = indexShardSnapshotFormat.readBlob(blobContainer, name);
-                    } else if (name.startsWith(LEGACY_SNAPSHOT_PREFIX)) {
-                        snapshot = indexShardSnapshotLegacyFormat.readBlob(blobContainer, name);
-                    }
-                    if (snapshot != null) {
-                        snapshots.add(new SnapshotFiles(snapshot.snapshot(), snapshot.indexFiles()));
-                    }
-                } catch (IOException e) {
-                    logger.warn("failed to read commit point [{}]", e, name);
-                }
-            }
-            return new Tuple<>(new BlobStoreIndexShardSnapshots(snapshots), -1);
+            return BlobStoreIndexShardRepository.this.buildBlobStoreIndexShardSnapshots(blobContainer, blobs);
         }
     }
 
@@ -525,10 +622,10 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                     throw new IndexShardSnapshotFailedException(shardId, "failed to list blobs", e);
                 }
 
-                long generation = findLatestFileNameGeneration(blobs);
                 Tuple<BlobStoreIndexShardSnapshots, Integer> tuple = buildBlobStoreIndexShardSnapshots(blobs);
                 BlobStoreIndexShardSnapshots snapshots = tuple.v1();
                 int fileListGeneration = tuple.v2();
+                long generation = Math.max(findLatestFileNameGeneration(blobs), findLatestFileNameGeneration(snapshots));
 
                 final List<BlobStoreIndexShardSnapshot.FileInfo> indexCommitPointFiles = new ArrayList<>();
 
@@ -593,13 +690,28 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
                 snapshotStatus.updateStage(IndexShardSnapshotStatus.Stage.STARTED);
 
+                final List<Callable<Void>> transfers = new ArrayList<>();
+                // files that are split into content-defined chunks only know their chunks once they are uploaded
+                final Map<String, FileInfo> chunkedFiles = ConcurrentCollections.newConcurrentMap();
+                final Set<String> uploadedChunks = ConcurrentCollections.newConcurrentSet();
                 for (FileInfo snapshotFileInfo : filesToSnapshot) {
-                    try {
-                        snapshotFile(snapshotFileInfo);
-                    } catch (IOException e) {
-                        throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
+                    if (chunker != null) {
+                        transfers.add(() -> {
+                            chunkedFiles.put(snapshotFileInfo.name(), snapshotFileChunks(snapshotFileInfo, blobs, uploadedChunks));
+                            return null;
+                        });
+                    } else {
+                        addSnapshotFileTransfers(snapshotFileInfo, transfers);
                     }
                 }
+                try {
+                    fileTransferExecutor.transfer(transfers);
+                } catch (IndexShardSnapshotFailedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
+                }
+                indexCommitPointFiles.replaceAll(fileInfo -> chunkedFiles.getOrDefault(fileInfo.name(), fileInfo));
 
                 snapshotStatus.indexVersion(snapshotIndexCommit.getGeneration());
                 // now create and write the commit point
@@ -632,11 +744,45 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
             }
         }
 
+        /**
+         * Adds the transfers that upload the given file to the list of transfers. Files that consist of a single part are
+         * uploaded and verified in one go. Parts of larger files are uploaded concurrently, each of them computes the
+         * checksum of its own bytes and the file is verified from these checksums once all parts are uploaded.
+         *
+         * @param fileInfo  file to be snapshotted
+         * @param transfers list of transfers to add to
+         */
+        private void addSnapshotFileTransfers(final FileInfo fileInfo, List<Callable<Void>> transfers) {
+            if (fileInfo.numberOfParts() == 1) {
+                transfers.add(() -> {
+                    snapshotFile(fileInfo);
+                    return null;
+                });
+                return;
+            }
+            final StoreFileMetaData metadata = fileInfo.metadata();
+            // same as Store#openVerifyingInput, files without a lucene checksum are not verified
+            final PartChecksums checksums = metadata.hasLegacyChecksum() || metadata.checksum() == null ? null
+                    : new PartChecksums(metadata, (int) fileInfo.numberOfParts());
+            // the file is verified and processed once all parts are uploaded
+            final AtomicInteger pendingParts = new AtomicInteger((int) fileInfo.numberOfParts());
+            for (int i = 0; i < fileInfo.numberOfParts(); i++) {
+                final int part = i;
+                transfers.add(() -> {
+                    snapshotFilePart(fileInfo, part, checksums);
+                    if (pendingParts.decrementAndGet() == 0) {
+                        if (checksums != null) {
+                            verifyFile(fileInfo, checksums);
+                        }
+                        snapshotStatus.addProcessedFile(fileInfo.length());
+                    }
+                    return null;
+                });
+            }
+        }
+
         /**
          * Snapshot individual file
-         * <p>
-         * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
-         * added to the {@code failures} list
          *
          * @param fileInfo file to be snapshotted
          */
@@ -644,12 +790,48 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
             final String file = fileInfo.physicalName();
             try (IndexInput indexInput = store.openVerifyingInput(file, IOContext.READONCE, fileInfo.metadata())) {
                 for (int i = 0; i < fileInfo.numberOfParts(); i++) {
-                    final long partBytes = fileInfo.partBytes(i);
+                    writePart(indexInput, fileInfo, i);
+                }
+                Store.verify(indexInput);
+                snapshotStatus.addProcessedFile(fileInfo.length());
+            } catch (Throwable t) {
+                failStoreIfCorrupted(t);
+                snapshotStatus.addProcessedFile(0);
+                throw t;
+            }
+        }
 
-                    final InputStreamIndexInput inputStreamIndexInput = new InputStreamIndexInput(indexInput, partBytes);
-                    InputStream inputStream = snapshotRateLimiter == null ? inputStreamIndexInput : new RateLimitingInputStream(inputStreamIndexInput, snapshotRateLimiter, snapshotThrottleListener);
-                    inputStream = new AbortableInputStream(inputStream, fileInfo.physicalName());
-                    blobContainer.writeBlob(fileInfo.partName(i), inputStream, partBytes);
+        /**
+         * Snapshot individual file as a list of content-defined chunks. Chunks that already exist in the repository,
+         * or that another file of this snapshot uploaded, are not uploaded again.
+         *
+         * @param fileInfo       file to be snapshotted
+         * @param blobs          list of blobs in the repository
+         * @param uploadedChunks chunks uploaded by this snapshot so far
+         * @return file info that references the chunks of the file
+         */
+        private FileInfo snapshotFileChunks(final FileInfo fileInfo, Map<String, BlobMetaData> blobs, Set<String> uploadedChunks) throws IOException {
+            final List<String> chunks = new ArrayList<>();
+            final byte[] buffer = new byte[chunker.maxChunkSize()];
+            try (IndexInput indexInput = store.openVerifyingInput(fileInfo.physicalName(), IOContext.READONCE, fileInfo.metadata())) {
+                int length;
+                while ((length = chunker.nextChunk(indexInput, buffer)) > 0) {
+                    if (snapshotStatus.aborted()) {
+                        logger.debug("[{}] [{}] Aborted on the file [{}], exiting", shardId, snapshotId, fileInfo.physicalName());
+                        throw new IndexShardSnapshotFailedException(shardId, "Aborted");
+                    }
+                    final MessageDigest digest = MessageDigests.sha256();
+                    digest.update(buffer, 0, length);
+                    final String chunkName = CHUNK_BLOB_PREFIX + MessageDigests.toHexString(digest.digest());
+                    chunks.add(chunkName);
+                    final BlobMetaData existingChunk = blobs.get(chunkName);
+                    if ((existingChunk == null || existingChunk.length() != length) && uploadedChunks.add(chunkName)) {
+                        InputStream inputStream = new ByteArrayInputStream(buffer, 0, length);
+                        if (snapshotRateLimiter != null) {
+                            inputStream = new RateLimitingInputStream(inputStream, snapshotRateLimiter, snapshotThrottleListener);
+                        }
+                        blobContainer.writeBlob(chunkName, inputStream, length);
+                    }
                 }
                 Store.verify(indexInput);
                 snapshotStatus.addProcessedFile(fileInfo.length());
@@ -658,6 +840,65 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                 snapshotStatus.addProcessedFile(0);
                 throw t;
             }
+            return new FileInfo(fileInfo.name(), fileInfo.metadata(), null, chunks);
+        }
+
+        /**
+         * Snapshot a single part of a file and record the checksum of its bytes, the checksum of the whole file is verified
+         * by {@link #verifyFile(FileInfo, PartChecksums)} once all parts are uploaded
+         *
+         * @param fileInfo  file to be snapshotted
+         * @param part      part of the file to upload
+         * @param checksums checksums of the parts of the file, or {@code null} if the file has no lucene checksum
+         */
+        private void snapshotFilePart(final FileInfo fileInfo, int part, @Nullable PartChecksums checksums) throws IOException {
+            if (snapshotStatus.aborted()) {
+                logger.debug("[{}] [{}] Aborted on the file [{}], exiting", shardId, snapshotId, fileInfo.physicalName());
+                throw new IndexShardSnapshotFailedException(shardId, "Aborted");
+            }
+            // all parts but the last one have the same size
+            final long offset = part * fileInfo.partBytes(0);
+            if (checksums == null) {
+                try (IndexInput indexInput = store.directory().openInput(fileInfo.physicalName(), IOContext.READONCE)) {
+                    indexInput.seek(offset);
+                    writePart(indexInput, fileInfo, part);
+                } catch (Throwable t) {
+                    failStoreIfCorrupted(t);
+                    throw t;
+                }
+                return;
+            }
+            try (ChecksumIndexInput indexInput = store.openVerifyingInput(fileInfo.physicalName(), IOContext.READONCE, fileInfo.metadata(), offset)) {
+                writePart(indexInput, fileInfo, part);
+                checksums.setChecksum(part, offset, fileInfo.partBytes(part), indexInput.getChecksum());
+            } catch (Throwable t) {
+                failStoreIfCorrupted(t);
+                throw t;
+            }
+        }
+
+        private void writePart(IndexInput indexInput, FileInfo fileInfo, int part) throws IOException {
+            final long partBytes = fileInfo.partBytes(part);
+            final InputStreamIndexInput inputStreamIndexInput = new InputStreamIndexInput(indexInput, partBytes);
+            InputStream inputStream = snapshotRateLimiter == null ? inputStreamIndexInput : new RateLimitingInputStream(inputStreamIndexInput, snapshotRateLimiter, snapshotThrottleListener);
+            inputStream = new AbortableInputStream(inputStream, fileInfo.physicalName());
+            blobContainer.writeBlob(fileInfo.partName(part), inputStream, partBytes);
+        }
+
+        /**
+         * Verifies the checksum of a file whose parts are uploaded concurrently from the checksums of its parts. Only the
+         * footer of the file is read again.
+         *
+         * @param fileInfo  file to be verified
+         * @param checksums checksums of all parts of the file
+         */
+        private void verifyFile(final FileInfo fileInfo, PartChecksums checksums) throws IOException {
+            try (IndexInput indexInput = store.directory().openInput(fileInfo.physicalName(), IOContext.READONCE)) {
+                checksums.verify(CodecUtil.retrieveChecksum(indexInput));
+            } catch (Throwable t) {
+                failStoreIfCorrupted(t);
+                throw t;
+            }
         }
 
         private void failStoreIfCorrupted(Throwable t) {
@@ -678,6 +919,15 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
          * @return true if file exists in the list of blobs
          */
         private boolean snapshotFileExistsInBlobs(BlobStoreIndexShardSnapshot.FileInfo fileInfo, Map<String, BlobMetaData> blobs) {
+            if (fileInfo.chunks() != null) {
+                // chunked file, all chunks must exist
+                for (String chunk : fileInfo.chunks()) {
+                    if (blobs.containsKey(chunk) == false) {
+                        return false;
+                    }
+                }
+                return true;
+            }
             BlobMetaData blobMetaData = blobs.get(fileInfo.name());
             if (blobMetaData != null) {
                 return blobMetaData.length() == fileInfo.length();
@@ -758,13 +1008,16 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         private final FileInfo info;
 
         public PartSliceStream(BlobContainer container, FileInfo info) {
-            super(info.numberOfParts());
+            super(info.chunks() == null ? info.numberOfParts() : info.chunks().size());
             this.info = info;
             this.container = container;
         }
 
         @Override
         protected InputStream openSlice(long slice) throws IOException {
+            if (info.chunks() != null) {
+                return container.readBlob(info.chunks().get((int) slice));
+            }
             return container.readBlob(info.partName(slice));
         }
     }
@@ -857,12 +1110,20 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                     logger.trace("[{}] [{}] recovering_files [{}] with total_size [{}], reusing_files [{}] with reused_size [{}]", shardId, snapshotId,
                             index.totalRecoverFiles(), new ByteSizeValue(index.totalRecoverBytes()), index.reusedFileCount(), new ByteSizeValue(index.reusedFileCount()));
                 }
-                try {
-                    for (final FileInfo fileToRecover : filesToRecover) {
+                // files are restored concurrently, but the parts of a file are written sequentially to its index output
+                final List<Callable<Void>> transfers = new ArrayList<>();
+                for (final FileInfo fileToRecover : filesToRecover) {
+                    transfers.add(() -> {
                         logger.trace("[{}] [{}] restoring file [{}]", shardId, snapshotId, fileToRecover.name());
                         restoreFile(fileToRecover);
-                    }
-                } catch (IOException ex) {
+                        return null;
+                    });
+                }
+                try {
+                    fileTransferExecutor.transfer(transfers);
+                } catch (IndexShardRestoreFailedException ex) {
+                    throw ex;
+                } catch (Exception ex) {
                     throw new IndexShardRestoreFailedException(shardId, "Failed to recover index", ex);
                 }
                 final StoreFileMetaData restoredSegmentsFile = sourceMetaData.getSegmentsFile();
@@ -900,10 +1161,57 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
             }
         }
 
+        /**
+         * Restores the files of the snapshot that are identical to files of the given metadata, leaving the other files
+         * of the store alone. Segments files are not restored so that the store only gets a commit point once all the
+         * files it references are there, and neither are delete files since they belong to the commit.
+         *
+         * @return the metadata of the restored files
+         */
+        public Store.MetadataSnapshot restoreIdenticalFiles(SnapshotFiles snapshotFiles, Store.MetadataSnapshot metadata) throws Exception {
+            store.incRef();
+            try {
+                final Map<String, StoreFileMetaData> snapshotMetaData = new HashMap<>();
+                final Map<String, FileInfo> fileInfos = new HashMap<>();
+                for (final FileInfo fileInfo : snapshotFiles.indexFiles()) {
+                    try {
+                        maybeRecalculateMetadataHash(blobContainer, fileInfo, metadata);
+                    } catch (Throwable e) {
+                        logger.warn("{} Can't calculate hash from blob for file [{}] [{}]", e, shardId, fileInfo.physicalName(), fileInfo.metadata());
+                    }
+                    snapshotMetaData.put(fileInfo.metadata().name(), fileInfo.metadata());
+                    fileInfos.put(fileInfo.metadata().name(), fileInfo);
+                }
+                final Store.MetadataSnapshot snapshotMetadata = new Store.MetadataSnapshot(unmodifiableMap(snapshotMetaData), emptyMap(), 0);
+                // files of a segment are only identical if all the files of the segment are
+                final Store.RecoveryDiff diff = snapshotMetadata.recoveryDiff(metadata);
+                final Map<String, StoreFileMetaData> restoredFiles = new HashMap<>();
+                final List<Callable<Void>> transfers = new ArrayList<>();
+                for (StoreFileMetaData md : diff.identical) {
+                    if (Store.MetadataSnapshot.isPerCommitFile(md.name())) {
+                        // without the segments file, the source node sends all per-commit files again anyway
+                        continue;
+                    }
+                    final FileInfo fileInfo = fileInfos.get(md.name());
+                    restoredFiles.put(md.name(), metadata.get(md.name()));
+                    recoveryState.getIndex().addFileDetail(fileInfo.name(), fileInfo.length(), false);
+                    transfers.add(() -> {
+                        logger.trace("[{}] [{}] restoring identical file [{}]", shardId, snapshotId, fileInfo.name());
+                        // a previous attempt to recover the shard might have left the file behind
+                        store.deleteQuiet(fileInfo.physicalName());
+                        restoreFile(fileInfo);
+                        return null;
+                    });
+                }
+                fileTransferExecutor.transfer(transfers);
+                return new Store.MetadataSnapshot(unmodifiableMap(restoredFiles), emptyMap(), 0);
+            } finally {
+                store.decRef();
+            }
+        }
+
         /**
          * Restores a file
-         * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
-         * added to the {@code failures} list
          *
          * @param fileInfo file to be restored
          */
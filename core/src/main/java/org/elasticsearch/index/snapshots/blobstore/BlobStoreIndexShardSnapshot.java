@@ -39,6 +39,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Shard snapshot metadata
@@ -56,6 +57,7 @@ public class BlobStoreIndexShardSnapshot implements ToXContent, FromXContentBuil
         private final long partBytes;
         private final long numberOfParts;
         private final StoreFileMetaData metadata;
+        private final List<String> chunks;
 
         /**
          * Constructs a new instance of file info
@@ -65,7 +67,20 @@ public class BlobStoreIndexShardSnapshot implements ToXContent, FromXContentBuil
          * @param partSize     size of the single chunk
          */
         public FileInfo(String name, StoreFileMetaData metaData, ByteSizeValue partSize) {
+            this(name, metaData, partSize, null);
+        }
+
+        /**
+         * Constructs a new instance of file info
+         *
+         * @param name         file name as stored in the blob store
+         * @param metaData     the files meta data
+         * @param partSize     size of the single chunk
+         * @param chunks       names of the content-defined chunks the file is stored as, or null if it is stored as parts
+         */
+        public FileInfo(String name, StoreFileMetaData metaData, ByteSizeValue partSize, @Nullable List<String> chunks) {
             this.name = name;
+            this.chunks = chunks == null ? null : Collections.unmodifiableList(chunks);
             this.metadata = metaData;
 
             long partBytes = Long.MAX_VALUE;
@@ -175,6 +190,16 @@ public class BlobStoreIndexShardSnapshot implements ToXContent, FromXContentBuil
             return numberOfParts;
         }
 
+        /**
+         * Returns the names of the blobs of the content-defined chunks that the file is stored as, in order
+         *
+         * @return names of the chunks, or null if the file is stored as parts
+         */
+        @Nullable
+        public List<String> chunks() {
+            return chunks;
+        }
+
         /**
          * Returns file md5 checksum provided by {@link org.elasticsearch.index.store.Store}
          *
@@ -212,6 +237,7 @@ public class BlobStoreIndexShardSnapshot implements ToXContent, FromXContentBuil
             if (numberOfParts != fileInfo.numberOfParts) return false;
             if (partBytes != fileInfo.partBytes) return false;
             if (!name.equals(fileInfo.name)) return false;
+            if (!Objects.equals(chunks, fileInfo.chunks)) return false;
             if (partSize != null) {
                 if (!partSize.equals(fileInfo.partSize)) return false;
             } else {
@@ -228,6 +254,7 @@ public class BlobStoreIndexShardSnapshot implements ToXContent, FromXContentBuil
             static final XContentBuilderString PART_SIZE = new XContentBuilderString("part_size");
             static final XContentBuilderString WRITTEN_BY = new XContentBuilderString("written_by");
             static final XContentBuilderString META_HASH = new XContentBuilderString("meta_hash");
+            static final XContentBuilderString CHUNKS = new XContentBuilderString("chunks");
         }
 
         /**
@@ -256,6 +283,10 @@ public class BlobStoreIndexShardSnapshot implements ToXContent, FromXContentBuil
             if (file.metadata.hash() != null && file.metadata().hash().length > 0) {
                 builder.field(Fields.META_HASH, file.metadata.hash());
             }
+
+            if (file.chunks != null) {
+                builder.field(Fields.CHUNKS, file.chunks);
+            }
             builder.endObject();
         }
 
@@ -274,6 +305,7 @@ public class BlobStoreIndexShardSnapshot implements ToXContent, FromXContentBuil
             ByteSizeValue partSize = null;
             Version writtenBy = null;
             BytesRef metaHash = new BytesRef();
+            List<String> chunks = null;
             if (token == XContentParser.Token.START_OBJECT) {
                 while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
                     if (token == XContentParser.Token.FIELD_NAME) {
@@ -299,6 +331,11 @@ public class BlobStoreIndexShardSnapshot implements ToXContent, FromXContentBuil
                             } else {
                                 throw new ElasticsearchParseException("unknown parameter [{}]", currentFieldName);
                             }
+                        } else if (token == XContentParser.Token.START_ARRAY && "chunks".equals(currentFieldName)) {
+                            chunks = new ArrayList<>();
+                            while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+                                chunks.add(parser.text());
+                            }
                         } else {
                             throw new ElasticsearchParseException("unexpected token  [{}]", token);
                         }
@@ -315,7 +352,7 @@ public class BlobStoreIndexShardSnapshot implements ToXContent, FromXContentBuil
             } else if (length < 0) {
                 throw new ElasticsearchParseException("missing or invalid file length");
             }
-            return new FileInfo(name, new StoreFileMetaData(physicalName, length, checksum, writtenBy, metaHash), partSize);
+            return new FileInfo(name, new StoreFileMetaData(physicalName, length, checksum, writtenBy, metaHash), partSize, chunks);
         }
 
     }
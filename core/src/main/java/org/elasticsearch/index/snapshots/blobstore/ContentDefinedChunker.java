@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.apache.lucene.store.IndexInput;
+
+import java.io.IOException;
+
+/**
+ * Splits files into chunks whose boundaries depend on their content rather than on their offset, so that the chunks of
+ * a file that shares most of its bytes with another file are mostly the same, even if bytes were inserted or removed.
+ * <p>
+ * A boundary is placed after every byte where a rolling gear hash of the last 64 bytes has its top bits all set to 0.
+ * The number of bits is chosen so that chunks have the requested average size, and chunks are never smaller than a
+ * quarter or larger than four times the average size.
+ */
+final class ContentDefinedChunker {
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // splitmix64 with a fixed seed, boundaries must not change across nodes and versions
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < GEAR.length; ++i) {
+            long z = (seed += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final long mask;
+
+    /**
+     * @param averageChunkSize the average size of chunks, in bytes
+     */
+    ContentDefinedChunker(int averageChunkSize) {
+        if (averageChunkSize < 64 || averageChunkSize > (Integer.MAX_VALUE >> 3)) {
+            throw new IllegalArgumentException("average chunk size must be between 64 and " + (Integer.MAX_VALUE >> 3) +
+                    " bytes but was: " + averageChunkSize);
+        }
+        // boundaries are only looked for after the minimum size, which adds to the average size
+        final int bits = 31 - Integer.numberOfLeadingZeros(averageChunkSize - averageChunkSize / 4);
+        this.minChunkSize = averageChunkSize / 4;
+        this.maxChunkSize = averageChunkSize * 4;
+        this.mask = -1L << (64 - bits);
+    }
+
+    /** The maximum size of a chunk, buffers that chunks are read into must be at least that large. */
+    int maxChunkSize() {
+        return maxChunkSize;
+    }
+
+    /**
+     * Reads the next chunk of the input into the given buffer.
+     *
+     * @return the length of the chunk, or 0 if the input is exhausted
+     */
+    int nextChunk(IndexInput input, byte[] buffer) throws IOException {
+        assert buffer.length >= maxChunkSize;
+        final long remaining = input.length() - input.getFilePointer();
+        final int limit = (int) Math.min(remaining, maxChunkSize);
+        if (limit <= minChunkSize) {
+            input.readBytes(buffer, 0, limit);
+            return limit;
+        }
+        input.readBytes(buffer, 0, minChunkSize);
+        long hash = 0;
+        // warm up the hash on the bytes that are just before the first possible boundary
+        for (int i = Math.max(0, minChunkSize - 64); i < minChunkSize; ++i) {
+            hash = (hash << 1) + GEAR[buffer[i] & 0xFF];
+        }
+        int length = minChunkSize;
+        while (length < limit) {
+            final byte b = input.readByte();
+            buffer[length++] = b;
+            hash = (hash << 1) + GEAR[b & 0xFF];
+            if ((hash & mask) == 0) {
+                break;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.BoundedTaskExecutor;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs the file and part transfers of shard snapshots and restores on the {@link ThreadPool.Names#SNAPSHOT} pool.
+ * The number of threads that transfers borrow from the pool is bounded per node by
+ * {@code indices.snapshot.max_concurrent_file_transfers}, which defaults to the size of the pool. The thread that
+ * snapshots or restores a shard also runs transfers, so that shards make progress even if no threads can be borrowed.
+ */
+public class FileTransferExecutor extends AbstractComponent {
+
+    public static final String MAX_CONCURRENT_FILE_TRANSFERS = "indices.snapshot.max_concurrent_file_transfers";
+
+    private final BoundedTaskExecutor executor;
+
+    @Inject
+    public FileTransferExecutor(Settings settings, ThreadPool threadPool) {
+        super(settings);
+        final int maxThreads = settings.getAsInt(MAX_CONCURRENT_FILE_TRANSFERS, threadPool.info(ThreadPool.Names.SNAPSHOT).getMax());
+        this.executor = new BoundedTaskExecutor(threadPool.executor(ThreadPool.Names.SNAPSHOT), maxThreads);
+        logger.debug("using max_concurrent_file_transfers [{}]", maxThreads);
+    }
+
+    /**
+     * Runs the given transfers and returns once all of them are done.
+     *
+     * @see BoundedTaskExecutor#invokeAll(List)
+     */
+    public void transfer(List<? extends Callable<Void>> transfers) throws Exception {
+        executor.invokeAll(transfers);
+    }
+}
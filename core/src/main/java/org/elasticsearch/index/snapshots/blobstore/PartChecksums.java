@@ -0,0 +1,128 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.apache.lucene.index.CorruptIndexException;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.StoreFileMetaData;
+
+/**
+ * Collects the CRC32 checksums of the parts of a file that are read concurrently, and combines them into the
+ * checksum of the whole file, so that the file does not need to be read a second time to be verified.
+ * The last 8 bytes of a file hold its checksum and are not part of it.
+ */
+final class PartChecksums {
+
+    private final StoreFileMetaData metadata;
+    private final long[] checksums;
+    private final long[] lengths;
+
+    PartChecksums(StoreFileMetaData metadata, int numberOfParts) {
+        this.metadata = metadata;
+        this.checksums = new long[numberOfParts];
+        this.lengths = new long[numberOfParts];
+    }
+
+    /**
+     * Records the checksum of a part of the file
+     *
+     * @param part     the part of the file
+     * @param offset   the offset of the first byte of the part in the file
+     * @param length   the number of bytes of the part
+     * @param checksum the checksum of the bytes of the part that precede the checksum of the file
+     */
+    void setChecksum(int part, long offset, long length, long checksum) {
+        final long checksumPosition = metadata.length() - 8;
+        lengths[part] = Math.max(0, Math.min(offset + length, checksumPosition) - offset);
+        checksums[part] = checksum;
+    }
+
+    /**
+     * Verifies that the combined checksum of all parts matches both the metadata of the file and the checksum that is
+     * stored in the footer of the file. Must only be called once the checksums of all parts are recorded.
+     */
+    void verify(long footerChecksum) throws CorruptIndexException {
+        long checksum = 0;
+        for (int i = 0; i < checksums.length; i++) {
+            checksum = combine(checksum, checksums[i], lengths[i]);
+        }
+        final String actual = Store.digestToString(checksum);
+        final String footer = Store.digestToString(footerChecksum);
+        if (actual.equals(metadata.checksum()) == false || footer.equals(metadata.checksum()) == false) {
+            throw new CorruptIndexException("verification failed (hardware problem?) : expected=" + metadata.checksum() +
+                    " actual=" + actual + " footer=" + footer + " (resource=" + metadata.toString() + ")", metadata.name());
+        }
+    }
+
+    /**
+     * Returns the CRC32 of the concatenation of two byte sequences given the CRC32 of both sequences and the length of
+     * the second one. This is the {@code crc32_combine} algorithm of zlib: the CRC of the first sequence is shifted by the
+     * length of the second one by applying the operator that appends a zero bit, squared as many times as needed.
+     */
+    static long combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+        final long[] even = new long[32]; // operator for an even number of zero bits
+        final long[] odd = new long[32];  // operator for an odd number of zero bits
+        // operator for one zero bit
+        odd[0] = 0xedb88320L; // CRC-32 polynomial
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        square(even, odd); // operator for two zero bits
+        square(odd, even); // operator for four zero bits
+        // apply len2 zero bytes to crc1, the first squaring gives the operator for one zero byte
+        do {
+            square(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            len2 >>= 1;
+            if (len2 == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            len2 >>= 1;
+        } while (len2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long times(long[] mat, long vec) {
+        long sum = 0;
+        for (int i = 0; vec != 0; i++, vec >>>= 1) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] mat) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(mat, mat[n]);
+        }
+    }
+}
@@ -47,6 +47,7 @@ import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.Version;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
@@ -133,6 +134,9 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
     private final ShardLock shardLock;
     private final OnClose onClose;
     private final SingleObjectCache<StoreStats> statsCache;
+    /** the last loaded metadata snapshot, reused as long as the segments file of its commit is unchanged */
+    private volatile MetadataSnapshot cachedMetadata;
+    private final Object cachedMetadataMutex = new Object();
 
     private final AbstractRefCounted refCounter = new AbstractRefCounted("store") {
         @Override
@@ -244,8 +248,9 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
     }
 
     /**
-     * Returns a new MetadataSnapshot for the given commit. If the given commit is <code>null</code>
-     * the latest commit point is used.
+     * Returns a MetadataSnapshot for the given commit. If the given commit is <code>null</code>
+     * the latest commit point is used. The snapshot that was loaded last is returned again as long as
+     * the segments file of its commit is unchanged.
      *
      * @throws CorruptIndexException      if the lucene index is corrupted. This can be caused by a checksum mismatch or an
      *                                    unexpected exception when opening the index reading the segments file.
@@ -260,7 +265,20 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         failIfCorrupted();
         metadataLock.readLock().lock();
         try {
-            return new MetadataSnapshot(commit, directory, logger);
+            // concurrent requests for the same commit, like store listings of all shards after a full cluster restart,
+            // only load the metadata once
+            synchronized (cachedMetadataMutex) {
+                final MetadataSnapshot cached = cachedMetadata;
+                if (cached != null) {
+                    final String segmentsFileName = commit == null ? SegmentInfos.getLastCommitSegmentsFileName(directory) : commit.getSegmentsFileName();
+                    if (segmentsFileName != null && cached.isSnapshotOf(directory, segmentsFileName)) {
+                        return cached;
+                    }
+                }
+                final MetadataSnapshot metadata = new MetadataSnapshot(commit, directory, logger);
+                cachedMetadata = metadata;
+                return metadata;
+            }
         } catch (CorruptIndexException | IndexFormatTooOldException | IndexFormatTooNewException ex) {
             markStoreCorrupted(ex);
             throw ex;
@@ -296,6 +314,7 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         metadataLock.writeLock().lock();
         // we make sure that nobody fetches the metadata while we do this rename operation here to ensure we don't
         // get exceptions if files are still open.
+        cachedMetadata = null;
         try (Lock writeLock = directory().obtainLock(IndexWriter.WRITE_LOCK_NAME)) {
             for (Map.Entry<String, String> entry : entries) {
                 String tempFile = entry.getKey();
@@ -406,8 +425,24 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
      * @throws IOException if the index we try to read is corrupted
      */
     public static MetadataSnapshot readMetadataSnapshot(Path indexLocation, ESLogger logger) throws IOException {
+        return readMetadataSnapshot(indexLocation, logger, null);
+    }
+
+    /**
+     * Reads a MetadataSnapshot from the given index locations or returns an empty snapshot if it can't be read. The given
+     * previously read snapshot is returned as-is if the latest commit of the index is still the one it was read from.
+     *
+     * @throws IOException if the index we try to read is corrupted
+     */
+    public static MetadataSnapshot readMetadataSnapshot(Path indexLocation, ESLogger logger, @Nullable MetadataSnapshot previous) throws IOException {
         try (Directory dir = new SimpleFSDirectory(indexLocation)) {
             failIfCorrupted(dir, new ShardId("", 1));
+            if (previous != null) {
+                final String segmentsFileName = SegmentInfos.getLastCommitSegmentsFileName(dir);
+                if (segmentsFileName != null && previous.isSnapshotOf(dir, segmentsFileName)) {
+                    return previous;
+                }
+            }
             return new MetadataSnapshot(null, dir, logger);
         } catch (IndexNotFoundException ex) {
             // that's fine - happens all the time no need to log
@@ -494,6 +529,16 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         return new VerifyingIndexInput(directory().openInput(filename, context));
     }
 
+    /**
+     * Opens an input positioned at the given offset of a file that computes the checksum of the bytes it reads from
+     * this offset on. This allows to compute the checksums of the parts of a file concurrently, see
+     * {@link ChecksumIndexInput#getChecksum()}. The file must have a lucene checksum.
+     */
+    public ChecksumIndexInput openVerifyingInput(String filename, IOContext context, StoreFileMetaData metadata, long offset) throws IOException {
+        assert metadata.hasLegacyChecksum() == false && metadata.checksum() != null : "file has no lucene checksum: " + metadata;
+        return new VerifyingIndexInput(directory().openInput(filename, context), offset);
+    }
+
     public static void verify(IndexInput input) throws IOException {
         if (input instanceof VerifyingIndexInput) {
             ((VerifyingIndexInput) input).verify();
@@ -646,6 +691,7 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
      */
     public void cleanupAndVerify(String reason, MetadataSnapshot sourceMetaData) throws IOException {
         metadataLock.writeLock().lock();
+        cachedMetadata = null;
         try (Lock writeLock = directory.obtainLock(IndexWriter.WRITE_LOCK_NAME)) {
             final StoreDirectory dir = directory;
             for (String existingFile : dir.listAll()) {
@@ -812,7 +858,8 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
             this.metadata = unmodifiableMap(metadata);
             this.commitUserData = unmodifiableMap(commitUserData);
             this.numDocs = in.readLong();
-            assert metadata.isEmpty() || numSegmentFiles() == 1 : "numSegmentFiles: " + numSegmentFiles();
+            // recovery targets that copied files from a snapshot repository send these files without a segments file
+            assert metadata.isEmpty() || numSegmentFiles() <= 1 : "numSegmentFiles: " + numSegmentFiles();
         }
 
         /**
@@ -1022,6 +1069,17 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         private static final String FIELD_INFOS_FILE_EXTENSION = "fnm";
         private static final String SEGMENT_INFO_EXTENSION = "si";
 
+        /**
+         * Returns <code>true</code> iff the given file belongs to the commit rather than to a segment, ie. it is a segments
+         * file or a delete file. These files are only considered identical by {@link #recoveryDiff(MetadataSnapshot)} if all
+         * per-commit files are.
+         */
+        public static boolean isPerCommitFile(String fileName) {
+            final String extension = IndexFileNames.getExtension(fileName);
+            return IndexFileNames.SEGMENTS.equals(IndexFileNames.parseSegmentName(fileName))
+                    || DEL_FILE_EXTENSION.equals(extension) || LIV_FILE_EXTENSION.equals(extension);
+        }
+
         /**
          * Returns a diff between the two snapshots that can be used for recovery. The given snapshot is treated as the
          * recovery target and this snapshot as the source. The returned diff will hold a list of files that are:
@@ -1067,7 +1125,7 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
                 final String segmentId = IndexFileNames.parseSegmentName(meta.name());
                 final String extension = IndexFileNames.getExtension(meta.name());
                 assert FIELD_INFOS_FILE_EXTENSION.equals(extension) == false || IndexFileNames.stripExtension(IndexFileNames.stripSegmentName(meta.name())).isEmpty() : "FieldInfos are generational but updateable DV are not supported in elasticsearch";
-                if (IndexFileNames.SEGMENTS.equals(segmentId) || DEL_FILE_EXTENSION.equals(extension) || LIV_FILE_EXTENSION.equals(extension)) {
+                if (isPerCommitFile(meta.name())) {
                     // only treat del files as per-commit files fnm files are generational but only for upgradable DV
                     perCommitStoreFiles.add(meta);
                 } else {
@@ -1153,6 +1211,24 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
             return null;
         }
 
+        /**
+         * Returns <code>true</code> iff this snapshot was loaded from the commit with the given segments file and the file
+         * is unchanged since, based on its length and footer checksum. Always <code>false</code> for legacy commits.
+         */
+        boolean isSnapshotOf(Directory directory, String segmentsFileName) {
+            final StoreFileMetaData segmentsFile = metadata.get(segmentsFileName);
+            if (segmentsFile == null || segmentsFile.hasLegacyChecksum()) {
+                return false;
+            }
+            try (IndexInput input = directory.openInput(segmentsFileName, IOContext.READONCE)) {
+                return input.length() == segmentsFile.length()
+                        && digestToString(CodecUtil.retrieveChecksum(input)).equals(segmentsFile.checksum());
+            } catch (IOException ex) {
+                // let the caller load the commit and deal with the failure
+                return false;
+            }
+        }
+
         private final int numSegmentFiles() { // only for asserts
             int count = 0;
             for (StoreFileMetaData file : this) {
@@ -1384,6 +1460,15 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
             checksumPosition = input.length() - 8;
         }
 
+        /**
+         * Creates an input that starts reading at the given offset, the checksum only covers the bytes after this offset
+         */
+        public VerifyingIndexInput(IndexInput input, long offset) throws IOException {
+            this(input);
+            input.seek(offset);
+            verifiedPosition = offset;
+        }
+
         @Override
         public byte readByte() throws IOException {
             long pos = input.getFilePointer();
@@ -1507,6 +1592,7 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
      */
     public void markStoreCorrupted(IOException exception) throws IOException {
         ensureOpen();
+        cachedMetadata = null;
         if (!isMarkedCorrupted()) {
             String uuid = CORRUPTED + Strings.randomBase64UUID();
             try (IndexOutput output = this.directory().createOutput(uuid, IOContext.DEFAULT)) {
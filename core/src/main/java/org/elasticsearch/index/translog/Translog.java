@@ -26,6 +26,7 @@ import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
@@ -43,6 +44,7 @@ import org.elasticsearch.common.util.Callback;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.FutureUtils;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
@@ -57,9 +59,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
@@ -123,6 +127,9 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     private TranslogWriter current;
     private volatile ImmutableTranslogReader currentCommittingTranslog;
     private volatile long lastCommittedTranslogFileGeneration = -1; // -1 is safe as it will not cause an translog deletion.
+    // committed generations that are kept around for operation based recoveries, oldest first
+    private final Deque<RetainedTranslog> retainedTranslogs = new ArrayDeque<>();
+    private volatile long minRetainedTranslogFileGeneration = Long.MAX_VALUE;
     private final AtomicBoolean closed = new AtomicBoolean();
     private final TranslogConfig config;
     private final String translogUUID;
@@ -293,6 +300,10 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                     } finally {
                         IOUtils.close(recoveredTranslogs);
                         recoveredTranslogs.clear();
+                        for (RetainedTranslog retained : retainedTranslogs) {
+                            IOUtils.closeWhileHandlingException(retained.reader);
+                        }
+                        retainedTranslogs.clear();
                     }
                 }
             } finally {
@@ -490,6 +501,40 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
     }
 
+    /**
+     * Returns a view into the translog that starts at the given generation, which may be a committed generation
+     * that is still retained, or <code>null</code> if the given generation isn't available anymore.
+     *
+     * @see #newView()
+     */
+    @Nullable
+    public Translog.View newView(long minGeneration) {
+        try (ReleasableLock lock = readLock.acquire()) {
+            ensureOpen();
+            ArrayList<TranslogReader> translogs = new ArrayList<>();
+            try {
+                for (RetainedTranslog retained : retainedTranslogs) {
+                    if (retained.reader.getGeneration() >= minGeneration) {
+                        translogs.add(retained.reader.clone());
+                    }
+                }
+                if (currentCommittingTranslog != null && currentCommittingTranslog.getGeneration() >= minGeneration) {
+                    translogs.add(currentCommittingTranslog.clone());
+                }
+                translogs.add(current.newReaderFromWriter());
+                if (translogs.get(0).getGeneration() != minGeneration) {
+                    return null;
+                }
+                View view = new View(translogs, onViewClose);
+                outstandingViews.add(view);
+                translogs.clear();
+                return view;
+            } finally {
+                IOUtils.closeWhileHandlingException(translogs);
+            }
+        }
+    }
+
     /**
      * Sync's the translog.
      */
@@ -559,7 +604,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
     private boolean isReferencedGeneration(long generation) { // used to make decisions if a file can be deleted
-        return generation >= lastCommittedTranslogFileGeneration;
+        return generation >= lastCommittedTranslogFileGeneration || generation >= minRetainedTranslogFileGeneration;
     }
 
     public TranslogConfig getConfig() {
@@ -1314,24 +1359,63 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
     @Override
     public void commit() throws IOException {
-        ImmutableTranslogReader toClose = null;
+        final List<ImmutableTranslogReader> toClose = new ArrayList<>();
         try (ReleasableLock lock = writeLock.acquire()) {
             ensureOpen();
             if (currentCommittingTranslog == null) {
                 prepareCommit();
             }
+            // retain the committing generation before it stops being referenced so that it is not deleted in between
+            retainedTranslogs.add(new RetainedTranslog(currentCommittingTranslog, System.nanoTime()));
+            minRetainedTranslogFileGeneration = retainedTranslogs.peekFirst().reader.getGeneration();
             lastCommittedTranslogFileGeneration = current.getGeneration(); // this is important - otherwise old files will not be cleaned up
             if (recoveredTranslogs.isEmpty() == false) {
                 IOUtils.close(recoveredTranslogs);
                 recoveredTranslogs.clear();
             }
-            toClose = this.currentCommittingTranslog;
             this.currentCommittingTranslog = null;
+            trimRetainedTranslogs(toClose);
         } finally {
             IOUtils.close(toClose);
         }
     }
 
+    /**
+     * Stops retaining the oldest committed generations until the retained generations fit in
+     * {@link IndexSettings#INDEX_TRANSLOG_RETENTION_SIZE} and none is older than {@link IndexSettings#INDEX_TRANSLOG_RETENTION_AGE}.
+     * The readers of the generations that are not retained anymore are added to <code>toClose</code>. Must be called
+     * under the write lock.
+     */
+    private void trimRetainedTranslogs(List<ImmutableTranslogReader> toClose) {
+        final long maxSizeInBytes = config.getIndexSettings().getTranslogRetentionSize().bytes();
+        final long maxAgeInNanos = config.getIndexSettings().getTranslogRetentionAge().nanos();
+        final long now = System.nanoTime();
+        long sizeInBytes = 0;
+        for (RetainedTranslog retained : retainedTranslogs) {
+            sizeInBytes += retained.reader.sizeInBytes();
+        }
+        while (retainedTranslogs.isEmpty() == false) {
+            final RetainedTranslog oldest = retainedTranslogs.peekFirst();
+            if (maxSizeInBytes > 0 && sizeInBytes <= maxSizeInBytes && now - oldest.committedAtNanos <= maxAgeInNanos) {
+                break;
+            }
+            retainedTranslogs.pollFirst();
+            sizeInBytes -= oldest.reader.sizeInBytes();
+            toClose.add(oldest.reader);
+        }
+        minRetainedTranslogFileGeneration = retainedTranslogs.isEmpty() ? Long.MAX_VALUE : retainedTranslogs.peekFirst().reader.getGeneration();
+    }
+
+    private static final class RetainedTranslog {
+        final ImmutableTranslogReader reader;
+        final long committedAtNanos;
+
+        RetainedTranslog(ImmutableTranslogReader reader, long committedAtNanos) {
+            this.reader = reader;
+            this.committedAtNanos = committedAtNanos;
+        }
+    }
+
     @Override
     public void rollback() throws IOException {
         ensureOpen();
@@ -23,6 +23,8 @@ import com.carrotsearch.hppc.ObjectHashSet;
 import com.carrotsearch.hppc.ObjectSet;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.action.search.SearchType;
@@ -51,9 +53,11 @@ import org.elasticsearch.search.query.QueryPhase;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
@@ -66,7 +70,11 @@ import java.util.concurrent.TimeUnit;
  * eviction to evict old reader associated cache entries as well as scheduler reaper to clean readers that
  * are no longer used or closed shards.
  * <p>
- * Currently, the cache is only enabled for count requests, and can only be opted in on an index
+ * Since entries of a reader are useless once the shard is refreshed, the cache also holds partial results
+ * of segments, see {@link SegmentCache}, which remain valid as long as their segment is not merged away
+ * or gets new deletes.
+ * <p>
+ * The cache is enabled for requests that don't scroll, and can only be opted in on an index
  * level setting that can be dynamically changed and defaults to false.
  * <p>
  * There are still several TODOs left in this class, some easily addressable, some more complex, but the support
@@ -79,11 +87,19 @@ public class IndicesRequestCache extends AbstractComponent implements RemovalLis
      * since we are checking on the cluster state IndexMetaData always.
      */
     public static final String INDEX_CACHE_REQUEST_ENABLED = "index.requests.cache.enable";
+    /**
+     * A setting to also cache the top hits of every segment for requests that sort on fields, which is useful for
+     * time-based indices where only the newest segments change. Dynamic and defaults to false.
+     */
+    public static final String INDEX_CACHE_REQUEST_SEGMENT_HITS = "index.requests.cache.segment_hits.enable";
     public static final String INDICES_CACHE_REQUEST_CLEAN_INTERVAL = "indices.requests.cache.clean_interval";
 
     public static final String INDICES_CACHE_QUERY_SIZE = "indices.requests.cache.size";
     public static final String INDICES_CACHE_QUERY_EXPIRE = "indices.requests.cache.expire";
 
+    /** The estimated memory usage of queries that don't report it, same as Lucene's query cache */
+    private static final long QUERY_DEFAULT_RAM_BYTES_USED = 1024;
+
     private static final Set<SearchType> CACHEABLE_SEARCH_TYPES = EnumSet.of(SearchType.QUERY_THEN_FETCH, SearchType.QUERY_AND_FETCH);
 
     private final ThreadPool threadPool;
@@ -94,6 +110,8 @@ public class IndicesRequestCache extends AbstractComponent implements RemovalLis
 
     final ConcurrentMap<CleanupKey, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
     final Set<CleanupKey> keysToClean = ConcurrentCollections.newConcurrentSet();
+    final Set<Object> registeredCoreClosedListeners = ConcurrentCollections.newConcurrentSet();
+    final Set<Object> coreKeysToClean = ConcurrentCollections.newConcurrentSet();
 
 
     //TODO make these changes configurable on the cluster level
@@ -163,8 +181,8 @@ public class IndicesRequestCache extends AbstractComponent implements RemovalLis
             return false;
         }
 
-        // for now, only enable it for requests with no hits
-        if (context.size() != 0) {
+        // scroll requests have state that lives across requests, and profiles are specific to a single execution
+        if (context.scrollContext() != null || context.getProfilers() != null) {
             return false;
         }
 
@@ -200,6 +218,18 @@ public class IndicesRequestCache extends AbstractComponent implements RemovalLis
         return true;
     }
 
+    /**
+     * Can the top hits of every segment be cached for the shard request? This requires the request to be
+     * {@link #canCache(ShardSearchRequest, SearchContext) cacheable} and to be opted in on an index level setting.
+     */
+    public boolean canCacheSegmentHits(ShardSearchRequest request, SearchContext context) {
+        IndexMetaData index = clusterService.state().getMetaData().index(request.index());
+        if (index == null || index.getSettings().getAsBoolean(INDEX_CACHE_REQUEST_SEGMENT_HITS, false) == false) {
+            return false;
+        }
+        return canCache(request, context);
+    }
+
     /**
      * Loads the cache result, computing it if needed by executing the query phase and otherwise deserializing the cached
      * value into the {@link SearchContext#queryResult() context's query result}. The combination of load + compute allows
@@ -315,6 +345,7 @@ public class IndicesRequestCache extends AbstractComponent implements RemovalLis
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
             Key key = (Key) o;
             if (readerVersion != key.readerVersion) return false;
             if (!shard.equals(key.shard)) return false;
@@ -331,6 +362,108 @@ public class IndicesRequestCache extends AbstractComponent implements RemovalLis
         }
     }
 
+    /**
+     * The key of the partial result of a segment. Segments only ever get more deletes, so the number of live
+     * documents of a segment identifies its deletes.
+     */
+    public static class SegmentKey extends Key {
+        public final Object coreKey; // use as identity equality
+        public final int numDocs;
+        public final Query query; // the rewritten query, whose matches may depend on the other segments of the shard
+
+        SegmentKey(IndexShard shard, Object coreKey, int numDocs, BytesReference value, Query query) {
+            // segment keys are not bound to a reader version, they are cleaned when their segment is closed
+            super(shard, -1, value);
+            this.coreKey = coreKey;
+            this.numDocs = numDocs;
+            this.query = query;
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            long queryRamBytesUsed = query instanceof Accountable ? ((Accountable) query).ramBytesUsed() : QUERY_DEFAULT_RAM_BYTES_USED;
+            return super.ramBytesUsed() + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.NUM_BYTES_INT
+                    + queryRamBytesUsed;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (super.equals(o) == false) return false;
+            SegmentKey key = (SegmentKey) o;
+            if (coreKey != key.coreKey) return false;
+            if (numDocs != key.numDocs) return false;
+            if (!query.equals(key.query)) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = super.hashCode();
+            result = 31 * result + System.identityHashCode(coreKey);
+            result = 31 * result + numDocs;
+            result = 31 * result + query.hashCode();
+            return result;
+        }
+    }
+
+    /**
+     * Caches partial results of the segments of a shard for a request, which are still valid after the shard has
+     * been refreshed as long as the segment doesn't change.
+     */
+    public final class SegmentCache {
+
+        private final IndexShard shard;
+        private final BytesReference requestKey;
+        private final Query query;
+
+        private SegmentCache(IndexShard shard, BytesReference requestKey, Query query) {
+            this.shard = shard;
+            this.requestKey = requestKey;
+            this.query = query;
+        }
+
+        private SegmentKey key(LeafReaderContext leaf) {
+            return new SegmentKey(shard, leaf.reader().getCoreCacheKey(), leaf.reader().numDocs(), requestKey, query);
+        }
+
+        /**
+         * Returns the cached result of the given segment, or {@code null} if it is not cached.
+         */
+        public BytesReference get(LeafReaderContext leaf) {
+            Value value = cache.get(key(leaf));
+            if (value == null) {
+                shard.requestCache().onMiss();
+                return null;
+            }
+            shard.requestCache().onHit();
+            return value.reference;
+        }
+
+        public void put(LeafReaderContext leaf, BytesStreamOutput result) {
+            final SegmentKey key = key(leaf);
+            if (registeredCoreClosedListeners.add(key.coreKey)) {
+                leaf.reader().addCoreClosedListener(coreKey -> {
+                    registeredCoreClosedListeners.remove(coreKey);
+                    coreKeysToClean.add(coreKey);
+                });
+            }
+            final Value value = new Value(result.bytes(), result.ramBytesUsed());
+            cache.put(key, value);
+            shard.requestCache().onCached(key, value);
+        }
+    }
+
+    /**
+     * Returns a cache for the partial results of the segments of the shard of the given context for the given
+     * request, which must be {@link #canCache(ShardSearchRequest, SearchContext) cacheable}.
+     *
+     * @param query the rewritten query of the request
+     */
+    public SegmentCache segmentCache(ShardSearchRequest request, SearchContext context, Query query) throws IOException {
+        assert canCache(request, context);
+        return new SegmentCache(context.indexShard(), request.cacheKey(), query);
+    }
+
     private class CleanupKey implements IndexReader.ReaderClosedListener {
         IndexShard indexShard;
         long readerVersion; // use the reader version to now keep a reference to a "short" lived reader until its reaped
@@ -369,6 +502,7 @@ public class IndicesRequestCache extends AbstractComponent implements RemovalLis
 
         private final ObjectSet<CleanupKey> currentKeysToClean = new ObjectHashSet<>();
         private final ObjectSet<IndexShard> currentFullClean = new ObjectHashSet<>();
+        private final Set<Object> currentCoreKeysToClean = Collections.newSetFromMap(new IdentityHashMap<>());
 
         private volatile boolean closed;
 
@@ -381,7 +515,7 @@ public class IndicesRequestCache extends AbstractComponent implements RemovalLis
             if (closed) {
                 return;
             }
-            if (keysToClean.isEmpty()) {
+            if (keysToClean.isEmpty() && coreKeysToClean.isEmpty()) {
                 schedule();
                 return;
             }
@@ -420,12 +554,22 @@ public class IndicesRequestCache extends AbstractComponent implements RemovalLis
                 }
             }
 
-            if (!currentKeysToClean.isEmpty() || !currentFullClean.isEmpty()) {
+            currentCoreKeysToClean.clear();
+            for (Iterator<Object> iterator = coreKeysToClean.iterator(); iterator.hasNext(); ) {
+                currentCoreKeysToClean.add(iterator.next());
+                iterator.remove();
+            }
+
+            if (!currentKeysToClean.isEmpty() || !currentFullClean.isEmpty() || !currentCoreKeysToClean.isEmpty()) {
                 CleanupKey lookupKey = new CleanupKey(null, -1);
                 for (Iterator<Key> iterator = cache.keys().iterator(); iterator.hasNext(); ) {
                     Key key = iterator.next();
                     if (currentFullClean.contains(key.shard)) {
                         iterator.remove();
+                    } else if (key instanceof SegmentKey) {
+                        if (currentCoreKeysToClean.contains(((SegmentKey) key).coreKey)) {
+                            iterator.remove();
+                        }
                     } else {
                         lookupKey.indexShard = key.shard;
                         lookupKey.readerVersion = key.readerVersion;
@@ -439,6 +583,7 @@ public class IndicesRequestCache extends AbstractComponent implements RemovalLis
             cache.refresh();
             currentKeysToClean.clear();
             currentFullClean.clear();
+            currentCoreKeysToClean.clear();
         }
     }
 
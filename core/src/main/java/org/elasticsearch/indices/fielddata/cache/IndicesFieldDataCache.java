@@ -41,12 +41,16 @@ import org.elasticsearch.index.fielddata.AtomicFieldData;
 import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsIndexFieldData;
+import org.elasticsearch.index.fielddata.ordinals.IncrementalOrdinalMap;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardUtils;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.ToLongBiFunction;
 
 /**
@@ -91,7 +95,8 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
     }
 
     public IndexFieldDataCache buildIndexFieldDataCache(IndexFieldDataCache.Listener listener, Index index, String fieldName, FieldDataType fieldDataType) {
-        return new IndexFieldCache(logger, cache, index, fieldName, fieldDataType, indicesFieldDataCacheListener, listener);
+        return new IndexFieldCache(logger, cache, index, fieldName, fieldDataType, indicesFieldDataCacheListener, indicesFieldDataCacheListener,
+                listener);
     }
 
     public Cache<Key, Accountable> getCache() {
@@ -104,6 +109,8 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         assert key != null && key.listeners != null;
         IndexFieldCache indexCache = key.indexCache;
         final Accountable value = notification.getValue();
+        // entries are invalidated when their reader is closed, the ordinal map may still be used by the next reader
+        indexCache.onRemoval(key.shardId, value, notification.getRemovalReason() == RemovalNotification.RemovalReason.INVALIDATED);
         for (IndexFieldDataCache.Listener listener : key.listeners) {
             try {
                 listener.onRemoval(key.shardId, indexCache.fieldName, indexCache.fieldDataType, notification.getRemovalReason() == RemovalNotification.RemovalReason.EVICTED, value.ramBytesUsed());
@@ -132,9 +139,15 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         final FieldDataType fieldDataType;
         private final Cache<Key, Accountable> cache;
         private final Listener[] listeners;
+        @Nullable
+        private final IndicesFieldDataCacheListener retainedListener;
+        // the ordinal maps of the global ordinals that were last loaded per shard, used to build global ordinals incrementally
+        private final Map<ShardId, RetainedOrdinalMap> lastOrdinalMaps = new HashMap<>();
 
-        IndexFieldCache(ESLogger logger,final Cache<Key, Accountable> cache, Index index, String fieldName, FieldDataType fieldDataType, Listener... listeners) {
+        IndexFieldCache(ESLogger logger,final Cache<Key, Accountable> cache, Index index, String fieldName, FieldDataType fieldDataType,
+                        @Nullable IndicesFieldDataCacheListener retainedListener, Listener... listeners) {
             this.logger = logger;
+            this.retainedListener = retainedListener;
             this.listeners = listeners;
             this.index = index;
             this.fieldName = fieldName;
@@ -185,11 +198,62 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                         logger.error("Failed to call listener on global ordinals loading", e);
                     }
                 }
+                if (shardId != null && ifd instanceof GlobalOrdinalsIndexFieldData) {
+                    retain(shardId, ((GlobalOrdinalsIndexFieldData) ifd).getOrdinalMap());
+                }
                 return ifd;
             });
             return (IFD) accountable;
         }
 
+        @Override
+        public synchronized IncrementalOrdinalMap lastOrdinalMap(DirectoryReader indexReader) {
+            final ShardId shardId = ShardUtils.extractShardId(indexReader);
+            final RetainedOrdinalMap retained = shardId == null ? null : lastOrdinalMaps.get(shardId);
+            return retained == null ? null : retained.map;
+        }
+
+        private synchronized void retain(ShardId shardId, IncrementalOrdinalMap map) {
+            release(lastOrdinalMaps.put(shardId, new RetainedOrdinalMap(map)));
+        }
+
+        /**
+         * Called when an entry of this cache is removed. If the entry holds the last ordinal map of its shard, the map is
+         * kept if {@code keepOrdinalMap} is true and is then accounted for on its own since the memory of the entry is
+         * released, or dropped otherwise.
+         */
+        synchronized void onRemoval(@Nullable ShardId shardId, Accountable value, boolean keepOrdinalMap) {
+            if (shardId == null || value instanceof GlobalOrdinalsIndexFieldData == false) {
+                return;
+            }
+            final RetainedOrdinalMap retained = lastOrdinalMaps.get(shardId);
+            if (retained == null || retained.map != ((GlobalOrdinalsIndexFieldData) value).getOrdinalMap()) {
+                return;
+            }
+            if (keepOrdinalMap) {
+                if (retained.accountedBytes == 0 && retainedListener != null) {
+                    retained.accountedBytes = retained.map.ramBytesUsed();
+                    retainedListener.onRetained(retained.accountedBytes);
+                }
+            } else {
+                release(lastOrdinalMaps.remove(shardId));
+            }
+        }
+
+        private void release(@Nullable RetainedOrdinalMap retained) {
+            if (retained != null && retained.accountedBytes > 0) {
+                retainedListener.onRetained(-retained.accountedBytes);
+                retained.accountedBytes = 0;
+            }
+        }
+
+        private synchronized void releaseAll() {
+            for (RetainedOrdinalMap retained : lastOrdinalMaps.values()) {
+                release(retained);
+            }
+            lastOrdinalMaps.clear();
+        }
+
         @Override
         public void onClose(Object coreKey) {
             cache.invalidate(new Key(this, coreKey, null));
@@ -204,6 +268,7 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
 
         @Override
         public void clear() {
+            releaseAll();
             for (Key key : cache.keys()) {
                 if (key.indexCache.index.equals(index)) {
                     cache.invalidate(key);
@@ -213,8 +278,14 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
             cache.refresh();
         }
 
+        @Override
+        public synchronized void clear(ShardId shardId) {
+            release(lastOrdinalMaps.remove(shardId));
+        }
+
         @Override
         public void clear(String fieldName) {
+            releaseAll();
             for (Key key : cache.keys()) {
                 if (key.indexCache.index.equals(index)) {
                     if (key.indexCache.fieldName.equals(fieldName)) {
@@ -229,6 +300,19 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         }
     }
 
+    /**
+     * The last ordinal map of a shard, which may outlive the cache entry of its global ordinals.
+     */
+    private static final class RetainedOrdinalMap {
+        final IncrementalOrdinalMap map;
+        // the memory that is accounted for the map on its own, once the cache entry that held it was removed
+        long accountedBytes;
+
+        RetainedOrdinalMap(IncrementalOrdinalMap map) {
+            this.map = map;
+        }
+    }
+
     public static class Key {
         public final IndexFieldCache indexCache;
         public final Object readerKey;
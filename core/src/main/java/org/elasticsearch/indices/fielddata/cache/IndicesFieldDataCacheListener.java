@@ -52,5 +52,12 @@ public class IndicesFieldDataCacheListener implements IndexFieldDataCache.Listen
         circuitBreakerService.getBreaker(CircuitBreaker.FIELDDATA).addWithoutBreaking(-sizeInBytes);
     }
 
+    /**
+     * Accounts for memory that the cache retains outside of its entries, or releases it if {@code sizeInBytes} is negative.
+     */
+    void onRetained(long sizeInBytes) {
+        circuitBreakerService.getBreaker(CircuitBreaker.FIELDDATA).addWithoutBreaking(sizeInBytes);
+    }
+
 }
 
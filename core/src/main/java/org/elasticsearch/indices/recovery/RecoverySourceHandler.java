@@ -39,6 +39,8 @@ import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.CancellableThreads;
 import org.elasticsearch.common.util.CancellableThreads.Interruptable;
+import org.elasticsearch.index.engine.CommitStats;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.RecoveryEngineException;
 import org.elasticsearch.index.shard.IllegalIndexShardStateException;
 import org.elasticsearch.index.shard.IndexShard;
@@ -49,15 +51,21 @@ import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.transport.EmptyTransportResponseHandler;
 import org.elasticsearch.transport.RemoteTransportException;
+import org.elasticsearch.transport.TransportFuture;
 import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -84,6 +92,8 @@ public class RecoverySourceHandler {
     private final int chunkSizeInBytes;
 
     protected final RecoveryResponse response;
+    // whether the target only misses operations that are all in the translog view
+    private boolean operationsBasedRecovery = false;
 
     private final CancellableThreads cancellableThreads = new CancellableThreads() {
         @Override
@@ -118,7 +128,7 @@ public class RecoverySourceHandler {
      * performs the recovery from the local engine to the target
      */
     public RecoveryResponse recoverToTarget() {
-        try (Translog.View translogView = shard.acquireTranslogView()) {
+        try (Translog.View translogView = acquireTranslogView()) {
             logger.trace("captured translog id [{}] for recovery", translogView.minTranslogGeneration());
             final IndexCommit phase1Snapshot;
             try {
@@ -152,6 +162,33 @@ public class RecoverySourceHandler {
         return response;
     }
 
+    /**
+     * Acquires the view of the translog that is replayed on the target. If the last commit of the target is a synced flush
+     * that the history of this shard went through, and the translog still has all operations since that synced flush,
+     * the view contains these operations and phase1 is skipped. Otherwise the view contains the operations since the
+     * last commit of this shard.
+     */
+    private Translog.View acquireTranslogView() {
+        final String targetSyncId = request.metadataSnapshot().getSyncId();
+        final CommitStats commitStats = shard.commitStats();
+        if (targetSyncId != null && commitStats != null) {
+            final Map<String, String> commitUserData = commitStats.getUserData();
+            if (targetSyncId.equals(commitUserData.get(Engine.LAST_SYNC_COMMIT_ID))) {
+                final long generation = Long.parseLong(commitUserData.get(Engine.LAST_SYNC_TRANSLOG_GENERATION));
+                final Translog.View translogView = shard.acquireTranslogView(generation);
+                if (translogView != null) {
+                    logger.trace("{} recovery to {} replays operations since synced flush [{}] from translog generation [{}]",
+                            request.shardId(), request.targetNode(), targetSyncId, generation);
+                    operationsBasedRecovery = true;
+                    return translogView;
+                }
+                logger.trace("{} translog generation [{}] of synced flush [{}] is not retained anymore", request.shardId(), generation,
+                        targetSyncId);
+            }
+        }
+        return shard.acquireTranslogView();
+    }
+
     /**
      * Perform phase1 of the recovery operations. Once this {@link IndexCommit}
      * snapshot has been performed no commit operations (files being fsync'd)
@@ -203,6 +240,10 @@ public class RecoverySourceHandler {
                 // so we don't return here
                 logger.trace("[{}][{}] skipping [phase1] to {} - identical sync id [{}] found on both source and target", indexName, shardId,
                         request.targetNode(), recoverySourceSyncId);
+            } else if (operationsBasedRecovery) {
+                // the target has all operations up to its synced flush and the translog view has all operations since
+                logger.trace("[{}][{}] skipping [phase1] to {} - translog has all operations since sync id [{}] of target", indexName,
+                        shardId, request.targetNode(), recoveryTargetSyncId);
             } else {
                 final Store.RecoveryDiff diff = recoverySourceMetadata.recoveryDiff(request.metadataSnapshot());
                 for (StoreFileMetaData md : diff.identical) {
@@ -525,12 +566,16 @@ public class RecoverySourceHandler {
         private final StoreFileMetaData md;
         private final AtomicLong bytesSinceLastPause;
         private final Translog.View translogView;
+        private final int maxConcurrentChunks;
+        /** chunk requests that were sent but not acknowledged yet, the target writes them in order of position */
+        private final Deque<TransportFuture<TransportResponse.Empty>> pendingChunks = new ArrayDeque<>();
         private long position = 0;
 
         RecoveryOutputStream(StoreFileMetaData md, AtomicLong bytesSinceLastPause, Translog.View translogView) {
             this.md = md;
             this.bytesSinceLastPause = bytesSinceLastPause;
             this.translogView = translogView;
+            this.maxConcurrentChunks = recoverySettings.maxConcurrentFileChunks();
         }
 
         @Override
@@ -540,7 +585,10 @@ public class RecoverySourceHandler {
 
         @Override
         public final void write(byte[] b, int offset, int length) throws IOException {
-            sendNextChunk(position, new BytesArray(b, offset, length), md.length() == position + length);
+            // the caller reuses its buffer, so chunks that may still be in flight once we return need their own copy
+            final BytesArray content = maxConcurrentChunks > 1 ?
+                    new BytesArray(Arrays.copyOfRange(b, offset, offset + length)) : new BytesArray(b, offset, length);
+            sendNextChunk(position, content, md.length() == position + length);
             position += length;
             assert md.length() >= position : "length: " + md.length() + " but positions was: " + position;
         }
@@ -552,6 +600,10 @@ public class RecoverySourceHandler {
                 .withTimeout(recoverySettings.internalActionTimeout())
                 .build();
             cancellableThreads.execute(() -> {
+                // Wait for the oldest chunk to be acknowledged if too many are in flight already
+                while (pendingChunks.size() >= maxConcurrentChunks) {
+                    pendingChunks.poll().txGet();
+                }
                 // Pause using the rate limiter, if desired, to throttle the recovery
                 final long throttleTimeInNanos;
                 final RateLimiter rl = recoverySettings.rateLimiter();
@@ -572,20 +624,30 @@ public class RecoverySourceHandler {
                 } else {
                     throttleTimeInNanos = 0;
                 }
-                // Actually send the file chunk to the target node, waiting for it to complete
-                transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK,
+                // Actually send the file chunk to the target node
+                pendingChunks.add(transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK,
                         new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), md, position, content, lastChunk,
                                 translogView.totalOperations(),
                                 /* we send totalOperations with every request since we collect stats on the target and that way we can
                                  * see how many translog ops we accumulate while copying files across the network. A future optimization
                                  * would be in to restart file copy again (new deltas) if we have too many translog ops are piling up.
                                  */
-                                throttleTimeInNanos), chunkSendOptions, EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+                                throttleTimeInNanos), chunkSendOptions, EmptyTransportResponseHandler.INSTANCE_SAME));
             });
             if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
                 throw new IndexShardClosedException(request.shardId());
             }
         }
+
+        @Override
+        public void close() throws IOException {
+            // the file is only sent once all its chunks are acknowledged
+            cancellableThreads.execute(() -> {
+                while (pendingChunks.isEmpty() == false) {
+                    pendingChunks.poll().txGet();
+                }
+            });
+        }
     }
 
     void sendFiles(Store store, StoreFileMetaData[] files, Function<StoreFileMetaData, OutputStream> outputStreamFactory) throws Throwable {
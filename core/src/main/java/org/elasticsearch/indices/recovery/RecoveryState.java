@@ -19,6 +19,7 @@
 
 package org.elasticsearch.indices.recovery;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.RestoreSource;
 import org.elasticsearch.common.Nullable;
@@ -370,6 +371,8 @@ public class RecoveryState implements ToXContent, Streamable {
         static final XContentBuilderString VERIFY_INDEX = new XContentBuilderString("verify_index");
         static final XContentBuilderString RECOVERED = new XContentBuilderString("recovered");
         static final XContentBuilderString RECOVERED_IN_BYTES = new XContentBuilderString("recovered_in_bytes");
+        static final XContentBuilderString RECOVERED_FROM_SNAPSHOT = new XContentBuilderString("recovered_from_snapshot");
+        static final XContentBuilderString RECOVERED_FROM_SNAPSHOT_IN_BYTES = new XContentBuilderString("recovered_from_snapshot_in_bytes");
         static final XContentBuilderString CHECK_INDEX_TIME = new XContentBuilderString("check_index_time");
         static final XContentBuilderString CHECK_INDEX_TIME_IN_MILLIS = new XContentBuilderString("check_index_time_in_millis");
         static final XContentBuilderString LENGTH = new XContentBuilderString("length");
@@ -711,6 +714,7 @@ public class RecoveryState implements ToXContent, Streamable {
         private long version = UNKNOWN;
         private long sourceThrottlingInNanos = UNKNOWN;
         private long targetThrottleTimeInNanos = UNKNOWN;
+        private long snapshotRecoveredBytes = 0;
 
         public synchronized List<File> fileDetails() {
             return Collections.unmodifiableList(new ArrayList<>(fileDetails.values()));
@@ -722,6 +726,7 @@ public class RecoveryState implements ToXContent, Streamable {
             fileDetails.clear();
             sourceThrottlingInNanos = UNKNOWN;
             targetThrottleTimeInNanos = UNKNOWN;
+            snapshotRecoveredBytes = 0;
         }
 
         public synchronized void addFileDetail(String name, long length, boolean reused) {
@@ -739,6 +744,21 @@ public class RecoveryState implements ToXContent, Streamable {
             return this.version;
         }
 
+        /**
+         * Adds bytes that were copied from a snapshot repository rather than from the source node. Files copied from a
+         * snapshot show up as reused files since they are already in the store when the source node lists them.
+         */
+        public synchronized void addSnapshotRecoveredBytes(long bytes) {
+            snapshotRecoveredBytes += bytes;
+        }
+
+        /**
+         * number of bytes that were copied from a snapshot repository
+         */
+        public synchronized long snapshotRecoveredBytes() {
+            return snapshotRecoveredBytes;
+        }
+
         public synchronized void addSourceThrottling(long timeInNanos) {
             if (sourceThrottlingInNanos == UNKNOWN) {
                 sourceThrottlingInNanos = timeInNanos;
@@ -924,6 +944,9 @@ public class RecoveryState implements ToXContent, Streamable {
             }
             sourceThrottlingInNanos = in.readLong();
             targetThrottleTimeInNanos = in.readLong();
+            if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+                snapshotRecoveredBytes = in.readVLong();
+            }
         }
 
         @Override
@@ -936,6 +959,9 @@ public class RecoveryState implements ToXContent, Streamable {
             }
             out.writeLong(sourceThrottlingInNanos);
             out.writeLong(targetThrottleTimeInNanos);
+            if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+                out.writeVLong(snapshotRecoveredBytes);
+            }
         }
 
         @Override
@@ -945,6 +971,7 @@ public class RecoveryState implements ToXContent, Streamable {
             builder.byteSizeField(Fields.TOTAL_IN_BYTES, Fields.TOTAL, totalBytes());
             builder.byteSizeField(Fields.REUSED_IN_BYTES, Fields.REUSED, reusedBytes());
             builder.byteSizeField(Fields.RECOVERED_IN_BYTES, Fields.RECOVERED, recoveredBytes());
+            builder.byteSizeField(Fields.RECOVERED_FROM_SNAPSHOT_IN_BYTES, Fields.RECOVERED_FROM_SNAPSHOT, snapshotRecoveredBytes());
             builder.field(Fields.PERCENT, String.format(Locale.ROOT, "%1.1f%%", recoveredBytesPercent()));
             builder.endObject();
 
@@ -24,6 +24,7 @@ import org.apache.lucene.store.IndexOutput;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.util.CancellableThreads;
@@ -35,9 +36,13 @@ import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -66,6 +71,7 @@ public class RecoveryStatus extends AbstractRefCounted {
     private final AtomicBoolean finished = new AtomicBoolean();
 
     private final ConcurrentMap<String, IndexOutput> openIndexOutputs = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, FileChunkWriter> fileChunkWriters = ConcurrentCollections.newConcurrentMap();
     private final Store.LegacyChecksums legacyChecksums = new Store.LegacyChecksums();
 
     private final CancellableThreads cancellableThreads = new CancellableThreads();
@@ -237,6 +243,86 @@ public class RecoveryStatus extends AbstractRefCounted {
         return indexOutput;
     }
 
+    /**
+     * Writes a chunk of a file that is being recovered. The source node may send several chunks of the same file
+     * concurrently so chunks may arrive out of order. They are buffered until all chunks before them have been written.
+     */
+    public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean lastChunk) throws IOException {
+        ensureRefCount();
+        final FileChunkWriter writer = fileChunkWriters.computeIfAbsent(fileMetaData.name(), name -> new FileChunkWriter());
+        writer.writeChunk(new FileChunk(fileMetaData, position, content, lastChunk));
+    }
+
+    private void innerWriteFileChunk(FileChunk chunk) throws IOException {
+        final StoreFileMetaData fileMetaData = chunk.metaData;
+        final String name = fileMetaData.name();
+        final IndexOutput indexOutput;
+        if (chunk.position == 0) {
+            indexOutput = openAndPutIndexOutput(name, fileMetaData, store);
+        } else {
+            indexOutput = getOpenIndexOutput(name);
+        }
+        BytesReference content = chunk.content;
+        if (!content.hasArray()) {
+            content = content.toBytesArray();
+        }
+        indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
+        state().getIndex().addRecoveredBytesToFile(name, content.length());
+        if (indexOutput.getFilePointer() >= fileMetaData.length() || chunk.lastChunk) {
+            try {
+                Store.verify(indexOutput);
+            } finally {
+                // we are done
+                indexOutput.close();
+            }
+            // write the checksum
+            legacyChecksums().add(fileMetaData);
+            final String temporaryFileName = getTempNameForFile(name);
+            assert Arrays.asList(store.directory().listAll()).contains(temporaryFileName);
+            store.directory().sync(Collections.singleton(temporaryFileName));
+            IndexOutput remove = removeOpenIndexOutputs(name);
+            assert remove == null || remove == indexOutput; // remove maybe null if we got finished
+        }
+    }
+
+    private static final class FileChunk {
+        final StoreFileMetaData metaData;
+        final long position;
+        final BytesReference content;
+        final boolean lastChunk;
+
+        FileChunk(StoreFileMetaData metaData, long position, BytesReference content, boolean lastChunk) {
+            this.metaData = metaData;
+            this.position = position;
+            this.content = content;
+            this.lastChunk = lastChunk;
+        }
+    }
+
+    /** writes the chunks of a single file in order of position */
+    private final class FileChunkWriter {
+        private final PriorityQueue<FileChunk> pendingChunks = new PriorityQueue<>(Comparator.comparingLong(chunk -> chunk.position));
+        private long nextPosition = 0;
+
+        synchronized void writeChunk(FileChunk newChunk) throws IOException {
+            if (newChunk.position != nextPosition) {
+                // the transport may reuse the buffer of the request once it has been handled
+                pendingChunks.add(new FileChunk(newChunk.metaData, newChunk.position, newChunk.content.copyBytesArray(),
+                        newChunk.lastChunk));
+                return;
+            }
+            pendingChunks.add(newChunk);
+            while (pendingChunks.isEmpty() == false && pendingChunks.peek().position == nextPosition) {
+                final FileChunk chunk = pendingChunks.poll();
+                innerWriteFileChunk(chunk);
+                nextPosition += chunk.content.length();
+                if (chunk.lastChunk) {
+                    fileChunkWriters.remove(chunk.metaData.name(), this);
+                }
+            }
+        }
+    }
+
     public void resetRecovery() throws IOException {
         cleanOpenFiles();
         indexShard().performRecoveryRestart();
@@ -254,6 +340,8 @@ public class RecoveryStatus extends AbstractRefCounted {
     }
 
     protected void cleanOpenFiles() {
+        // drop chunks that were received out of order
+        fileChunkWriters.clear();
         // clean open index outputs
         Iterator<Entry<String, IndexOutput>> iterator = openIndexOutputs.entrySet().iterator();
         while (iterator.hasNext()) {
@@ -23,7 +23,6 @@ import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexFormatTooNewException;
 import org.apache.lucene.index.IndexFormatTooOldException;
 import org.apache.lucene.store.AlreadyClosedException;
-import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.RateLimiter;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchTimeoutException;
@@ -53,6 +52,8 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardNotFoundException;
 import org.elasticsearch.index.shard.TranslogRecoveryPerformer;
 import org.elasticsearch.index.store.Store;
+import org.elasticsearch.indices.store.TransportNodesListShardStoreMetaData;
+import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.ConnectTransportException;
 import org.elasticsearch.transport.FutureTransportResponseHandler;
@@ -62,8 +63,6 @@ import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
@@ -78,6 +77,12 @@ import static org.elasticsearch.common.unit.TimeValue.timeValueMillis;
  */
 public class RecoveryTarget extends AbstractComponent implements IndexEventListener {
 
+    /**
+     * The name of a snapshot repository that recoveries of the shards of an index copy files from, before they recover
+     * the remaining files and the translog from the source node.
+     */
+    public static final String INDEX_RECOVERY_SNAPSHOT_REPOSITORY = "index.recovery.snapshot_repository";
+
     public static class Actions {
         public static final String FILES_INFO = "internal:index/shard/recovery/filesInfo";
         public static final String FILE_CHUNK = "internal:index/shard/recovery/file_chunk";
@@ -93,16 +98,22 @@ public class RecoveryTarget extends AbstractComponent implements IndexEventListe
 
     private final RecoverySettings recoverySettings;
     private final ClusterService clusterService;
+    private final RepositoriesService repositoriesService;
+    private final TransportNodesListShardStoreMetaData listShardStoreMetaData;
 
     private final RecoveriesCollection onGoingRecoveries;
 
     @Inject
-    public RecoveryTarget(Settings settings, ThreadPool threadPool, TransportService transportService, RecoverySettings recoverySettings, ClusterService clusterService) {
+    public RecoveryTarget(Settings settings, ThreadPool threadPool, TransportService transportService, RecoverySettings recoverySettings,
+                          ClusterService clusterService, RepositoriesService repositoriesService,
+                          TransportNodesListShardStoreMetaData listShardStoreMetaData) {
         super(settings);
         this.threadPool = threadPool;
         this.transportService = transportService;
         this.recoverySettings = recoverySettings;
         this.clusterService = clusterService;
+        this.repositoriesService = repositoriesService;
+        this.listShardStoreMetaData = listShardStoreMetaData;
         this.onGoingRecoveries = new RecoveriesCollection(logger, threadPool);
 
         transportService.registerRequestHandler(Actions.FILES_INFO, RecoveryFilesInfoRequest::new, ThreadPool.Names.GENERIC, new FilesInfoRequestHandler());
@@ -167,6 +178,10 @@ public class RecoveryTarget extends AbstractComponent implements IndexEventListe
         Store.MetadataSnapshot metadataSnapshot = null;
         try {
             metadataSnapshot = recoveryStatus.store().getMetadataOrEmpty();
+            if (metadataSnapshot.size() == 0) {
+                // the files copied from the snapshot are not part of a commit, so they are listed explicitly
+                metadataSnapshot = recoverFilesFromSnapshot(recoveryStatus);
+            }
         } catch (IOException e) {
             logger.warn("error while listing local files, recover as if there are none", e);
             metadataSnapshot = Store.MetadataSnapshot.EMPTY;
@@ -361,6 +376,51 @@ public class RecoveryTarget extends AbstractComponent implements IndexEventListe
         }
     }
 
+    /**
+     * Copies files from the newest snapshot of the shard in the repository that is configured with
+     * {@link #INDEX_RECOVERY_SNAPSHOT_REPOSITORY} into the empty store of the target shard. Only files that have the same
+     * name, length and checksum as files of the last commit of the source node are copied, and the source node doesn't
+     * send them again since they are listed in the metadata that is returned. Failures are not fatal, the source node
+     * sends all files in that case.
+     */
+    private Store.MetadataSnapshot recoverFilesFromSnapshot(final RecoveryStatus recoveryStatus) {
+        final IndexShard indexShard = recoveryStatus.indexShard();
+        final String repositoryName = indexShard.indexSettings().getSettings().get(INDEX_RECOVERY_SNAPSHOT_REPOSITORY);
+        if (repositoryName == null || indexShard.indexSettings().isOnSharedFilesystem()) {
+            return Store.MetadataSnapshot.EMPTY;
+        }
+        final ShardId shardId = recoveryStatus.shardId();
+        try {
+            final TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData response = listShardStoreMetaData.execute(
+                    new TransportNodesListShardStoreMetaData.Request(shardId, false, recoveryStatus.sourceNode().id()))
+                    .actionGet(recoverySettings.internalActionTimeout());
+            if (response.failures().length > 0) {
+                throw response.failures()[0];
+            }
+            final Store.MetadataSnapshot sourceMetadata = response.getNodes()[0].storeFilesMetaData().metadataSnapshot();
+            if (sourceMetadata.size() == 0) {
+                return Store.MetadataSnapshot.EMPTY;
+            }
+            // only used to count the bytes that are copied from the repository
+            final RecoveryState snapshotRecoveryState = new RecoveryState(shardId, indexShard.routingEntry().primary(),
+                    recoveryStatus.state().getType(), recoveryStatus.sourceNode(), clusterService.localNode());
+            final Store.MetadataSnapshot restored = repositoriesService.indexShardRepository(repositoryName)
+                    .restoreIdenticalFiles(shardId, sourceMetadata, snapshotRecoveryState);
+            logger.debug("{} copied [{}] files from snapshot repository [{}]", shardId, restored.size(), repositoryName);
+            recoveryStatus.state().getIndex().addSnapshotRecoveredBytes(snapshotRecoveryState.getIndex().recoveredBytes());
+            return restored;
+        } catch (Throwable t) {
+            logger.warn("{} failed to copy files from snapshot repository [{}], recovering all files from [{}]", t, shardId,
+                    repositoryName, recoveryStatus.sourceNode());
+            try {
+                Lucene.cleanLuceneIndex(recoveryStatus.store().directory());
+            } catch (Throwable e) {
+                logger.debug("{} failed to clean lucene index", e, shardId);
+            }
+            return Store.MetadataSnapshot.EMPTY;
+        }
+    }
+
     class FilesInfoRequestHandler implements TransportRequestHandler<RecoveryFilesInfoRequest> {
 
         @Override
@@ -438,22 +498,12 @@ public class RecoveryTarget extends AbstractComponent implements IndexEventListe
         public void messageReceived(final RecoveryFileChunkRequest request, TransportChannel channel) throws Exception {
             try (RecoveriesCollection.StatusRef statusRef = onGoingRecoveries.getStatusSafe(request.recoveryId(), request.shardId())) {
                 final RecoveryStatus recoveryStatus = statusRef.status();
-                final Store store = recoveryStatus.store();
                 recoveryStatus.state().getTranslog().totalOperations(request.totalTranslogOps());
                 final RecoveryState.Index indexState = recoveryStatus.state().getIndex();
                 if (request.sourceThrottleTimeInNanos() != RecoveryState.Index.UNKNOWN) {
                     indexState.addSourceThrottling(request.sourceThrottleTimeInNanos());
                 }
-                IndexOutput indexOutput;
-                if (request.position() == 0) {
-                    indexOutput = recoveryStatus.openAndPutIndexOutput(request.name(), request.metadata(), store);
-                } else {
-                    indexOutput = recoveryStatus.getOpenIndexOutput(request.name());
-                }
                 BytesReference content = request.content();
-                if (!content.hasArray()) {
-                    content = content.toBytesArray();
-                }
                 RateLimiter rl = recoverySettings.rateLimiter();
                 if (rl != null) {
                     long bytes = bytesSinceLastPause.addAndGet(content.length());
@@ -465,23 +515,7 @@ public class RecoveryTarget extends AbstractComponent implements IndexEventListe
                         recoveryStatus.indexShard().recoveryStats().addThrottleTime(throttleTimeInNanos);
                     }
                 }
-                indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
-                indexState.addRecoveredBytesToFile(request.name(), content.length());
-                if (indexOutput.getFilePointer() >= request.length() || request.lastChunk()) {
-                    try {
-                        Store.verify(indexOutput);
-                    } finally {
-                        // we are done
-                        indexOutput.close();
-                    }
-                    // write the checksum
-                    recoveryStatus.legacyChecksums().add(request.metadata());
-                    final String temporaryFileName = recoveryStatus.getTempNameForFile(request.name());
-                    assert Arrays.asList(store.directory().listAll()).contains(temporaryFileName);
-                    store.directory().sync(Collections.singleton(temporaryFileName));
-                    IndexOutput remove = recoveryStatus.removeOpenIndexOutputs(request.name());
-                    assert remove == null || remove == indexOutput; // remove maybe null if we got finished
-                }
+                recoveryStatus.writeFileChunk(request.metadata(), request.position(), content, request.lastChunk());
             }
             channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
@@ -27,21 +27,26 @@ import org.elasticsearch.action.support.nodes.BaseNodeRequest;
 import org.elasticsearch.action.support.nodes.BaseNodeResponse;
 import org.elasticsearch.action.support.nodes.BaseNodesRequest;
 import org.elasticsearch.action.support.nodes.BaseNodesResponse;
-import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
+import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.env.NodeEnvironment;
-import org.elasticsearch.gateway.AsyncShardFetch;
+import org.elasticsearch.gateway.TransportNodesBatchedShardAction;
 import org.elasticsearch.index.IndexModule;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexSettings;
@@ -60,14 +65,15 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  *
  */
-public class TransportNodesListShardStoreMetaData extends TransportNodesAction<TransportNodesListShardStoreMetaData.Request, TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData, TransportNodesListShardStoreMetaData.NodeRequest, TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData>
-        implements AsyncShardFetch.List<TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData, TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> {
+public class TransportNodesListShardStoreMetaData extends TransportNodesBatchedShardAction<TransportNodesListShardStoreMetaData.Request, TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData, TransportNodesListShardStoreMetaData.NodeRequest, TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData>
+        implements ClusterStateListener {
 
     public static final String ACTION_NAME = "internal:cluster/nodes/indices/shard/store";
 
@@ -75,6 +81,13 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
 
     private final NodeEnvironment nodeEnv;
 
+    /**
+     * metadata of shards that are not allocated on this node, reused by repeated listings as long as their latest commit is unchanged.
+     * Entries are dropped once the shard is allocated on this node or its index is deleted, see {@link #clusterChanged(ClusterChangedEvent)}
+     */
+    // pkg private for testing
+    final ConcurrentMap<ShardId, Store.MetadataSnapshot> unallocatedMetaData = ConcurrentCollections.newConcurrentMap();
+
     @Inject
     public TransportNodesListShardStoreMetaData(Settings settings, ClusterName clusterName, ThreadPool threadPool, ClusterService clusterService, TransportService transportService,
                                                 IndicesService indicesService, NodeEnvironment nodeEnv, ActionFilters actionFilters,
@@ -83,11 +96,42 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
                 Request::new, NodeRequest::new, ThreadPool.Names.FETCH_SHARD_STORE);
         this.indicesService = indicesService;
         this.nodeEnv = nodeEnv;
+        clusterService.add(this);
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (unallocatedMetaData.isEmpty()) {
+            return;
+        }
+        final ClusterState state = event.state();
+        final String localNodeId = state.nodes().localNodeId();
+        for (Iterator<ShardId> it = unallocatedMetaData.keySet().iterator(); it.hasNext(); ) {
+            final ShardId shardId = it.next();
+            final IndexRoutingTable indexRoutingTable = state.routingTable().index(shardId.getIndex());
+            if (state.metaData().hasIndex(shardId.getIndex()) == false || indexRoutingTable == null) {
+                // the index was deleted
+                it.remove();
+                continue;
+            }
+            final IndexShardRoutingTable shardRoutingTable = indexRoutingTable.shard(shardId.id());
+            if (shardRoutingTable == null) {
+                it.remove();
+                continue;
+            }
+            for (ShardRouting shardRouting : shardRoutingTable) {
+                if (shardRouting.currentNodeId() != null && shardRouting.currentNodeId().equals(localNodeId)) {
+                    // the shard is allocated on this node, listings read the metadata from its store from now on
+                    it.remove();
+                    break;
+                }
+            }
+        }
     }
 
     @Override
     public void list(ShardId shardId, IndexMetaData indexMetaData, String[] nodesIds, ActionListener<NodesStoreFilesMetaData> listener) {
-        execute(new Request(shardId, false, nodesIds), listener);
+        executeBatched(new Request(shardId, false, nodesIds), listener);
     }
 
     @Override
@@ -156,6 +200,7 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
             if (indexService != null) {
                 IndexShard indexShard = indexService.getShardOrNull(shardId.id());
                 if (indexShard != null) {
+                    unallocatedMetaData.remove(shardId);
                     final Store store = indexShard.store();
                     store.incRef();
                     try {
@@ -168,6 +213,7 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
             }
             // try and see if we an list unallocated
             IndexMetaData metaData = clusterService.state().metaData().index(shardId.index().name());
+            final Store.MetadataSnapshot previous = unallocatedMetaData.remove(shardId);
             if (metaData == null) {
                 return new StoreFilesMetaData(false, shardId, Store.MetadataSnapshot.EMPTY);
             }
@@ -180,7 +226,11 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
             if (shardPath == null) {
                 return new StoreFilesMetaData(false, shardId, Store.MetadataSnapshot.EMPTY);
             }
-            return new StoreFilesMetaData(false, shardId, Store.readMetadataSnapshot(shardPath.resolveIndex(), logger));
+            final Store.MetadataSnapshot metadataSnapshot = Store.readMetadataSnapshot(shardPath.resolveIndex(), logger, previous);
+            if (metadataSnapshot != Store.MetadataSnapshot.EMPTY) {
+                unallocatedMetaData.put(shardId, metadataSnapshot);
+            }
+            return new StoreFilesMetaData(false, shardId, metadataSnapshot);
         } finally {
             TimeValue took = new TimeValue(System.nanoTime() - startTimeNS, TimeUnit.NANOSECONDS);
             if (exists) {
@@ -219,6 +269,10 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
             return this.shardId;
         }
 
+        public Store.MetadataSnapshot metadataSnapshot() {
+            return this.metadataSnapshot;
+        }
+
         @Override
         public Iterator<StoreFileMetaData> iterator() {
             return metadataSnapshot.iterator();
@@ -82,7 +82,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  */
@@ -109,6 +108,8 @@ public class PercolateContext extends SearchContext {
     private String[] types;
 
     private Engine.Searcher docSearcher;
+    private Map<BytesRef, Query> candidateQueries;
+    private long verifiedQueries;
     private Engine.Searcher engineSearcher;
     private ContextIndexSearcher searcher;
 
@@ -177,10 +178,40 @@ public class PercolateContext extends SearchContext {
         return indexService;
     }
 
-    public ConcurrentMap<BytesRef, Query> percolateQueries() {
+    public Map<BytesRef, Query> percolateQueries() {
         return percolateQueryRegistry.percolateQueries();
     }
 
+    /**
+     * @return the registered queries that may match the percolated document, or all of them if candidates have not
+     * been selected
+     */
+    public Map<BytesRef, Query> candidateQueries() {
+        return candidateQueries == null ? percolateQueries() : candidateQueries;
+    }
+
+    public void candidateQueries(Map<BytesRef, Query> candidateQueries) {
+        this.candidateQueries = candidateQueries;
+    }
+
+    /**
+     * @return the number of candidate queries, or {@code 0} if candidates have not been selected
+     */
+    public long numCandidateQueries() {
+        return candidateQueries == null ? 0 : candidateQueries.size();
+    }
+
+    /**
+     * @return the number of queries that have been verified against the percolated document
+     */
+    public long verifiedQueries() {
+        return verifiedQueries;
+    }
+
+    public void onVerifiedQuery() {
+        verifiedQueries++;
+    }
+
     public Query percolateQuery() {
         return percolateQuery;
     }
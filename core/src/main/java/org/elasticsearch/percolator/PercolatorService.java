@@ -19,20 +19,33 @@
 package org.elasticsearch.percolator;
 
 import com.carrotsearch.hppc.IntObjectHashMap;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SlowCompositeReaderWrapper;
 import org.apache.lucene.index.memory.ExtendedMemoryIndex;
 import org.apache.lucene.index.memory.MemoryIndex;
+import org.apache.lucene.queries.CommonTermsQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiTermQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SimpleCollector;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopTermsRewrite;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.CloseableThreadLocal;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.action.percolate.PercolateResponse;
 import org.elasticsearch.action.percolate.PercolateShardRequest;
@@ -49,7 +62,11 @@ import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.search.MoreLikeThisQuery;
+import org.elasticsearch.common.lucene.search.MultiPhrasePrefixQuery;
 import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.common.lucene.search.function.FiltersFunctionScoreQuery;
+import org.elasticsearch.common.lucene.search.function.FunctionScoreQuery;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.unit.ByteSizeUnit;
@@ -73,6 +90,7 @@ import org.elasticsearch.index.percolator.PercolatorQueriesRegistry;
 import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.percolator.QueryCollector.Count;
 import org.elasticsearch.percolator.QueryCollector.Match;
@@ -93,6 +111,7 @@ import org.elasticsearch.search.sort.SortParseElement;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -107,6 +126,11 @@ public class PercolatorService extends AbstractComponent {
 
     public final static float NO_SCORE = Float.NEGATIVE_INFINITY;
     public final static String TYPE_NAME = ".percolator";
+    /**
+     * The maximum number of documents of a multi percolate request that are percolated together on a shard, batching
+     * is disabled if this is less than 2.
+     */
+    public final static String BATCH_SIZE = "indices.percolator.batch_size";
 
     private final IndexNameExpressionResolver indexNameExpressionResolver;
     private final IndicesService indicesService;
@@ -127,6 +151,7 @@ public class PercolatorService extends AbstractComponent {
     private final CloseableThreadLocal<MemoryIndex> cache;
 
     private final ParseFieldMatcher parseFieldMatcher;
+    private final int batchSize;
 
     @Inject
     public PercolatorService(Settings settings, IndexNameExpressionResolver indexNameExpressionResolver, IndicesService indicesService,
@@ -146,6 +171,7 @@ public class PercolatorService extends AbstractComponent {
         this.scriptService = scriptService;
         this.mappingUpdatedAction = mappingUpdatedAction;
         this.sortParseElement = new SortParseElement();
+        this.batchSize = settings.getAsInt(BATCH_SIZE, 64);
 
         final long maxReuseBytes = settings.getAsBytesSize("indices.memory.memory_index.size_per_thread", new ByteSizeValue(1, ByteSizeUnit.MB)).bytes();
         cache = new CloseableThreadLocal<MemoryIndex>() {
@@ -180,7 +206,94 @@ public class PercolatorService extends AbstractComponent {
         PercolatorQueriesRegistry percolateQueryRegistry = indexShard.percolateRegistry();
         percolateQueryRegistry.prePercolate();
         long startTime = System.nanoTime();
+        final PercolateContext context = createContext(request, percolateIndexService, indexShard);
+        SearchContext.setCurrent(context);
+        try {
+            ParsedDocument parsedDocument = parseRequestAndDocument(request, context, percolateIndexService, indexShard);
+            if (parsedDocument == null) {
+                return new PercolateShardResponse(context, request.shardId());
+            }
+            return doPercolate(request, context, parsedDocument, indexShard);
+        } finally {
+            SearchContext.removeCurrent();
+            context.close();
+            percolateQueryRegistry.onCandidateQueries(context.numCandidateQueries(), context.verifiedQueries());
+            percolateQueryRegistry.postPercolate(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Percolates the documents of several requests that target the same shard. The documents of requests that only
+     * need the ids or the number of matching queries, and that have no nested documents, are indexed together in
+     * batches of up to {@link #BATCH_SIZE} documents so that each candidate query is verified once per batch rather
+     * than once per document. Other requests are percolated one by one.
+     *
+     * @param failures filled with the failure of each request that failed, whose response is {@code null}
+     * @return the response of each request
+     */
+    public PercolateShardResponse[] percolate(List<PercolateShardRequest> requests, Throwable[] failures) {
+        assert requests.size() == failures.length;
+        if (requests.isEmpty()) {
+            return new PercolateShardResponse[0];
+        }
+        final ShardId shardId = requests.get(0).shardId();
+        IndexService percolateIndexService = indicesService.indexServiceSafe(shardId.getIndex());
+        IndexShard indexShard = percolateIndexService.getShard(shardId.id());
+        indexShard.readAllowed(); // check if we can read the shard...
+        PercolatorQueriesRegistry percolateQueryRegistry = indexShard.percolateRegistry();
+
+        PercolateShardResponse[] responses = new PercolateShardResponse[requests.size()];
+        List<BatchItem> batch = new ArrayList<>();
+        try {
+            for (int slot = 0; slot < requests.size(); slot++) {
+                final PercolateShardRequest request = requests.get(slot);
+                assert shardId.equals(request.shardId());
+                percolateQueryRegistry.prePercolate();
+                long startTime = System.nanoTime();
+                PercolateContext context = null;
+                boolean batched = false;
+                try {
+                    context = createContext(request, percolateIndexService, indexShard);
+                    SearchContext.setCurrent(context);
+                    ParsedDocument parsedDocument = parseRequestAndDocument(request, context, percolateIndexService, indexShard);
+                    if (parsedDocument == null) {
+                        responses[slot] = new PercolateShardResponse(context, shardId);
+                    } else if (batchSize > 1 && canBatch(context, parsedDocument)) {
+                        batch.add(new BatchItem(slot, request, context, parsedDocument, System.nanoTime() - startTime));
+                        batched = true;
+                        if (batch.size() >= batchSize) {
+                            percolateBatch(batch, percolateQueryRegistry, responses, failures);
+                        }
+                    } else {
+                        responses[slot] = doPercolate(request, context, parsedDocument, indexShard);
+                    }
+                } catch (Throwable t) {
+                    failures[slot] = t;
+                } finally {
+                    SearchContext.removeCurrent();
+                    if (batched == false) {
+                        if (context != null) {
+                            context.close();
+                            percolateQueryRegistry.onCandidateQueries(context.numCandidateQueries(), context.verifiedQueries());
+                        }
+                        percolateQueryRegistry.postPercolate(System.nanoTime() - startTime);
+                    }
+                }
+            }
+            if (batch.isEmpty() == false) {
+                percolateBatch(batch, percolateQueryRegistry, responses, failures);
+            }
+        } finally {
+            // only not empty if percolating a batch failed unexpectedly
+            for (BatchItem item : batch) {
+                item.context.close();
+                percolateQueryRegistry.postPercolate(item.prepareNanos);
+            }
+        }
+        return responses;
+    }
 
+    private PercolateContext createContext(PercolateShardRequest request, IndexService percolateIndexService, IndexShard indexShard) {
         // TODO: The filteringAliases should be looked up at the coordinating node and serialized with all shard request,
         // just like is done in other apis.
         String[] filteringAliases = indexNameExpressionResolver.filteringAliases(
@@ -191,68 +304,279 @@ public class PercolatorService extends AbstractComponent {
         Query aliasFilter = percolateIndexService.aliasFilter(indexShard.getQueryShardContext(), filteringAliases);
 
         SearchShardTarget searchShardTarget = new SearchShardTarget(clusterService.localNode().id(), request.shardId().getIndex(), request.shardId().id());
-        final PercolateContext context = new PercolateContext(
+        return new PercolateContext(
                 request, searchShardTarget, indexShard, percolateIndexService, pageCacheRecycler, bigArrays, scriptService, aliasFilter, parseFieldMatcher
         );
-        SearchContext.setCurrent(context);
-        try {
-            ParsedDocument parsedDocument = parseRequest(indexShard, request, context, request.shardId().getIndex());
-            if (context.percolateQueries().isEmpty()) {
-                return new PercolateShardResponse(context, request.shardId());
-            }
+    }
 
-            if (request.docSource() != null && request.docSource().length() != 0) {
-                parsedDocument = parseFetchedDoc(context, request.docSource(), percolateIndexService, request.shardId().getIndex(), request.documentType());
-            } else if (parsedDocument == null) {
-                throw new IllegalArgumentException("Nothing to percolate");
-            }
+    /**
+     * Parses the request and the document to percolate, returns {@code null} if there are no queries to percolate.
+     */
+    private ParsedDocument parseRequestAndDocument(PercolateShardRequest request, PercolateContext context,
+                                                   IndexService percolateIndexService, IndexShard indexShard) {
+        ParsedDocument parsedDocument = parseRequest(indexShard, request, context, request.shardId().getIndex());
+        if (context.percolateQueries().isEmpty()) {
+            return null;
+        }
 
-            if (context.percolateQuery() == null && (context.trackScores() || context.doSort || context.aggregations() != null) || context.aliasFilter() != null) {
-                context.percolateQuery(new MatchAllDocsQuery());
-            }
+        if (request.docSource() != null && request.docSource().length() != 0) {
+            parsedDocument = parseFetchedDoc(context, request.docSource(), percolateIndexService, request.shardId().getIndex(), request.documentType());
+        } else if (parsedDocument == null) {
+            throw new IllegalArgumentException("Nothing to percolate");
+        }
+        return parsedDocument;
+    }
 
-            if (context.doSort && !context.limit) {
-                throw new IllegalArgumentException("Can't sort if size isn't specified");
-            }
+    private PercolateShardResponse doPercolate(PercolateShardRequest request, PercolateContext context, ParsedDocument parsedDocument,
+                                               IndexShard indexShard) {
+        if (context.percolateQuery() == null && (context.trackScores() || context.doSort || context.aggregations() != null) || context.aliasFilter() != null) {
+            context.percolateQuery(new MatchAllDocsQuery());
+        }
 
-            if (context.highlight() != null && !context.limit) {
-                throw new IllegalArgumentException("Can't highlight if size isn't specified");
-            }
+        if (context.doSort && !context.limit) {
+            throw new IllegalArgumentException("Can't sort if size isn't specified");
+        }
 
-            if (context.size() < 0) {
-                context.size(0);
-            }
+        if (context.highlight() != null && !context.limit) {
+            throw new IllegalArgumentException("Can't highlight if size isn't specified");
+        }
+
+        if (context.size() < 0) {
+            context.size(0);
+        }
 
-            // parse the source either into one MemoryIndex, if it is a single document or index multiple docs if nested
-            PercolatorIndex percolatorIndex;
-            boolean isNested = indexShard.mapperService().documentMapper(request.documentType()).hasNestedObjects();
-            if (parsedDocument.docs().size() > 1) {
-                assert isNested;
-                percolatorIndex = multi;
+        // parse the source either into one MemoryIndex, if it is a single document or index multiple docs if nested
+        PercolatorIndex percolatorIndex;
+        boolean isNested = indexShard.mapperService().documentMapper(request.documentType()).hasNestedObjects();
+        if (parsedDocument.docs().size() > 1) {
+            assert isNested;
+            percolatorIndex = multi;
+        } else {
+            percolatorIndex = single;
+        }
+
+        PercolatorType action;
+        if (request.onlyCount()) {
+            action = context.percolateQuery() != null ? queryCountPercolator : countPercolator;
+        } else {
+            if (context.doSort) {
+                action = topMatchingPercolator;
+            } else if (context.percolateQuery() != null) {
+                action = context.trackScores() ? scoringPercolator : queryPercolator;
             } else {
-                percolatorIndex = single;
+                action = matchPercolator;
             }
+        }
+        context.percolatorTypeId = action.id();
 
-            PercolatorType action;
-            if (request.onlyCount()) {
-                action = context.percolateQuery() != null ? queryCountPercolator : countPercolator;
-            } else {
-                if (context.doSort) {
-                    action = topMatchingPercolator;
-                } else if (context.percolateQuery() != null) {
-                    action = context.trackScores() ? scoringPercolator : queryPercolator;
+        percolatorIndex.prepare(context, parsedDocument);
+        try {
+            context.candidateQueries(indexShard.percolateRegistry().candidateQueries(context.docSearcher().getIndexReader()));
+        } catch (IOException e) {
+            throw new PercolateException(indexShard.shardId(), "failed to select candidate queries", e);
+        }
+        return action.doPercolate(request, context, isNested);
+    }
+
+    /**
+     * Whether the document of a request may be percolated in a batch, which is the case if all queries are verified
+     * against the document, and only their ids or their number are needed.
+     */
+    private static boolean canBatch(PercolateContext context, ParsedDocument parsedDocument) {
+        return parsedDocument.docs().size() == 1
+                && context.percolateQuery() == null
+                && context.aliasFilter() == null
+                && context.trackScores() == false
+                && context.doSort == false
+                && context.aggregations() == null
+                && context.highlight() == null;
+    }
+
+    /**
+     * Indexes the documents of a batch into one in-memory index and verifies each candidate query once against all
+     * documents, the documents that a query matches are collected in a bit set and the query is added to their matches.
+     * Queries whose matches depend on term statistics, which differ between the batch and a single document, and queries
+     * that fail on the batch are verified against each document on its own instead. A failure only fails the document
+     * that it occurred for.
+     */
+    private void percolateBatch(List<BatchItem> batch, PercolatorQueriesRegistry percolateQueryRegistry,
+                                PercolateShardResponse[] responses, Throwable[] failures) {
+        final long startTime = System.nanoTime();
+        final List<BatchItem> items = new ArrayList<>(batch.size());
+        final List<IndexReader> memoryIndices = new ArrayList<>(batch.size());
+        long numCandidateQueries = 0;
+        long numVerifications = 0;
+        try {
+            for (BatchItem item : batch) {
+                try {
+                    if (item.context.size() < 0) {
+                        item.context.size(0);
+                    }
+                    Analyzer analyzer = item.context.mapperService().documentMapper(item.parsedDocument.type()).mappers().indexAnalyzer();
+                    memoryIndices.add(MultiDocumentPercolatorIndex.indexDoc(item.parsedDocument.rootDoc(), analyzer, new MemoryIndex())
+                            .createSearcher().getIndexReader());
+                    items.add(item);
+                } catch (Throwable t) {
+                    failures[item.slot] = t;
+                }
+            }
+            final int numDocs = items.size();
+            if (numDocs == 0) {
+                return;
+            }
+            final long[] counts = new long[numDocs];
+            @SuppressWarnings("unchecked")
+            final List<BytesRef>[] matches = new List[numDocs];
+            for (int i = 0; i < numDocs; i++) {
+                matches[i] = new ArrayList<>();
+            }
+            try (IndexReader reader = new MultiReader(memoryIndices.toArray(new IndexReader[numDocs]), true)) {
+                // docs of the batch are numbered in the order of the batch
+                final IndexSearcher searcher = new IndexSearcher(SlowCompositeReaderWrapper.wrap(reader));
+                searcher.setQueryCache(null);
+                final Map<BytesRef, Query> candidateQueries = percolateQueryRegistry.candidateQueries(reader);
+                numCandidateQueries = candidateQueries.size();
+                final FixedBitSet matchingDocs = new FixedBitSet(numDocs);
+                for (Map.Entry<BytesRef, Query> entry : candidateQueries.entrySet()) {
+                    matchingDocs.clear(0, numDocs);
+                    boolean verified = false;
+                    if (dependsOnStatistics(entry.getValue()) == false) {
+                        try {
+                            searcher.search(entry.getValue(), new SimpleCollector() {
+                                @Override
+                                public void collect(int doc) throws IOException {
+                                    matchingDocs.set(doc);
+                                }
+
+                                @Override
+                                public boolean needsScores() {
+                                    return false;
+                                }
+                            });
+                            numVerifications++;
+                            verified = true;
+                        } catch (Throwable e) {
+                            logger.debug("[" + entry.getKey() + "] failed to execute query on a batch, verifying each document", e);
+                            matchingDocs.clear(0, numDocs);
+                        }
+                    }
+                    if (verified == false) {
+                        for (int doc = 0; doc < numDocs; doc++) {
+                            final BatchItem item = items.get(doc);
+                            if (failures[item.slot] != null) {
+                                continue;
+                            }
+                            final IndexSearcher docSearcher = new IndexSearcher(memoryIndices.get(doc));
+                            docSearcher.setQueryCache(null);
+                            try {
+                                if (Lucene.exists(docSearcher, entry.getValue())) {
+                                    matchingDocs.set(doc);
+                                }
+                            } catch (Throwable e) {
+                                logger.debug("[" + entry.getKey() + "] failed to execute query", e);
+                                failures[item.slot] = new PercolateException(item.request.shardId(), "failed to execute", e);
+                            }
+                            numVerifications++;
+                        }
+                    }
+                    for (int doc = matchingDocs.nextSetBit(0); doc != DocIdSetIterator.NO_MORE_DOCS;
+                         doc = doc + 1 < numDocs ? matchingDocs.nextSetBit(doc + 1) : DocIdSetIterator.NO_MORE_DOCS) {
+                        final PercolateContext context = items.get(doc).context;
+                        if (items.get(doc).request.onlyCount() == false && (!context.limit || counts[doc] < context.size())) {
+                            matches[doc].add(entry.getKey());
+                        }
+                        counts[doc]++;
+                    }
+                }
+            }
+            for (int i = 0; i < numDocs; i++) {
+                BatchItem item = items.get(i);
+                if (failures[item.slot] != null) {
+                    continue;
+                }
+                if (item.request.onlyCount()) {
+                    item.context.percolatorTypeId = countPercolator.id();
+                    responses[item.slot] = new PercolateShardResponse(counts[i], item.context, item.request.shardId());
                 } else {
-                    action = matchPercolator;
+                    item.context.percolatorTypeId = matchPercolator.id();
+                    BytesRef[] finalMatches = matches[i].toArray(new BytesRef[matches[i].size()]);
+                    responses[item.slot] = new PercolateShardResponse(finalMatches, Collections.emptyList(), counts[i], item.context,
+                            item.request.shardId());
+                }
+            }
+        } catch (Throwable t) {
+            for (BatchItem item : batch) {
+                if (failures[item.slot] == null) {
+                    failures[item.slot] = t;
                 }
             }
-            context.percolatorTypeId = action.id();
-
-            percolatorIndex.prepare(context, parsedDocument);
-            return action.doPercolate(request, context, isNested);
         } finally {
-            SearchContext.removeCurrent();
-            context.close();
-            percolateQueryRegistry.postPercolate(System.nanoTime() - startTime);
+            percolateQueryRegistry.onCandidateQueries(numCandidateQueries, numVerifications);
+            final long batchNanos = System.nanoTime() - startTime;
+            for (BatchItem item : batch) {
+                item.context.close();
+                percolateQueryRegistry.postPercolate(item.prepareNanos + batchNanos / batch.size());
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Whether the documents that a query matches depend on term statistics or scores, such queries may match a document
+     * on its own but not as part of a batch, or the other way around. This includes queries that only keep the top terms
+     * of the reader they are rewritten against, since the terms of other documents of a batch can push out the terms of
+     * a document.
+     */
+    private static boolean dependsOnStatistics(Query query) {
+        if (query instanceof CommonTermsQuery || query instanceof MoreLikeThisQuery || query instanceof MultiPhrasePrefixQuery) {
+            return true;
+        } else if (query instanceof MultiTermQuery) {
+            return ((MultiTermQuery) query).getRewriteMethod() instanceof TopTermsRewrite;
+        } else if (query instanceof FunctionScoreQuery) {
+            FunctionScoreQuery functionScoreQuery = (FunctionScoreQuery) query;
+            return functionScoreQuery.getMinScore() != null || dependsOnStatistics(functionScoreQuery.getSubQuery());
+        } else if (query instanceof FiltersFunctionScoreQuery) {
+            FiltersFunctionScoreQuery functionScoreQuery = (FiltersFunctionScoreQuery) query;
+            return functionScoreQuery.getMinScore() != null || dependsOnStatistics(functionScoreQuery.getSubQuery());
+        } else if (query instanceof BooleanQuery) {
+            for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+                if (dependsOnStatistics(clause.getQuery())) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (query instanceof DisjunctionMaxQuery) {
+            for (Query disjunct : ((DisjunctionMaxQuery) query).getDisjuncts()) {
+                if (dependsOnStatistics(disjunct)) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (query instanceof ConstantScoreQuery) {
+            return dependsOnStatistics(((ConstantScoreQuery) query).getQuery());
+        } else if (query instanceof BoostQuery) {
+            return dependsOnStatistics(((BoostQuery) query).getQuery());
+        }
+        return false;
+    }
+
+    /**
+     * A request whose document has been parsed and waits to be percolated as part of a batch.
+     */
+    private static final class BatchItem {
+
+        private final int slot;
+        private final PercolateShardRequest request;
+        private final PercolateContext context;
+        private final ParsedDocument parsedDocument;
+        private final long prepareNanos;
+
+        BatchItem(int slot, PercolateShardRequest request, PercolateContext context, ParsedDocument parsedDocument, long prepareNanos) {
+            this.slot = slot;
+            this.request = request;
+            this.context = context;
+            this.parsedDocument = parsedDocument;
+            this.prepareNanos = prepareNanos;
         }
     }
 
@@ -457,7 +781,7 @@ public class PercolatorService extends AbstractComponent {
         @Override
         public PercolateShardResponse doPercolate(PercolateShardRequest request, PercolateContext context, boolean isNested) {
             long count = 0;
-            for (Map.Entry<BytesRef, Query> entry : context.percolateQueries().entrySet()) {
+            for (Map.Entry<BytesRef, Query> entry : context.candidateQueries().entrySet()) {
                 try {
                     Query existsQuery = entry.getValue();
                     if (isNested) {
@@ -466,6 +790,7 @@ public class PercolatorService extends AbstractComponent {
                             .add(Queries.newNonNestedFilter(), Occur.FILTER)
                             .build();
                     }
+                    context.onVerifiedQuery();
                     if (Lucene.exists(context.docSearcher(), existsQuery)) {
                         count ++;
                     }
@@ -553,7 +878,7 @@ public class PercolatorService extends AbstractComponent {
             List<BytesRef> matches = new ArrayList<>();
             List<Map<String, HighlightField>> hls = new ArrayList<>();
 
-            for (Map.Entry<BytesRef, Query> entry : context.percolateQueries().entrySet()) {
+            for (Map.Entry<BytesRef, Query> entry : context.candidateQueries().entrySet()) {
                 if (context.highlight() != null) {
                     context.parsedQuery(new ParsedQuery(entry.getValue()));
                     context.hitContext().cache().clear();
@@ -566,6 +891,7 @@ public class PercolatorService extends AbstractComponent {
                             .add(Queries.newNonNestedFilter(), Occur.FILTER)
                             .build();
                     }
+                    context.onVerifiedQuery();
                     if (Lucene.exists(context.docSearcher(), existsQuery)) {
                         if (!context.limit || count < context.size()) {
                             matches.add(entry.getKey());
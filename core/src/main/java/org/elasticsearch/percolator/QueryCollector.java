@@ -50,7 +50,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  */
@@ -58,7 +57,8 @@ abstract class QueryCollector extends SimpleCollector {
 
     final IndexFieldData<?> uidFieldData;
     final IndexSearcher searcher;
-    final ConcurrentMap<BytesRef, Query> queries;
+    final PercolateContext percolateContext;
+    final Map<BytesRef, Query> queries;
     final ESLogger logger;
     boolean isNestedDoc = false;
 
@@ -71,7 +71,8 @@ abstract class QueryCollector extends SimpleCollector {
 
     QueryCollector(ESLogger logger, PercolateContext context, boolean isNestedDoc) throws IOException {
         this.logger = logger;
-        this.queries = context.percolateQueries();
+        this.percolateContext = context;
+        this.queries = context.candidateQueries();
         this.searcher = context.docSearcher();
         final MappedFieldType uidMapper = context.mapperService().fullName(UidFieldMapper.NAME);
         this.uidFieldData = context.fieldData().getForField(uidMapper);
@@ -142,7 +143,12 @@ abstract class QueryCollector extends SimpleCollector {
         }
         assert numValues == 1;
         current = Uid.splitUidIntoTypeAndId(values.valueAt(0))[1];
-        return queries.get(current);
+        // null if the query can't match the percolated document because it doesn't have the terms that it requires
+        final Query query = queries.get(current);
+        if (query != null) {
+            percolateContext.onVerifiedQuery();
+        }
+        return query;
     }
 
 
@@ -97,6 +97,8 @@ import java.util.Map;
  *      |  |  |- __4 |
  *      |  |  |- __5 /
  *      |  |  .....
+ *      |  |  |- chunk-3f7a... - content-defined chunk of files, named after the hash of its content, if dedup is enabled
+ *      |  |  .....
  *      |  |  |- snap-20131010.dat - JSON serialized BlobStoreIndexShardSnapshot for snapshot "20131010"
  *      |  |  |- snap-20131011.dat - JSON serialized BlobStoreIndexShardSnapshot for snapshot "20131011"
  *      |  |  |- list-123 - JSON serialized BlobStoreIndexShardSnapshot for snapshot "20131011"
@@ -170,6 +172,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
 
     private final boolean readOnly;
 
+    private final ByteSizeValue dedupChunkSize;
+
     /**
      * Constructs new BlobStoreRepository
      *
@@ -184,6 +188,11 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
         snapshotRateLimiter = getRateLimiter(repositorySettings, "max_snapshot_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         restoreRateLimiter = getRateLimiter(repositorySettings, "max_restore_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         readOnly = repositorySettings.settings().getAsBoolean("readonly", false);
+        if (repositorySettings.settings().getAsBoolean("dedup", false)) {
+            dedupChunkSize = repositorySettings.settings().getAsBytesSize("dedup_chunk_size", new ByteSizeValue(1, ByteSizeUnit.MB));
+        } else {
+            dedupChunkSize = null;
+        }
     }
 
     /**
@@ -192,7 +201,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
     @Override
     protected void doStart() {
         this.snapshotsBlobContainer = blobStore().blobContainer(basePath());
-        indexShardRepository.initialize(blobStore(), basePath(), chunkSize(), snapshotRateLimiter, restoreRateLimiter, this, isCompress());
+        indexShardRepository.initialize(blobStore(), basePath(), chunkSize(), snapshotRateLimiter, restoreRateLimiter, this, isCompress(),
+                dedupChunkSize);
 
         ParseFieldMatcher parseFieldMatcher = new ParseFieldMatcher(settings);
         globalMetaDataFormat = new ChecksumBlobStoreFormat<>(METADATA_CODEC, METADATA_NAME_FORMAT, MetaData.PROTO, parseFieldMatcher, isCompress());
@@ -217,6 +217,18 @@ public class RestSearchAction extends BaseRestHandler {
                 }
             }
         }
+        String sDocValueFields = request.param("docvalue_fields");
+        if (sDocValueFields != null) {
+            if (Strings.hasText(sDocValueFields)) {
+                String[] sFields = Strings.splitStringByCommaToArray(sDocValueFields);
+                if (sFields != null) {
+                    for (String field : sFields) {
+                        searchSourceBuilder.docValueField(field);
+                        modified = true;
+                    }
+                }
+            }
+        }
         FetchSourceContext fetchSourceContext = FetchSourceContext.parseFromRestRequest(request);
         if (fetchSourceContext != null) {
             searchSourceBuilder.fetchSource(fetchSourceContext);
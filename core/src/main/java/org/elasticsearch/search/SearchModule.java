@@ -136,6 +136,7 @@ import org.elasticsearch.search.dfs.DfsPhase;
 import org.elasticsearch.search.fetch.FetchPhase;
 import org.elasticsearch.search.fetch.FetchSubPhase;
 import org.elasticsearch.search.fetch.explain.ExplainFetchSubPhase;
+import org.elasticsearch.search.fetch.docvalues.DocValueFieldsFetchSubPhase;
 import org.elasticsearch.search.fetch.fielddata.FieldDataFieldsFetchSubPhase;
 import org.elasticsearch.search.fetch.innerhits.InnerHitsFetchSubPhase;
 import org.elasticsearch.search.fetch.matchedqueries.MatchedQueriesFetchSubPhase;
@@ -220,6 +221,7 @@ public class SearchModule extends AbstractModule {
         Multibinder<FetchSubPhase> fetchSubPhaseMultibinder = Multibinder.newSetBinder(binder(), FetchSubPhase.class);
         fetchSubPhaseMultibinder.addBinding().to(ExplainFetchSubPhase.class);
         fetchSubPhaseMultibinder.addBinding().to(FieldDataFieldsFetchSubPhase.class);
+        fetchSubPhaseMultibinder.addBinding().to(DocValueFieldsFetchSubPhase.class);
         fetchSubPhaseMultibinder.addBinding().to(ScriptFieldsFetchSubPhase.class);
         fetchSubPhaseMultibinder.addBinding().to(FetchSourceSubPhase.class);
         fetchSubPhaseMultibinder.addBinding().to(VersionFetchSubPhase.class);
@@ -41,6 +41,8 @@ import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
@@ -68,6 +70,7 @@ import org.elasticsearch.index.search.stats.ShardSearchStats;
 import org.elasticsearch.index.search.stats.StatsGroupsParseElement;
 import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.store.StoreStats;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.IndicesWarmer;
 import org.elasticsearch.indices.IndicesWarmer.TerminationHandle;
@@ -86,6 +89,8 @@ import org.elasticsearch.search.fetch.ScrollQueryFetchSearchResult;
 import org.elasticsearch.search.fetch.ShardFetchRequest;
 import org.elasticsearch.search.fetch.fielddata.FieldDataFieldsContext;
 import org.elasticsearch.search.fetch.fielddata.FieldDataFieldsContext.FieldDataField;
+import org.elasticsearch.search.fetch.docvalues.DocValueFieldsContext;
+import org.elasticsearch.search.fetch.docvalues.DocValueFieldsFetchSubPhase;
 import org.elasticsearch.search.fetch.fielddata.FieldDataFieldsFetchSubPhase;
 import org.elasticsearch.search.fetch.script.ScriptFieldsContext.ScriptField;
 import org.elasticsearch.search.highlight.HighlightBuilder;
@@ -128,6 +133,15 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
     public static final String DEFAULT_KEEPALIVE_KEY = "search.default_keep_alive";
     public static final String KEEPALIVE_INTERVAL_KEY = "search.keep_alive_interval";
 
+    /** the number of hits that are returned when the request doesn't specify a size */
+    public static final int DEFAULT_SIZE = 10;
+
+    /**
+     * The maximum estimated size of the top hits that a shard fetches speculatively for a query then fetch search. Shards
+     * whose top hits are estimated to be larger keep their search context and leave them for a separate fetch phase.
+     */
+    public static final String SPECULATIVE_FETCH_MAX_BYTES_KEY = "search.speculative_fetch.max_bytes";
+
     public static final TimeValue NO_TIMEOUT = timeValueMillis(-1);
     public static final Setting<TimeValue> DEFAULT_SEARCH_TIMEOUT_SETTING = Setting.timeSetting("search.default_search_timeout", NO_TIMEOUT, true, Setting.Scope.CLUSTER);
 
@@ -156,6 +170,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
     private final long defaultKeepAlive;
 
+    private final long speculativeFetchMaxBytes;
+
     private volatile TimeValue defaultSearchTimeout;
 
     private final ScheduledFuture<?> keepAliveReaper;
@@ -189,6 +205,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         TimeValue keepAliveInterval = settings.getAsTime(KEEPALIVE_INTERVAL_KEY, timeValueMinutes(1));
         // we can have 5 minutes here, since we make sure to clean with search requests and when shard/index closes
         this.defaultKeepAlive = settings.getAsTime(DEFAULT_KEEPALIVE_KEY, timeValueMinutes(5)).millis();
+        this.speculativeFetchMaxBytes = settings.getAsBytesSize(SPECULATIVE_FETCH_MAX_BYTES_KEY, new ByteSizeValue(1, ByteSizeUnit.MB)).bytes();
 
         Map<String, SearchParseElement> elementParsers = new HashMap<>();
         elementParsers.putAll(dfsPhase.parseElements());
@@ -393,6 +410,11 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             }
             long time2 = System.nanoTime();
             shardSearchStats.onQueryPhase(context, time2 - time);
+            if (request.searchType() == SearchType.QUERY_THEN_FETCH && exceedsSpeculativeFetchMaxBytes(context)) {
+                // the top hits were requested speculatively but are too large, keep the context for a separate fetch phase
+                contextProcessedSuccessfully(context);
+                return new QueryFetchSearchResult(context.queryResult(), null);
+            }
             shardSearchStats.onPreFetchPhase(context);
             try {
                 shortcutDocIdsToLoad(context);
@@ -417,6 +439,25 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
+    /**
+     * Estimates the size of the top hits of a shard from the average size of its documents on disk. This overestimates
+     * the size of the stored fields, since the store also holds the index structures, which errs on the side of a
+     * separate fetch phase.
+     */
+    private boolean exceedsSpeculativeFetchMaxBytes(SearchContext context) {
+        final TopDocs topDocs = context.queryResult().topDocs();
+        final int maxDoc = context.searcher().getIndexReader().maxDoc();
+        if (topDocs == null || topDocs.scoreDocs.length == 0 || maxDoc == 0) {
+            return false;
+        }
+        final StoreStats storeStats = context.indexShard().storeStats();
+        if (storeStats == null) {
+            return false;
+        }
+        final long averageDocBytes = storeStats.getSizeInBytes() / maxDoc;
+        return averageDocBytes * topDocs.scoreDocs.length > speculativeFetchMaxBytes;
+    }
+
     public QueryFetchSearchResult executeFetchPhase(QuerySearchRequest request) {
         final SearchContext context = findContext(request.id());
         contextProcessing(context);
@@ -586,7 +627,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
                 context.from(0);
             }
             if (context.size() == -1) {
-                context.size(10);
+                context.size(DEFAULT_SIZE);
             }
 
             // pre process
@@ -821,6 +862,13 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             }
             fieldDataFieldsContext.setHitExecutionNeeded(true);
         }
+        if (source.docValueFields() != null) {
+            DocValueFieldsContext docValueFieldsContext = context.getFetchSubPhaseContext(DocValueFieldsFetchSubPhase.CONTEXT_FACTORY);
+            for (String field : source.docValueFields()) {
+                docValueFieldsContext.add(field);
+            }
+            docValueFieldsContext.setHitExecutionNeeded(true);
+        }
         if (source.highlighter() != null) {
             HighlightBuilder highlightBuilder = source.highlighter();
             try {
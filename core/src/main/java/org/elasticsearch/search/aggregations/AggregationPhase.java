@@ -18,14 +18,26 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.BoundedTaskExecutor;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.indices.cache.request.IndicesRequestCache;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.pipeline.SiblingPipelineAggregator;
@@ -34,6 +46,7 @@ import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.CollectorResult;
 import org.elasticsearch.search.profile.InternalProfileCollector;
 import org.elasticsearch.search.query.QueryPhaseExecutionException;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -48,10 +61,21 @@ import static java.util.Collections.unmodifiableMap;
  *
  */
 public class AggregationPhase implements SearchPhase {
+
+    /** The maximum number of slices that a shard's segments are split into to collect aggregations concurrently, 1 to disable. */
+    public static final String CONCURRENT_SLICES_KEY = "search.aggs.concurrent_collection.slices";
+    /** The maximum number of search threads that all concurrent collections may use on top of the threads that run searches. */
+    public static final String CONCURRENT_MAX_THREADS_KEY = "search.aggs.concurrent_collection.max_threads";
+
     private final Map<String, SearchParseElement> parseElements;
+    private final int concurrentSlices;
+    private final BoundedTaskExecutor concurrentExecutor;
+    private final BoundedTaskExecutor sequentialExecutor;
+    private final IndicesRequestCache requestCache;
 
     @Inject
-    public AggregationPhase(AggregationParseElement parseElement, AggregationBinaryParseElement binaryParseElement) {
+    public AggregationPhase(Settings settings, ThreadPool threadPool, IndicesRequestCache requestCache,
+            AggregationParseElement parseElement, AggregationBinaryParseElement binaryParseElement) {
         Map<String, SearchParseElement> parseElements = new HashMap<>();
         parseElements.put("aggregations", parseElement);
         parseElements.put("aggs", parseElement);
@@ -60,6 +84,12 @@ public class AggregationPhase implements SearchPhase {
         parseElements.put("aggs_binary", binaryParseElement);
         parseElements.put("aggsBinary", binaryParseElement);
         this.parseElements = unmodifiableMap(parseElements);
+        this.concurrentSlices = settings.getAsInt(CONCURRENT_SLICES_KEY, 1);
+        int maxThreads = settings.getAsInt(CONCURRENT_MAX_THREADS_KEY, EsExecutors.boundedNumberOfProcessors(settings));
+        this.concurrentExecutor = new BoundedTaskExecutor(threadPool.executor(ThreadPool.Names.SEARCH), maxThreads);
+        // runs all tasks on the calling thread
+        this.sequentialExecutor = new BoundedTaskExecutor(threadPool.executor(ThreadPool.Names.SEARCH), 0);
+        this.requestCache = requestCache;
     }
 
     @Override
@@ -77,6 +107,19 @@ public class AggregationPhase implements SearchPhase {
             Aggregator[] aggregators;
             try {
                 AggregatorFactories factories = context.aggregations().factories();
+                List<LeafReaderContext> leaves = context.searcher().getIndexReader().leaves();
+                if (canCacheSegments(context, leaves)) {
+                    preProcessSegmentCache(context, factories, aggregationContext, leaves);
+                    return;
+                }
+                if (canCollectConcurrently(context, leaves)) {
+                    ConcurrentAggregationCollector concurrentCollector = new ConcurrentAggregationCollector(factories, aggregationContext,
+                            ConcurrentAggregationCollector.slices(leaves, concurrentSlices));
+                    context.aggregations().concurrentCollector(concurrentCollector);
+                    context.aggregations().aggregators(concurrentCollector.aggregators());
+                    // slices are collected in execute(), the main query has nothing to collect for aggregations
+                    return;
+                }
                 aggregators = factories.createTopLevelAggregators(aggregationContext);
                 for (int i = 0; i < aggregators.length; i++) {
                     if (aggregators[i] instanceof GlobalAggregator == false) {
@@ -100,6 +143,81 @@ public class AggregationPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Whether the aggregations of every segment can be cached in the request cache, so that only the segments that
+     * are new or have new deletes need to be collected after a refresh.
+     */
+    private boolean canCacheSegments(SearchContext context, List<LeafReaderContext> leaves) {
+        return leaves.isEmpty() == false
+                && canCollectInSlices(context)
+                && requestCache.canCache(context.request(), context);
+    }
+
+    /**
+     * Load the aggregations of the segments that are in the request cache, and prepare to collect the other segments,
+     * each in its own slice, so that their aggregations can be cached once they are built.
+     */
+    private void preProcessSegmentCache(SearchContext context, AggregatorFactories factories, AggregationContext aggregationContext,
+            List<LeafReaderContext> leaves) throws IOException {
+        // the query is rewritten against the whole shard, eg. fuzzy queries pick their terms from all segments
+        final IndicesRequestCache.SegmentCache segmentCache = requestCache.segmentCache(context.request(), context,
+                context.searcher().rewrite(context.query()));
+        List<List<LeafReaderContext>> uncachedLeaves = new ArrayList<>();
+        List<BytesReference> cachedResults = new ArrayList<>();
+        for (LeafReaderContext leaf : leaves) {
+            BytesReference cachedResult = segmentCache.get(leaf);
+            if (cachedResult == null) {
+                uncachedLeaves.add(Collections.singletonList(leaf));
+            } else {
+                cachedResults.add(cachedResult);
+            }
+        }
+        ConcurrentAggregationCollector collector = new ConcurrentAggregationCollector(factories, aggregationContext, uncachedLeaves,
+                (sliceLeaves, totalHits, aggregations) -> {
+                    // see IndicesRequestCache.Loader for the expected size
+                    BytesStreamOutput out = new BytesStreamOutput(512);
+                    out.writeVInt(totalHits);
+                    new InternalAggregations(aggregations).writeTo(out);
+                    segmentCache.put(sliceLeaves.get(0), out);
+                });
+        for (BytesReference cachedResult : cachedResults) {
+            StreamInput in = cachedResult.streamInput();
+            final int totalHits = in.readVInt();
+            List<InternalAggregation> aggregations = new ArrayList<>();
+            for (Aggregation aggregation : InternalAggregations.readAggregations(in)) {
+                aggregations.add((InternalAggregation) aggregation);
+            }
+            collector.addCollectedAggregations(aggregations, totalHits);
+        }
+        context.aggregations().concurrentCollector(collector);
+        context.aggregations().aggregators(collector.aggregators());
+    }
+
+    /**
+     * Whether aggregations can be collected concurrently over slices of the segments of the shard.
+     */
+    private boolean canCollectConcurrently(SearchContext context, List<LeafReaderContext> leaves) {
+        return concurrentSlices > 1
+                && leaves.size() > 1
+                && canCollectInSlices(context);
+    }
+
+    /**
+     * Whether aggregations can be collected over slices of the segments of the shard and then reduced. This is only the case
+     * for requests that don't return hits and whose collection isn't altered by other search options, and for aggregations
+     * whose slice results can be merged without losing accuracy.
+     */
+    private boolean canCollectInSlices(SearchContext context) {
+        return context.size() == 0
+                && context.scrollContext() == null
+                && context.parsedPostFilter() == null
+                && context.minimumScore() == null
+                && context.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+                && context.timeoutInMillis() == SearchService.NO_TIMEOUT.millis()
+                && context.getProfilers() == null
+                && context.aggregations().factories().supportsConcurrentCollection();
+    }
+
     @Override
     public void execute(SearchContext context) {
         if (context.aggregations() == null) {
@@ -112,6 +230,12 @@ public class AggregationPhase implements SearchPhase {
             return;
         }
 
+        final ConcurrentAggregationCollector concurrentCollector = context.aggregations().concurrentCollector();
+        if (concurrentCollector != null) {
+            executeConcurrently(context, concurrentCollector);
+            return;
+        }
+
         Aggregator[] aggregators = context.aggregations().aggregators();
         List<Aggregator> globals = new ArrayList<>();
         for (int i = 0; i < aggregators.length; i++) {
@@ -165,6 +289,39 @@ public class AggregationPhase implements SearchPhase {
             }
         }
         context.queryResult().aggregations(new InternalAggregations(aggregations));
+        buildTopLevelPipelineAggregators(context);
+
+        // disable aggregations so that they don't run on next pages in case of scrolling
+        context.aggregations(null);
+        context.queryCollectors().remove(AggregationPhase.class);
+    }
+
+    private void executeConcurrently(SearchContext context, ConcurrentAggregationCollector concurrentCollector) {
+        try {
+            // segments that are collected to be cached are collected one after the other if concurrent collection is disabled
+            BoundedTaskExecutor executor = concurrentSlices > 1 ? concurrentExecutor : sequentialExecutor;
+            concurrentCollector.collect(context.searcher(), context.query(), executor);
+        } catch (Exception e) {
+            throw new QueryPhaseExecutionException(context, "Failed to collect aggregations concurrently", e);
+        } finally {
+            context.clearReleasables(SearchContext.Lifetime.COLLECTION);
+        }
+        // the main query didn't count hits, see QueryPhase
+        context.queryResult().topDocs(new TopDocs(concurrentCollector.totalHits(), Lucene.EMPTY_SCORE_DOCS, 0));
+
+        final List<InternalAggregation> aggregations;
+        try {
+            aggregations = concurrentCollector.buildAggregations(new ReduceContext(context.bigArrays(), context.scriptService(), context));
+        } catch (IOException e) {
+            throw new AggregationExecutionException("Failed to build aggregations", e);
+        }
+        context.queryResult().aggregations(new InternalAggregations(aggregations));
+        buildTopLevelPipelineAggregators(context);
+
+        context.aggregations(null);
+    }
+
+    private void buildTopLevelPipelineAggregators(SearchContext context) {
         try {
             List<PipelineAggregator> pipelineAggregators = context.aggregations().factories().createPipelineAggregators();
             List<SiblingPipelineAggregator> siblingPipelineAggregators = new ArrayList<>(pipelineAggregators.size());
@@ -181,10 +338,6 @@ public class AggregationPhase implements SearchPhase {
         } catch (IOException e) {
             throw new AggregationExecutionException("Failed to build top level pipeline aggregators", e);
         }
-
-        // disable aggregations so that they don't run on next pages in case of scrolling
-        context.aggregations(null);
-        context.queryCollectors().remove(AggregationPhase.class);
     }
 
 }
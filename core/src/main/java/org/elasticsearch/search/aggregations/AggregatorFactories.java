@@ -93,6 +93,27 @@ public class AggregatorFactories {
         return factories.length;
     }
 
+    /**
+     * Whether all factories in this tree support collecting segments concurrently.
+     *
+     * @see AggregatorFactory#supportsConcurrentCollection()
+     */
+    public boolean supportsConcurrentCollection() {
+        for (AggregatorFactory factory : factories) {
+            if (factory.supportsConcurrentCollection() == false) {
+                return false;
+            }
+            if (factory.factories.pipelineAggregatorFactories.isEmpty() == false) {
+                // these pipeline aggregators are applied when the parent aggregation is reduced, which would happen on every slice
+                return false;
+            }
+            if (factory.factories.supportsConcurrentCollection() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     void setParent(AggregatorFactory parent) {
         this.parent = parent;
         for (AggregatorFactory factory : factories) {
@@ -105,6 +105,14 @@ public abstract class AggregatorFactory {
     public void doValidate() {
     }
 
+    /**
+     * Whether aggregators created by this factory may collect disjoint sets of segments concurrently and have their results
+     * merged through {@link InternalAggregation#reduce} without losing accuracy. Sub-factories are checked separately.
+     */
+    public boolean supportsConcurrentCollection() {
+        return false;
+    }
+
     public void setMetaData(Map<String, Object> metaData) {
         this.metaData = metaData;
     }
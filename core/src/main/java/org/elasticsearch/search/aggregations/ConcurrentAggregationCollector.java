@@ -0,0 +1,204 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.Weight;
+import org.elasticsearch.common.util.concurrent.BoundedTaskExecutor;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Collects top-level aggregations concurrently over slices of the segments of a shard. Every slice has
+ * its own aggregators, and the aggregations that they build are reduced into the shard-level aggregations.
+ * This may only be used with aggregations that {@link AggregatorFactories#supportsConcurrentCollection()
+ * support it}. Since the main query doesn't collect anything when aggregations are collected concurrently,
+ * slices also count hits.
+ * <p>
+ * Aggregations of segments that don't need to be collected, eg. because they were cached, may be
+ * {@link #addCollectedAggregations(List, int) added} to be reduced with the aggregations of the slices.
+ */
+public class ConcurrentAggregationCollector {
+
+    /**
+     * Listens to the aggregations that every slice builds, before they are reduced.
+     */
+    interface SliceListener {
+        void onSliceAggregations(List<LeafReaderContext> leaves, int totalHits, List<InternalAggregation> aggregations)
+                throws IOException;
+    }
+
+    private static class Slice {
+        final List<LeafReaderContext> leaves;
+        final Aggregator[] aggregators;
+        final BucketCollector collector;
+        final TotalHitCountCollector hitCountCollector = new TotalHitCountCollector();
+
+        Slice(List<LeafReaderContext> leaves, Aggregator[] aggregators) {
+            this.leaves = leaves;
+            this.aggregators = aggregators;
+            this.collector = BucketCollector.wrap(Arrays.asList(aggregators));
+        }
+    }
+
+    private final List<Slice> slices;
+    private final SliceListener sliceListener;
+    private final List<List<InternalAggregation>> collectedAggregations = new ArrayList<>();
+    private int collectedHits;
+
+    /**
+     * Create aggregators for every slice of leaves. Aggregators are created on the calling thread so that
+     * they register with the search context safely.
+     */
+    ConcurrentAggregationCollector(AggregatorFactories factories, AggregationContext context,
+            List<List<LeafReaderContext>> leafSlices) throws IOException {
+        this(factories, context, leafSlices, null);
+    }
+
+    ConcurrentAggregationCollector(AggregatorFactories factories, AggregationContext context,
+            List<List<LeafReaderContext>> leafSlices, SliceListener sliceListener) throws IOException {
+        this.sliceListener = sliceListener;
+        slices = new ArrayList<>(leafSlices.size());
+        for (List<LeafReaderContext> leaves : leafSlices) {
+            Slice slice = new Slice(leaves, factories.createTopLevelAggregators(context));
+            slice.collector.preCollection();
+            slices.add(slice);
+        }
+    }
+
+    /**
+     * The aggregators of the first slice, which are used as a template for the top-level aggregators, or
+     * {@code null} if there are no slices to collect.
+     */
+    Aggregator[] aggregators() {
+        return slices.isEmpty() ? null : slices.get(0).aggregators;
+    }
+
+    /**
+     * Add the aggregations of segments that don't need to be collected, in the order of the top-level aggregators.
+     */
+    void addCollectedAggregations(List<InternalAggregation> aggregations, int totalHits) {
+        collectedAggregations.add(aggregations);
+        collectedHits += totalHits;
+    }
+
+    /**
+     * Split the given leaves into at most {@code maxSlices} slices that have similar numbers of documents.
+     * Leaves are assigned greedily from the largest to the smallest to the slice that has the fewest documents.
+     */
+    static List<List<LeafReaderContext>> slices(List<LeafReaderContext> leaves, int maxSlices) {
+        final int numSlices = Math.min(maxSlices, leaves.size());
+        List<LeafReaderContext> sortedLeaves = new ArrayList<>(leaves);
+        Collections.sort(sortedLeaves, (a, b) -> Integer.compare(b.reader().maxDoc(), a.reader().maxDoc()));
+        List<List<LeafReaderContext>> slices = new ArrayList<>(numSlices);
+        long[] docCounts = new long[numSlices];
+        for (int i = 0; i < numSlices; ++i) {
+            slices.add(new ArrayList<>());
+        }
+        for (LeafReaderContext leaf : sortedLeaves) {
+            int smallest = 0;
+            for (int i = 1; i < numSlices; ++i) {
+                if (docCounts[i] < docCounts[smallest]) {
+                    smallest = i;
+                }
+            }
+            slices.get(smallest).add(leaf);
+            docCounts[smallest] += leaf.reader().maxDoc();
+        }
+        for (List<LeafReaderContext> slice : slices) {
+            // collect in index order within a slice
+            Collections.sort(slice, (a, b) -> Integer.compare(a.ord, b.ord));
+        }
+        return slices;
+    }
+
+    /**
+     * Collect documents matching the given query on all slices, using the given executor to collect
+     * slices concurrently.
+     */
+    void collect(ContextIndexSearcher searcher, Query query, BoundedTaskExecutor executor) throws Exception {
+        if (slices.isEmpty()) {
+            return;
+        }
+        final Weight weight = searcher.createNormalizedWeight(query, false);
+        List<Callable<Void>> tasks = new ArrayList<>(slices.size());
+        for (Slice slice : slices) {
+            tasks.add(() -> {
+                searcher.search(slice.leaves, weight, MultiCollector.wrap(slice.hitCountCollector, slice.collector));
+                return null;
+            });
+        }
+        executor.invokeAll(tasks);
+    }
+
+    /** The number of hits that matched the query across all slices. */
+    public int totalHits() {
+        int totalHits = collectedHits;
+        for (Slice slice : slices) {
+            totalHits += slice.hitCountCollector.getTotalHits();
+        }
+        return totalHits;
+    }
+
+    /**
+     * Build the aggregations of every slice and reduce them, together with the aggregations that were added, into
+     * the shard-level aggregations, in the order of the top-level aggregators.
+     */
+    List<InternalAggregation> buildAggregations(ReduceContext reduceContext) throws IOException {
+        List<List<InternalAggregation>> allAggregations = new ArrayList<>(collectedAggregations);
+        for (Slice slice : slices) {
+            slice.collector.postCollection();
+            List<InternalAggregation> sliceAggregations = new ArrayList<>(slice.aggregators.length);
+            for (Aggregator aggregator : slice.aggregators) {
+                sliceAggregations.add(aggregator.buildAggregation(0));
+            }
+            if (sliceListener != null) {
+                sliceListener.onSliceAggregations(slice.leaves, slice.hitCountCollector.getTotalHits(), sliceAggregations);
+            }
+            allAggregations.add(sliceAggregations);
+        }
+        assert allAggregations.isEmpty() == false;
+        final int numAggregators = allAggregations.get(0).size();
+        List<List<InternalAggregation>> perAggregator = new ArrayList<>(numAggregators);
+        for (int i = 0; i < numAggregators; ++i) {
+            List<InternalAggregation> aggregatorAggregations = new ArrayList<>(allAggregations.size());
+            for (List<InternalAggregation> aggregations : allAggregations) {
+                aggregatorAggregations.add(aggregations.get(i));
+            }
+            perAggregator.add(aggregatorAggregations);
+        }
+        List<InternalAggregation> aggregations = new ArrayList<>(numAggregators);
+        for (List<InternalAggregation> sliceAggregations : perAggregator) {
+            aggregations.add(sliceAggregations.get(0).reduce(sliceAggregations, reduceContext));
+        }
+        return aggregations;
+    }
+}
@@ -28,6 +28,7 @@ public class SearchContextAggregations {
     private final AggregatorFactories factories;
     private Aggregator[] aggregators;
     private AggregationContext aggregationContext;
+    private ConcurrentAggregationCollector concurrentCollector;
 
     /**
      * Creates a new aggregation context with the parsed aggregator factories
@@ -61,4 +62,16 @@ public class SearchContextAggregations {
         this.aggregators = aggregators;
     }
 
+    /**
+     * The collector that collects aggregations concurrently over slices of the shard, or {@code null}
+     * if aggregations are collected by the main query.
+     */
+    public ConcurrentAggregationCollector concurrentCollector() {
+        return concurrentCollector;
+    }
+
+    public void concurrentCollector(ConcurrentAggregationCollector concurrentCollector) {
+        this.concurrentCollector = concurrentCollector;
+    }
+
 }
@@ -22,6 +22,7 @@ package org.elasticsearch.search.aggregations.bucket;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.util.packed.PackedInts;
 import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.LongHash;
@@ -40,8 +41,12 @@ import java.util.List;
  * matches and then is able to replay a given subset of buckets which represent
  * the survivors from a pruning process performed by the aggregator that owns
  * this collector.
+ *
+ * The memory used to buffer doc ids and buckets is accounted against the
+ * request circuit breaker so that collecting too many matches trips the
+ * breaker rather than exhausting the heap.
  */
-public class BestBucketsDeferringCollector extends DeferringBucketCollector {
+public class BestBucketsDeferringCollector extends DeferringBucketCollector implements Releasable {
     private static class Entry {
         final LeafReaderContext context;
         final PackedLongValues docDeltas;
@@ -55,6 +60,7 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
     }
 
     final List<Entry> entries = new ArrayList<>();
+    final BigArrays bigArrays;
     BucketCollector collector;
     LeafReaderContext context;
     PackedLongValues.Builder docDeltas;
@@ -62,9 +68,19 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
     long maxBucket = -1;
     boolean finished = false;
     LongHash selectedBuckets;
+    /** Bytes of the finished entries that have been accounted against the breaker. */
+    long entriesBytes = 0;
+    /** Bytes of the builders of the current leaf that have been accounted against the breaker. */
+    long leafBytes = 0;
 
-    /** Sole constructor. */
+    /** Create a collector that doesn't account its memory usage. */
     public BestBucketsDeferringCollector() {
+        this(BigArrays.NON_RECYCLING_INSTANCE);
+    }
+
+    /** Create a collector that accounts buffered doc ids and buckets through the given {@link BigArrays}. */
+    public BestBucketsDeferringCollector(BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
     }
 
     @Override
@@ -82,13 +98,32 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
 
     private void finishLeaf() {
         if (context != null) {
-            entries.add(new Entry(context, docDeltas.build(), buckets.build()));
+            final Entry entry = new Entry(context, docDeltas.build(), buckets.build());
+            entries.add(entry);
+            // building drops the pending buffers so the entry is smaller than the builders
+            final long bytes = entry.docDeltas.ramBytesUsed() + entry.buckets.ramBytesUsed();
+            final long delta = bytes - leafBytes;
+            // the breaker keeps the delta even if it trips, so update what is released on close first
+            entriesBytes += bytes;
+            leafBytes = 0;
+            bigArrays.adjustBreaker(delta);
         }
         context = null;
         docDeltas = null;
         buckets = null;
     }
 
+    /** Account for the memory that the builders of the current leaf grew by since the last call. */
+    private void accountLeafBytes() {
+        // ramBytesUsed only changes when the builders pack a page of values
+        final long bytes = docDeltas.ramBytesUsed() + buckets.ramBytesUsed();
+        if (bytes != leafBytes) {
+            final long delta = bytes - leafBytes;
+            leafBytes = bytes;
+            bigArrays.adjustBreaker(delta);
+        }
+    }
+
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
         finishLeaf();
@@ -106,6 +141,7 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
                 buckets.add(bucket);
                 lastDoc = doc;
                 maxBucket = Math.max(maxBucket, bucket);
+                accountLeafBytes();
             }
         };
     }
@@ -161,6 +197,20 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
         }
 
         collector.postCollection();
+        // entries can't be replayed twice, release them early
+        entries.clear();
+        releaseEntries();
+    }
+
+    private void releaseEntries() {
+        bigArrays.adjustBreaker(-entriesBytes - leafBytes);
+        entriesBytes = 0;
+        leafBytes = 0;
+    }
+
+    @Override
+    public void close() {
+        releaseEntries();
     }
 
     /**
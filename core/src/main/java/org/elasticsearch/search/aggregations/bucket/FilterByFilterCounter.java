@@ -0,0 +1,379 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.core.DateFieldMapper;
+import org.elasticsearch.index.mapper.core.DoubleFieldMapper;
+import org.elasticsearch.index.mapper.core.IntegerFieldMapper;
+import org.elasticsearch.index.mapper.core.LongFieldMapper;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+
+/**
+ * Counts the documents that match the query and each filter of a list of filters, which is all that top-level bucket
+ * aggregations without sub-aggregations need to compute. Instead of checking every filter for every collected document,
+ * documents that match the query are recorded in a bit set for each segment, and the documents that match each filter
+ * are intersected with this bit set once the segment has been collected. When the query matches all live documents of
+ * a segment, filters are counted directly, which is cheap if they are cached. When the query matches fewer documents of
+ * a segment than a filter, the filter is advanced to every matching document of the query instead.
+ *
+ * Since every filter is evaluated on every segment, this is only worth it if the query matches most documents of the
+ * shard, see {@link #queryMatchesMostDocs(AggregationContext)}.
+ */
+public final class FilterByFilterCounter implements Releasable {
+
+    /**
+     * Consumes the number of documents of a segment that matched both the query and a filter.
+     */
+    @FunctionalInterface
+    public interface CountConsumer {
+        void accept(int filter, int count) throws IOException;
+    }
+
+    private final Weight[] filters;
+    private final CountConsumer consumer;
+    private final BigArrays bigArrays;
+
+    private FixedBitSet matchingDocs;
+    private int numMatchingDocs;
+    private LeafReaderContext pendingLeaf;
+
+    public FilterByFilterCounter(Query[] filters, AggregationContext context, CountConsumer consumer) throws IOException {
+        this.filters = new Weight[filters.length];
+        for (int i = 0; i < filters.length; ++i) {
+            this.filters[i] = context.searchContext().searcher().createNormalizedWeight(filters[i], false);
+        }
+        this.consumer = consumer;
+        this.bigArrays = context.bigArrays();
+    }
+
+    /**
+     * Whether the query of the request matches all or most documents of the shard. Otherwise reading the values of the
+     * few documents that match the query is cheaper than evaluating every filter on every segment. This is estimated
+     * from the terms dictionary only, since pulling scorers would evaluate the query once more before the query phase,
+     * and queries whose number of matches can't be estimated cheaply are assumed to match few documents.
+     */
+    public static boolean queryMatchesMostDocs(AggregationContext context) throws IOException {
+        final IndexReader reader = context.searchContext().searcher().getIndexReader();
+        return estimateMatchingDocs(context.searchContext().query(), reader) >= reader.numDocs() / 2;
+    }
+
+    /**
+     * Cheaply estimates the number of documents that match the given query, or returns {@code -1} if it is unknown.
+     */
+    static long estimateMatchingDocs(Query query, IndexReader reader) throws IOException {
+        while (true) {
+            if (query instanceof ConstantScoreQuery) {
+                query = ((ConstantScoreQuery) query).getQuery();
+            } else if (query instanceof BoostQuery) {
+                query = ((BoostQuery) query).getQuery();
+            } else {
+                break;
+            }
+        }
+        if (query instanceof MatchAllDocsQuery) {
+            return reader.numDocs();
+        } else if (query instanceof TermQuery) {
+            return reader.docFreq(((TermQuery) query).getTerm());
+        } else if (query instanceof NumericRangeQuery) {
+            return estimateMatchingDocs((NumericRangeQuery<?>) query, reader);
+        } else if (query instanceof BooleanQuery) {
+            // a conjunction matches at most as many documents as its most selective clause
+            long estimate = -1;
+            for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+                if (clause.isRequired() == false || clause.isProhibited()) {
+                    return -1;
+                }
+                final long clauseEstimate = estimateMatchingDocs(clause.getQuery(), reader);
+                if (clauseEstimate < 0) {
+                    return -1;
+                }
+                estimate = estimate < 0 ? clauseEstimate : Math.min(estimate, clauseEstimate);
+            }
+            return estimate;
+        } else if (query instanceof MultiTermQuery == false) {
+            // eg. date ranges relative to now, which only become numeric ranges once rewritten, without looking at terms
+            final Query rewritten = query.rewrite(reader);
+            if (rewritten != query) {
+                return estimateMatchingDocs(rewritten, reader);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Estimates the number of documents that match a numeric range from the share of the range of indexed values that
+     * it covers, assuming that values are evenly distributed.
+     */
+    private static long estimateMatchingDocs(NumericRangeQuery<?> query, IndexReader reader) throws IOException {
+        final Terms terms = MultiFields.getTerms(reader, query.getField());
+        if (terms == null) {
+            return 0;
+        }
+        final Number from = query.getMin();
+        final Number to = query.getMax();
+        final Number bound = from != null ? from : to;
+        final long min;
+        final long max;
+        final long lower;
+        final long upper;
+        if (bound == null) {
+            return terms.getDocCount();
+        } else if (bound instanceof Long || bound instanceof Double) {
+            final Long minValue = NumericUtils.getMinLong(terms);
+            final Long maxValue = NumericUtils.getMaxLong(terms);
+            if (minValue == null || maxValue == null) {
+                return 0;
+            }
+            min = minValue;
+            max = maxValue;
+            lower = from == null ? Long.MIN_VALUE : sortableLong(from);
+            upper = to == null ? Long.MAX_VALUE : sortableLong(to);
+        } else if (bound instanceof Integer || bound instanceof Float) {
+            final Integer minValue = NumericUtils.getMinInt(terms);
+            final Integer maxValue = NumericUtils.getMaxInt(terms);
+            if (minValue == null || maxValue == null) {
+                return 0;
+            }
+            min = minValue;
+            max = maxValue;
+            lower = from == null ? Integer.MIN_VALUE : sortableInt(from);
+            upper = to == null ? Integer.MAX_VALUE : sortableInt(to);
+        } else {
+            return -1;
+        }
+        // doubles avoid overflows, and the exclusiveness of bounds doesn't matter for an estimate
+        final double overlap = (double) Math.min(upper, max) - Math.max(lower, min) + 1;
+        if (overlap <= 0) {
+            return 0;
+        }
+        final long docCount = terms.getDocCount() < 0 ? reader.maxDoc() : terms.getDocCount();
+        return (long) (docCount * Math.min(1d, overlap / ((double) max - min + 1)));
+    }
+
+    private static long sortableLong(Number value) {
+        return value instanceof Double ? NumericUtils.doubleToSortableLong(value.doubleValue()) : value.longValue();
+    }
+
+    private static int sortableInt(Number value) {
+        return value instanceof Float ? NumericUtils.floatToSortableInt(value.floatValue()) : value.intValue();
+    }
+
+    /**
+     * Return a collector that records the documents of the given segment that match the query. Filters are counted on
+     * the previous segment, if any.
+     */
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        flush();
+        final int maxDoc = ctx.reader().maxDoc();
+        if (matchingDocs == null || matchingDocs.length() < maxDoc) {
+            release();
+            bigArrays.adjustBreaker(bitSetBytes(maxDoc));
+            matchingDocs = new FixedBitSet(maxDoc);
+        } else {
+            // clear bits beyond maxDoc too so that matching docs can be iterated
+            matchingDocs.clear(0, matchingDocs.length());
+        }
+        numMatchingDocs = 0;
+        pendingLeaf = ctx;
+        final FixedBitSet bits = matchingDocs;
+        return new LeafBucketCollector() {
+            @Override
+            public void setScorer(Scorer scorer) throws IOException {
+                // no-op
+            }
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0 : "filter by filter counting only works for top-level aggregations";
+                bits.set(doc);
+                numMatchingDocs++;
+            }
+        };
+    }
+
+    /**
+     * Count filters on the last collected segment, this must be called once collection is over.
+     */
+    public void flush() throws IOException {
+        if (pendingLeaf == null) {
+            return;
+        }
+        final LeafReaderContext ctx = pendingLeaf;
+        pendingLeaf = null;
+        if (numMatchingDocs == 0) {
+            return;
+        }
+        final LeafReader reader = ctx.reader();
+        // if all live docs match the query, there is no need to intersect filters with the matching docs
+        final boolean allLiveDocsMatch = numMatchingDocs == reader.numDocs();
+        final Bits acceptDocs = allLiveDocsMatch ? reader.getLiveDocs() : matchingDocs;
+        for (int i = 0; i < filters.length; ++i) {
+            final int count;
+            if (allLiveDocsMatch && reader.hasDeletions() == false && filters[i].getQuery() instanceof TermQuery) {
+                final Term term = ((TermQuery) filters[i].getQuery()).getTerm();
+                count = reader.docFreq(term);
+            } else {
+                final Scorer scorer = filters[i].scorer(ctx);
+                if (scorer == null) {
+                    count = 0;
+                } else if (allLiveDocsMatch || numMatchingDocs >= scorer.iterator().cost()) {
+                    count = count(scorer, acceptDocs);
+                } else {
+                    count = leapfrog(scorer, matchingDocs, numMatchingDocs);
+                }
+            }
+            if (count > 0) {
+                consumer.accept(i, count);
+            }
+        }
+    }
+
+    private static int count(Scorer scorer, Bits acceptDocs) throws IOException {
+        final TwoPhaseIterator twoPhase = scorer.twoPhaseIterator();
+        final DocIdSetIterator iterator = twoPhase == null ? scorer.iterator() : twoPhase.approximation();
+        int count = 0;
+        for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+            if ((acceptDocs == null || acceptDocs.get(doc)) && (twoPhase == null || twoPhase.matches())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count the documents that match the filter by advancing it to the documents that match the query, which is cheaper
+     * than iterating over all documents of the filter when the query matches fewer documents.
+     */
+    private static int leapfrog(Scorer scorer, FixedBitSet matchingDocs, int numMatchingDocs) throws IOException {
+        final TwoPhaseIterator twoPhase = scorer.twoPhaseIterator();
+        final DocIdSetIterator filter = twoPhase == null ? scorer.iterator() : twoPhase.approximation();
+        final DocIdSetIterator query = new BitSetIterator(matchingDocs, numMatchingDocs);
+        int count = 0;
+        int doc = query.nextDoc();
+        while (doc != DocIdSetIterator.NO_MORE_DOCS) {
+            final int filterDoc = filter.docID() < doc ? filter.advance(doc) : filter.docID();
+            if (filterDoc == DocIdSetIterator.NO_MORE_DOCS) {
+                break;
+            }
+            if (filterDoc == doc) {
+                if (twoPhase == null || twoPhase.matches()) {
+                    count++;
+                }
+                doc = query.nextDoc();
+            } else {
+                doc = query.advance(filterDoc);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return a query that matches documents that have a value in {@code [from, to)} for the given field, or {@code null}
+     * if such a query can't be built for this field or if the query would not match exactly the same documents as
+     * comparing doc values with the range.
+     */
+    @Nullable
+    public static Query rangeFilter(MappedFieldType fieldType, double from, double to) {
+        if (fieldType instanceof DoubleFieldMapper.DoubleFieldType) {
+            // infinite bounds are kept as-is so that NaN values don't match, like with doc values
+            return NumericRangeQuery.newDoubleRange(fieldType.name(), fieldType.numericPrecisionStep(), from, to, true, false);
+        }
+        final Long lower = from == Double.NEGATIVE_INFINITY ? null : toLong(from);
+        final Long upper = to == Double.POSITIVE_INFINITY ? null : toLong(to);
+        if ((from != Double.NEGATIVE_INFINITY && lower == null) || (to != Double.POSITIVE_INFINITY && upper == null)) {
+            return null;
+        }
+        return rangeFilter(fieldType, lower, upper);
+    }
+
+    /**
+     * Same as {@link #rangeFilter(MappedFieldType, double, double)} for integer bounds, {@code null} meaning unbounded.
+     */
+    @Nullable
+    public static Query rangeFilter(MappedFieldType fieldType, @Nullable Long from, @Nullable Long to) {
+        if (fieldType instanceof LongFieldMapper.LongFieldType || fieldType instanceof DateFieldMapper.DateFieldType) {
+            return NumericRangeQuery.newLongRange(fieldType.name(), fieldType.numericPrecisionStep(), from, to, true, false);
+        } else if (fieldType instanceof IntegerFieldMapper.IntegerFieldType) {
+            if ((from != null && from > Integer.MAX_VALUE) || (to != null && to <= Integer.MIN_VALUE)) {
+                // empty range, let doc values deal with it
+                return null;
+            }
+            final Integer lower = from == null || from < Integer.MIN_VALUE ? null : from.intValue();
+            final Integer upper = to == null || to > Integer.MAX_VALUE ? null : to.intValue();
+            return NumericRangeQuery.newIntRange(fieldType.name(), fieldType.numericPrecisionStep(), lower, upper, true, false);
+        }
+        return null;
+    }
+
+    /** Convert the given double to a long if it has an integer value that longs can represent exactly. */
+    private static Long toLong(double value) {
+        if (value != Math.floor(value) || Math.abs(value) > (1L << 53)) {
+            return null;
+        }
+        return (long) value;
+    }
+
+    private static long bitSetBytes(int numBits) {
+        return RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) FixedBitSet.bits2words(numBits) * RamUsageEstimator.NUM_BYTES_LONG;
+    }
+
+    private void release() {
+        if (matchingDocs != null) {
+            bigArrays.adjustBreaker(-bitSetBytes(matchingDocs.length()));
+            matchingDocs = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+}
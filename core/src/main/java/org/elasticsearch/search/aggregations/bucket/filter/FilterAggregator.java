@@ -95,6 +95,10 @@ public class FilterAggregator extends SingleBucketAggregator {
             return new FilterAggregator(name, filter, factories, context, parent, pipelineAggregators, metaData);
         }
 
+        @Override
+        public boolean supportsConcurrentCollection() {
+            return true;
+        }
     }
 }
 
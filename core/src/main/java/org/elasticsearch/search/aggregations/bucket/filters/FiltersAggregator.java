@@ -23,6 +23,7 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.Bits;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
@@ -32,6 +33,7 @@ import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.FilterByFilterCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 
@@ -62,15 +64,29 @@ public class FiltersAggregator extends BucketsAggregator {
     private final boolean showOtherBucket;
     private final String otherBucketKey;
     private final int totalNumKeys;
+    private final FilterByFilterCounter filterByFilter;
 
     public FiltersAggregator(String name, AggregatorFactories factories, List<KeyedFilter> filters, boolean keyed, String otherBucketKey,
             AggregationContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
+        this(name, factories, filters, keyed, otherBucketKey, false, aggregationContext, parent, pipelineAggregators, metaData);
+    }
+
+    /**
+     * @param filterByFilter whether to count filters one after the other on the documents that match the query rather
+     *                       than checking every filter for every document, which requires that this aggregator is at the
+     *                       top level and has neither sub aggregations nor an other bucket
+     */
+    FiltersAggregator(String name, AggregatorFactories factories, List<KeyedFilter> filters, boolean keyed, String otherBucketKey,
+            boolean filterByFilter, AggregationContext aggregationContext,
+            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
+            throws IOException {
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
+        assert filterByFilter == false || (parent == null && subAggregators.length == 0 && otherBucketKey == null);
         this.keyed = keyed;
         this.keys = new String[filters.size()];
-        this.filters = new Weight[filters.size()];
+        this.filters = filterByFilter ? null : new Weight[filters.size()];
         this.showOtherBucket = otherBucketKey != null;
         this.otherBucketKey = otherBucketKey;
         if (showOtherBucket) {
@@ -78,16 +94,28 @@ public class FiltersAggregator extends BucketsAggregator {
         } else {
             this.totalNumKeys = filters.size();
         }
+        final Query[] queries = new Query[filters.size()];
         for (int i = 0; i < filters.size(); ++i) {
             KeyedFilter keyedFilter = filters.get(i);
             this.keys[i] = keyedFilter.key;
-            this.filters[i] = aggregationContext.searchContext().searcher().createNormalizedWeight(keyedFilter.filter, false);
+            queries[i] = keyedFilter.filter;
+        }
+        if (filterByFilter) {
+            this.filterByFilter = new FilterByFilterCounter(queries, aggregationContext, this::incrementBucketDocCount);
+        } else {
+            this.filterByFilter = null;
+            for (int i = 0; i < queries.length; ++i) {
+                this.filters[i] = aggregationContext.searchContext().searcher().createNormalizedWeight(queries[i], false);
+            }
         }
     }
 
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (filterByFilter != null) {
+            return filterByFilter.getLeafCollector(ctx);
+        }
         // no need to provide deleted docs to the filter
         final Bits[] bits = new Bits[filters.length];
         for (int i = 0; i < filters.length; ++i) {
@@ -110,9 +138,16 @@ public class FiltersAggregator extends BucketsAggregator {
         };
     }
 
+    @Override
+    protected void doPostCollection() throws IOException {
+        if (filterByFilter != null) {
+            filterByFilter.flush();
+        }
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
-        List<InternalFilters.InternalBucket> buckets = new ArrayList<>(filters.length);
+        List<InternalFilters.InternalBucket> buckets = new ArrayList<>(keys.length);
         for (int i = 0; i < keys.length; i++) {
             long bucketOrd = bucketOrd(owningBucketOrdinal, i);
             InternalFilters.InternalBucket bucket = new InternalFilters.InternalBucket(keys[i], bucketDocCount(bucketOrd), bucketAggregations(bucketOrd), keyed);
@@ -131,7 +166,7 @@ public class FiltersAggregator extends BucketsAggregator {
     @Override
     public InternalAggregation buildEmptyAggregation() {
         InternalAggregations subAggs = buildEmptySubAggregations();
-        List<InternalFilters.InternalBucket> buckets = new ArrayList<>(filters.length);
+        List<InternalFilters.InternalBucket> buckets = new ArrayList<>(keys.length);
         for (int i = 0; i < keys.length; i++) {
             InternalFilters.InternalBucket bucket = new InternalFilters.InternalBucket(keys[i], 0, subAggs, keyed);
             buckets.add(bucket);
@@ -143,6 +178,11 @@ public class FiltersAggregator extends BucketsAggregator {
         return owningBucketOrdinal * totalNumKeys + filterOrd;
     }
 
+    @Override
+    protected void doClose() {
+        Releasables.close(filterByFilter);
+    }
+
     public static class Factory extends AggregatorFactory {
 
         private final List<KeyedFilter> filters;
@@ -159,7 +199,16 @@ public class FiltersAggregator extends BucketsAggregator {
         @Override
         public Aggregator createInternal(AggregationContext context, Aggregator parent, boolean collectsFromSingleBucket,
                 List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
-            return new FiltersAggregator(name, factories, filters, keyed, otherBucketKey, context, parent, pipelineAggregators, metaData);
+            // top-level aggregations that only need counts can count filters one after the other if most documents match
+            final boolean filterByFilter = parent == null && factories.count() == 0 && otherBucketKey == null
+                    && FilterByFilterCounter.queryMatchesMostDocs(context);
+            return new FiltersAggregator(name, factories, filters, keyed, otherBucketKey, filterByFilter, context, parent,
+                    pipelineAggregators, metaData);
+        }
+
+        @Override
+        public boolean supportsConcurrentCollection() {
+            return true;
         }
     }
 
@@ -18,21 +18,31 @@
  */
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiFields;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.CollectionUtil;
+import org.elasticsearch.action.fieldstats.FieldStats;
 import org.elasticsearch.common.inject.internal.Nullable;
 import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.rounding.PreparedRounding;
 import org.elasticsearch.common.rounding.Rounding;
 import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.FilterByFilterCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.FieldContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSourceAggregatorFactory;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
@@ -46,7 +56,11 @@ import java.util.Map;
 
 public class HistogramAggregator extends BucketsAggregator {
 
+    /** The maximum number of buckets that may be counted one after the other with range queries. */
+    static final int MAX_FILTER_BY_FILTER_BUCKETS = 1024;
+
     private final ValuesSource.Numeric valuesSource;
+    private final FieldContext fieldContext;
     private final ValueFormatter formatter;
     private final Rounding rounding;
     private final InternalOrder order;
@@ -57,23 +71,90 @@ public class HistogramAggregator extends BucketsAggregator {
     private final InternalHistogram.Factory histogramFactory;
 
     private final LongHash bucketOrds;
+    private final FilterByFilterCounter filterByFilter;
 
+    /**
+     * @param filterByFilterField if not {@code null}, the indexed field that values come from: if the buckets that the
+     *                            values of the shard fall into can be enumerated, they are then counted one after the
+     *                            other with range queries on this field rather than by rounding every value, which
+     *                            requires that this aggregator is at the top level and has no sub aggregations
+     */
     public HistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, InternalOrder order, boolean keyed,
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
-            ValueFormatter formatter, InternalHistogram.Factory<?> histogramFactory, AggregationContext aggregationContext,
-            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+            @Nullable FieldContext fieldContext, @Nullable MappedFieldType filterByFilterField, ValueFormatter formatter,
+            InternalHistogram.Factory<?> histogramFactory, AggregationContext aggregationContext, Aggregator parent,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
+        assert filterByFilterField == null || (parent == null && subAggregators.length == 0);
         this.rounding = rounding;
         this.order = order;
         this.keyed = keyed;
         this.minDocCount = minDocCount;
         this.extendedBounds = extendedBounds;
         this.valuesSource = valuesSource;
+        this.fieldContext = fieldContext;
         this.formatter = formatter;
         this.histogramFactory = histogramFactory;
 
         bucketOrds = new LongHash(1, aggregationContext.bigArrays());
+        filterByFilter = filterByFilterField == null ? null : filterByFilter(filterByFilterField);
+    }
+
+    /**
+     * Build a counter with one range query per bucket that the values of the shard fall into, or return {@code null} if
+     * there are too many buckets or if they can't be expressed as ranges of values.
+     */
+    private FilterByFilterCounter filterByFilter(MappedFieldType fieldType) throws IOException {
+        final IndexReader reader = context.searchContext().searcher().getIndexReader();
+        final Terms terms = MultiFields.getTerms(reader, fieldType.name());
+        if (terms == null) {
+            return null;
+        }
+        final FieldStats<?> stats = fieldType.stats(terms, reader.maxDoc());
+        if (stats instanceof FieldStats.Long == false) {
+            return null;
+        }
+        final long minValue = ((FieldStats.Long) stats).getMinValue();
+        final long maxValue = ((FieldStats.Long) stats).getMaxValue();
+        if (rounding.isMonotonic(minValue, maxValue) == false) {
+            return null;
+        }
+        final List<Query> filters = new ArrayList<>();
+        long[] keys = new long[8];
+        long key = rounding.roundKey(minValue);
+        // the first bucket has no lower bound since there are no values less than minValue
+        Long from = null;
+        while (true) {
+            if (filters.size() == MAX_FILTER_BY_FILTER_BUCKETS) {
+                return null;
+            }
+            final long next = rounding.nextRoundingValue(rounding.valueForKey(key));
+            if ((from != null && next <= from) || rounding.roundKey(next - 1) != key || rounding.roundKey(next) == key) {
+                return null;
+            }
+            final boolean last = next > maxValue;
+            final Query filter = FilterByFilterCounter.rangeFilter(fieldType, from, last ? null : next);
+            if (filter == null) {
+                return null;
+            }
+            keys = ArrayUtil.grow(keys, filters.size() + 1);
+            keys[filters.size()] = key;
+            filters.add(filter);
+            if (last) {
+                break;
+            }
+            from = next;
+            key = rounding.roundKey(next);
+        }
+        final long[] bucketKeys = keys;
+        return new FilterByFilterCounter(filters.toArray(new Query[filters.size()]), context, (filter, count) -> {
+            long bucketOrd = bucketOrds.add(bucketKeys[filter]);
+            if (bucketOrd < 0) { // already seen
+                bucketOrd = -1 - bucketOrd;
+            }
+            incrementBucketDocCount(bucketOrd, count);
+        });
     }
 
     @Override
@@ -87,7 +168,11 @@ public class HistogramAggregator extends BucketsAggregator {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (filterByFilter != null) {
+            return filterByFilter.getLeafCollector(ctx);
+        }
         final SortedNumericDocValues values = valuesSource.longValues(ctx);
+        final PreparedRounding rounding = prepareRounding(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
@@ -116,6 +201,29 @@ public class HistogramAggregator extends BucketsAggregator {
         };
     }
 
+    /**
+     * Prepare the rounding for the range of values of the field in the given segment, as recorded in the terms dictionary.
+     */
+    private PreparedRounding prepareRounding(LeafReaderContext ctx) throws IOException {
+        if (fieldContext != null) {
+            final Terms terms = ctx.reader().terms(fieldContext.field());
+            if (terms != null) {
+                final FieldStats<?> stats = fieldContext.fieldType().stats(terms, ctx.reader().maxDoc());
+                if (stats instanceof FieldStats.Long) {
+                    return rounding.prepare(((FieldStats.Long) stats).getMinValue(), ((FieldStats.Long) stats).getMaxValue());
+                }
+            }
+        }
+        return PreparedRounding.unprepared(rounding);
+    }
+
+    @Override
+    protected void doPostCollection() throws IOException {
+        if (filterByFilter != null) {
+            filterByFilter.flush();
+        }
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
         assert owningBucketOrdinal == 0;
@@ -141,7 +249,7 @@ public class HistogramAggregator extends BucketsAggregator {
 
     @Override
     public void doClose() {
-        Releasables.close(bucketOrds);
+        Releasables.close(bucketOrds, filterByFilter);
     }
 
     public static class Factory extends ValuesSourceAggregatorFactory<ValuesSource.Numeric> {
@@ -173,8 +281,8 @@ public class HistogramAggregator extends BucketsAggregator {
         @Override
         protected Aggregator createUnmapped(AggregationContext aggregationContext, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
                 Map<String, Object> metaData) throws IOException {
-            return new HistogramAggregator(name, factories, rounding, order, keyed, minDocCount, extendedBounds, null, config.formatter(),
-                    histogramFactory, aggregationContext, parent, pipelineAggregators, metaData);
+            return new HistogramAggregator(name, factories, rounding, order, keyed, minDocCount, extendedBounds, null, null, null,
+                    config.formatter(), histogramFactory, aggregationContext, parent, pipelineAggregators, metaData);
         }
 
         @Override
@@ -192,8 +300,16 @@ public class HistogramAggregator extends BucketsAggregator {
                 extendedBounds.processAndValidate(name, aggregationContext.searchContext(), config.parser());
                 roundedBounds = extendedBounds.round(rounding);
             }
+            // values of scripts may be out of the range of indexed values
+            final FieldContext fieldContext = config.script() == null ? config.fieldContext() : null;
+            // top-level aggregations that only need counts can count buckets one after the other if most documents match
+            MappedFieldType filterByFilterField = parent == null && factories.count() == 0 ? indexedFieldType() : null;
+            if (filterByFilterField != null && FilterByFilterCounter.queryMatchesMostDocs(aggregationContext) == false) {
+                filterByFilterField = null;
+            }
             return new HistogramAggregator(name, factories, rounding, order, keyed, minDocCount, roundedBounds, valuesSource,
-                    config.formatter(), histogramFactory, aggregationContext, parent, pipelineAggregators, metaData);
+                    fieldContext, filterByFilterField, config.formatter(), histogramFactory, aggregationContext, parent,
+                    pipelineAggregators, metaData);
         }
 
     }
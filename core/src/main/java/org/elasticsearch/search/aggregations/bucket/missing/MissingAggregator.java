@@ -98,6 +98,11 @@ public class MissingAggregator extends SingleBucketAggregator {
                 boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
             return new MissingAggregator(name, factories, valuesSource, aggregationContext, parent, pipelineAggregators, metaData);
         }
+
+        @Override
+        public boolean supportsConcurrentCollection() {
+            return usesScript() == false;
+        }
     }
 
 }
@@ -19,8 +19,12 @@
 package org.elasticsearch.search.aggregations.bucket.range;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.util.InPlaceMergeSorter;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
@@ -29,6 +33,7 @@ import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.NonCollectingAggregator;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.FilterByFilterCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -92,12 +97,28 @@ public class RangeAggregator extends BucketsAggregator {
     final InternalRange.Factory rangeFactory;
 
     final double[] maxTo;
+    final FilterByFilterCounter filterByFilter;
 
     public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, ValueFormat format,
             InternalRange.Factory rangeFactory, List<Range> ranges, boolean keyed, AggregationContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, null, format, rangeFactory, ranges, keyed, aggregationContext, parent, pipelineAggregators,
+                metaData);
+    }
+
+    /**
+     * @param filterByFilterField if not {@code null}, the indexed field that values come from: ranges are then counted one
+     *                            after the other with range queries on this field rather than by looking up the ranges of
+     *                            every value, which requires that this aggregator is at the top level and has no sub
+     *                            aggregations
+     */
+    RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource,
+            @Nullable MappedFieldType filterByFilterField, ValueFormat format, InternalRange.Factory rangeFactory, List<Range> ranges,
+            boolean keyed, AggregationContext aggregationContext, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
+        assert filterByFilterField == null || (parent == null && subAggregators.length == 0);
         assert valuesSource != null;
         this.valuesSource = valuesSource;
         this.formatter = format.formatter();
@@ -117,6 +138,18 @@ public class RangeAggregator extends BucketsAggregator {
             maxTo[i] = Math.max(this.ranges[i].to,maxTo[i-1]);
         }
 
+        this.filterByFilter = filterByFilterField == null ? null : filterByFilter(filterByFilterField, this.ranges);
+    }
+
+    private FilterByFilterCounter filterByFilter(MappedFieldType fieldType, Range[] ranges) throws IOException {
+        final Query[] filters = new Query[ranges.length];
+        for (int i = 0; i < ranges.length; ++i) {
+            filters[i] = FilterByFilterCounter.rangeFilter(fieldType, ranges[i].from, ranges[i].to);
+            if (filters[i] == null) {
+                return null;
+            }
+        }
+        return new FilterByFilterCounter(filters, context, this::incrementBucketDocCount);
     }
 
     @Override
@@ -127,6 +160,9 @@ public class RangeAggregator extends BucketsAggregator {
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (filterByFilter != null) {
+            return filterByFilter.getLeafCollector(ctx);
+        }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -194,6 +230,18 @@ public class RangeAggregator extends BucketsAggregator {
         return owningBucketOrdinal * ranges.length + rangeOrd;
     }
 
+    @Override
+    protected void doPostCollection() throws IOException {
+        if (filterByFilter != null) {
+            filterByFilter.flush();
+        }
+    }
+
+    @Override
+    protected void doClose() {
+        Releasables.close(filterByFilter);
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
         List<org.elasticsearch.search.aggregations.bucket.range.Range.Bucket> buckets = new ArrayList<>(ranges.length);
@@ -298,7 +346,18 @@ public class RangeAggregator extends BucketsAggregator {
         @Override
         protected Aggregator doCreateInternal(ValuesSource.Numeric valuesSource, AggregationContext aggregationContext, Aggregator parent,
                 boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
-            return new RangeAggregator(name, factories, valuesSource, config.format(), rangeFactory, ranges, keyed, aggregationContext, parent, pipelineAggregators, metaData);
+            // top-level aggregations that only need counts can count ranges one after the other if most documents match
+            MappedFieldType filterByFilterField = parent == null && factories.count() == 0 ? indexedFieldType() : null;
+            if (filterByFilterField != null && FilterByFilterCounter.queryMatchesMostDocs(aggregationContext) == false) {
+                filterByFilterField = null;
+            }
+            return new RangeAggregator(name, factories, valuesSource, filterByFilterField, config.format(), rangeFactory, ranges, keyed,
+                    aggregationContext, parent, pipelineAggregators, metaData);
+        }
+
+        @Override
+        public boolean supportsConcurrentCollection() {
+            return usesScript() == false;
         }
     }
 
@@ -21,6 +21,7 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.IntArray;
 import org.elasticsearch.common.util.LongHash;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
@@ -47,22 +48,51 @@ import java.util.Map;
  */
 public class LongTermsAggregator extends TermsAggregator {
 
+    /**
+     * The maximum number of distinct values in the range of values of a field for bucket ordinals to be looked
+     * up in a dense array rather than in the hash table.
+     */
+    static final long MAX_DENSE_RANGE = 1 << 12;
+
     protected final ValuesSource.Numeric valuesSource;
     protected final ValueFormatter formatter;
     protected final LongHash bucketOrds;
     private boolean showTermDocCountError;
     private LongFilter longFilter;
+    // bucket ordinals plus one of values in [minValue, maxValue], indexed by value - minValue, 0 if the value has not been seen yet
+    private final IntArray denseOrds;
+    private final long minValue;
 
     public LongTermsAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, ValueFormat format,
             Terms.Order order, BucketCountThresholds bucketCountThresholds, AggregationContext aggregationContext, Aggregator parent,
             SubAggCollectionMode subAggCollectMode, boolean showTermDocCountError, IncludeExclude.LongFilter longFilter,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, format, order, bucketCountThresholds, aggregationContext, parent, subAggCollectMode,
+                showTermDocCountError, longFilter, 0, -1, pipelineAggregators, metaData);
+    }
+
+    /**
+     * Create an aggregator that knows about the range of values of the field on the shard: if this range is small, bucket ordinals
+     * of values in this range are looked up in a dense array, and only values out of this range go to the hash table.
+     */
+    public LongTermsAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, ValueFormat format,
+            Terms.Order order, BucketCountThresholds bucketCountThresholds, AggregationContext aggregationContext, Aggregator parent,
+            SubAggCollectionMode subAggCollectMode, boolean showTermDocCountError, IncludeExclude.LongFilter longFilter,
+            long minValue, long maxValue, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
         super(name, factories, aggregationContext, parent, bucketCountThresholds, order, subAggCollectMode, pipelineAggregators, metaData);
         this.valuesSource = valuesSource;
         this.showTermDocCountError = showTermDocCountError;
         this.formatter = format.formatter();
         this.longFilter = longFilter;
         bucketOrds = new LongHash(1, aggregationContext.bigArrays());
+        // maxValue - minValue may overflow
+        if (maxValue >= minValue && maxValue - minValue >= 0 && maxValue - minValue < MAX_DENSE_RANGE) {
+            this.denseOrds = aggregationContext.bigArrays().newIntArray(maxValue - minValue + 1);
+            this.minValue = minValue;
+        } else {
+            this.denseOrds = null;
+            this.minValue = 0;
+        }
     }
 
     @Override
@@ -90,7 +120,7 @@ public class LongTermsAggregator extends TermsAggregator {
                     final long val = values.valueAt(i);
                     if (previous != val || i == 0) {
                         if ((longFilter == null) || (longFilter.accept(val))) {
-                            long bucketOrdinal = bucketOrds.add(val);
+                            long bucketOrdinal = addBucketOrd(val);
                             if (bucketOrdinal < 0) { // already seen
                                 bucketOrdinal = - 1 - bucketOrdinal;
                                 collectExistingBucket(sub, doc, bucketOrdinal);
@@ -106,6 +136,29 @@ public class LongTermsAggregator extends TermsAggregator {
         };
     }
 
+    /**
+     * Same as {@link LongHash#add(long)} but values that are in the dense range only go through the hash table the first time
+     * they are seen.
+     */
+    private long addBucketOrd(long value) {
+        if (denseOrds != null) {
+            final long index = value - minValue;
+            if (index >= 0 && index < denseOrds.size()) {
+                final int ordPlusOne = denseOrds.get(index);
+                if (ordPlusOne != 0) {
+                    return -ordPlusOne;
+                }
+                final long bucketOrd = bucketOrds.add(value);
+                final long ord = bucketOrd < 0 ? -1 - bucketOrd : bucketOrd;
+                if (ord < Integer.MAX_VALUE) {
+                    denseOrds.set(index, (int) ord + 1);
+                }
+                return bucketOrd;
+            }
+        }
+        return bucketOrds.add(value);
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
         assert owningBucketOrdinal == 0;
@@ -174,7 +227,7 @@ public class LongTermsAggregator extends TermsAggregator {
 
     @Override
     public void doClose() {
-        Releasables.close(bucketOrds);
+        Releasables.close(bucketOrds, denseOrds);
     }
 
 }
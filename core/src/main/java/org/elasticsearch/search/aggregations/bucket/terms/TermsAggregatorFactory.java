@@ -18,7 +18,10 @@
  */
 package org.elasticsearch.search.aggregations.bucket.terms;
 
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
 import org.apache.lucene.search.IndexSearcher;
+import org.elasticsearch.action.fieldstats.FieldStats;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.ParseFieldMatcher;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
@@ -244,8 +247,13 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                 }
             }
 
+            SubAggCollectionMode cm = collectMode;
+            if (cm == null) {
+                cm = subAggCollectionMode(factories, bucketCountThresholds.getShardSize(), maxOrd);
+            }
+
             return execution.create(name, factories, valuesSource, order, bucketCountThresholds, includeExclude, aggregationContext,
-                    parent, collectMode, showTermDocCountError, pipelineAggregators, metaData);
+                    parent, cm, showTermDocCountError, pipelineAggregators, metaData);
         }
 
         if ((includeExclude != null) && (includeExclude.isRegexBased())) {
@@ -257,20 +265,37 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
         }
 
         if (valuesSource instanceof ValuesSource.Numeric) {
+            // the range of values bounds the cardinality of integer fields
+            final FieldStats.Long valueRange = ((ValuesSource.Numeric) valuesSource).isFloatingPoint() ? null
+                    : valueRange(aggregationContext);
+            SubAggCollectionMode cm = collectMode;
+            if (cm == null) {
+                long maxOrd = -1;
+                if (valueRange != null && valueRange.getMaxValue() - valueRange.getMinValue() >= 0) {
+                    maxOrd = valueRange.getMaxValue() - valueRange.getMinValue() + 1;
+                }
+                cm = subAggCollectionMode(factories, bucketCountThresholds.getShardSize(), maxOrd);
+            }
             IncludeExclude.LongFilter longFilter = null;
             if (((ValuesSource.Numeric) valuesSource).isFloatingPoint()) {
                 if (includeExclude != null) {
                     longFilter = includeExclude.convertToDoubleFilter();
                 }
                 return new DoubleTermsAggregator(name, factories, (ValuesSource.Numeric) valuesSource, config.format(), order,
-                        bucketCountThresholds, aggregationContext, parent, collectMode, showTermDocCountError, longFilter,
+                        bucketCountThresholds, aggregationContext, parent, cm, showTermDocCountError, longFilter,
                         pipelineAggregators, metaData);
             }
             if (includeExclude != null) {
                 longFilter = includeExclude.convertToLongFilter();
             }
+            if (valueRange != null && Aggregator.descendsFromBucketAggregator(parent) == false) {
+                // there is a single instance of this aggregator, so it may afford a dense array of bucket ordinals
+                return new LongTermsAggregator(name, factories, (ValuesSource.Numeric) valuesSource, config.format(), order,
+                        bucketCountThresholds, aggregationContext, parent, cm, showTermDocCountError, longFilter,
+                        valueRange.getMinValue(), valueRange.getMaxValue(), pipelineAggregators, metaData);
+            }
             return new LongTermsAggregator(name, factories, (ValuesSource.Numeric) valuesSource, config.format(), order,
-                    bucketCountThresholds, aggregationContext, parent, collectMode, showTermDocCountError, longFilter, pipelineAggregators,
+                    bucketCountThresholds, aggregationContext, parent, cm, showTermDocCountError, longFilter, pipelineAggregators,
                     metaData);
         }
 
@@ -278,4 +303,50 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                 + "]. It can only be applied to numeric or string fields.");
     }
 
+    /**
+     * Returns the range of values of the field on the shard as recorded in its terms dictionary, or {@code null} if it is
+     * unknown, eg. if the field is not indexed or if values are computed by a script. Values of deleted documents may be
+     * included in this range, and values that are substituted to missing values may be out of this range.
+     */
+    private FieldStats.Long valueRange(AggregationContext aggregationContext) throws IOException {
+        if (config.fieldContext() == null || config.script() != null) {
+            return null;
+        }
+        final IndexReader reader = aggregationContext.searchContext().searcher().getIndexReader();
+        final org.apache.lucene.index.Terms terms = MultiFields.getTerms(reader, config.fieldContext().field());
+        if (terms == null) {
+            return null;
+        }
+        final FieldStats<?> stats = config.fieldContext().fieldType().stats(terms, reader.maxDoc());
+        if (stats instanceof FieldStats.Long) {
+            return (FieldStats.Long) stats;
+        }
+        return null;
+    }
+
+    /**
+     * Picks the collection mode of sub aggregations when the user did not provide one.
+     * Deferring sub aggregations only pays off if some buckets are going to be pruned, ie. if the
+     * number of unique terms is greater than the number of buckets that are returned by the shard.
+     *
+     * @param subFactories  the factories of the sub aggregations
+     * @param expectedSize  the number of buckets that will be returned by the shard
+     * @param maxOrd        the number of unique terms, or {@code -1} if unknown
+     */
+    static SubAggCollectionMode subAggCollectionMode(AggregatorFactories subFactories, int expectedSize, long maxOrd) {
+        if (subFactories.count() == 0) {
+            // nothing to defer
+            return SubAggCollectionMode.DEPTH_FIRST;
+        }
+        if (expectedSize == Integer.MAX_VALUE) {
+            // all buckets are returned
+            return SubAggCollectionMode.DEPTH_FIRST;
+        }
+        if (maxOrd == -1 || maxOrd > expectedSize) {
+            // the cardinality is either unknown or greater than the number of buckets we return
+            return SubAggCollectionMode.BREADTH_FIRST;
+        }
+        return SubAggCollectionMode.DEPTH_FIRST;
+    }
+
 }
@@ -132,6 +132,11 @@ public class AvgAggregator extends NumericMetricsAggregator.SingleValue {
                 throws IOException {
             return new AvgAggregator(name, valuesSource, config.formatter(), aggregationContext, parent, pipelineAggregators, metaData);
         }
+
+        @Override
+        public boolean supportsConcurrentCollection() {
+            return usesScript() == false;
+        }
     }
 
     @Override
@@ -57,6 +57,11 @@ final class CardinalityAggregatorFactory extends ValuesSourceAggregatorFactory.L
                 metaData);
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return usesScript() == false;
+    }
+
     /*
      * If one of the parent aggregators is a MULTI_BUCKET one, we might want to lower the precision
      * because otherwise it might be memory-intensive. On the other hand, for top-level aggregators
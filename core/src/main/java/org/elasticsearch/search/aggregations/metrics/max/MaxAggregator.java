@@ -132,6 +132,11 @@ public class MaxAggregator extends NumericMetricsAggregator.SingleValue {
                 throws IOException {
             return new MaxAggregator(name, valuesSource, config.formatter(), aggregationContext, parent, pipelineAggregators, metaData);
         }
+
+        @Override
+        public boolean supportsConcurrentCollection() {
+            return usesScript() == false;
+        }
     }
 
     @Override
@@ -131,6 +131,11 @@ public class MinAggregator extends NumericMetricsAggregator.SingleValue {
                 throws IOException {
             return new MinAggregator(name, valuesSource, config.formatter(), aggregationContext, parent, pipelineAggregators, metaData);
         }
+
+        @Override
+        public boolean supportsConcurrentCollection() {
+            return usesScript() == false;
+        }
     }
 
     @Override
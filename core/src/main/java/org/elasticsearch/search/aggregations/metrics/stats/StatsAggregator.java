@@ -173,6 +173,11 @@ public class StatsAggregator extends NumericMetricsAggregator.MultiValue {
                 throws IOException {
             return new StatsAggregator(name, valuesSource, config.formatter(), aggregationContext, parent, pipelineAggregators, metaData);
         }
+
+        @Override
+        public boolean supportsConcurrentCollection() {
+            return usesScript() == false;
+        }
     }
 
     @Override
@@ -128,6 +128,10 @@ public class ValueCountAggregator extends NumericMetricsAggregator.SingleValue {
                     metaData);
         }
 
+        @Override
+        public boolean supportsConcurrentCollection() {
+            return usesScript() == false;
+        }
     }
 
 }
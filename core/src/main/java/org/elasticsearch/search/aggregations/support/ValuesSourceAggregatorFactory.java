@@ -18,6 +18,8 @@
  */
 package org.elasticsearch.search.aggregations.support;
 
+import org.apache.lucene.index.IndexOptions;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.AggregationInitializationException;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -71,6 +73,30 @@ public abstract class ValuesSourceAggregatorFactory<VS extends ValuesSource> ext
         }
     }
 
+    /**
+     * Whether values are computed by a script. Scripts rely on the search lookup, which can't be
+     * shared across threads, so these aggregations can't be collected concurrently.
+     */
+    protected boolean usesScript() {
+        return config.script() != null;
+    }
+
+    /**
+     * The type of the field that values are read from if documents can be matched with queries on this field instead of
+     * reading their values, ie. if the field is indexed and values are neither computed by a script nor replaced when
+     * missing, or {@code null} otherwise.
+     */
+    protected MappedFieldType indexedFieldType() {
+        if (config.script() != null || config.missing != null || config.fieldContext() == null) {
+            return null;
+        }
+        final MappedFieldType fieldType = config.fieldContext().fieldType();
+        if (fieldType == null || fieldType.indexOptions() == IndexOptions.NONE) {
+            return null;
+        }
+        return fieldType;
+    }
+
     protected abstract Aggregator createUnmapped(AggregationContext aggregationContext, Aggregator parent,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException;
 
@@ -78,6 +78,7 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
     public static final ParseField _SOURCE_FIELD = new ParseField("_source");
     public static final ParseField FIELDS_FIELD = new ParseField("fields");
     public static final ParseField FIELDDATA_FIELDS_FIELD = new ParseField("fielddata_fields");
+    public static final ParseField DOCVALUE_FIELDS_FIELD = new ParseField("docvalue_fields");
     public static final ParseField SCRIPT_FIELDS_FIELD = new ParseField("script_fields");
     public static final ParseField SCRIPT_FIELD = new ParseField("script");
     public static final ParseField IGNORE_FAILURE_FIELD = new ParseField("ignore_failure");
@@ -140,6 +141,8 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
 
     private List<String> fieldNames;
     private List<String> fieldDataFields;
+
+    private List<String> docValueFields;
     private List<ScriptField> scriptFields;
     private FetchSourceContext fetchSourceContext;
 
@@ -622,6 +625,25 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         return fieldDataFields;
     }
 
+    /**
+     * Adds a field to load from doc values and return as part of the search request. Fields that don't have doc values
+     * are loaded from stored fields if they are stored.
+     */
+    public SearchSourceBuilder docValueField(String name) {
+        if (docValueFields == null) {
+            docValueFields = new ArrayList<>();
+        }
+        docValueFields.add(name);
+        return this;
+    }
+
+    /**
+     * Gets the doc value fields.
+     */
+    public List<String> docValueFields() {
+        return docValueFields;
+    }
+
     /**
      * Adds a script field under the given name with the provided script.
      *
@@ -870,6 +892,17 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
                         }
                     }
                     builder.fieldDataFields = fieldDataFields;
+                } else if (context.parseFieldMatcher().match(currentFieldName, DOCVALUE_FIELDS_FIELD)) {
+                    List<String> docValueFields = new ArrayList<>();
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                        if (token == XContentParser.Token.VALUE_STRING) {
+                            docValueFields.add(parser.text());
+                        } else {
+                            throw new ParsingException(parser.getTokenLocation(), "Expected [" + XContentParser.Token.VALUE_STRING + "] in ["
+                                    + currentFieldName + "] but found [" + token + "]", parser.getTokenLocation());
+                        }
+                    }
+                    builder.docValueFields = docValueFields;
                 } else if (context.parseFieldMatcher().match(currentFieldName, SORT_FIELD)) {
                     List<BytesReference> sorts = new ArrayList<>();
                     while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
@@ -981,6 +1014,14 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
             builder.endArray();
         }
 
+        if (docValueFields != null) {
+            builder.startArray(DOCVALUE_FIELDS_FIELD.getPreferredName());
+            for (String docValueField : docValueFields) {
+                builder.value(docValueField);
+            }
+            builder.endArray();
+        }
+
         if (scriptFields != null) {
             builder.startObject(SCRIPT_FIELDS_FIELD.getPreferredName());
             for (ScriptField scriptField : scriptFields) {
@@ -1161,6 +1202,17 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
             }
             builder.fieldDataFields = fieldDataFields;
         }
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            boolean hasDocValueFields = in.readBoolean();
+            if (hasDocValueFields) {
+                int size = in.readVInt();
+                List<String> docValueFields = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    docValueFields.add(in.readString());
+                }
+                builder.docValueFields = docValueFields;
+            }
+        }
         boolean hasFieldNames = in.readBoolean();
         if (hasFieldNames) {
             int size = in.readVInt();
@@ -1266,6 +1318,16 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
                 out.writeString(field);
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            boolean hasDocValueFields = docValueFields != null;
+            out.writeBoolean(hasDocValueFields);
+            if (hasDocValueFields) {
+                out.writeVInt(docValueFields.size());
+                for (String field : docValueFields) {
+                    out.writeString(field);
+                }
+            }
+        }
         boolean hasFieldNames = fieldNames != null;
         out.writeBoolean(hasFieldNames);
         if (hasFieldNames) {
@@ -1363,7 +1425,7 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
 
     @Override
     public int hashCode() {
-        return Objects.hash(aggregations, explain, fetchSourceContext, fieldDataFields, fieldNames, from,
+        return Objects.hash(aggregations, explain, fetchSourceContext, fieldDataFields, docValueFields, fieldNames, from,
                 highlightBuilder, indexBoost, innerHitsBuilder, minScore, postQueryBuilder, queryBuilder, rescoreBuilders, scriptFields,
                 size, sorts, stats, suggestBuilder, terminateAfter, timeoutInMillis, trackScores, version, profile);
     }
@@ -1381,6 +1443,7 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
                 && Objects.equals(explain, other.explain)
                 && Objects.equals(fetchSourceContext, other.fetchSourceContext)
                 && Objects.equals(fieldDataFields, other.fieldDataFields)
+                && Objects.equals(docValueFields, other.docValueFields)
                 && Objects.equals(fieldNames, other.fieldNames)
                 && Objects.equals(from, other.from)
                 && Objects.equals(highlightBuilder, other.highlightBuilder)
@@ -164,6 +164,19 @@ public class SearchPhaseController extends AbstractComponent {
      * @param resultsArr Shard result holder
      */
     public ScoreDoc[] sortDocs(boolean ignoreFrom, AtomicArray<? extends QuerySearchResultProvider> resultsArr) throws IOException {
+        return sortDocs(ignoreFrom, resultsArr, false);
+    }
+
+    /**
+     * @param ignoreFrom Whether to ignore the from and sort all hits in each shard result.
+     *                   Enabled only for scroll search, because that only retrieves hits of length 'size' in the query phase.
+     * @param resultsArr Shard result holder
+     * @param speculativeFetch Whether the shards fetched their top hits speculatively for a query then fetch search, in
+     *                   which case only 'size' hits are returned, rather than 'size' hits per shard for query and fetch
+     *                   searches.
+     */
+    public ScoreDoc[] sortDocs(boolean ignoreFrom, AtomicArray<? extends QuerySearchResultProvider> resultsArr,
+                               boolean speculativeFetch) throws IOException {
         List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> results = resultsArr.asList();
         if (results.isEmpty()) {
             return EMPTY_DOCS;
@@ -221,7 +234,7 @@ public class SearchPhaseController extends AbstractComponent {
         QuerySearchResultProvider firstResult = sortedResults[0].value;
 
         int topN = firstResult.queryResult().size();
-        if (firstResult.includeFetch()) {
+        if (firstResult.includeFetch() && speculativeFetch == false) {
             // if we did both query and fetch on the same go, we have fetched all the docs from each shards already, use them...
             // this is also important since we shortcut and fetch only docs from "from" and up to "size"
             topN *= sortedResults.length;
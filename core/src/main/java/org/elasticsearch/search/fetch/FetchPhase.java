@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.fetch;
 
+import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.search.DocIdSetIterator;
@@ -27,9 +28,11 @@ import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.BitSet;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.text.Text;
@@ -46,6 +49,8 @@ import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
+import org.elasticsearch.search.fetch.docvalues.DocValueFieldsContext;
+import org.elasticsearch.search.fetch.docvalues.DocValueFieldsFetchSubPhase;
 import org.elasticsearch.search.fetch.innerhits.InnerHitsFetchSubPhase;
 import org.elasticsearch.search.fetch.source.FetchSourceContext;
 import org.elasticsearch.search.internal.InternalSearchHit;
@@ -56,6 +61,7 @@ import org.elasticsearch.search.lookup.SourceLookup;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -71,6 +77,14 @@ import static org.elasticsearch.common.xcontent.XContentFactory.contentBuilder;
  */
 public class FetchPhase implements SearchPhase {
 
+    /** The minimum number of hits that a segment must have to read its stored fields sequentially. */
+    static final int SEQUENTIAL_ACCESS_MIN_HITS = 10;
+    /**
+     * The maximum average number of documents between two hits of a segment for its stored fields to be read
+     * sequentially, beyond which hits are unlikely to share compressed blocks.
+     */
+    static final int SEQUENTIAL_ACCESS_MAX_AVG_GAP = 16;
+
     private final FetchSubPhase[] fetchSubPhases;
 
     @Inject
@@ -99,15 +113,13 @@ public class FetchPhase implements SearchPhase {
         FieldsVisitor fieldsVisitor;
         Set<String> fieldNames = null;
         List<String> fieldNamePatterns = null;
+        final DocValueFieldsContext docValueFieldsContext = context.getFetchSubPhaseContext(DocValueFieldsFetchSubPhase.CONTEXT_FACTORY);
         if (!context.hasFieldNames()) {
             // no fields specified, default to return source if no explicit indication
-            if (!context.hasScriptFields() && !context.hasFetchSourceContext()) {
+            if (!context.hasScriptFields() && !docValueFieldsContext.hitExecutionNeeded() && !context.hasFetchSourceContext()) {
                 context.fetchSourceContext(new FetchSourceContext(true));
             }
-            fieldsVisitor = new FieldsVisitor(context.sourceRequested());
-        } else if (context.fieldNames().isEmpty()) {
-            fieldsVisitor = new FieldsVisitor(context.sourceRequested());
-        } else {
+        } else if (context.fieldNames().isEmpty() == false) {
             for (String fieldName : context.fieldNames()) {
                 if (fieldName.equals(SourceFieldMapper.NAME)) {
                     if (context.hasFetchSourceContext()) {
@@ -136,26 +148,60 @@ public class FetchPhase implements SearchPhase {
                     fieldNames.add(fieldName);
                 }
             }
-            boolean loadSource = context.sourceRequested();
+        }
+        if (docValueFieldsContext.hitExecutionNeeded()) {
+            // stored fields are only loaded for the doc value fields that don't have doc values
+            for (String fieldName : docValueFieldsContext.fields()) {
+                MappedFieldType fieldType = context.mapperService().fullName(fieldName);
+                if (fieldType != null && fieldType.stored() && DocValueFieldsFetchSubPhase.fetchFromDocValues(fieldType) == false) {
+                    if (fieldNames == null) {
+                        fieldNames = new HashSet<>();
+                    }
+                    fieldNames.add(fieldName);
+                }
+            }
+        }
+        boolean loadSource = context.sourceRequested();
+        if (fieldNames == null && fieldNamePatterns == null) {
+            fieldsVisitor = new FieldsVisitor(loadSource);
+        } else {
             fieldsVisitor = new CustomFieldsVisitor(fieldNames == null ? Collections.emptySet() : fieldNames,
                         fieldNamePatterns == null ? Collections.emptyList() : fieldNamePatterns, loadSource);
         }
 
-        InternalSearchHit[] hits = new InternalSearchHit[context.docIdsToLoadSize()];
+        final int numHits = context.docIdsToLoadSize();
+        InternalSearchHit[] hits = new InternalSearchHit[numHits];
+        // documents are loaded in doc id order so that stored fields are read sequentially, each doc id is packed with
+        // the index of the hit in the upper and lower bits of a long so that hits can be put back in score order
+        final long[] docsToLoad = new long[numHits];
+        for (int index = 0; index < numHits; index++) {
+            final int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
+            docsToLoad[index] = ((long) docId << 32) | index;
+        }
+        Arrays.sort(docsToLoad);
+
+        final List<LeafReaderContext> leaves = context.searcher().getIndexReader().leaves();
         FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
-        for (int index = 0; index < context.docIdsToLoadSize(); index++) {
-            int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
-            int readerIndex = ReaderUtil.subIndex(docId, context.searcher().getIndexReader().leaves());
-            LeafReaderContext subReaderContext = context.searcher().getIndexReader().leaves().get(readerIndex);
+        LeafReaderContext subReaderContext = null;
+        StoredFieldsReader fieldsReader = null;
+        int leafEnd = 0;
+        for (int i = 0; i < numHits; i++) {
+            final int docId = (int) (docsToLoad[i] >>> 32);
+            final int index = (int) docsToLoad[i];
+            if (subReaderContext == null || docId >= leafEnd) {
+                subReaderContext = leaves.get(ReaderUtil.subIndex(docId, leaves));
+                leafEnd = subReaderContext.docBase + subReaderContext.reader().maxDoc();
+                fieldsReader = sequentialFieldsReader(context, subReaderContext, docsToLoad, i, leafEnd);
+            }
             int subDocId = docId - subReaderContext.docBase;
 
             final InternalSearchHit searchHit;
             try {
                 int rootDocId = findRootDocumentIfNested(context, subReaderContext, subDocId);
                 if (rootDocId != -1) {
-                    searchHit = createNestedSearchHit(context, docId, subDocId, rootDocId, fieldNames, fieldNamePatterns, subReaderContext);
+                    searchHit = createNestedSearchHit(context, docId, subDocId, rootDocId, fieldNames, fieldNamePatterns, subReaderContext, fieldsReader);
                 } else {
-                    searchHit = createSearchHit(context, fieldsVisitor, docId, subDocId, subReaderContext);
+                    searchHit = createSearchHit(context, fieldsVisitor, docId, subDocId, subReaderContext, fieldsReader);
                 }
             } catch (IOException e) {
                 throw ExceptionsHelper.convertToElastic(e);
@@ -179,6 +225,31 @@ public class FetchPhase implements SearchPhase {
         context.fetchResult().hits(new InternalSearchHits(hits, context.queryResult().topDocs().totalHits, context.queryResult().topDocs().getMaxScore()));
     }
 
+    /**
+     * Returns a stored fields reader that keeps decompressed blocks around for the hits of the given segment, which
+     * start at {@code from} in the sorted list of docs to load, or {@code null} if hits are too sparse for it to help,
+     * in which case documents are loaded through the segment reader.
+     */
+    private static StoredFieldsReader sequentialFieldsReader(SearchContext context, LeafReaderContext subReaderContext, long[] sortedDocs, int from, int leafEnd) {
+        int to = from;
+        while (to < sortedDocs.length && (sortedDocs[to] >>> 32) < leafEnd) {
+            to++;
+        }
+        final int numLeafHits = to - from;
+        if (numLeafHits < SEQUENTIAL_ACCESS_MIN_HITS) {
+            return null;
+        }
+        final long span = (sortedDocs[to - 1] >>> 32) - (sortedDocs[from] >>> 32) + 1;
+        if (span > (long) numLeafHits * SEQUENTIAL_ACCESS_MAX_AVG_GAP) {
+            return null;
+        }
+        try {
+            return Lucene.sequentialStoredFieldsReader(subReaderContext.reader());
+        } catch (IOException e) {
+            throw new FetchPhaseExecutionException(context, "Failed to open stored fields of segment [" + subReaderContext.ord + "]", e);
+        }
+    }
+
     private int findRootDocumentIfNested(SearchContext context, LeafReaderContext subReaderContext, int subDocId) throws IOException {
         if (context.mapperService().hasNested()) {
             BitSet bits = context.bitsetFilterCache().getBitSetProducer(Queries.newNonNestedFilter()).getBitSet(subReaderContext);
@@ -189,8 +260,8 @@ public class FetchPhase implements SearchPhase {
         return -1;
     }
 
-    private InternalSearchHit createSearchHit(SearchContext context, FieldsVisitor fieldsVisitor, int docId, int subDocId, LeafReaderContext subReaderContext) {
-        loadStoredFields(context, subReaderContext, fieldsVisitor, subDocId);
+    private InternalSearchHit createSearchHit(SearchContext context, FieldsVisitor fieldsVisitor, int docId, int subDocId, LeafReaderContext subReaderContext, @Nullable StoredFieldsReader fieldsReader) {
+        loadStoredFields(context, subReaderContext, fieldsReader, fieldsVisitor, subDocId);
         fieldsVisitor.postProcess(context.mapperService());
 
         Map<String, SearchHitField> searchFields = null;
@@ -218,15 +289,15 @@ public class FetchPhase implements SearchPhase {
         return searchHit;
     }
 
-    private InternalSearchHit createNestedSearchHit(SearchContext context, int nestedTopDocId, int nestedSubDocId, int rootSubDocId, Set<String> fieldNames, List<String> fieldNamePatterns, LeafReaderContext subReaderContext) throws IOException {
+    private InternalSearchHit createNestedSearchHit(SearchContext context, int nestedTopDocId, int nestedSubDocId, int rootSubDocId, Set<String> fieldNames, List<String> fieldNamePatterns, LeafReaderContext subReaderContext, @Nullable StoredFieldsReader fieldsReader) throws IOException {
         // Also if highlighting is requested on nested documents we need to fetch the _source from the root document,
         // otherwise highlighting will attempt to fetch the _source from the nested doc, which will fail,
         // because the entire _source is only stored with the root document.
         final FieldsVisitor rootFieldsVisitor = new FieldsVisitor(context.sourceRequested() || context.highlight() != null);
-        loadStoredFields(context, subReaderContext, rootFieldsVisitor, rootSubDocId);
+        loadStoredFields(context, subReaderContext, fieldsReader, rootFieldsVisitor, rootSubDocId);
         rootFieldsVisitor.postProcess(context.mapperService());
 
-        Map<String, SearchHitField> searchFields = getSearchFields(context, nestedSubDocId, fieldNames, fieldNamePatterns, subReaderContext);
+        Map<String, SearchHitField> searchFields = getSearchFields(context, nestedSubDocId, fieldNames, fieldNamePatterns, subReaderContext, fieldsReader);
         DocumentMapper documentMapper = context.mapperService().documentMapper(rootFieldsVisitor.uid().type());
         SourceLookup sourceLookup = context.lookup().source();
         sourceLookup.setSegmentAndDocument(subReaderContext, nestedSubDocId);
@@ -271,13 +342,13 @@ public class FetchPhase implements SearchPhase {
         return searchHit;
     }
 
-    private Map<String, SearchHitField> getSearchFields(SearchContext context, int nestedSubDocId, Set<String> fieldNames, List<String> fieldNamePatterns, LeafReaderContext subReaderContext) {
+    private Map<String, SearchHitField> getSearchFields(SearchContext context, int nestedSubDocId, Set<String> fieldNames, List<String> fieldNamePatterns, LeafReaderContext subReaderContext, @Nullable StoredFieldsReader fieldsReader) {
         Map<String, SearchHitField> searchFields = null;
         if (context.hasFieldNames() && !context.fieldNames().isEmpty()) {
             FieldsVisitor nestedFieldsVisitor = new CustomFieldsVisitor(fieldNames == null ? Collections.emptySet() : fieldNames,
                     fieldNamePatterns == null ? Collections.emptyList() : fieldNamePatterns, false);
             if (nestedFieldsVisitor != null) {
-                loadStoredFields(context, subReaderContext, nestedFieldsVisitor, nestedSubDocId);
+                loadStoredFields(context, subReaderContext, fieldsReader, nestedFieldsVisitor, nestedSubDocId);
                 nestedFieldsVisitor.postProcess(context.mapperService());
                 if (!nestedFieldsVisitor.fields().isEmpty()) {
                     searchFields = new HashMap<>(nestedFieldsVisitor.fields().size());
@@ -340,10 +411,14 @@ public class FetchPhase implements SearchPhase {
         return nestedIdentity;
     }
 
-    private void loadStoredFields(SearchContext searchContext, LeafReaderContext readerContext, FieldsVisitor fieldVisitor, int docId) {
+    private void loadStoredFields(SearchContext searchContext, LeafReaderContext readerContext, @Nullable StoredFieldsReader fieldsReader, FieldsVisitor fieldVisitor, int docId) {
         fieldVisitor.reset();
         try {
-            readerContext.reader().document(docId, fieldVisitor);
+            if (fieldsReader != null) {
+                fieldsReader.visitDocument(docId, fieldVisitor);
+            } else {
+                readerContext.reader().document(docId, fieldVisitor);
+            }
         } catch (IOException e) {
             throw new FetchPhaseExecutionException(searchContext, "Failed to fetch doc id [" + docId + "]", e);
         }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.fetch;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.SearchShardTarget;
@@ -60,7 +61,9 @@ public class QueryFetchSearchResult extends QuerySearchResultProvider implements
     @Override
     public void shardTarget(SearchShardTarget shardTarget) {
         queryResult.shardTarget(shardTarget);
-        fetchResult.shardTarget(shardTarget);
+        if (fetchResult != null) {
+            fetchResult.shardTarget(shardTarget);
+        }
     }
 
     @Override
@@ -73,6 +76,10 @@ public class QueryFetchSearchResult extends QuerySearchResultProvider implements
         return queryResult;
     }
 
+    /**
+     * The fetched hits, or {@code null} if a query then fetch search speculatively asked the shard to fetch its top hits
+     * and the shard decided to leave them for a separate fetch phase.
+     */
     @Override
     public FetchSearchResult fetchResult() {
         return fetchResult;
@@ -88,13 +95,23 @@ public class QueryFetchSearchResult extends QuerySearchResultProvider implements
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
         queryResult = readQuerySearchResult(in);
-        fetchResult = readFetchSearchResult(in);
+        if (in.getVersion().before(Version.V_3_0_0) || in.readBoolean()) {
+            fetchResult = readFetchSearchResult(in);
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
         queryResult.writeTo(out);
-        fetchResult.writeTo(out);
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            out.writeBoolean(fetchResult != null);
+        } else {
+            // older nodes never fetch speculatively, so they always expect fetched hits
+            assert fetchResult != null;
+        }
+        if (fetchResult != null) {
+            fetchResult.writeTo(out);
+        }
     }
 }
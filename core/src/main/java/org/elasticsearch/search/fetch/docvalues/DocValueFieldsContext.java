@@ -0,0 +1,52 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.fetch.docvalues;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.fetch.FetchSubPhaseContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * All the required context to return fields from their doc values, as well as the doc values of the segment that
+ * hits are being fetched from, which are reused across hits since hits of a segment are fetched in doc id order.
+ */
+public class DocValueFieldsContext extends FetchSubPhaseContext {
+
+    private final List<String> fields = new ArrayList<>();
+
+    // resolved on the first hit
+    MappedFieldType[] fieldTypes;
+    LeafReaderContext currentLeaf;
+    ScriptDocValues[] currentValues;
+
+    public DocValueFieldsContext() {
+    }
+
+    public void add(String field) {
+        this.fields.add(field);
+    }
+
+    public List<String> fields() {
+        return this.fields;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.fetch.docvalues;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.SearchParseElement;
+import org.elasticsearch.search.fetch.FetchSubPhase;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHitField;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Fetch sub phase which returns fields from their doc values, without loading stored fields or parsing the source.
+ * Fields that don't have doc values are loaded from stored fields by the fetch phase if they are stored, and ignored
+ * otherwise. Doc values are reused across the hits of a segment, which the fetch phase visits in doc id order.
+ *
+ * Specifying {@code "docvalue_fields": ["field1", "field2"]}
+ */
+public class DocValueFieldsFetchSubPhase implements FetchSubPhase {
+
+    public static final String[] NAMES = {"docvalue_fields", "docvalueFields"};
+    public static final ContextFactory<DocValueFieldsContext> CONTEXT_FACTORY = new ContextFactory<DocValueFieldsContext>() {
+
+        @Override
+        public String getName() {
+            return NAMES[0];
+        }
+
+        @Override
+        public DocValueFieldsContext newContextInstance() {
+            return new DocValueFieldsContext();
+        }
+    };
+
+    @Inject
+    public DocValueFieldsFetchSubPhase() {
+    }
+
+    /**
+     * Returns whether the given field can be fetched from doc values.
+     */
+    public static boolean fetchFromDocValues(MappedFieldType fieldType) {
+        return fieldType != null && fieldType.hasDocValues();
+    }
+
+    @Override
+    public Map<String, ? extends SearchParseElement> parseElements() {
+        Map<String, SearchParseElement> parseElements = new HashMap<>();
+        parseElements.put("docvalue_fields", new DocValueFieldsParseElement());
+        parseElements.put("docvalueFields", new DocValueFieldsParseElement());
+        return unmodifiableMap(parseElements);
+    }
+
+    @Override
+    public boolean hitsExecutionNeeded(SearchContext context) {
+        return false;
+    }
+
+    @Override
+    public void hitsExecute(SearchContext context, InternalSearchHit[] hits) {
+    }
+
+    @Override
+    public boolean hitExecutionNeeded(SearchContext context) {
+        return context.getFetchSubPhaseContext(CONTEXT_FACTORY).hitExecutionNeeded();
+    }
+
+    @Override
+    public void hitExecute(SearchContext context, HitContext hitContext) {
+        final DocValueFieldsContext docValueFieldsContext = context.getFetchSubPhaseContext(CONTEXT_FACTORY);
+        final List<String> fields = docValueFieldsContext.fields();
+        if (docValueFieldsContext.fieldTypes == null) {
+            docValueFieldsContext.fieldTypes = new MappedFieldType[fields.size()];
+            for (int i = 0; i < fields.size(); i++) {
+                docValueFieldsContext.fieldTypes[i] = context.mapperService().fullName(fields.get(i));
+            }
+        }
+        final LeafReaderContext readerContext = hitContext.readerContext();
+        if (docValueFieldsContext.currentLeaf != readerContext) {
+            // load doc values once per segment rather than once per hit
+            docValueFieldsContext.currentLeaf = readerContext;
+            docValueFieldsContext.currentValues = new ScriptDocValues[fields.size()];
+            for (int i = 0; i < fields.size(); i++) {
+                MappedFieldType fieldType = docValueFieldsContext.fieldTypes[i];
+                if (fetchFromDocValues(fieldType)) {
+                    docValueFieldsContext.currentValues[i] = context.fieldData().getForField(fieldType).load(readerContext).getScriptValues();
+                }
+            }
+        }
+
+        for (int i = 0; i < fields.size(); i++) {
+            ScriptDocValues<?> values = docValueFieldsContext.currentValues[i];
+            if (values == null) {
+                continue;
+            }
+            values.setNextDocId(hitContext.docId());
+            List<?> docValues = values.getValues();
+            if (docValues.isEmpty()) {
+                continue;
+            }
+            MappedFieldType fieldType = docValueFieldsContext.fieldTypes[i];
+            List<Object> hitValues = new ArrayList<>(docValues.size());
+            for (Object value : docValues) {
+                hitValues.add(fieldType.valueForSearch(value));
+            }
+            if (hitContext.hit().fieldsOrNull() == null) {
+                hitContext.hit().fields(new HashMap<String, SearchHitField>(2));
+            }
+            hitContext.hit().fields().put(fields.get(i), new InternalSearchHitField(fields.get(i), hitValues));
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.elasticsearch.search.fetch.source;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.fetch.FetchSubPhase;
 import org.elasticsearch.search.internal.InternalSearchHit;
@@ -67,8 +68,13 @@ public class FetchSourceSubPhase implements FetchSubPhase {
         }
 
         SourceLookup source = context.lookup().source();
-        Object value = source.filter(fetchSourceContext.includes(), fetchSourceContext.excludes());
         try {
+            if (source.isSourceParsed() == false && source.internalSourceRef() != null) {
+                // copy the matching parts of the source while parsing it instead of building a map of the whole source
+                hitContext.hit().sourceRef(XContentHelper.filter(source.internalSourceRef(), fetchSourceContext.includes(), fetchSourceContext.excludes()));
+                return;
+            }
+            Object value = source.filter(fetchSourceContext.includes(), fetchSourceContext.excludes());
             final int initialCapacity = Math.min(1024, source.internalSourceRef().length());
             BytesStreamOutput streamOutput = new BytesStreamOutput(initialCapacity);
             XContentBuilder builder = new XContentBuilder(context.lookup().source().sourceContentType().xContent(), streamOutput);
@@ -20,9 +20,11 @@
 package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermContext;
 import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
@@ -38,6 +40,7 @@ import org.elasticsearch.search.profile.ProfileWeight;
 import org.elasticsearch.search.profile.Profiler;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -130,6 +133,15 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         }
     }
 
+    /**
+     * Collect the given subset of the leaves of this searcher. This is used to collect
+     * slices of a shard concurrently, and may be called from several threads at once.
+     */
+    @Override
+    public void search(List<LeafReaderContext> leaves, Weight weight, Collector collector) throws IOException {
+        super.search(leaves, weight, collector);
+    }
+
     @Override
     public Explanation explain(Query query, int doc) throws IOException {
         return in.explain(query, doc);
@@ -115,6 +115,13 @@ public class SourceLookup implements Map {
         this.source = source;
     }
 
+    /**
+     * Returns whether the source has already been parsed into a map.
+     */
+    public boolean isSourceParsed() {
+        return source != null;
+    }
+
     /**
      * Internal source representation, might be compressed....
      */
@@ -38,18 +38,23 @@ import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
+import org.elasticsearch.indices.cache.request.IndicesRequestCache;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.CollectorResult;
@@ -80,12 +85,15 @@ public class QueryPhase implements SearchPhase {
     private final AggregationPhase aggregationPhase;
     private final SuggestPhase suggestPhase;
     private RescorePhase rescorePhase;
+    private final IndicesRequestCache requestCache;
 
     @Inject
-    public QueryPhase(AggregationPhase aggregationPhase, SuggestPhase suggestPhase, RescorePhase rescorePhase) {
+    public QueryPhase(AggregationPhase aggregationPhase, SuggestPhase suggestPhase, RescorePhase rescorePhase,
+                      IndicesRequestCache requestCache) {
         this.aggregationPhase = aggregationPhase;
         this.suggestPhase = suggestPhase;
         this.rescorePhase = rescorePhase;
+        this.requestCache = requestCache;
     }
 
     @Override
@@ -123,7 +131,13 @@ public class QueryPhase implements SearchPhase {
         // here to make sure it happens during the QUERY phase
         aggregationPhase.preProcess(searchContext);
 
-        boolean rescore = execute(searchContext, searchContext.searcher());
+        final boolean rescore;
+        if (canCacheSegmentHits(searchContext)) {
+            executeWithSegmentHitsCache(searchContext);
+            rescore = false;
+        } else {
+            rescore = execute(searchContext, searchContext.searcher());
+        }
 
         if (rescore) { // only if we do a regular search
             rescorePhase.execute(searchContext);
@@ -137,6 +151,82 @@ public class QueryPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Whether the top hits of every segment can be cached, which is only the case for requests that sort on fields
+     * without scores, since scores depend on the statistics of the whole shard, and whose collection isn't altered by
+     * other search options.
+     */
+    private boolean canCacheSegmentHits(SearchContext searchContext) {
+        final Sort sort = searchContext.sort();
+        return searchContext.size() > 0
+                && sort != null
+                && sort.needsScores() == false
+                && searchContext.trackScores() == false
+                && searchContext.scrollContext() == null
+                && searchContext.parsedPostFilter() == null
+                && searchContext.minimumScore() == null
+                && searchContext.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+                && searchContext.timeoutInMillis() == SearchService.NO_TIMEOUT.millis()
+                && searchContext.getProfilers() == null
+                && searchContext.queryCollectors().isEmpty()
+                && requestCache.canCacheSegmentHits(searchContext.request(), searchContext);
+    }
+
+    /**
+     * Collect the top hits of every segment separately, or load them from the request cache, and merge them into the
+     * top hits of the shard. Only the segments that are new or have new deletes need to be searched after a refresh.
+     */
+    private void executeWithSegmentHitsCache(SearchContext searchContext) throws QueryPhaseExecutionException {
+        final QuerySearchResult queryResult = searchContext.queryResult();
+        queryResult.searchTimedOut(false);
+        queryResult.from(searchContext.from());
+        queryResult.size(searchContext.size());
+        final ContextIndexSearcher searcher = searchContext.searcher();
+        final Sort sort = searchContext.sort();
+        final int numHits = searchContext.from() + searchContext.size();
+        try {
+            // the query is rewritten against the whole shard, so its matches in a segment only depend on the segment
+            final Query query = searcher.rewrite(searchContext.query());
+            final IndicesRequestCache.SegmentCache segmentCache = requestCache.segmentCache(searchContext.request(), searchContext,
+                    query);
+            final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+            final TopFieldDocs[] segmentTopDocs = new TopFieldDocs[leaves.size()];
+            Weight weight = null;
+            for (LeafReaderContext leaf : leaves) {
+                final TopFieldDocs topDocs;
+                final BytesReference cached = segmentCache.get(leaf);
+                if (cached != null) {
+                    topDocs = (TopFieldDocs) Lucene.readTopDocs(cached.streamInput());
+                } else {
+                    if (weight == null) {
+                        weight = searcher.createNormalizedWeight(query, false);
+                    }
+                    TopFieldCollector collector = TopFieldCollector.create(sort, numHits, true, false, false);
+                    searcher.search(Collections.singletonList(leaf), weight, collector);
+                    topDocs = (TopFieldDocs) collector.topDocs();
+                    // the collector returns top-level doc ids, but hits are cached with doc ids that are relative to their
+                    // segment since the doc base of a segment changes when segments before it are merged away
+                    for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                        scoreDoc.doc -= leaf.docBase;
+                    }
+                    BytesStreamOutput out = new BytesStreamOutput(512);
+                    Lucene.writeTopDocs(out, topDocs);
+                    segmentCache.put(leaf, out);
+                }
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    scoreDoc.doc += leaf.docBase;
+                }
+                segmentTopDocs[leaf.ord] = topDocs;
+            }
+            // merging breaks ties by segment, then by position in the segment, which is the same order as doc ids
+            queryResult.topDocs(TopDocs.merge(sort, numHits, segmentTopDocs));
+        } catch (Throwable e) {
+            throw new QueryPhaseExecutionException(searchContext, "Failed to execute main query", e);
+        } finally {
+            searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
+        }
+    }
+
     private static boolean returnsDocsInOrder(Query query, Sort sort) {
         if (sort == null || Sort.RELEVANCE.equals(sort)) {
             // sort by score
@@ -366,6 +456,12 @@ public class QueryPhase implements SearchPhase {
                 }
             }
 
+            if (collector != null && collector.getClass() == TotalHitCountCollector.class
+                    && searchContext.aggregations() != null && searchContext.aggregations().concurrentCollector() != null) {
+                // hits are counted by the slices that collect aggregations concurrently, see AggregationPhase
+                collector = null;
+            }
+
             final boolean timeoutSet = searchContext.timeoutInMillis() != SearchService.NO_TIMEOUT.millis();
             if (timeoutSet && collector != null) { // collector might be null if no collection is actually needed
                 final Collector child = collector;
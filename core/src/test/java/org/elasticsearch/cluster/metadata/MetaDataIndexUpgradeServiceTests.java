@@ -0,0 +1,87 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateUpdateTask;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+
+public class MetaDataIndexUpgradeServiceTests extends ESSingleNodeTestCase {
+
+    public void testUpgradeClosedIndex() {
+        MetaDataIndexUpgradeService upgradeService = getInstanceFromNode(MetaDataIndexUpgradeService.class);
+        IndexMetaData closed = IndexMetaData.builder("test")
+                .settings(settings(Version.CURRENT).put(IndexMetaData.SETTING_VERSION_UPGRADED, Version.V_2_0_0))
+                .numberOfShards(1).numberOfReplicas(0).state(IndexMetaData.State.CLOSE).build();
+        assertThat(closed.getUpgradedVersion(), equalTo(Version.V_2_0_0));
+        // dangling indices and restores rely on closed indices being checked too
+        assertThat(upgradeService.upgradeIndexMetaData(closed).getUpgradedVersion(), equalTo(Version.CURRENT));
+    }
+
+    public void testUpgradeOnOpen() throws Exception {
+        createIndex("test");
+        assertAcked(client().admin().indices().prepareClose("test"));
+        // pretend that the closed index was skipped by the upgrade check when the node started
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        getInstanceFromNode(ClusterService.class).submitStateUpdateTask("mark as not upgraded", new ClusterStateUpdateTask() {
+            @Override
+            public ClusterState execute(ClusterState currentState) {
+                IndexMetaData indexMetaData = currentState.metaData().index("test");
+                Settings settings = Settings.builder().put(indexMetaData.getSettings())
+                        .put(IndexMetaData.SETTING_VERSION_UPGRADED, Version.V_2_0_0).build();
+                MetaData metaData = MetaData.builder(currentState.metaData())
+                        .put(IndexMetaData.builder(indexMetaData).settings(settings).build(), true).build();
+                return ClusterState.builder(currentState).metaData(metaData).build();
+            }
+
+            @Override
+            public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(String source, Throwable t) {
+                failure.set(t);
+                latch.countDown();
+            }
+        });
+        latch.await();
+        assertNull(failure.get());
+        assertThat(indexMetaData().getUpgradedVersion(), equalTo(Version.V_2_0_0));
+
+        assertAcked(client().admin().indices().prepareOpen("test"));
+        assertThat(indexMetaData().getState(), equalTo(IndexMetaData.State.OPEN));
+        assertThat(indexMetaData().getUpgradedVersion(), equalTo(Version.CURRENT));
+    }
+
+    private IndexMetaData indexMetaData() {
+        return client().admin().cluster().prepareState().get().getState().metaData().index("test");
+    }
+}
@@ -20,11 +20,17 @@
 package org.elasticsearch.cluster.metadata;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.cluster.Diff;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.test.ESTestCase;
 
+import java.io.IOException;
+
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 
 public class MetaDataTests extends ESTestCase {
 
@@ -110,4 +116,74 @@ public class MetaDataTests extends ESTestCase {
             assertThat(ex.getMessage(), is("index/alias [alias2] provided with routing value [1,2] that resolved to several routing values, rejecting operation"));
         }
     }
+
+    public void testIdenticalMappingsAreShared() throws IOException {
+        final String mapping = "{\"type\":{\"properties\":{\"field\":{\"type\":\"string\"}}}}";
+        final String otherMapping = "{\"type\":{\"properties\":{\"field\":{\"type\":\"long\"}}}}";
+        MetaData.Builder builder = MetaData.builder();
+        final int numIndices = randomIntBetween(2, 10);
+        for (int i = 0; i < numIndices; i++) {
+            builder.put(IndexMetaData.builder("index-" + i)
+                    .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+                    .numberOfShards(1)
+                    .numberOfReplicas(0)
+                    .putMapping("type", mapping));
+        }
+        builder.put(IndexMetaData.builder("other")
+                .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+                .putMapping("type", otherMapping));
+        MetaData metaData = builder.build();
+
+        MappingMetaData first = metaData.index("index-0").mapping("type");
+        for (int i = 1; i < numIndices; i++) {
+            assertSame(first, metaData.index("index-" + i).mapping("type"));
+        }
+        assertNotSame(first, metaData.index("other").mapping("type"));
+
+        // a new index with the same mapping reuses the shared instance and leaves the other indices untouched
+        IndexMetaData indexMetaData = metaData.index("index-1");
+        metaData = MetaData.builder(metaData).put(IndexMetaData.builder("new")
+                .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+                .putMapping("type", mapping)).build();
+        assertSame(first, metaData.index("new").mapping("type"));
+        assertSame(indexMetaData, metaData.index("index-1"));
+    }
+
+    public void testSharedMappingsAreSentAsReferencesInDiffs() throws IOException {
+        final String mapping = "{\"type\":{\"properties\":{\"field\":{\"type\":\"string\"}}}}";
+        MetaData before = MetaData.builder().put(IndexMetaData.builder("index")
+                .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+                .putMapping("type", mapping)).build();
+        MetaData after = MetaData.builder(before).put(IndexMetaData.builder("new")
+                .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+                .putMapping("type", mapping)).build();
+        Diff<MetaData> diff = after.diff(before);
+
+        final long[] sizes = new long[2];
+        final Version[] versions = new Version[] { Version.CURRENT, Version.V_2_2_0 };
+        for (int i = 0; i < versions.length; i++) {
+            BytesStreamOutput out = new BytesStreamOutput();
+            out.setVersion(versions[i]);
+            diff.writeTo(out);
+            sizes[i] = out.size();
+            StreamInput in = StreamInput.wrap(out.bytes());
+            in.setVersion(versions[i]);
+            MetaData received = MetaData.PROTO.readDiffFrom(in).apply(before);
+            assertThat(received.index("new").mapping("type"), equalTo(after.index("new").mapping("type")));
+            if (versions[i] == Version.CURRENT) {
+                // the mapping was taken from the previous metadata instead of being read
+                assertSame(before.index("index").mapping("type"), received.index("new").mapping("type"));
+            }
+        }
+        // the mapping is sent as a reference to the previous metadata instead of being sent in full
+        assertThat(sizes[0], lessThan(sizes[1]));
+    }
 }
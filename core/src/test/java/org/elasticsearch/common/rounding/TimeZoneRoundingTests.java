@@ -231,6 +231,52 @@ public class TimeZoneRoundingTests extends ESTestCase {
         }
     }
 
+    /**
+     * randomized test that roundings prepared for a range of values compute the same keys as the original rounding
+     */
+    public void testPreparedRoundingRandom() {
+        final DateTimeZone[] timeZones = new DateTimeZone[] {
+                DateTimeZone.UTC, JERUSALEM_TIMEZONE, DateTimeZone.forID("America/Sao_Paulo"),
+                DateTimeZone.forID("Asia/Kathmandu"), DateTimeZone.forOffsetHours(randomIntBetween(-23, 23)) };
+        for (int i = 0; i < 100; ++i) {
+            TimeZoneRounding.Builder builder;
+            if (randomBoolean()) {
+                builder = TimeZoneRounding.builder(randomTimeUnit());
+            } else {
+                builder = TimeZoneRounding.builder(TimeValue.timeValueMillis(randomIntBetween(1, 2 * 24 * 60 * 60 * 1000)));
+            }
+            builder.timeZone(randomFrom(timeZones));
+            if (randomBoolean()) {
+                builder.offset(randomIntBetween(-24 * 60 * 60 * 1000, 24 * 60 * 60 * 1000));
+            }
+            final Rounding rounding = builder.build();
+            final long minValue = Math.abs(randomLong() % ((long) 10e11)) - (long) 5e11;
+            final long maxValue = minValue + Math.abs(randomLong() % TimeUnit.DAYS.toMillis(randomFrom(1, 30, 3650)));
+            final PreparedRounding prepared = rounding.prepare(minValue, maxValue);
+            for (int j = 0; j < 100; ++j) {
+                final long value;
+                if (rarely()) {
+                    // out of the prepared range
+                    value = randomBoolean() ? minValue - 1 - randomInt(1000000) : maxValue + 1 + randomInt(1000000);
+                } else {
+                    value = minValue + Math.abs(randomLong() % (maxValue - minValue + 1));
+                }
+                final long key = rounding.roundKey(value);
+                assertThat("Prepared rounding should compute the same key for " + toUTCDateString(value) + " with " + rounding,
+                        prepared.roundKey(value), equalTo(key));
+            }
+        }
+    }
+
+    public void testIntervalRoundingIsMonotonic() {
+        Rounding rounding = TimeZoneRounding.builder(TimeValue.timeValueMinutes(90)).build();
+        assertTrue(rounding.isMonotonic(utc("2014-10-20T00:00:00"), utc("2014-10-30T00:00:00")));
+        rounding = TimeZoneRounding.builder(TimeValue.timeValueMinutes(90)).timeZone(JERUSALEM_TIMEZONE).build();
+        // there is a DST switch on 2014-10-26
+        assertFalse(rounding.isMonotonic(time("2014-10-20T00:00:00", JERUSALEM_TIMEZONE), time("2014-10-30T00:00:00", JERUSALEM_TIMEZONE)));
+        assertTrue(rounding.isMonotonic(time("2014-11-01T00:00:00", JERUSALEM_TIMEZONE), time("2014-11-30T00:00:00", JERUSALEM_TIMEZONE)));
+    }
+
     /**
      * special test for DST switch from #9491
      */
@@ -0,0 +1,142 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class BoundedTaskExecutorTests extends ESTestCase {
+
+    public void testResultsInOrder() throws Exception {
+        ExecutorService executor = EsExecutors.newFixed(getTestName(), 4, 100, EsExecutors.daemonThreadFactory(getTestName()));
+        try {
+            BoundedTaskExecutor boundedExecutor = new BoundedTaskExecutor(executor, randomIntBetween(0, 4));
+            final int numTasks = randomIntBetween(1, 50);
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int i = 0; i < numTasks; ++i) {
+                final int value = i;
+                tasks.add(() -> value);
+            }
+            List<Integer> results = boundedExecutor.invokeAll(tasks);
+            assertThat(results.size(), equalTo(numTasks));
+            for (int i = 0; i < numTasks; ++i) {
+                assertThat(results.get(i), equalTo(i));
+            }
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testBoundedConcurrency() throws Exception {
+        ExecutorService executor = EsExecutors.newFixed(getTestName(), 8, 100, EsExecutors.daemonThreadFactory(getTestName()));
+        try {
+            final int maxThreads = randomIntBetween(0, 3);
+            BoundedTaskExecutor boundedExecutor = new BoundedTaskExecutor(executor, maxThreads);
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < 20; ++i) {
+                final long sleepMillis = randomIntBetween(0, 5);
+                tasks.add(() -> {
+                    final int current = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(current, Math::max);
+                    Thread.sleep(sleepMillis);
+                    running.decrementAndGet();
+                    return null;
+                });
+            }
+            boundedExecutor.invokeAll(tasks);
+            // the calling thread runs tasks too
+            assertThat(maxRunning.get(), lessThanOrEqualTo(maxThreads + 1));
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testWorkersRunSeveralTasks() throws Exception {
+        ExecutorService executor = EsExecutors.newFixed(getTestName(), 4, 100, EsExecutors.daemonThreadFactory(getTestName()));
+        try {
+            final int maxThreads = randomIntBetween(0, 4);
+            final AtomicInteger forkedWorkers = new AtomicInteger();
+            BoundedTaskExecutor boundedExecutor = new BoundedTaskExecutor(command -> {
+                forkedWorkers.incrementAndGet();
+                executor.execute(command);
+            }, maxThreads);
+            final int numTasks = randomIntBetween(maxThreads + 1, 50);
+            final AtomicInteger executedTasks = new AtomicInteger();
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < numTasks; ++i) {
+                tasks.add(() -> {
+                    executedTasks.incrementAndGet();
+                    return null;
+                });
+            }
+            boundedExecutor.invokeAll(tasks);
+            assertThat(executedTasks.get(), equalTo(numTasks));
+            // a single worker is forked per thread, no matter how many tasks there are
+            assertThat(forkedWorkers.get(), lessThanOrEqualTo(maxThreads));
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testRejectionRunsOnCallingThread() throws Exception {
+        BoundedTaskExecutor boundedExecutor = new BoundedTaskExecutor(command -> {
+            throw new EsRejectedExecutionException("rejected");
+        }, 2);
+        final Thread caller = Thread.currentThread();
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            tasks.add(() -> Thread.currentThread() == caller);
+        }
+        for (Boolean ranOnCaller : boundedExecutor.invokeAll(tasks)) {
+            assertTrue(ranOnCaller);
+        }
+    }
+
+    public void testFailures() throws Exception {
+        ExecutorService executor = EsExecutors.newFixed(getTestName(), 2, 100, EsExecutors.daemonThreadFactory(getTestName()));
+        try {
+            BoundedTaskExecutor boundedExecutor = new BoundedTaskExecutor(executor, 2);
+            List<Callable<Void>> tasks = new ArrayList<>();
+            tasks.add(() -> null);
+            tasks.add(() -> {
+                throw new IllegalStateException("boom");
+            });
+            tasks.add(() -> null);
+            try {
+                boundedExecutor.invokeAll(tasks);
+                fail("expected an exception");
+            } catch (IllegalStateException e) {
+                assertThat(e.getMessage(), equalTo("boom"));
+            }
+        } finally {
+            terminate(executor);
+        }
+    }
+}
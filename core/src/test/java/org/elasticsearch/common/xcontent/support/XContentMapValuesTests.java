@@ -30,6 +30,7 @@ import org.elasticsearch.test.ESTestCase;
 import org.hamcrest.Matchers;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -551,4 +552,45 @@ public class XContentMapValuesTests extends ESTestCase {
                     parser.list());
         }
     }
+
+    public void testStreamingFilterMatchesMapFilter() throws IOException {
+        final String[] patterns = new String[] {"a", "b", "obj", "a.b", "obj.c", "*.c", "a.*", "b*", "*", "*.*", "obj.a.c", "arr.a"};
+        for (int iter = 0; iter < 100; ++iter) {
+            Map<String, Object> source = randomSource(0);
+            String[] includes = randomSubsetOf(randomIntBetween(0, 3), patterns).toArray(Strings.EMPTY_ARRAY);
+            String[] excludes = randomSubsetOf(randomIntBetween(0, 2), patterns).toArray(Strings.EMPTY_ARRAY);
+            XContentType contentType = randomFrom(XContentType.JSON, XContentType.SMILE, XContentType.CBOR);
+            XContentBuilder builder = XContentFactory.contentBuilder(contentType).map(source);
+
+            Map<String, Object> expected = XContentMapValues.filter(source, includes, excludes);
+            Map<String, Object> actual = XContentHelper.convertToMap(XContentHelper.filter(builder.bytes(), includes, excludes), true).v2();
+            assertEquals("includes " + Arrays.toString(includes) + ", excludes " + Arrays.toString(excludes) + ", source " + source,
+                    expected, actual);
+        }
+    }
+
+    private static Map<String, Object> randomSource(int depth) {
+        final String[] keys = new String[] {"a", "b", "c", "obj", "arr"};
+        Map<String, Object> map = new HashMap<>();
+        for (String key : randomSubsetOf(randomIntBetween(0, keys.length), keys)) {
+            map.put(key, randomValue(depth));
+        }
+        return map;
+    }
+
+    private static Object randomValue(int depth) {
+        switch (depth >= 3 ? 0 : randomInt(3)) {
+            case 0:
+                return randomBoolean() ? randomInt(10) : randomAsciiOfLength(3);
+            case 1:
+                return randomSource(depth + 1);
+            default:
+                final int size = randomIntBetween(0, 3);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; ++i) {
+                    list.add(randomValue(depth + 1));
+                }
+                return list;
+        }
+    }
 }
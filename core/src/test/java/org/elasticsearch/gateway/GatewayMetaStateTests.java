@@ -24,18 +24,23 @@ import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.metadata.MetaDataIndexUpgradeService;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.decider.ClusterRebalanceAllocationDecider;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.test.ESAllocationTestCase;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
 import static org.elasticsearch.cluster.routing.ShardRoutingState.INITIALIZING;
 import static org.elasticsearch.common.settings.Settings.settingsBuilder;
 import static org.hamcrest.Matchers.equalTo;
@@ -242,4 +247,24 @@ public class GatewayMetaStateTests extends ESAllocationTestCase {
         ClusterChangedEvent event = generateCloseEvent(masterEligible);
         assertState(event, stateInMemory, expectMetaData);
     }
+
+    public void testStartupUpgradeSkipsClosedIndices() {
+        final Set<String> checkedIndices = new HashSet<>();
+        MetaDataIndexUpgradeService upgradeService = new MetaDataIndexUpgradeService(Settings.EMPTY, null) {
+            @Override
+            public IndexMetaData upgradeIndexMetaData(IndexMetaData indexMetaData) {
+                checkedIndices.add(indexMetaData.getIndex());
+                return IndexMetaData.builder(indexMetaData).build();
+            }
+        };
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("open").settings(settings(Version.CURRENT)).numberOfShards(1).numberOfReplicas(0))
+                .put(IndexMetaData.builder("closed").settings(settings(Version.CURRENT)).numberOfShards(1).numberOfReplicas(0)
+                        .state(IndexMetaData.State.CLOSE))
+                .build();
+        List<IndexMetaData> upgraded = GatewayMetaState.upgradeOpenIndices(metaData, upgradeService);
+        assertThat(checkedIndices, equalTo(singleton("open")));
+        assertThat(upgraded.size(), equalTo(1));
+        assertThat(upgraded.get(0).getIndex(), equalTo("open"));
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.DummyTransportAddress;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.cluster.TestClusterService;
+import org.elasticsearch.test.transport.CapturingTransport;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class TransportNodesBatchedShardActionTests extends ESTestCase {
+
+    private static ThreadPool THREAD_POOL;
+
+    private CapturingTransport transport;
+    private TestClusterService clusterService;
+    private TransportNodesListGatewayStartedShards action;
+    private int numberOfNodes;
+
+    @BeforeClass
+    public static void startThreadPool() {
+        THREAD_POOL = new ThreadPool(TransportNodesBatchedShardActionTests.class.getSimpleName());
+    }
+
+    @AfterClass
+    public static void destroyThreadPool() {
+        ThreadPool.terminate(THREAD_POOL, 30, TimeUnit.SECONDS);
+        // since static must set to null to be eligible for collection
+        THREAD_POOL = null;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        transport = new CapturingTransport();
+        clusterService = new TestClusterService(THREAD_POOL);
+        final TransportService transportService = new TransportService(transport, THREAD_POOL);
+        transportService.start();
+        numberOfNodes = randomIntBetween(1, 5);
+        DiscoveryNodes.Builder nodes = DiscoveryNodes.builder();
+        for (int i = 0; i < numberOfNodes; i++) {
+            nodes.put(new DiscoveryNode("node_" + i, DummyTransportAddress.INSTANCE, Version.CURRENT));
+        }
+        nodes.localNodeId("node_0").masterNodeId("node_0");
+        clusterService.setState(ClusterState.builder(new ClusterName("test")).nodes(nodes));
+        action = new TransportNodesListGatewayStartedShards(Settings.EMPTY, new ClusterName("test"), THREAD_POOL, clusterService,
+                transportService, new ActionFilters(new HashSet<>()), new IndexNameExpressionResolver(Settings.EMPTY), null);
+    }
+
+    public void testOneRequestPerNode() throws Exception {
+        final int numberOfShards = randomIntBetween(1, 20);
+        final IndexMetaData indexMetaData = IndexMetaData.builder("test").settings(settings(Version.CURRENT))
+                .numberOfShards(numberOfShards).numberOfReplicas(0).build();
+        final String[] nodesIds = new String[numberOfNodes];
+        for (int i = 0; i < numberOfNodes; i++) {
+            nodesIds[i] = "node_" + i;
+        }
+        final List<PlainActionFuture<TransportNodesListGatewayStartedShards.NodesGatewayStartedShards>> futures = new ArrayList<>();
+        for (int shard = 0; shard < numberOfShards; shard++) {
+            PlainActionFuture<TransportNodesListGatewayStartedShards.NodesGatewayStartedShards> future = new PlainActionFuture<>();
+            action.list(new ShardId("test", shard), indexMetaData, nodesIds, future);
+            futures.add(future);
+        }
+        assertThat(transport.capturedRequests().length, equalTo(0));
+
+        action.flush();
+        final Map<String, List<CapturingTransport.CapturedRequest>> capturedRequests = transport.capturedRequestsByTargetNode();
+        assertThat(capturedRequests.size(), equalTo(numberOfNodes));
+        final String failingNode = "node_" + randomIntBetween(0, numberOfNodes - 1);
+        for (Map.Entry<String, List<CapturingTransport.CapturedRequest>> entry : capturedRequests.entrySet()) {
+            assertThat(entry.getValue().size(), equalTo(1));
+            final CapturingTransport.CapturedRequest capturedRequest = entry.getValue().get(0);
+            assertThat(capturedRequest.action, equalTo(action.transportBatchAction));
+            @SuppressWarnings("unchecked")
+            final TransportNodesListGatewayStartedShards.BatchNodeRequest batchRequest =
+                    (TransportNodesListGatewayStartedShards.BatchNodeRequest) capturedRequest.request;
+            assertThat(batchRequest.requests.size(), equalTo(numberOfShards));
+            if (entry.getKey().equals(failingNode)) {
+                transport.handleResponse(capturedRequest.requestId, new IllegalStateException("boom"));
+                continue;
+            }
+            final TransportNodesListGatewayStartedShards.BatchNodeResponse response = action.new BatchNodeResponse(numberOfShards);
+            for (int i = 0; i < numberOfShards; i++) {
+                final int shard = batchRequest.requests.get(i).getShardId().id();
+                response.responses[i] = new TransportNodesListGatewayStartedShards.NodeGatewayStartedShards(capturedRequest.node, shard, null);
+            }
+            transport.handleResponse(capturedRequest.requestId, response);
+        }
+
+        for (int shard = 0; shard < numberOfShards; shard++) {
+            TransportNodesListGatewayStartedShards.NodesGatewayStartedShards response = futures.get(shard).get();
+            assertThat(response.getNodes().length, equalTo(numberOfNodes - 1));
+            for (TransportNodesListGatewayStartedShards.NodeGatewayStartedShards nodeResponse : response.getNodes()) {
+                assertThat(nodeResponse.version(), equalTo((long) shard));
+            }
+            assertThat(response.failures().length, equalTo(1));
+            assertThat(response.failures()[0].nodeId(), equalTo(failingNode));
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.elasticsearch.index.fielddata;
 import org.apache.lucene.analysis.core.KeywordAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
@@ -31,6 +32,8 @@ import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.Index;
@@ -182,6 +185,37 @@ public class IndexFieldDataServiceTests extends ESSingleNodeTestCase {
         ifdService.clear();
     }
 
+    public void testRetainedOrdinalMapIsAccountedUntilShardIsCleared() throws Exception {
+        final IndexService indexService = createIndex("test");
+        final IndexFieldDataService ifdService = indexService.fieldData();
+        final CircuitBreaker breaker = getInstanceFromNode(CircuitBreakerService.class).getBreaker(CircuitBreaker.FIELDDATA);
+        final BuilderContext ctx = new BuilderContext(indexService.getIndexSettings().getSettings(), new ContentPath(1));
+        final MappedFieldType mapper = new StringFieldMapper.Builder("s").tokenized(false).build(ctx).fieldType();
+        final IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(new KeywordAnalyzer()));
+        for (String value : new String[] {"a", "b"}) {
+            // one segment per value so that global ordinals need an ordinal map
+            Document doc = new Document();
+            doc.add(new SortedSetDocValuesField("s", new BytesRef(value)));
+            writer.addDocument(doc);
+            writer.commit();
+        }
+        final ShardId shardId = new ShardId("test", 0);
+        final DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer, true), shardId);
+        assertEquals(2, reader.leaves().size());
+        final long usedBefore = breaker.getUsed();
+        final IndexFieldData.Global<?> ifd = ifdService.getForField(mapper);
+        ifd.loadGlobal(reader);
+        assertTrue(breaker.getUsed() > usedBefore);
+
+        // the ordinal map survives the reader so that the next reader can build global ordinals incrementally
+        reader.close();
+        assertTrue(breaker.getUsed() > usedBefore);
+
+        ifdService.clear(shardId);
+        assertEquals(usedBefore, breaker.getUsed());
+        writer.close();
+    }
+
     public void testSetCacheListenerTwice() {
         final IndexService indexService = createIndex("test");
         IndexFieldDataService shardPrivateService = indexService.fieldData();
@@ -0,0 +1,132 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiDocValues.OrdinalMap;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.RandomAccessOrds;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.index.fielddata.FieldData;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+public class IncrementalOrdinalMapTests extends ESTestCase {
+
+    public void testIncrementalBuild() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, new IndexWriterConfig(null).setMergePolicy(NoMergePolicy.INSTANCE));
+        int numDocs = addSegment(w, 0);
+        DirectoryReader reader = DirectoryReader.open(w, true);
+        IncrementalOrdinalMap previous = IncrementalOrdinalMap.build(reader, values(reader), null);
+        assertFalse(previous.isIncremental());
+        assertSameMapping(reader, previous);
+
+        final int iters = randomIntBetween(1, 5);
+        for (int i = 0; i < iters; ++i) {
+            final int numNewSegments = randomIntBetween(0, 3);
+            for (int j = 0; j < numNewSegments; ++j) {
+                numDocs += addSegment(w, numDocs);
+            }
+            reader.close();
+            reader = DirectoryReader.open(w, true);
+            IncrementalOrdinalMap map = IncrementalOrdinalMap.build(reader, values(reader), previous);
+            assertTrue(map.isIncremental());
+            assertSameMapping(reader, map);
+            previous = map;
+        }
+
+        reader.close();
+        w.close();
+        dir.close();
+    }
+
+    public void testFullBuildWhenSegmentsAreRemoved() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, new IndexWriterConfig(null));
+        int numDocs = addSegment(w, 0);
+        numDocs += addSegment(w, numDocs);
+        DirectoryReader reader = DirectoryReader.open(w, true);
+        IncrementalOrdinalMap previous = IncrementalOrdinalMap.build(reader, values(reader), null);
+        reader.close();
+
+        // merging segments removes the segments that the previous map knows about
+        w.forceMerge(1);
+        addSegment(w, numDocs);
+        reader = DirectoryReader.open(w, true);
+        IncrementalOrdinalMap map = IncrementalOrdinalMap.build(reader, values(reader), previous);
+        assertFalse(map.isIncremental());
+        assertSameMapping(reader, map);
+
+        reader.close();
+        w.close();
+        dir.close();
+    }
+
+    private int addSegment(IndexWriter w, int firstId) throws IOException {
+        final int numDocs = randomIntBetween(1, 100);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new StringField("id", Integer.toString(firstId + i), Field.Store.NO));
+            final int numValues = randomIntBetween(0, 3);
+            for (int j = 0; j < numValues; ++j) {
+                doc.add(new SortedSetDocValuesField("field", new BytesRef(randomAsciiOfLength(randomIntBetween(1, 2)))));
+            }
+            w.addDocument(doc);
+        }
+        w.commit();
+        return numDocs;
+    }
+
+    private static RandomAccessOrds[] values(DirectoryReader reader) throws IOException {
+        final RandomAccessOrds[] values = new RandomAccessOrds[reader.leaves().size()];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = FieldData.maybeSlowRandomAccessOrds(DocValues.getSortedSet(reader.leaves().get(i).reader(), "field"));
+        }
+        return values;
+    }
+
+    private static void assertSameMapping(DirectoryReader reader, IncrementalOrdinalMap map) throws IOException {
+        final RandomAccessOrds[] values = values(reader);
+        final OrdinalMap expected = OrdinalMap.build(null, values, PackedInts.DEFAULT);
+        assertEquals(expected.getValueCount(), map.getValueCount());
+        for (int i = 0; i < values.length; ++i) {
+            for (long ord = 0; ord < values[i].getValueCount(); ++ord) {
+                assertEquals(expected.getGlobalOrds(i).get(ord), map.getGlobalOrds(i).get(ord));
+            }
+        }
+        final RandomAccessOrds[] otherValues = values(reader);
+        for (long globalOrd = 0; globalOrd < expected.getValueCount(); ++globalOrd) {
+            final BytesRef expectedTerm = values[expected.getFirstSegmentNumber(globalOrd)].lookupOrd(expected.getFirstSegmentOrd(globalOrd));
+            final BytesRef term = otherValues[map.getFirstSegmentNumber(globalOrd)].lookupOrd(map.getFirstSegmentOrd(globalOrd));
+            assertEquals(expectedTerm, term);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.percolator;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.memory.MemoryIndex;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class PercolatorQueryTermsTests extends ESTestCase {
+
+    private static final String[] FIELDS = new String[] { "f1", "f2" };
+    private static final String[] WORDS = new String[] { "a", "bb", "ccc", "dddd", "eeeee", "ffffff" };
+
+    public void testExtractTerms() {
+        Term t1 = new Term("f1", "a");
+        Term t2 = new Term("f1", "bb");
+        Term t3 = new Term("f2", "ccc");
+        assertThat(PercolatorQueryTerms.extractTerms(new TermQuery(t1)), equalTo(Collections.singleton(t1)));
+        assertThat(PercolatorQueryTerms.extractTerms(new ConstantScoreQuery(new TermQuery(t1))), equalTo(Collections.singleton(t1)));
+        assertThat(PercolatorQueryTerms.extractTerms(new BoostQuery(new TermQuery(t1), 2f)), equalTo(Collections.singleton(t1)));
+        assertThat(PercolatorQueryTerms.extractTerms(new PhraseQuery("f1", "a", "bb")), equalTo(Collections.singleton(t2)));
+        assertThat(PercolatorQueryTerms.extractTerms(new WildcardQuery(t1)), nullValue());
+
+        BooleanQuery disjunction = new BooleanQuery.Builder()
+                .add(new TermQuery(t1), Occur.SHOULD)
+                .add(new TermQuery(t3), Occur.SHOULD)
+                .build();
+        assertThat(PercolatorQueryTerms.extractTerms(disjunction), equalTo(new HashSet<>(Arrays.asList(t1, t3))));
+        assertThat(PercolatorQueryTerms.extractTerms(new DisjunctionMaxQuery(Arrays.asList(new TermQuery(t1), new TermQuery(t2)), 0f)),
+                equalTo(new HashSet<>(Arrays.asList(t1, t2))));
+
+        // a single unsupported disjunct makes the whole disjunction unsupported
+        BooleanQuery partialDisjunction = new BooleanQuery.Builder()
+                .add(new TermQuery(t1), Occur.SHOULD)
+                .add(new WildcardQuery(t3), Occur.SHOULD)
+                .build();
+        assertThat(PercolatorQueryTerms.extractTerms(partialDisjunction), nullValue());
+
+        // a single supported required clause is enough, the one with the longest terms is preferred
+        BooleanQuery conjunction = new BooleanQuery.Builder()
+                .add(new TermQuery(t1), Occur.MUST)
+                .add(new WildcardQuery(t3), Occur.MUST)
+                .add(new TermQuery(t3), Occur.FILTER)
+                .add(new TermQuery(t2), Occur.SHOULD)
+                .add(new TermQuery(t2), Occur.MUST_NOT)
+                .build();
+        assertThat(PercolatorQueryTerms.extractTerms(conjunction), equalTo(Collections.singleton(t3)));
+
+        BooleanQuery prohibited = new BooleanQuery.Builder()
+                .add(new TermQuery(t1), Occur.MUST_NOT)
+                .build();
+        assertThat(PercolatorQueryTerms.extractTerms(prohibited), nullValue());
+    }
+
+    public void testCandidatesIncludeMatchingQueries() throws Exception {
+        PercolatorQueryTerms queryTerms = new PercolatorQueryTerms();
+        Map<BytesRef, Query> queries = new HashMap<>();
+        final int numQueries = randomIntBetween(1, 200);
+        for (int i = 0; i < numQueries; ++i) {
+            BytesRef id = new BytesRef(Integer.toString(i));
+            Query query = randomQuery(0);
+            queries.put(id, query);
+            queryTerms.add(id, query);
+        }
+        // replace and remove some queries
+        for (int i = 0; i < numQueries; ++i) {
+            BytesRef id = new BytesRef(Integer.toString(i));
+            if (rarely()) {
+                queries.remove(id);
+                queryTerms.remove(id);
+            } else if (rarely()) {
+                Query query = randomQuery(0);
+                queries.put(id, query);
+                queryTerms.add(id, query);
+            }
+        }
+
+        for (int iter = 0; iter < 20; ++iter) {
+            MemoryIndex memoryIndex = new MemoryIndex();
+            for (String field : FIELDS) {
+                StringBuilder text = new StringBuilder();
+                final int numWords = randomIntBetween(0, 3);
+                for (int i = 0; i < numWords; ++i) {
+                    text.append(randomFrom(WORDS)).append(' ');
+                }
+                memoryIndex.addField(field, text.toString(), new WhitespaceAnalyzer());
+            }
+            IndexReader reader = memoryIndex.createSearcher().getIndexReader();
+            Set<BytesRef> candidates = new HashSet<>();
+            queryTerms.candidates(reader, candidates);
+            for (Map.Entry<BytesRef, Query> entry : queries.entrySet()) {
+                if (Lucene.exists(memoryIndex.createSearcher(), entry.getValue())) {
+                    assertTrue(entry.getValue() + " matches but is not a candidate", candidates.contains(entry.getKey()));
+                }
+            }
+        }
+    }
+
+    private static Query randomQuery(int depth) {
+        final String field = randomFrom(FIELDS);
+        switch (randomIntBetween(0, depth < 3 ? 5 : 2)) {
+        case 0:
+            return new TermQuery(new Term(field, randomFrom(WORDS)));
+        case 1:
+            return new PhraseQuery(field, randomFrom(WORDS), randomFrom(WORDS));
+        case 2:
+            return randomBoolean() ? new MatchAllDocsQuery() : new WildcardQuery(new Term(field, randomFrom(WORDS) + "*"));
+        case 3:
+            return new ConstantScoreQuery(randomQuery(depth + 1));
+        case 4:
+            return new DisjunctionMaxQuery(Arrays.asList(randomQuery(depth + 1), randomQuery(depth + 1)), 0f);
+        default:
+            BooleanQuery.Builder builder = new BooleanQuery.Builder();
+            final int numClauses = randomIntBetween(1, 4);
+            for (int i = 0; i < numClauses; ++i) {
+                builder.add(randomQuery(depth + 1), randomFrom(Occur.values()));
+            }
+            return builder.build();
+        }
+    }
+}
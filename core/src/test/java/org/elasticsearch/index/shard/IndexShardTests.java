@@ -894,6 +894,11 @@ public class IndexShardTests extends ESSingleNodeTestCase {
                 }
             }
 
+            @Override
+            public Store.MetadataSnapshot restoreIdenticalFiles(ShardId shardId, Store.MetadataSnapshot metadata, RecoveryState recoveryState) {
+                return Store.MetadataSnapshot.EMPTY;
+            }
+
             @Override
             public IndexShardSnapshotStatus snapshotStatus(SnapshotId snapshotId, Version version, ShardId shardId) {
                 return null;
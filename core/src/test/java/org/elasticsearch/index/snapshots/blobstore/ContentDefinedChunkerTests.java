@@ -0,0 +1,108 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.apache.lucene.store.IndexInput;
+import org.elasticsearch.common.lucene.store.ByteArrayIndexInput;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class ContentDefinedChunkerTests extends ESTestCase {
+
+    public void testChunksCoverInput() throws IOException {
+        final ContentDefinedChunker chunker = new ContentDefinedChunker(randomIntBetween(64, 4096));
+        final byte[] bytes = randomBytes(randomIntBetween(0, 100000));
+        final List<byte[]> chunks = chunk(chunker, bytes);
+        int offset = 0;
+        for (int i = 0; i < chunks.size(); ++i) {
+            final byte[] chunk = chunks.get(i);
+            assertThat(chunk.length, greaterThan(0));
+            assertThat(chunk.length, lessThanOrEqualTo(chunker.maxChunkSize()));
+            assertArrayEquals(Arrays.copyOfRange(bytes, offset, offset + chunk.length), chunk);
+            offset += chunk.length;
+        }
+        assertThat(offset, equalTo(bytes.length));
+    }
+
+    public void testInsertionOnlyChangesNearbyChunks() throws IOException {
+        final int averageChunkSize = 1024;
+        final ContentDefinedChunker chunker = new ContentDefinedChunker(averageChunkSize);
+        final byte[] bytes = randomBytes(averageChunkSize * 200);
+        // insert a few bytes in the middle of the input
+        final int insertionPoint = randomIntBetween(0, bytes.length);
+        final byte[] inserted = randomBytes(randomIntBetween(1, 100));
+        final byte[] modified = new byte[bytes.length + inserted.length];
+        System.arraycopy(bytes, 0, modified, 0, insertionPoint);
+        System.arraycopy(inserted, 0, modified, insertionPoint, inserted.length);
+        System.arraycopy(bytes, insertionPoint, modified, insertionPoint + inserted.length, bytes.length - insertionPoint);
+
+        final List<byte[]> chunks = chunk(chunker, bytes);
+        final Set<String> existingChunks = new HashSet<>();
+        for (byte[] chunk : chunks) {
+            existingChunks.add(Arrays.toString(chunk));
+        }
+        int newChunks = 0;
+        for (byte[] chunk : chunk(chunker, modified)) {
+            if (existingChunks.contains(Arrays.toString(chunk)) == false) {
+                newChunks++;
+            }
+        }
+        // the chunk that contains the insertion changes, boundaries then resynchronize within a few chunks
+        assertThat(newChunks, lessThanOrEqualTo(5));
+        assertThat(chunks.size(), greaterThan(50));
+    }
+
+    public void testInvalidAverageChunkSize() {
+        try {
+            new ContentDefinedChunker(randomIntBetween(0, 63));
+            fail("expected an exception");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("average chunk size must be between"));
+        }
+    }
+
+    private static List<byte[]> chunk(ContentDefinedChunker chunker, byte[] bytes) throws IOException {
+        final List<byte[]> chunks = new ArrayList<>();
+        final byte[] buffer = new byte[chunker.maxChunkSize()];
+        try (IndexInput input = new ByteArrayIndexInput("test", bytes)) {
+            int length;
+            while ((length = chunker.nextChunk(input, buffer)) > 0) {
+                chunks.add(Arrays.copyOf(buffer, length));
+            }
+        }
+        return chunks;
+    }
+
+    private static byte[] randomBytes(int length) {
+        final byte[] bytes = new byte[length];
+        random().nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -32,6 +32,8 @@ import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
@@ -50,7 +52,15 @@ public class FileInfoTests extends ESTestCase {
             }
             StoreFileMetaData meta = new StoreFileMetaData("foobar", Math.abs(randomLong()), randomAsciiOfLengthBetween(1, 10), Version.LATEST, hash);
             ByteSizeValue size = new ByteSizeValue(Math.abs(randomLong()));
-            BlobStoreIndexShardSnapshot.FileInfo info = new BlobStoreIndexShardSnapshot.FileInfo("_foobar", meta, size);
+            List<String> chunks = null;
+            if (randomBoolean()) {
+                chunks = new ArrayList<>();
+                final int numChunks = randomIntBetween(0, 10);
+                for (int i = 0; i < numChunks; i++) {
+                    chunks.add("chunk-" + randomAsciiOfLength(10));
+                }
+            }
+            BlobStoreIndexShardSnapshot.FileInfo info = new BlobStoreIndexShardSnapshot.FileInfo("_foobar", meta, size, chunks);
             XContentBuilder builder = XContentFactory.contentBuilder(XContentType.JSON).prettyPrint();
             BlobStoreIndexShardSnapshot.FileInfo.toXContent(info, builder, ToXContent.EMPTY_PARAMS);
             byte[] xcontent = builder.bytes().toBytes();
@@ -68,7 +78,9 @@ public class FileInfoTests extends ESTestCase {
             assertThat(parsedInfo.metadata().hash().length, equalTo(hash.length));
             assertThat(parsedInfo.metadata().hash(), equalTo(hash));
             assertThat(parsedInfo.metadata().writtenBy(), equalTo(Version.LATEST));
+            assertThat(parsedInfo.chunks(), equalTo(chunks));
             assertThat(parsedInfo.isSame(info.metadata()), is(true));
+            assertThat(parsedInfo.isSame(info), is(true));
         }
     }
 
@@ -0,0 +1,84 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.util.Version;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.zip.CRC32;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class PartChecksumsTests extends ESTestCase {
+
+    public void testCombine() {
+        final byte[] bytes = new byte[randomIntBetween(0, 10000)];
+        random().nextBytes(bytes);
+        final int split = randomIntBetween(0, bytes.length);
+        final CRC32 whole = new CRC32();
+        whole.update(bytes, 0, bytes.length);
+        final CRC32 first = new CRC32();
+        first.update(bytes, 0, split);
+        final CRC32 second = new CRC32();
+        second.update(bytes, split, bytes.length - split);
+        assertThat(PartChecksums.combine(first.getValue(), second.getValue(), bytes.length - split), equalTo(whole.getValue()));
+    }
+
+    public void testVerify() throws Exception {
+        // the last 8 bytes of a file are its checksum
+        final byte[] bytes = new byte[randomIntBetween(9, 10000)];
+        random().nextBytes(bytes);
+        final int checksumPosition = bytes.length - 8;
+        final CRC32 whole = new CRC32();
+        whole.update(bytes, 0, checksumPosition);
+        final StoreFileMetaData metadata = new StoreFileMetaData("_0.cfs", bytes.length, Store.digestToString(whole.getValue()),
+                Version.LATEST);
+        final int partBytes = randomIntBetween(1, bytes.length);
+        final int numberOfParts = (bytes.length + partBytes - 1) / partBytes;
+        final PartChecksums checksums = new PartChecksums(metadata, numberOfParts);
+        // parts may end in the middle of the checksum or consist of the checksum only
+        for (int part = 0; part < numberOfParts; part++) {
+            final int offset = part * partBytes;
+            final int length = Math.min(partBytes, bytes.length - offset);
+            final CRC32 partChecksum = new CRC32();
+            partChecksum.update(bytes, offset, Math.max(0, Math.min(offset + length, checksumPosition) - offset));
+            checksums.setChecksum(part, offset, length, partChecksum.getValue());
+        }
+        checksums.verify(whole.getValue());
+
+        try {
+            checksums.verify(whole.getValue() + 1);
+            fail("expected a corrupted footer to fail verification");
+        } catch (CorruptIndexException e) {
+            // expected
+        }
+
+        checksums.setChecksum(0, 0, Math.min(partBytes, bytes.length), whole.getValue() ^ 1);
+        try {
+            checksums.verify(whole.getValue());
+            fail("expected a corrupted part to fail verification");
+        } catch (CorruptIndexException e) {
+            // expected
+        }
+    }
+}
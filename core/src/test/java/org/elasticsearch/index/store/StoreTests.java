@@ -1277,6 +1277,33 @@ public class StoreTests extends ESTestCase {
         IOUtils.close(store);
     }
 
+    public void testMetadataIsReusedUntilNextCommit() throws IOException {
+        final ShardId shardId = new ShardId(new Index("index"), 1);
+        DirectoryService directoryService = new LuceneManagedDirectoryService(random());
+        Store store = new Store(shardId, INDEX_SETTINGS, directoryService, new DummyShardLock(shardId));
+        IndexWriterConfig config = newIndexWriterConfig(random(), new MockAnalyzer(random())).setCodec(TestUtil.getDefaultCodec());
+        IndexWriter writer = new IndexWriter(store.directory(), config);
+        Document doc = new Document();
+        doc.add(new TextField("id", "1", Field.Store.NO));
+        writer.addDocument(doc);
+        writer.commit();
+        Store.MetadataSnapshot first = store.getMetadata();
+        assertSame(first, store.getMetadata());
+
+        doc = new Document();
+        doc.add(new TextField("id", "2", Field.Store.NO));
+        writer.addDocument(doc);
+        writer.commit();
+        writer.close();
+        Store.MetadataSnapshot second = store.getMetadata();
+        assertNotSame(first, second);
+        assertThat(second.getSegmentsFile().name(), not(equalTo(first.getSegmentsFile().name())));
+        assertThat(second.getNumDocs(), equalTo(2L));
+        assertSame(second, store.getMetadata());
+        assertDeleteContent(store, directoryService);
+        IOUtils.close(store);
+    }
+
     public void testStreamStoreFilesMetaData() throws Exception {
         Store.MetadataSnapshot metadataSnapshot = createMetaDataSnapshot();
         TransportNodesListShardStoreMetaData.StoreFilesMetaData outStoreFileMetaData = new TransportNodesListShardStoreMetaData.StoreFilesMetaData(randomBoolean(), new ShardId("test", 0),metadataSnapshot);
@@ -42,6 +42,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
@@ -449,6 +450,39 @@ public class TranslogTests extends ESTestCase {
     }
 
 
+    public void testViewOfRetainedGenerations() throws IOException {
+        translog.add(new Translog.Index("test", "1", new byte[]{1}));
+        translog.commit();
+        assertFileDeleted(translog, 1);
+        assertNull("generations are not retained by default", translog.newView(1));
+
+        Settings settings = Settings.settingsBuilder()
+                .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+                .put(IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE, "1mb")
+                .build();
+        TranslogConfig config = new TranslogConfig(shardId, createTempDir(), IndexSettingsModule.newIndexSettings(shardId.index(), settings),
+                BigArrays.NON_RECYCLING_INSTANCE);
+        try (Translog retainingTranslog = new Translog(config)) {
+            ArrayList<Translog.Operation> ops = new ArrayList<>();
+            final int numCommits = randomIntBetween(1, 5);
+            for (int i = 0; i < numCommits; i++) {
+                addToTranslogAndList(retainingTranslog, ops, new Translog.Index("test", Integer.toString(i), new byte[]{(byte) i}));
+                retainingTranslog.commit();
+                assertTrue(Files.exists(retainingTranslog.location().resolve(Translog.getFilename(1))));
+            }
+            addToTranslogAndList(retainingTranslog, ops, new Translog.Index("test", "last", new byte[]{1}));
+            assertThat(retainingTranslog.totalOperations(), equalTo(1));
+            for (int generation = 1; generation <= numCommits + 1; generation++) {
+                try (Translog.View view = retainingTranslog.newView(generation);
+                     Translog.Snapshot snapshot = view.snapshot()) {
+                    assertThat(view.minTranslogGeneration(), equalTo((long) generation));
+                    assertThat(snapshot, SnapshotMatchers.equalsTo(new ArrayList<>(ops.subList(generation - 1, ops.size()))));
+                }
+            }
+            assertNull(retainingTranslog.newView(numCommits + 2));
+        }
+    }
+
     public void assertFileIsPresent(Translog translog, long id) {
         if (Files.exists(translogDir.resolve(Translog.getFilename(id)))) {
             return;
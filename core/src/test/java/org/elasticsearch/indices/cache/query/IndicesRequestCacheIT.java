@@ -21,17 +21,28 @@ package org.elasticsearch.indices.cache.query;
 
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.index.shard.MergePolicyConfig;
 import org.elasticsearch.indices.cache.request.IndicesRequestCache;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram.Bucket;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ESIntegTestCase;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeSet;
 
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.dateHistogram;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.sum;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 
 public class IndicesRequestCacheIT extends ESIntegTestCase {
@@ -74,4 +85,152 @@ public class IndicesRequestCacheIT extends ESIntegTestCase {
         }
     }
 
+    public void testCacheSegmentAggs() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index")
+                .addMapping("type", "f", "type=long")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED, true, SETTING_NUMBER_OF_SHARDS, 1).get());
+        long expectedSum = 0;
+        int numDocs = 0;
+        for (int round = 0; round < 5; ++round) {
+            // every round adds a segment and deletes some documents of previous segments
+            final int numNewDocs = randomIntBetween(1, 20);
+            for (int i = 0; i < numNewDocs; ++i) {
+                client().prepareIndex("index", "type", Integer.toString(numDocs)).setSource("f", numDocs).get();
+                expectedSum += numDocs;
+                numDocs++;
+            }
+            if (round > 0 && randomBoolean()) {
+                final int id = randomInt(numDocs - 1);
+                if (client().prepareDelete("index", "type", Integer.toString(id)).get().isFound()) {
+                    expectedSum -= id;
+                }
+            }
+            refresh();
+
+            for (int i = 0; i < 3; ++i) {
+                SearchResponse response = client().prepareSearch("index").setSize(0).setSearchType(SearchType.QUERY_THEN_FETCH)
+                        .addAggregation(sum("sum").field("f")).get();
+                assertSearchResponse(response);
+                Sum sum = response.getAggregations().get("sum");
+                assertEquals(expectedSum, (long) sum.getValue());
+            }
+        }
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache()
+                .getHitCount(), greaterThan(0L));
+    }
+
+    public void testCacheHits() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index")
+                .addMapping("type", "f", "type=long")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED, true).get());
+        indexRandom(true,
+                client().prepareIndex("index", "type", "1").setSource("f", 1),
+                client().prepareIndex("index", "type", "2").setSource("f", 2),
+                client().prepareIndex("index", "type", "3").setSource("f", 3));
+        ensureSearchable("index");
+
+        for (int i = 0; i < 3; ++i) {
+            SearchResponse response = client().prepareSearch("index").setSize(2).addSort("f", SortOrder.DESC).get();
+            assertSearchResponse(response);
+            assertHitCount(response, 3);
+            assertThat(response.getHits().getHits().length, equalTo(2));
+            assertThat(response.getHits().getAt(0).id(), equalTo("3"));
+            assertThat(response.getHits().getAt(0).sourceAsMap().get("f"), equalTo(3));
+            assertThat(response.getHits().getAt(1).id(), equalTo("2"));
+        }
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache()
+                .getMemorySizeInBytes(), greaterThan(0L));
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache()
+                .getHitCount(), greaterThan(0L));
+    }
+
+    public void testCacheSegmentHits() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index")
+                .addMapping("type", "f", "type=long", "g", "type=string,index=not_analyzed")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED, true,
+                        IndicesRequestCache.INDEX_CACHE_REQUEST_SEGMENT_HITS, true, SETTING_NUMBER_OF_SHARDS, 1).get());
+        final TreeSet<Integer> liveDocs = new TreeSet<>();
+        int numDocs = 0;
+        for (int round = 0; round < 5; ++round) {
+            // every round adds a segment and deletes some documents of previous segments
+            final int numNewDocs = randomIntBetween(1, 20);
+            for (int i = 0; i < numNewDocs; ++i) {
+                client().prepareIndex("index", "type", Integer.toString(numDocs))
+                        .setSource("f", numDocs, "g", numDocs % 2 == 0 ? "even" : "odd").get();
+                liveDocs.add(numDocs);
+                numDocs++;
+            }
+            if (round > 0 && randomBoolean()) {
+                final int id = randomInt(numDocs - 1);
+                client().prepareDelete("index", "type", Integer.toString(id)).get();
+                liveDocs.remove(id);
+            }
+            refresh();
+
+            final List<Integer> expected = new ArrayList<>();
+            for (int doc : liveDocs.descendingSet()) {
+                if (doc % 2 == 0) {
+                    expected.add(doc);
+                }
+            }
+            final int from = randomIntBetween(0, 5);
+            final int size = randomIntBetween(1, 10);
+            for (int i = 0; i < 3; ++i) {
+                SearchResponse response = client().prepareSearch("index").setQuery(termQuery("g", "even"))
+                        .addSort("f", SortOrder.DESC).setFrom(from).setSize(size).get();
+                assertSearchResponse(response);
+                assertHitCount(response, expected.size());
+                final int numHits = Math.max(0, Math.min(size, expected.size() - from));
+                assertThat(response.getHits().getHits().length, equalTo(numHits));
+                for (int j = 0; j < numHits; ++j) {
+                    assertThat(response.getHits().getAt(j).id(), equalTo(Integer.toString(expected.get(from + j))));
+                }
+            }
+        }
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache()
+                .getHitCount(), greaterThan(0L));
+    }
+
+    public void testCacheSegmentHitsAcrossSegments() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index")
+                .addMapping("type", "f", "type=long")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED, true,
+                        IndicesRequestCache.INDEX_CACHE_REQUEST_SEGMENT_HITS, true, SETTING_NUMBER_OF_SHARDS, 1,
+                        MergePolicyConfig.INDEX_MERGE_ENABLED, false).get());
+        final int numSegments = randomIntBetween(3, 6);
+        int numDocs = 0;
+        for (int segment = 0; segment < numSegments; ++segment) {
+            final int numNewDocs = randomIntBetween(1, 10);
+            for (int i = 0; i < numNewDocs; ++i) {
+                client().prepareIndex("index", "type", Integer.toString(numDocs)).setSource("f", randomInt(100)).get();
+                numDocs++;
+            }
+            refresh();
+        }
+        assertThat(client().admin().indices().prepareSegments("index").get().getIndices().get("index").getShards().get(0)
+                .getShards()[0].getSegments().size(), equalTo(numSegments));
+
+        final SortOrder order = randomFrom(SortOrder.values());
+        final int size = randomIntBetween(1, numDocs);
+        final SearchResponse expected = client().prepareSearch("index").setRequestCache(false)
+                .addSort("f", order).addSort("_uid", SortOrder.ASC).setSize(size).get();
+        assertSearchResponse(expected);
+        // the first search fills the cache, the second one reads the hits of every segment from the cache
+        for (int i = 0; i < 2; ++i) {
+            final SearchResponse response = client().prepareSearch("index")
+                    .addSort("f", order).addSort("_uid", SortOrder.ASC).setSize(size).get();
+            assertSearchResponse(response);
+            assertHitCount(response, numDocs);
+            assertThat(response.getHits().getHits().length, equalTo(expected.getHits().getHits().length));
+            for (int j = 0; j < response.getHits().getHits().length; ++j) {
+                final SearchHit hit = response.getHits().getAt(j);
+                final SearchHit expectedHit = expected.getHits().getAt(j);
+                assertThat(hit.id(), equalTo(expectedHit.id()));
+                assertThat(hit.sourceAsMap(), equalTo(expectedHit.sourceAsMap()));
+                assertThat(hit.getSortValues(), equalTo(expectedHit.getSortValues()));
+            }
+        }
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache()
+                .getHitCount(), greaterThan(0L));
+    }
 }
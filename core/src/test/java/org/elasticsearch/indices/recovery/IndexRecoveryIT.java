@@ -32,16 +32,20 @@ import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.UnassignedInfo;
 import org.elasticsearch.cluster.routing.allocation.command.MoveAllocationCommand;
 import org.elasticsearch.cluster.routing.allocation.decider.FilterAllocationDecider;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.discovery.DiscoveryService;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.recovery.RecoveryStats;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.flush.ShardsSyncedFlushResult;
+import org.elasticsearch.indices.flush.SyncedFlushUtil;
 import org.elasticsearch.indices.recovery.RecoveryState.Stage;
 import org.elasticsearch.indices.recovery.RecoveryState.Type;
 import org.elasticsearch.plugins.Plugin;
@@ -242,6 +246,60 @@ public class IndexRecoveryIT extends ESIntegTestCase {
         validateIndexRecoveryState(nodeBRecoveryState.getIndex());
     }
 
+    public void testOperationsBasedRecoveryAfterSyncedFlush() throws Exception {
+        logger.info("--> start node A");
+        final String nodeA = internalCluster().startNode();
+
+        logger.info("--> create index on node: {}", nodeA);
+        assertAcked(prepareCreate(INDEX_NAME).setSettings(settingsBuilder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
+                .put(IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE, "1gb")
+                .put(UnassignedInfo.INDEX_DELAYED_NODE_LEFT_TIMEOUT_SETTING, "0s")));
+
+        logger.info("--> start node B");
+        final String nodeB = internalCluster().startNode();
+        ensureGreen(INDEX_NAME);
+
+        final int numDocs = randomIntBetween(10, 100);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex(INDEX_NAME, INDEX_TYPE).setSource("num", i).get();
+        }
+        logger.info("--> synced flush");
+        ShardsSyncedFlushResult syncedFlushResult = SyncedFlushUtil.attemptSyncedFlush(internalCluster(), new ShardId(INDEX_NAME, 0));
+        assertFalse(syncedFlushResult.failureReason(), syncedFlushResult.failed());
+        assertThat(syncedFlushResult.successfulShards(), equalTo(2));
+
+        final int moreDocs = randomIntBetween(1, 50);
+        logger.info("--> restart node B");
+        internalCluster().restartNode(nodeB, new InternalTestCluster.RestartCallback() {
+            @Override
+            public Settings onNodeStopped(String nodeName) throws Exception {
+                // the primary moves past the synced flush while the replica is offline, only node A can be used
+                for (int i = 0; i < moreDocs; i++) {
+                    internalCluster().client(nodeA).prepareIndex(INDEX_NAME, INDEX_TYPE).setSource("num", numDocs + i).get();
+                }
+                internalCluster().client(nodeA).admin().indices().prepareFlush(INDEX_NAME).setForce(true).setWaitIfOngoing(true).get();
+                return super.onNodeStopped(nodeName);
+            }
+        });
+        ensureGreen(INDEX_NAME);
+
+        logger.info("--> request recoveries");
+        RecoveryResponse response = client().admin().indices().prepareRecoveries(INDEX_NAME).get();
+        List<RecoveryState> nodeBResponses = findRecoveriesForTargetNode(nodeB, response.shardRecoveryStates().get(INDEX_NAME));
+        assertThat(nodeBResponses.size(), equalTo(1));
+        RecoveryState nodeBRecoveryState = nodeBResponses.get(0);
+        assertRecoveryState(nodeBRecoveryState, 0, Type.REPLICA, Stage.DONE, nodeA, nodeB, false);
+        // the replica still had the synced flush, so it only replays the operations that followed it
+        assertThat(nodeBRecoveryState.getIndex().totalFileCount(), equalTo(0));
+        assertThat(nodeBRecoveryState.getTranslog().recoveredOperations(), greaterThanOrEqualTo(moreDocs));
+
+        client().admin().indices().prepareRefresh(INDEX_NAME).get();
+        assertHitCount(client().prepareSearch(INDEX_NAME).setPreference("_primary").setSize(0).get(), numDocs + moreDocs);
+        assertHitCount(client().prepareSearch(INDEX_NAME).setPreference("_replica").setSize(0).get(), numDocs + moreDocs);
+    }
+
     @TestLogging("indices.recovery:TRACE")
     public void testRerouteRecovery() throws Exception {
         logger.info("--> start node A");
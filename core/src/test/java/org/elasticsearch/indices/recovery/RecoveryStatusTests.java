@@ -18,9 +18,12 @@
  */
 package org.elasticsearch.indices.recovery;
 
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.transport.LocalTransportAddress;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.IndexService;
@@ -29,6 +32,9 @@ import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -81,4 +87,48 @@ public class RecoveryStatusTests extends ESSingleNodeTestCase {
         // we must fail the recovery because marking it as done will try to move the shard to POST_RECOVERY, which will fail because it's started
         status.fail(new RecoveryFailedException(status.state(), "end of test. OK.", null), false);
     }
+
+    public void testWriteFileChunksOutOfOrder() throws IOException {
+        IndexService service = createIndex("foo");
+
+        IndexShard indexShard = service.getShardOrNull(0);
+        DiscoveryNode node = new DiscoveryNode("foo", new LocalTransportAddress("bar"), Version.CURRENT);
+        RecoveryStatus status = new RecoveryStatus(indexShard, node, new RecoveryTarget.RecoveryListener() {
+            @Override
+            public void onRecoveryDone(RecoveryState state) {
+            }
+
+            @Override
+            public void onRecoveryFailure(RecoveryState state, RecoveryFailedException e, boolean sendShardFailure) {
+            }
+        });
+        final byte[] bytes = new byte[randomIntBetween(1, 1000)];
+        random().nextBytes(bytes);
+        final StoreFileMetaData metaData = new StoreFileMetaData("foo.bar", bytes.length);
+        status.state().getIndex().addFileDetail("foo.bar", bytes.length, false);
+        final List<Integer> positions = new ArrayList<>();
+        for (int position = 0; position < bytes.length; position += randomIntBetween(1, 100)) {
+            positions.add(position);
+        }
+        final List<Integer> sendOrder = new ArrayList<>(positions);
+        Collections.shuffle(sendOrder, random());
+        for (int position : sendOrder) {
+            final int index = positions.indexOf(position);
+            final int end = index == positions.size() - 1 ? bytes.length : positions.get(index + 1);
+            status.writeFileChunk(metaData, position, new BytesArray(bytes, position, end - position), end == bytes.length);
+        }
+        assertNull(status.getOpenIndexOutput("foo.bar"));
+        for (RecoveryState.File file : status.state().getIndex().fileDetails()) {
+            if (file.name().equals("foo.bar")) {
+                assertEquals(bytes.length, file.recovered());
+            }
+        }
+        try (IndexInput input = status.store().directory().openInput(status.getTempNameForFile("foo.bar"), IOContext.DEFAULT)) {
+            assertEquals(bytes.length, input.length());
+            final byte[] written = new byte[bytes.length];
+            input.readBytes(written, 0, written.length);
+            assertArrayEquals(bytes, written);
+        }
+        status.fail(new RecoveryFailedException(status.state(), "end of test. OK.", null), false);
+    }
 }
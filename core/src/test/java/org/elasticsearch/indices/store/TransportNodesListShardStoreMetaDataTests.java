@@ -0,0 +1,92 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.store;
+
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.routing.ShardRoutingState;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.cluster.TestClusterService;
+import org.elasticsearch.test.transport.CapturingTransport;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.action.support.replication.ClusterStateCreationUtils.state;
+import static org.elasticsearch.action.support.replication.ClusterStateCreationUtils.stateWithNoShard;
+
+public class TransportNodesListShardStoreMetaDataTests extends ESTestCase {
+
+    private static ThreadPool THREAD_POOL;
+
+    private TestClusterService clusterService;
+    private TransportNodesListShardStoreMetaData action;
+
+    @BeforeClass
+    public static void startThreadPool() {
+        THREAD_POOL = new ThreadPool(TransportNodesListShardStoreMetaDataTests.class.getSimpleName());
+    }
+
+    @AfterClass
+    public static void destroyThreadPool() {
+        ThreadPool.terminate(THREAD_POOL, 30, TimeUnit.SECONDS);
+        // since static must set to null to be eligible for collection
+        THREAD_POOL = null;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        clusterService = new TestClusterService(THREAD_POOL);
+        final TransportService transportService = new TransportService(new CapturingTransport(), THREAD_POOL);
+        transportService.start();
+        action = new TransportNodesListShardStoreMetaData(Settings.EMPTY, new ClusterName("test"), THREAD_POOL, clusterService,
+                transportService, null, null, new ActionFilters(new HashSet<>()), new IndexNameExpressionResolver(Settings.EMPTY));
+    }
+
+    public void testDropMetaDataOfShardAllocatedLocally() {
+        final ShardId shardId = new ShardId("test", 0);
+        action.unallocatedMetaData.put(shardId, Store.MetadataSnapshot.EMPTY);
+
+        clusterService.setState(state("test", false, ShardRoutingState.STARTED));
+        assertTrue(action.unallocatedMetaData.containsKey(shardId));
+
+        clusterService.setState(state("test", true, randomFrom(ShardRoutingState.INITIALIZING, ShardRoutingState.STARTED)));
+        assertFalse(action.unallocatedMetaData.containsKey(shardId));
+    }
+
+    public void testDropMetaDataOfDeletedIndex() {
+        final ShardId shardId = new ShardId("test", 0);
+        clusterService.setState(state("test", false, ShardRoutingState.STARTED));
+        action.unallocatedMetaData.put(shardId, Store.MetadataSnapshot.EMPTY);
+
+        clusterService.setState(stateWithNoShard());
+        assertFalse(action.unallocatedMetaData.containsKey(shardId));
+    }
+}
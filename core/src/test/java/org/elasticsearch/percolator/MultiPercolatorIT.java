@@ -22,17 +22,25 @@ import org.apache.lucene.search.join.ScoreMode;
 import org.elasticsearch.action.ShardOperationFailedException;
 import org.elasticsearch.action.percolate.MultiPercolateRequestBuilder;
 import org.elasticsearch.action.percolate.MultiPercolateResponse;
+import org.elasticsearch.action.percolate.PercolateRequestBuilder;
+import org.elasticsearch.action.percolate.PercolateResponse;
 import org.elasticsearch.action.percolate.PercolateSourceBuilder;
 import org.elasticsearch.client.Requests;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.Fuzziness;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.test.ESIntegTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.elasticsearch.action.percolate.PercolateSourceBuilder.docBuilder;
+import static org.elasticsearch.common.settings.Settings.settingsBuilder;
 import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
 import static org.elasticsearch.common.xcontent.XContentFactory.smileBuilder;
 import static org.elasticsearch.common.xcontent.XContentFactory.yamlBuilder;
@@ -53,6 +61,101 @@ import static org.hamcrest.Matchers.nullValue;
 /**
  */
 public class MultiPercolatorIT extends ESIntegTestCase {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return settingsBuilder().put(super.nodeSettings(nodeOrdinal))
+                // make sure that documents get percolated in several batches
+                .put(PercolatorService.BATCH_SIZE, randomIntBetween(1, 8))
+                .build();
+    }
+
+    public void testBatchesMatchSinglePercolation() throws Exception {
+        assertAcked(prepareCreate("test").addMapping("type", "field1", "type=string"));
+        ensureGreen();
+
+        final String[] words = new String[] { "a", "b", "c", "d", "e" };
+        final int numQueries = randomIntBetween(1, 30);
+        for (int i = 0; i < numQueries; i++) {
+            final QueryBuilder query;
+            switch (randomInt(3)) {
+            case 0:
+                query = matchQuery("field1", randomFrom(words));
+                break;
+            case 1:
+                query = boolQuery().must(matchQuery("field1", randomFrom(words))).must(matchQuery("field1", randomFrom(words)));
+                break;
+            case 2:
+                query = matchQuery("field1", randomFrom(words) + " " + randomFrom(words)).operator(Operator.OR);
+                break;
+            default:
+                // term frequencies differ between a batch and a single document
+                query = matchQuery("field1", randomFrom(words) + " " + randomFrom(words)).cutoffFrequency(0.5f);
+                break;
+            }
+            client().prepareIndex("test", PercolatorService.TYPE_NAME, Integer.toString(i))
+                    .setSource(jsonBuilder().startObject().field("query", query).endObject())
+                    .get();
+        }
+        refresh();
+
+        final int numDocs = randomIntBetween(1, 50);
+        List<PercolateRequestBuilder> requests = new ArrayList<>();
+        MultiPercolateRequestBuilder builder = client().prepareMultiPercolate();
+        for (int i = 0; i < numDocs; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = randomIntBetween(0, 3); j > 0; j--) {
+                text.append(randomFrom(words)).append(' ');
+            }
+            PercolateRequestBuilder request = client().preparePercolate()
+                    .setIndices("test").setDocumentType("type")
+                    .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", text.toString()).endObject()))
+                    .setOnlyCount(rarely());
+            requests.add(request);
+            builder.add(request);
+        }
+        MultiPercolateResponse response = builder.get();
+
+        for (int i = 0; i < numDocs; i++) {
+            MultiPercolateResponse.Item item = response.getItems()[i];
+            assertThat(item.getErrorMessage(), nullValue());
+            PercolateResponse expected = requests.get(i).get();
+            assertThat(item.getResponse().getCount(), equalTo(expected.getCount()));
+            if (expected.getMatches() != null) {
+                assertThat(convertFromTextArray(item.getResponse().getMatches(), "test"),
+                        arrayContainingInAnyOrder(convertFromTextArray(expected.getMatches(), "test")));
+            }
+        }
+    }
+    public void testFuzzyBatchesMatchSinglePercolation() throws Exception {
+        assertAcked(prepareCreate("test").addMapping("type", "field1", "type=string"));
+        ensureGreen();
+
+        // only the top expansions of the terms of a batch are kept, which must not hide the terms of a document
+        client().prepareIndex("test", PercolatorService.TYPE_NAME, "1")
+                .setSource(jsonBuilder().startObject()
+                        .field("query", matchQuery("field1", "abcd").fuzziness(Fuzziness.ONE).maxExpansions(1)).endObject())
+                .get();
+        refresh();
+
+        final int numDocs = randomIntBetween(2, 26);
+        MultiPercolateRequestBuilder builder = client().prepareMultiPercolate();
+        for (int i = 0; i < numDocs; i++) {
+            // distinct terms at an edit distance of one from the query
+            String term = "abc" + (char) ('a' + i);
+            builder.add(client().preparePercolate()
+                    .setIndices("test").setDocumentType("type")
+                    .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", term).endObject())));
+        }
+        MultiPercolateResponse response = builder.get();
+
+        for (MultiPercolateResponse.Item item : response) {
+            assertThat(item.getErrorMessage(), nullValue());
+            assertMatchCount(item.getResponse(), 1L);
+            assertThat(convertFromTextArray(item.getResponse().getMatches(), "test"), arrayContaining("1"));
+        }
+    }
+
     public void testBasics() throws Exception {
         assertAcked(prepareCreate("test").addMapping("type", "field1", "type=string"));
         ensureGreen();
@@ -40,6 +40,7 @@ import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.engine.DocumentMissingException;
 import org.elasticsearch.index.engine.VersionConflictEngineException;
 import org.elasticsearch.index.percolator.PercolatorException;
+import org.elasticsearch.index.percolator.PercolatorQueriesRegistry;
 import org.elasticsearch.index.query.Operator;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.QueryShardException;
@@ -78,6 +79,7 @@ import static org.elasticsearch.index.query.QueryBuilders.matchQuery;
 import static org.elasticsearch.index.query.QueryBuilders.nestedQuery;
 import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.index.query.QueryBuilders.wildcardQuery;
 import static org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders.fieldValueFactorFunction;
 import static org.elasticsearch.percolator.PercolatorTestUtil.convertFromTextArray;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
@@ -503,6 +505,99 @@ public class PercolatorIT extends ESIntegTestCase {
         assertThat(percolate.getMatches(), emptyArray());
     }
 
+    public void testPercolateOnlyVerifiesCandidateQueries() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(settingsBuilder().put("index.number_of_shards", 1))
+                .addMapping("type", "field", "type=string"));
+        ensureGreen();
+
+        client().prepareIndex("test", PercolatorService.TYPE_NAME, "1")
+                .setSource(jsonBuilder().startObject().field("query", termQuery("field", "foo")).endObject())
+                .get();
+        client().prepareIndex("test", PercolatorService.TYPE_NAME, "2")
+                .setSource(jsonBuilder().startObject().field("query", matchQuery("field", "bar baz")).endObject())
+                .get();
+        client().prepareIndex("test", PercolatorService.TYPE_NAME, "3")
+                .setSource(jsonBuilder().startObject().field("query", boolQuery()
+                        .must(termQuery("field", "foo")).must(termQuery("field", "qux"))).endObject())
+                .get();
+        client().prepareIndex("test", PercolatorService.TYPE_NAME, "4")
+                .setSource(jsonBuilder().startObject().field("query", wildcardQuery("field", "f*")).endObject())
+                .get();
+        refresh();
+
+        PercolateResponse response = client().preparePercolate()
+                .setIndices("test").setDocumentType("type")
+                .setSource(jsonBuilder().startObject().startObject("doc").field("field", "foo bar").endObject().endObject())
+                .get();
+        assertMatchCount(response, 3l);
+        assertThat(convertFromTextArray(response.getMatches(), "test"), arrayContainingInAnyOrder("1", "2", "4"));
+
+        // query 3 is indexed by one of its required terms and is a candidate although it doesn't match,
+        // the wildcard query can't be indexed by terms and is always a candidate
+        IndicesStatsResponse indicesResponse = client().admin().indices().prepareStats("test").setPercolate(true).get();
+        assertThat(indicesResponse.getPrimaries().getPercolate().getCandidateQueries(), equalTo(4l));
+        assertThat(indicesResponse.getPrimaries().getPercolate().getVerifiedQueries(), equalTo(4l));
+
+        response = client().preparePercolate()
+                .setIndices("test").setDocumentType("type")
+                .setSource(jsonBuilder().startObject().startObject("doc").field("field", "baz").endObject().endObject())
+                .get();
+        assertMatchCount(response, 1l);
+        assertThat(convertFromTextArray(response.getMatches(), "test"), arrayContaining("2"));
+
+        indicesResponse = client().admin().indices().prepareStats("test").setPercolate(true).get();
+        assertThat(indicesResponse.getPrimaries().getPercolate().getCandidateQueries(), equalTo(6l));
+        assertThat(indicesResponse.getPrimaries().getPercolate().getVerifiedQueries(), equalTo(6l));
+    }
+
+    public void testLazyQueries() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(settingsBuilder()
+                .put(PercolatorQueriesRegistry.INDEX_PERCOLATOR_LAZY_QUERIES, true)
+                // small enough for parsed queries to be evicted
+                .put(PercolatorQueriesRegistry.INDEX_PERCOLATOR_PARSED_QUERIES_CACHE_SIZE, "1kb"))
+                .addMapping("type", "field", "type=string"));
+        ensureGreen();
+
+        final int numQueries = randomIntBetween(10, 50);
+        for (int i = 0; i < numQueries; ++i) {
+            client().prepareIndex("test", PercolatorService.TYPE_NAME, Integer.toString(i))
+                    .setSource(jsonBuilder().startObject()
+                            .field("query", boolQuery().should(termQuery("field", "value" + i)).should(termQuery("field", "all")))
+                            .field("metadata", randomAsciiOfLength(100))
+                            .endObject())
+                    .get();
+        }
+        refresh();
+
+        for (int i = 0; i < 5; ++i) {
+            final int query = randomIntBetween(0, numQueries - 1);
+            PercolateResponse response = client().preparePercolate()
+                    .setIndices("test").setDocumentType("type")
+                    .setSource(jsonBuilder().startObject().startObject("doc").field("field", "value" + query).endObject().endObject())
+                    .get();
+            assertMatchCount(response, 1l);
+            assertThat(convertFromTextArray(response.getMatches(), "test"), arrayContaining(Integer.toString(query)));
+        }
+
+        PercolateResponse response = client().preparePercolate()
+                .setIndices("test").setDocumentType("type")
+                .setSource(jsonBuilder().startObject().startObject("doc").field("field", "all").endObject().endObject())
+                .get();
+        assertMatchCount(response, numQueries);
+
+        // unregister a query
+        client().prepareDelete("test", PercolatorService.TYPE_NAME, "0").get();
+        response = client().preparePercolate()
+                .setIndices("test").setDocumentType("type")
+                .setSource(jsonBuilder().startObject().startObject("doc").field("field", "all").endObject().endObject())
+                .get();
+        assertMatchCount(response, numQueries - 1);
+
+        IndicesStatsResponse indicesResponse = client().admin().indices().prepareStats("test").setPercolate(true).get();
+        assertThat(indicesResponse.getPrimaries().getPercolate().getNumQueries(), equalTo((long) numQueries - 1));
+        assertThat(indicesResponse.getPrimaries().getPercolate().getMemorySizeInBytes(), greaterThan(0l));
+    }
+
     public void testPercolateStatistics() throws Exception {
         client().admin().indices().prepareCreate("test").execute().actionGet();
         ensureGreen();
@@ -528,6 +623,9 @@ public class PercolatorIT extends ESIntegTestCase {
         assertThat(indicesResponse.getTotal().getPercolate().getCurrent(), equalTo(0l));
         assertThat(indicesResponse.getTotal().getPercolate().getNumQueries(), equalTo((long)numShards.dataCopies)); //number of copies
         assertThat(indicesResponse.getTotal().getPercolate().getMemorySizeInBytes(), equalTo(-1l));
+        // match_all can't be indexed by terms, so it is always a candidate
+        assertThat(indicesResponse.getTotal().getPercolate().getCandidateQueries(), equalTo(1l));
+        assertThat(indicesResponse.getTotal().getPercolate().getVerifiedQueries(), equalTo(1l));
 
         NodesStatsResponse nodesResponse = client().admin().cluster().prepareNodesStats().execute().actionGet();
         long percolateCount = 0;
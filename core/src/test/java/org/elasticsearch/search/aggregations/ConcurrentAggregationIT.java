@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.MergePolicyConfig;
+import org.elasticsearch.search.aggregations.bucket.filter.Filter;
+import org.elasticsearch.search.aggregations.bucket.range.Range;
+import org.elasticsearch.search.aggregations.metrics.cardinality.Cardinality;
+import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.cardinality;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.filter;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.range;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.stats;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+
+@ESIntegTestCase.ClusterScope(scope = ESIntegTestCase.Scope.SUITE)
+public class ConcurrentAggregationIT extends ESIntegTestCase {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.settingsBuilder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put(AggregationPhase.CONCURRENT_SLICES_KEY, randomIntBetween(2, 4))
+                .put(AggregationPhase.CONCURRENT_MAX_THREADS_KEY, randomIntBetween(0, 4))
+                .build();
+    }
+
+    public void testSlicedCollection() throws Exception {
+        assertAcked(prepareCreate("idx").setSettings(Settings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .put(MergePolicyConfig.INDEX_MERGE_ENABLED, false))
+                .addMapping("type", "value", "type=long"));
+        final int numSegments = randomIntBetween(2, 6);
+        long numDocs = 0;
+        long sum = 0;
+        long lowDocs = 0;
+        for (int i = 0; i < numSegments; ++i) {
+            final int numSegmentDocs = randomIntBetween(1, 50);
+            for (int j = 0; j < numSegmentDocs; ++j) {
+                final long value = numDocs % 100;
+                client().prepareIndex("idx", "type").setSource("value", value).get();
+                ++numDocs;
+                sum += value;
+                if (value < 50) {
+                    ++lowDocs;
+                }
+            }
+            refresh();
+        }
+
+        SearchResponse response = client().prepareSearch("idx")
+                .setSize(0)
+                .addAggregation(stats("stats").field("value"))
+                .addAggregation(cardinality("cardinality").field("value"))
+                .addAggregation(range("range").field("value").addUnboundedTo(50).addUnboundedFrom(50))
+                .addAggregation(filter("filter").filter(rangeQuery("value").lt(50)).subAggregation(stats("stats").field("value")))
+                .get();
+        assertSearchResponse(response);
+        assertThat(response.getHits().totalHits(), equalTo(numDocs));
+
+        Stats stats = response.getAggregations().get("stats");
+        assertThat(stats.getCount(), equalTo(numDocs));
+        assertThat((long) stats.getSum(), equalTo(sum));
+
+        Cardinality cardinality = response.getAggregations().get("cardinality");
+        assertThat(cardinality.getValue(), equalTo(Math.min(numDocs, 100)));
+
+        Range range = response.getAggregations().get("range");
+        assertThat(range.getBuckets().get(0).getDocCount(), equalTo(lowDocs));
+        assertThat(range.getBuckets().get(1).getDocCount(), equalTo(numDocs - lowDocs));
+
+        Filter filter = response.getAggregations().get("filter");
+        assertThat(filter.getDocCount(), equalTo(lowDocs));
+        Stats filteredStats = filter.getAggregations().get("stats");
+        assertThat(filteredStats.getCount(), equalTo(lowDocs));
+    }
+}
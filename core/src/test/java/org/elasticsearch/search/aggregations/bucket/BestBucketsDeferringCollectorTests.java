@@ -0,0 +1,99 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class BestBucketsDeferringCollectorTests extends ESTestCase {
+
+    public void testBreakerIsReleasedOnClose() throws Exception {
+        final HierarchyCircuitBreakerService breakerService = breakerService(1, ByteSizeUnit.MB);
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        try (Directory directory = newDirectory(); IndexReader reader = singleDocReader(directory)) {
+            final LeafReaderContext ctx = reader.leaves().get(0);
+            final BestBucketsDeferringCollector collector =
+                    new BestBucketsDeferringCollector(new BigArrays(null, breakerService).withCircuitBreaking());
+            for (int leaf = randomIntBetween(1, 5); leaf > 0; leaf--) {
+                collect(collector.getLeafCollector(ctx), randomIntBetween(1, 10000));
+            }
+            collector.postCollection();
+            assertThat(breaker.getUsed(), greaterThan(0L));
+            collector.close();
+            assertThat(breaker.getUsed(), equalTo(0L));
+        }
+    }
+
+    public void testBreakerIsReleasedOnCloseAfterTripping() throws Exception {
+        final HierarchyCircuitBreakerService breakerService = breakerService(randomIntBetween(16, 64), ByteSizeUnit.KB);
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        try (Directory directory = newDirectory(); IndexReader reader = singleDocReader(directory)) {
+            final LeafReaderContext ctx = reader.leaves().get(0);
+            final BestBucketsDeferringCollector collector =
+                    new BestBucketsDeferringCollector(new BigArrays(null, breakerService).withCircuitBreaking());
+            try {
+                // the breaker may trip while collecting a leaf or when the entry of a leaf is built
+                while (true) {
+                    collect(collector.getLeafCollector(ctx), randomIntBetween(1, 5000));
+                }
+            } catch (CircuitBreakingException e) {
+                // expected
+            }
+            assertThat(breaker.getTrippedCount(), equalTo(1L));
+            collector.close();
+            assertThat(breaker.getUsed(), equalTo(0L));
+        }
+    }
+
+    private static HierarchyCircuitBreakerService breakerService(long limit, ByteSizeUnit unit) {
+        return new HierarchyCircuitBreakerService(
+                Settings.builder().put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), limit, unit).build(),
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    private static IndexReader singleDocReader(Directory directory) throws Exception {
+        try (RandomIndexWriter writer = new RandomIndexWriter(random(), directory)) {
+            writer.addDocument(new Document());
+            return writer.getReader();
+        }
+    }
+
+    private static void collect(LeafBucketCollector leafCollector, int numDocs) throws Exception {
+        // doc ids are only recorded, they don't need to exist
+        for (int doc = 0; doc < numDocs; doc++) {
+            leafCollector.collect(doc, randomInt(1000));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.search.aggregations.AggregationBuilders.sum;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Checks terms aggregations on integer fields that have a small range of values, whose bucket ordinals are
+ * looked up in a dense array.
+ */
+public class DenseLongTermsIT extends ESIntegTestCase {
+
+    public void testSmallRange() throws Exception {
+        assertAcked(prepareCreate("idx").addMapping("type", "status", "type=integer"));
+        final int numDocs = randomIntBetween(10, 200);
+        final long[] counts = new long[5];
+        long missingCount = 0;
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = 0; i < numDocs; ++i) {
+            if (rarely()) {
+                docs.add(client().prepareIndex("idx", "type").setSource("other", i));
+                missingCount++;
+            } else {
+                final int status = randomIntBetween(0, counts.length - 1);
+                docs.add(client().prepareIndex("idx", "type").setSource("status", 200 + 100 * status));
+                counts[status]++;
+            }
+        }
+        indexRandom(true, docs);
+
+        SearchResponse response = client().prepareSearch("idx")
+                .addAggregation(terms("terms").field("status").size(0).missing(-1000000)
+                        .subAggregation(sum("sum").field("status")))
+                .get();
+        assertSearchResponse(response);
+
+        Terms terms = response.getAggregations().get("terms");
+        for (int i = 0; i < counts.length; ++i) {
+            final long value = 200 + 100 * i;
+            Terms.Bucket bucket = terms.getBucketByKey(Long.toString(value));
+            if (counts[i] == 0) {
+                assertNull(bucket);
+            } else {
+                assertThat(bucket, notNullValue());
+                assertThat(bucket.getDocCount(), equalTo(counts[i]));
+                Sum sum = bucket.getAggregations().get("sum");
+                assertThat((long) sum.getValue(), equalTo(value * counts[i]));
+            }
+        }
+        // the missing value is out of the range of indexed values
+        Terms.Bucket missingBucket = terms.getBucketByKey("-1000000");
+        if (missingCount == 0) {
+            assertNull(missingBucket);
+        } else {
+            assertThat(missingBucket, notNullValue());
+            assertThat(missingBucket.getDocCount(), equalTo(missingCount));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class FilterByFilterCounterTests extends ESTestCase {
+
+    public void testEstimateMatchingDocs() throws Exception {
+        Directory directory = newDirectory();
+        RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory);
+        for (int i = 0; i < 100; i++) {
+            Document document = new Document();
+            document.add(new LongField("value", i, Field.Store.NO));
+            document.add(new StringField("even", Boolean.toString(i % 2 == 0), Field.Store.NO));
+            indexWriter.addDocument(document);
+        }
+        IndexReader reader = indexWriter.getReader();
+        indexWriter.close();
+
+        assertThat(FilterByFilterCounter.estimateMatchingDocs(new MatchAllDocsQuery(), reader), equalTo(100L));
+        TermQuery even = new TermQuery(new Term("even", "true"));
+        assertThat(FilterByFilterCounter.estimateMatchingDocs(new ConstantScoreQuery(even), reader), equalTo(50L));
+        NumericRangeQuery<Long> lastTen = NumericRangeQuery.newLongRange("value", 90L, null, true, true);
+        assertThat(FilterByFilterCounter.estimateMatchingDocs(lastTen, reader), equalTo(10L));
+        NumericRangeQuery<Long> all = NumericRangeQuery.newLongRange("value", -1000L, 1000L, true, true);
+        assertThat(FilterByFilterCounter.estimateMatchingDocs(all, reader), equalTo(100L));
+        NumericRangeQuery<Long> none = NumericRangeQuery.newLongRange("value", 200L, 300L, true, true);
+        assertThat(FilterByFilterCounter.estimateMatchingDocs(none, reader), equalTo(0L));
+
+        BooleanQuery.Builder conjunction = new BooleanQuery.Builder();
+        conjunction.add(even, Occur.FILTER);
+        conjunction.add(lastTen, Occur.MUST);
+        assertThat(FilterByFilterCounter.estimateMatchingDocs(conjunction.build(), reader), equalTo(10L));
+
+        BooleanQuery.Builder disjunction = new BooleanQuery.Builder();
+        disjunction.add(even, Occur.SHOULD);
+        disjunction.add(lastTen, Occur.SHOULD);
+        assertThat(FilterByFilterCounter.estimateMatchingDocs(disjunction.build(), reader), equalTo(-1L));
+        assertThat(FilterByFilterCounter.estimateMatchingDocs(new WildcardQuery(new Term("even", "t*")), reader), equalTo(-1L));
+
+        reader.close();
+        directory.close();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.shard.MergePolicyConfig;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.filter.Filter;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.dateHistogram;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.dateRange;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.filter;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.filters;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.histogram;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.range;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that top-level bucket aggregations without sub aggregations, which count buckets filter by filter, return the
+ * same buckets as when they are nested under a filter aggregation, which makes them look up the buckets of every value.
+ */
+public class FilterByFilterIT extends ESIntegTestCase {
+
+    private static final long START = new DateTime(2015, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+
+    private void indexDocs() throws Exception {
+        assertAcked(prepareCreate("idx").addMapping("type",
+                "date", "type=date", "long", "type=long", "int", "type=integer", "double", "type=double",
+                "tag", "type=string,index=not_analyzed"));
+        final int numDocs = randomIntBetween(50, 300);
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = 0; i < numDocs; ++i) {
+            if (rarely()) {
+                docs.add(client().prepareIndex("idx", "type", Integer.toString(i)).setSource("tag", "none"));
+                continue;
+            }
+            docs.add(client().prepareIndex("idx", "type", Integer.toString(i)).setSource(
+                    "date", START + randomIntBetween(0, 90 * 24) * 3600000L,
+                    "long", randomIntBetween(-50, 50),
+                    "int", new int[] { randomIntBetween(-50, 50), randomIntBetween(-50, 50) },
+                    "double", randomDouble() * 100 - 50,
+                    "tag", randomFrom("a", "b", "c")));
+        }
+        indexRandom(true, docs);
+        // deleted documents must not be counted
+        for (int i = 0; i < numDocs; ++i) {
+            if (rarely()) {
+                client().prepareDelete("idx", "type", Integer.toString(i)).get();
+            }
+        }
+        refresh();
+    }
+
+    public void testSameBuckets() throws Exception {
+        indexDocs();
+        final List<Supplier<AbstractAggregationBuilder>> aggs = new ArrayList<>();
+        aggs.add(() -> filters("agg").filter("a", termQuery("tag", "a")).filter("bc", termQuery("tag", randomFrom("b", "c")))
+                .filter("range", rangeQuery("long").gte(0)));
+        aggs.add(() -> range("agg").field("long").addUnboundedTo(-10).addRange(-10, 10).addRange(0, 25.5).addUnboundedFrom(10));
+        aggs.add(() -> range("agg").field("int").addUnboundedTo(0).addRange(-20, 20).addUnboundedFrom(1e10));
+        aggs.add(() -> range("agg").field("double").addUnboundedTo(-10.5).addRange(-10.5, 3.25).addUnboundedFrom(3.25));
+        aggs.add(() -> dateRange("agg").field("date").addUnboundedTo("2015-02-01").addRange("2015-01-15", "2015-03-01")
+                .addUnboundedFrom("2015-03-01"));
+        aggs.add(() -> histogram("agg").field("long").interval(randomIntBetween(1, 20)));
+        aggs.add(() -> histogram("agg").field("int").interval(randomIntBetween(1, 20)).minDocCount(0));
+        aggs.add(() -> dateHistogram("agg").field("date").interval(randomFrom(DateHistogramInterval.DAY, DateHistogramInterval.WEEK,
+                DateHistogramInterval.MONTH)).timeZone(randomFrom("UTC", "Europe/Paris", "America/New_York")));
+        aggs.add(() -> dateHistogram("agg").field("date").interval(DateHistogramInterval.HOUR).offset("+30m"));
+
+        final List<QueryBuilder> queries = new ArrayList<>();
+        queries.add(matchAllQuery());
+        queries.add(rangeQuery("long").gte(randomIntBetween(-50, 50)));
+        queries.add(termQuery("tag", "b"));
+
+        for (Supplier<AbstractAggregationBuilder> agg : aggs) {
+            for (QueryBuilder query : queries) {
+                AbstractAggregationBuilder topLevel = agg.get();
+                SearchResponse response = client().prepareSearch("idx").setQuery(query).setSize(0)
+                        .addAggregation(topLevel)
+                        .addAggregation(filter("wrapper").filter(matchAllQuery()).subAggregation(topLevel))
+                        .get();
+                assertSearchResponse(response);
+                MultiBucketsAggregation expected = ((Filter) response.getAggregations().get("wrapper")).getAggregations().get("agg");
+                MultiBucketsAggregation actual = response.getAggregations().get("agg");
+                assertSameBuckets(expected, actual);
+            }
+        }
+    }
+
+    /**
+     * The query matches most documents of the first segment but only a few documents of the second one, whose filters
+     * are then counted by advancing them to the matching documents, and only a few documents of the shard for the
+     * selective query, which reads the values of matching documents instead.
+     */
+    public void testSparseMatches() throws Exception {
+        assertAcked(prepareCreate("idx").addMapping("type", "long", "type=long", "tag", "type=string,index=not_analyzed")
+                .setSettings(SETTING_NUMBER_OF_SHARDS, 1, MergePolicyConfig.INDEX_MERGE_ENABLED, false));
+        int id = 0;
+        final int numDense = randomIntBetween(100, 200);
+        for (int i = 0; i < numDense; ++i) {
+            client().prepareIndex("idx", "type", Integer.toString(id++)).setSource("long", randomIntBetween(-50, 50), "tag", "a").get();
+        }
+        refresh();
+        final int numSparse = randomIntBetween(1, 5);
+        final int numOthers = randomIntBetween(20, 80);
+        for (int i = 0; i < numSparse + numOthers; ++i) {
+            client().prepareIndex("idx", "type", Integer.toString(id++))
+                    .setSource("long", randomIntBetween(-50, 50), "tag", i < numSparse ? "a" : "b").get();
+        }
+        refresh();
+
+        final List<Supplier<AbstractAggregationBuilder>> aggs = new ArrayList<>();
+        aggs.add(() -> filters("agg").filter("a", termQuery("tag", "a")).filter("b", termQuery("tag", "b"))
+                .filter("range", rangeQuery("long").gte(0)));
+        aggs.add(() -> range("agg").field("long").addUnboundedTo(-10).addRange(-10, 10).addUnboundedFrom(10));
+        aggs.add(() -> histogram("agg").field("long").interval(randomIntBetween(1, 20)));
+        for (Supplier<AbstractAggregationBuilder> agg : aggs) {
+            for (QueryBuilder query : new QueryBuilder[] { termQuery("tag", "a"), termQuery("tag", "b") }) {
+                AbstractAggregationBuilder topLevel = agg.get();
+                SearchResponse response = client().prepareSearch("idx").setQuery(query).setSize(0)
+                        .addAggregation(topLevel)
+                        .addAggregation(filter("wrapper").filter(matchAllQuery()).subAggregation(topLevel))
+                        .get();
+                assertSearchResponse(response);
+                MultiBucketsAggregation expected = ((Filter) response.getAggregations().get("wrapper")).getAggregations().get("agg");
+                MultiBucketsAggregation actual = response.getAggregations().get("agg");
+                assertSameBuckets(expected, actual);
+            }
+        }
+    }
+
+    private static void assertSameBuckets(MultiBucketsAggregation expected, MultiBucketsAggregation actual) {
+        assertThat(actual.getBuckets().size(), equalTo(expected.getBuckets().size()));
+        for (int i = 0; i < expected.getBuckets().size(); ++i) {
+            MultiBucketsAggregation.Bucket expectedBucket = expected.getBuckets().get(i);
+            MultiBucketsAggregation.Bucket actualBucket = actual.getBuckets().get(i);
+            assertThat(actualBucket.getKeyAsString(), equalTo(expectedBucket.getKeyAsString()));
+            assertThat("bucket " + expectedBucket.getKeyAsString(), actualBucket.getDocCount(), equalTo(expectedBucket.getDocCount()));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.bucket.nested.NestedAggregator;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class TermsAggregatorFactoryTests extends ESTestCase {
+
+    public void testSubAggCollectMode() throws Exception {
+        AggregatorFactories.Builder builder = AggregatorFactories.builder();
+        builder.addAggregator(new NestedAggregator.Factory("nested", "path"));
+        AggregatorFactories subFactories = builder.build();
+
+        // no sub aggregations, nothing to defer
+        assertThat(TermsAggregatorFactory.subAggCollectionMode(AggregatorFactories.EMPTY, 10, -1),
+                equalTo(SubAggCollectionMode.DEPTH_FIRST));
+        // all buckets are returned
+        assertThat(TermsAggregatorFactory.subAggCollectionMode(subFactories, Integer.MAX_VALUE, -1),
+                equalTo(SubAggCollectionMode.DEPTH_FIRST));
+        // unknown cardinality
+        assertThat(TermsAggregatorFactory.subAggCollectionMode(subFactories, 10, -1),
+                equalTo(SubAggCollectionMode.BREADTH_FIRST));
+        // cardinality lower than the number of buckets that the shard returns
+        assertThat(TermsAggregatorFactory.subAggCollectionMode(subFactories, 10, randomIntBetween(0, 10)),
+                equalTo(SubAggCollectionMode.DEPTH_FIRST));
+        // cardinality greater than the number of buckets that the shard returns
+        assertThat(TermsAggregatorFactory.subAggCollectionMode(subFactories, 10, randomIntBetween(11, 1000)),
+                equalTo(SubAggCollectionMode.BREADTH_FIRST));
+    }
+}
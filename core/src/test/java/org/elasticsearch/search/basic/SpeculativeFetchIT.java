@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.basic;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.action.search.type.TransportSearchQueryThenFetchAction;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that query then fetch searches return the same hits whether or not shards fetch their top hits speculatively,
+ * and whether or not shards fall back to a separate fetch phase because their top hits are too large.
+ */
+public class SpeculativeFetchIT extends ESIntegTestCase {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.settingsBuilder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put(TransportSearchQueryThenFetchAction.SPECULATIVE_FETCH_MAX_DOCS, randomFrom(0, 10, 100, 1000))
+                // tiny limits make some or all shards leave their top hits to a separate fetch phase
+                .put(SearchService.SPECULATIVE_FETCH_MAX_BYTES_KEY, randomFrom("0b", "100b", "1kb", "1mb"))
+                .build();
+    }
+
+    public void testSameHits() throws Exception {
+        assertAcked(prepareCreate("idx").setSettings(SETTING_NUMBER_OF_SHARDS, randomIntBetween(2, 10))
+                .addMapping("type", "value", "type=integer"));
+        final int numDocs = randomIntBetween(0, 100);
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = 0; i < numDocs; ++i) {
+            docs.add(client().prepareIndex("idx", "type", Integer.toString(i)).setSource("value", i));
+        }
+        indexRandom(true, docs);
+
+        for (int iter = 0; iter < 10; ++iter) {
+            final int from = randomBoolean() ? 0 : randomIntBetween(0, 20);
+            final int size = randomIntBetween(0, 20);
+            final int minValue = randomIntBetween(0, 50);
+            SearchResponse response = client().prepareSearch("idx").setSearchType(SearchType.QUERY_THEN_FETCH)
+                    .setQuery(rangeQuery("value").gte(minValue))
+                    .addSort("value", SortOrder.DESC)
+                    .setFrom(from).setSize(size)
+                    .addAggregation(AggregationBuilders.max("max").field("value"))
+                    .get();
+            assertSearchResponse(response);
+            final int numMatches = Math.max(0, numDocs - minValue);
+            assertHitCount(response, numMatches);
+            final int numHits = Math.max(0, Math.min(size, numMatches - from));
+            assertThat(response.getHits().getHits().length, equalTo(numHits));
+            for (int i = 0; i < numHits; ++i) {
+                assertThat(response.getHits().getAt(i).id(), equalTo(Integer.toString(numDocs - 1 - from - i)));
+                assertThat(response.getHits().getAt(i).getSource().get("value"), equalTo(numDocs - 1 - from - i));
+            }
+            if (numMatches > 0) {
+                Max max = response.getAggregations().get("max");
+                assertThat(max.getValue(), equalTo((double) numDocs - 1));
+            }
+        }
+
+        // default size
+        SearchResponse response = client().prepareSearch("idx").setQuery(matchAllQuery()).addSort("value", SortOrder.ASC).get();
+        assertSearchResponse(response);
+        assertThat(response.getHits().getHits().length, equalTo(Math.min(10, numDocs)));
+        for (int i = 0; i < response.getHits().getHits().length; ++i) {
+            assertThat(response.getHits().getAt(i).id(), equalTo(Integer.toString(i)));
+        }
+    }
+}
@@ -156,6 +156,12 @@ public class SearchSourceBuilderTests extends ESTestCase {
                 builder.fieldDataField(randomAsciiOfLengthBetween(5, 50));
             }
         }
+        if (randomBoolean()) {
+            int docValueFieldsSize = randomInt(25);
+            for (int i = 0; i < docValueFieldsSize; i++) {
+                builder.docValueField(randomAsciiOfLengthBetween(5, 50));
+            }
+        }
         if (randomBoolean()) {
             int scriptFieldsSize = randomInt(25);
             for (int i = 0; i < scriptFieldsSize; i++) {
@@ -0,0 +1,78 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.fetch;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Checks that {@code docvalue_fields} are returned from doc values, or from stored fields for fields without doc values.
+ */
+public class DocValueFieldsIT extends ESIntegTestCase {
+
+    public void testDocValueFields() throws Exception {
+        assertAcked(prepareCreate("idx").addMapping("type",
+                "long", "type=long",
+                "tag", "type=string,index=not_analyzed",
+                "date", "type=date",
+                "stored", "type=string,index=not_analyzed,doc_values=false,store=true",
+                "other", "type=string,index=not_analyzed,doc_values=false"));
+        final int numDocs = randomIntBetween(10, 100);
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = 0; i < numDocs; ++i) {
+            docs.add(client().prepareIndex("idx", "type", Integer.toString(i)).setSource(
+                    "long", new long[] {i, -i},
+                    "tag", "tag" + i,
+                    "date", "2015-01-0" + (1 + i % 9) + "T00:00:00Z",
+                    "stored", "stored" + i,
+                    "other", "other" + i));
+        }
+        indexRandom(true, docs);
+
+        SearchResponse response = client().prepareSearch("idx").setSize(numDocs)
+                .addDocValueField("long").addDocValueField("tag").addDocValueField("date").addDocValueField("stored")
+                .addDocValueField("other").addDocValueField("unmapped")
+                .get();
+        assertSearchResponse(response);
+        assertThat(response.getHits().hits().length, equalTo(numDocs));
+        for (SearchHit hit : response.getHits()) {
+            final int i = Integer.parseInt(hit.getId());
+            // the source is not loaded by default when doc value fields are requested
+            assertThat(hit.getSourceAsString(), nullValue());
+            assertThat(hit.field("long").getValues(), equalTo(Arrays.<Object>asList((long) -i, (long) i)));
+            assertThat(hit.field("tag").getValue(), equalTo("tag" + i));
+            assertThat(hit.field("date").getValue(), equalTo("2015-01-0" + (1 + i % 9) + "T00:00:00.000Z"));
+            assertThat(hit.field("stored").getValue(), equalTo("stored" + i));
+            // neither doc values nor stored
+            assertThat(hit.field("other"), nullValue());
+            assertThat(hit.field("unmapped"), nullValue());
+        }
+    }
+}
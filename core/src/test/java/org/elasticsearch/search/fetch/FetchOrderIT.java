@@ -0,0 +1,80 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.fetch;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that hits are returned in the order of the query phase although the fetch phase loads them in doc id order.
+ */
+public class FetchOrderIT extends ESIntegTestCase {
+
+    public void testHitsAreInSortOrder() throws Exception {
+        assertAcked(prepareCreate("idx").addMapping("type", "rank", "type=integer,store=true"));
+        final int numDocs = randomIntBetween(50, 500);
+        // ranks are a random permutation, so that the sort order has nothing to do with the doc id order
+        final List<Integer> ranks = new ArrayList<>();
+        for (int i = 0; i < numDocs; ++i) {
+            ranks.add(i);
+        }
+        Collections.shuffle(ranks, random());
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = 0; i < numDocs; ++i) {
+            docs.add(client().prepareIndex("idx", "type", Integer.toString(ranks.get(i))).setSource("rank", ranks.get(i)));
+        }
+        indexRandom(true, docs);
+
+        final boolean storedFields = randomBoolean();
+        final int size = randomIntBetween(1, numDocs);
+        final int from = randomIntBetween(0, numDocs - size);
+        final SortOrder order = randomFrom(SortOrder.values());
+        SearchResponse response;
+        if (storedFields) {
+            response = client().prepareSearch("idx").addSort("rank", order).setFrom(from).setSize(size).addField("rank").get();
+        } else {
+            response = client().prepareSearch("idx").addSort("rank", order).setFrom(from).setSize(size).get();
+        }
+        assertSearchResponse(response);
+        assertHitCount(response, numDocs);
+        assertThat(response.getHits().hits().length, equalTo(size));
+        for (int i = 0; i < size; ++i) {
+            final int expectedRank = order == SortOrder.ASC ? from + i : numDocs - 1 - from - i;
+            final SearchHit hit = response.getHits().getAt(i);
+            assertThat(hit.getId(), equalTo(Integer.toString(expectedRank)));
+            if (storedFields) {
+                assertThat(((Number) hit.field("rank").getValue()).intValue(), equalTo(expectedRank));
+            } else {
+                assertThat(hit.getSource().get("rank"), equalTo(expectedRank));
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.msearch;
 
+import org.elasticsearch.action.search.MultiSearchRequestBuilder;
 import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.test.ESIntegTestCase;
@@ -27,6 +28,7 @@ import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertFirs
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.hasId;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 
 /**
@@ -54,4 +56,48 @@ public class SimpleMultiSearchIT extends ESIntegTestCase {
         assertFirstHit(response.getResponses()[0].getResponse(), hasId("1"));
         assertFirstHit(response.getResponses()[1].getResponse(), hasId("2"));
     }
+
+    public void testMaxConcurrentSearchRequestsAndDuplicates() {
+        createIndex("test");
+        ensureGreen();
+        final int numDocs = randomIntBetween(1, 10);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("field", i % 2 == 0 ? "even" : "odd").get();
+        }
+        refresh();
+
+        MultiSearchRequestBuilder request = client().prepareMultiSearch();
+        request.setMaxConcurrentSearchRequests(randomIntBetween(1, 3));
+        final int numSearches = randomIntBetween(5, 20);
+        final String[] terms = new String[numSearches];
+        for (int i = 0; i < numSearches; i++) {
+            // duplicated searches are executed once and share their response
+            terms[i] = randomFrom("even", "odd", "none");
+            request.add(client().prepareSearch("test").setQuery(QueryBuilders.termQuery("field", terms[i])));
+        }
+        MultiSearchResponse response = request.get();
+
+        assertThat(response.getResponses().length, equalTo(numSearches));
+        for (int i = 0; i < numSearches; i++) {
+            assertNoFailures(response.getResponses()[i].getResponse());
+            final long expectedHits;
+            if (terms[i].equals("even")) {
+                expectedHits = (numDocs + 1) / 2;
+            } else if (terms[i].equals("odd")) {
+                expectedHits = numDocs / 2;
+            } else {
+                expectedHits = 0;
+            }
+            assertHitCount(response.getResponses()[i].getResponse(), expectedHits);
+        }
+    }
+
+    public void testInvalidMaxConcurrentSearchRequests() {
+        try {
+            client().prepareMultiSearch().setMaxConcurrentSearchRequests(0);
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("maxConcurrentSearchRequests"));
+        }
+    }
 }
@@ -31,10 +31,12 @@ import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotR
 import org.elasticsearch.action.admin.cluster.snapshots.status.SnapshotIndexShardStage;
 import org.elasticsearch.action.admin.cluster.snapshots.status.SnapshotIndexShardStatus;
 import org.elasticsearch.action.admin.cluster.snapshots.status.SnapshotIndexStatus;
+import org.elasticsearch.action.admin.cluster.snapshots.status.SnapshotStats;
 import org.elasticsearch.action.admin.cluster.snapshots.status.SnapshotStatus;
 import org.elasticsearch.action.admin.cluster.snapshots.status.SnapshotsStatusResponse;
 import org.elasticsearch.action.admin.cluster.state.ClusterStateResponse;
 import org.elasticsearch.action.admin.indices.flush.FlushResponse;
+import org.elasticsearch.action.admin.indices.recovery.RecoveryResponse;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
 import org.elasticsearch.action.admin.indices.template.get.GetIndexTemplatesResponse;
 import org.elasticsearch.action.index.IndexRequestBuilder;
@@ -61,6 +63,8 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.indices.InvalidIndexNameException;
+import org.elasticsearch.indices.recovery.RecoveryState;
+import org.elasticsearch.indices.recovery.RecoveryTarget;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.repositories.RepositoryException;
 import org.elasticsearch.test.junit.annotations.TestLogging;
@@ -98,6 +102,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.startsWith;
@@ -815,6 +820,111 @@ public class SharedClusterSnapshotRestoreIT extends AbstractSnapshotIntegTestCas
         assertThat(numberOfFiles(repo), equalTo(numberOfFiles[0]));
     }
 
+    public void testDedupSnapshots() throws Exception {
+        final int numberOfSnapshots = between(3, 6);
+        Client client = client();
+
+        Path repo = randomRepoPath();
+        logger.info("-->  creating repository with dedup at " + repo.toAbsolutePath());
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder()
+                        .put("location", repo)
+                        .put("compress", randomBoolean())
+                        .put("dedup", true)
+                        .put("dedup_chunk_size", randomIntBetween(64, 4096), ByteSizeUnit.BYTES)));
+
+        createIndex("test-idx");
+        ensureGreen();
+
+        int[] numberOfFiles = new int[numberOfSnapshots];
+        logger.info("--> creating {} snapshots ", numberOfSnapshots);
+        for (int i = 0; i < numberOfSnapshots; i++) {
+            for (int j = 0; j < 10; j++) {
+                index("test-idx", "doc", Integer.toString(i * 10 + j), "foo", "bar" + (i * 10 + j));
+            }
+            refresh();
+            if (randomBoolean()) {
+                // rewrite all segments
+                client.admin().indices().prepareForceMerge("test-idx").setMaxNumSegments(1).get();
+            }
+            logger.info("--> snapshot {}", i);
+            CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-" + i).setWaitForCompletion(true).setIndices("test-idx").get();
+            assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), greaterThan(0));
+            assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+            numberOfFiles[i] = numberOfFiles(repo);
+        }
+
+        logger.info("--> delete all snapshots except the first one and last one");
+        for (int i = 1; i < numberOfSnapshots - 1; i++) {
+            client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-" + i).get();
+        }
+
+        logger.info("--> restore the first snapshot and then the last snapshot");
+        for (int i : new int[] {0, numberOfSnapshots - 1}) {
+            cluster().wipeIndices("test-idx");
+            RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap-" + i).setWaitForCompletion(true).execute().actionGet();
+            assertThat(restoreSnapshotResponse.getRestoreInfo().totalShards(), greaterThan(0));
+            assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+            assertHitCount(client.prepareSearch("test-idx").setSize(0).get(), 10L * (i + 1));
+            assertHitCount(client.prepareSearch("test-idx").setQuery(matchQuery("foo", "bar" + (i * 10 + 9))).get(), 1L);
+        }
+
+        logger.info("--> delete the last snapshot");
+        client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-" + (numberOfSnapshots - 1)).get();
+        logger.info("--> make sure that chunks that are only referenced by deleted snapshots were deleted");
+        assertThat(numberOfFiles(repo), equalTo(numberOfFiles[0]));
+    }
+
+    public void testRecoverReplicaFromSnapshotRepository() throws Exception {
+        internalCluster().ensureAtLeastNumDataNodes(2);
+        Client client = client();
+
+        Path repo = randomRepoPath();
+        logger.info("-->  creating repository at " + repo.toAbsolutePath());
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder()
+                        .put("location", repo)
+                        .put("compress", randomBoolean())));
+
+        assertAcked(prepareCreate("test-idx", 2, Settings.builder()
+                .put(SETTING_NUMBER_OF_SHARDS, between(1, 3))
+                .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                .put(RecoveryTarget.INDEX_RECOVERY_SNAPSHOT_REPOSITORY, "test-repo")));
+        ensureGreen();
+        IndexRequestBuilder[] builders = new IndexRequestBuilder[between(10, 100)];
+        for (int i = 0; i < builders.length; i++) {
+            builders[i] = client.prepareIndex("test-idx", "doc", Integer.toString(i)).setSource("foo", "bar" + i);
+        }
+        indexRandom(true, builders);
+        flushAndRefresh("test-idx");
+
+        logger.info("--> snapshot");
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap")
+                .setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+
+        logger.info("--> add a replica, its files should be copied from the snapshot");
+        assertAcked(client.admin().indices().prepareUpdateSettings("test-idx").setSettings(Settings.builder()
+                .put(SETTING_NUMBER_OF_REPLICAS, 1)));
+        ensureGreen();
+        assertHitCount(client.prepareSearch("test-idx").setSize(0).get(), builders.length);
+
+        RecoveryResponse recoveryResponse = client.admin().indices().prepareRecoveries("test-idx").get();
+        int replicaRecoveries = 0;
+        for (RecoveryState recoveryState : recoveryResponse.shardRecoveryStates().get("test-idx")) {
+            if (recoveryState.getType() != RecoveryState.Type.REPLICA) {
+                continue;
+            }
+            replicaRecoveries++;
+            RecoveryState.Index index = recoveryState.getIndex();
+            assertThat(index.snapshotRecoveredBytes(), greaterThan(0L));
+            // the source node didn't have to send the files that were copied from the snapshot
+            assertThat(index.reusedBytes(), greaterThan(0L));
+            assertThat(index.snapshotRecoveredBytes(), lessThanOrEqualTo(index.reusedBytes()));
+        }
+        assertThat(replicaRecoveries, equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+    }
+
     public void testDeleteSnapshotWithMissingIndexAndShardMetadata() throws Exception {
         Client client = client();
 
@@ -1487,6 +1597,12 @@ public class SharedClusterSnapshotRestoreIT extends AbstractSnapshotIntegTestCas
         assertThat(indexStatus.getShardsStats().getFailedShards(), equalTo(snapshotInfo.failedShards()));
         assertThat(indexStatus.getShardsStats().getDoneShards(), equalTo(snapshotInfo.successfulShards()));
         assertThat(indexStatus.getShards().size(), equalTo(snapshotInfo.totalShards()));
+        for (SnapshotIndexShardStatus shardStatus : indexStatus) {
+            SnapshotStats stats = shardStatus.getStats();
+            if (shardStatus.getStage() == SnapshotIndexShardStage.DONE && stats.getTime() > 0) {
+                assertThat(stats.getThroughput(), equalTo(stats.getProcessedSize() * 1000 / stats.getTime()));
+            }
+        }
 
         logger.info("--> checking snapshot status after it is done with empty repository", blockedNode);
         response = client.admin().cluster().prepareSnapshotStatus().execute().actionGet();